@@ -1,6 +1,11 @@
 package com.mediarenamer.config;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCache;
@@ -9,6 +14,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -19,6 +28,14 @@ import java.util.concurrent.TimeUnit;
  * - 为不同类型的缓存设置不同的过期时间和容量
  * - 搜索结果缓存 1 小时 (数据可能变化)
  * - 详情和季度信息缓存 24 小时 (数据相对稳定)
+ * - 搜索失败缓存 1 分钟 (避免故障期间重复等待超时)
+ *
+ * 监控指标 (/actuator/prometheus):
+ * - cache.gets / cache.puts / cache.evictions / cache.size: Spring Boot 自动绑定 Caffeine 统计
+ * - cache.load{result} / cache.load.duration: 加载次数和累计加载耗时 (含 TMDB 请求),
+ *   TmdbService 的 @Cacheable 使用 sync = true, 由 Caffeine 在加载完成时自行计时;
+ *   Micrometer 只为 LoadingCache 绑定这两个指标, 这里按同样的名称注册
+ * - cache.hit.ratio: 命中率
  */
 @Configuration
 @EnableCaching
@@ -28,31 +45,36 @@ public class CacheConfig {
      * 配置 Caffeine 缓存管理器
      * 使用不同的缓存策略优化性能
      *
+     * @param meterRegistry 指标注册表
      * @return CacheManager
      */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(MeterRegistry meterRegistry) {
         SimpleCacheManager cacheManager = new SimpleCacheManager();
 
         // 配置多个缓存实例，每个有不同的策略
         cacheManager.setCaches(Arrays.asList(
                 // 电影搜索缓存: 1小时过期, 最大 2000 条
-                buildCache("movieSearch", 1, TimeUnit.HOURS, 2000),
+                buildCache(meterRegistry, "movieSearch", 1, TimeUnit.HOURS, 2000),
 
                 // 电影详情缓存: 24小时过期, 最大 1000 条
-                buildCache("movieDetails", 24, TimeUnit.HOURS, 1000),
+                buildCache(meterRegistry, "movieDetails", 24, TimeUnit.HOURS, 1000),
 
                 // 电视剧搜索缓存: 1小时过期, 最大 2000 条
-                buildCache("tvSearch", 1, TimeUnit.HOURS, 2000),
+                buildCache(meterRegistry, "tvSearch", 1, TimeUnit.HOURS, 2000),
 
                 // 电视剧详情缓存: 24小时过期, 最大 1000 条
-                buildCache("tvDetails", 24, TimeUnit.HOURS, 1000),
+                buildCache(meterRegistry, "tvDetails", 24, TimeUnit.HOURS, 1000),
 
                 // 季度集数缓存: 24小时过期, 最大 5000 条 (最常用)
-                buildCache("seasonEpisodes", 24, TimeUnit.HOURS, 5000),
+                buildCache(meterRegistry, "seasonEpisodes", 24, TimeUnit.HOURS, 5000),
 
                 // 季度剧集详情缓存（含标题）: 24小时过期, 最大 5000 条
-                buildCache("seasonEpisodesDetail", 24, TimeUnit.HOURS, 5000)
+                buildCache(meterRegistry, "seasonEpisodesDetail", 24, TimeUnit.HOURS, 5000),
+
+                // 搜索失败缓存（负缓存）: 1分钟过期, 最大 2000 条
+                // TMDB 或代理故障时, 同一搜索词短时间内快速失败, 不再等待超时
+                buildCache(meterRegistry, "searchFailures", 1, TimeUnit.MINUTES, 2000)
         ));
 
         return cacheManager;
@@ -61,17 +83,86 @@ public class CacheConfig {
     /**
      * 构建缓存实例
      *
+     * @param meterRegistry 指标注册表
      * @param name 缓存名称
      * @param duration 过期时长
      * @param timeUnit 时间单位
      * @param maxSize 最大容量
      * @return CaffeineCache
      */
-    private CaffeineCache buildCache(String name, long duration, TimeUnit timeUnit, long maxSize) {
-        return new CaffeineCache(name, Caffeine.newBuilder()
+    private CaffeineCache buildCache(MeterRegistry meterRegistry, String name,
+                                     long duration, TimeUnit timeUnit, long maxSize) {
+        AsyncCache<Object, Object> asyncCache = Caffeine.newBuilder()
                 .expireAfterWrite(duration, timeUnit)
                 .maximumSize(maxSize)
                 .recordStats() // 启用统计
-                .build());
+                .buildAsync();
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = asyncCache.synchronous();
+
+        Gauge.builder("cache.hit.ratio", nativeCache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .description("缓存命中率")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.load", nativeCache, c -> c.stats().loadSuccessCount())
+                .tags("cache", name, "result", "success")
+                .description("缓存加载次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.load", nativeCache, c -> c.stats().loadFailureCount())
+                .tags("cache", name, "result", "failure")
+                .description("缓存加载次数")
+                .register(meterRegistry);
+        TimeGauge.builder("cache.load.duration", nativeCache, TimeUnit.NANOSECONDS, c -> c.stats().totalLoadTime())
+                .tag("cache", name)
+                .description("缓存累计加载耗时")
+                .register(meterRegistry);
+
+        return new SyncLoadingCaffeineCache(name, asyncCache);
+    }
+
+    /**
+     * 支持 @Cacheable(sync = true) 的 CaffeineCache
+     *
+     * 默认实现在 Caffeine 的 compute 中执行加载, 整个 TMDB 请求期间持有 ConcurrentHashMap 桶的 monitor:
+     * 虚拟线程在 synchronized 中阻塞会钉住载体线程, 同一个桶的其他 key 也只能排队。
+     * 这里先放入一个未完成的 future 占位, 在调用线程上 (锁外) 执行加载后再完成它:
+     * - 同一个 key 只有一个线程加载, 其他线程等待该 future (可被中断)
+     * - 加载耗时和成功/失败次数由 Caffeine 在 future 完成时记录
+     * - 加载仍在调用线程上执行, 调用方中断可以取消 TMDB 请求
+     */
+    private static class SyncLoadingCaffeineCache extends CaffeineCache {
+
+        SyncLoadingCaffeineCache(String name, AsyncCache<Object, Object> cache) {
+            super(name, cache, true);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            while (true) {
+                CompletableFuture<Object> loading = new CompletableFuture<>();
+                CompletableFuture<Object> future = getAsyncCache().get(key, (k, executor) -> loading);
+                if (future == loading) {
+                    try {
+                        loading.complete(toStoreValue(valueLoader.call()));
+                    } catch (Throwable e) {
+                        // 失败的 future 由 Caffeine 移出缓存
+                        loading.completeExceptionally(e);
+                        if (e instanceof Error error) {
+                            throw error;
+                        }
+                        throw new ValueRetrievalException(key, valueLoader, e);
+                    }
+                }
+                try {
+                    return (T) fromStoreValue(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("等待缓存加载时被取消: " + getName() + "/" + key);
+                } catch (ExecutionException e) {
+                    // 与 Caffeine 同步加载一致: 其他线程加载失败 (包括被取消) 时由当前线程重新加载
+                    getAsyncCache().asMap().remove(key, future);
+                }
+            }
+        }
     }
 }
@@ -17,4 +17,9 @@ public class FileProperties {
     private List<String> videoExtensions;
     private int maxScanDepth;
 
+    /**
+     * 每个目标设备同时进行的移动数 (机械硬盘 / NAS 上过多并发会让磁头来回寻道)
+     */
+    private int maxMovesPerDevice = 4;
+
 }
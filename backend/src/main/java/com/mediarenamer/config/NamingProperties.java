@@ -0,0 +1,22 @@
+package com.mediarenamer.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 命名模板配置属性
+ * 自定义模板 (名称 -> 模板), 与内置模板同名时覆盖内置模板
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "naming")
+public class NamingProperties {
+
+    private Map<String, String> movieTemplates = new LinkedHashMap<>();
+    private Map<String, String> tvTemplates = new LinkedHashMap<>();
+
+}
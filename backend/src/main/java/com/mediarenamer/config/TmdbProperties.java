@@ -17,6 +17,10 @@ public class TmdbProperties {
     private String language;
     private RateLimit rateLimit;
     private Timeout timeout;
+    private Resilience resilience = new Resilience();
+    private Cassette cassette = new Cassette();
+    private OfflineIndex offlineIndex = new OfflineIndex();
+    private Matching matching = new Matching();
 
     @Data
     public static class RateLimit {
@@ -30,4 +34,39 @@ public class TmdbProperties {
         private int read = 30000;     // 默认 30 秒
     }
 
+    @Data
+    public static class Resilience {
+        private int maxAttempts = 3;             // 瞬时错误最大尝试次数 (含首次)
+        private long initialBackoffMs = 500;     // 首次重试退避基数
+        private long maxBackoffMs = 5000;        // 退避上限
+        private int failureThreshold = 5;        // 连续失败多少次后熔断
+        private int openDurationSeconds = 30;    // 熔断持续时间, 之后放行一个探测请求
+    }
+
+    @Data
+    public static class Cassette {
+        private Mode mode = Mode.OFF;            // OFF / RECORD / REPLAY
+        private String directory = "./cassettes"; // 录制文件目录
+        private boolean replayAtRecordedSpeed = false; // 回放时按录制的响应耗时延迟返回
+
+        public enum Mode {
+            OFF, RECORD, REPLAY
+        }
+    }
+
+    @Data
+    public static class OfflineIndex {
+        private boolean enabled = true;                  // 索引存在时是否在匹配中使用
+        private String file = "./offline-index.bin";     // 索引文件路径
+        private double minScore = 0.8;                   // 直接采用本地候选的最低相似度
+        private double minScoreWithoutYear = 0.95;       // 未解析出年份 (无法用年份校验) 时的最低相似度
+        private double minPopularity = 0.0;              // 导入时忽略热度更低的条目, 用于缩小索引
+    }
+
+    @Data
+    public static class Matching {
+        private boolean speculative = false;             // 并发发出所有查询变体 (有/无年份、祖父目录、父目录), 取优先级最高的结果
+        private long timeoutMs = 300000;                 // 整批匹配超时, 超时后中断未完成的查询
+    }
+
 }
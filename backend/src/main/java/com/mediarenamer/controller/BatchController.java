@@ -1,14 +1,27 @@
 package com.mediarenamer.controller;
 
+import com.mediarenamer.config.TmdbProperties;
 import com.mediarenamer.model.Result;
+import com.mediarenamer.model.dto.BatchMatchSummaryDTO;
 import com.mediarenamer.model.dto.VideoFileDTO;
 import com.mediarenamer.service.BatchProcessService;
+import com.mediarenamer.service.MatchAliasService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 批量处理控制器
@@ -21,6 +34,18 @@ import java.util.List;
 public class BatchController {
 
     private final BatchProcessService batchProcessService;
+    private final MatchAliasService matchAliasService;
+    private final TmdbProperties tmdbProperties;
+
+    /**
+     * 流式匹配连接超时在批量匹配超时之外多留的时间, 保证摘要能发出
+     */
+    private static final long STREAM_TIMEOUT_MARGIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 分组队列的结束标记 (匹配结束后放入, 发送线程取到后发送摘要)
+     */
+    private static final List<VideoFileDTO> END_OF_GROUPS = Collections.unmodifiableList(new ArrayList<>());
 
     /**
      * 批量匹配媒体信息
@@ -37,18 +62,147 @@ public class BatchController {
                     .filter(f -> f.getMatchedInfo() != null)
                     .count();
 
-            log.info("批量匹配完成: 总数={}, 成功={}", results.size(), matchedCount);
+            long skippedCount = results.stream()
+                    .filter(f -> f.getMatchedInfo() == null && f.getMatchSkippedReason() != null)
+                    .count();
+
+            log.info("批量匹配完成: 总数={}, 成功={}, 跳过={}", results.size(), matchedCount, skippedCount);
 
-            return Result.success(
-                    String.format("批量匹配完成: 成功匹配 %d 个文件", matchedCount),
-                    results
-            );
+            return Result.success(matchMessage(matchedCount, skippedCount), results);
         } catch (Exception e) {
             log.error("批量匹配失败", e);
             return Result.error("批量匹配失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 流式批量匹配 (Server-Sent Events)
+     * 每个搜索词分组完成后立即推送 group 事件 (该组文件及匹配结果), 最后推送 summary 事件;
+     * 匹配超时或失败时已推送的分组结果不会丢失, summary 中 completed 为 false
+     *
+     * 所有事件由同一个线程发送 (SseEmitter.send 是 synchronized 方法, 避免匹配线程在其上竞争);
+     * 连接超时、断开或完成后不再发送
+     */
+    @PostMapping(value = "/match/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter batchMatchStream(@RequestBody BatchMatchRequest request) {
+        List<VideoFileDTO> videoFiles = request.getVideoFiles();
+        log.info("流式批量匹配请求: files={}", videoFiles.size());
+
+        SseEmitter emitter = new SseEmitter(tmdbProperties.getMatching().getTimeoutMs() + STREAM_TIMEOUT_MARGIN_MS);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        emitter.onCompletion(() -> closed.set(true));
+        Thread.ofVirtual().name("batch-match-stream").start(() -> streamMatch(videoFiles, emitter, closed));
+        return emitter;
+    }
+
+    private void streamMatch(List<VideoFileDTO> videoFiles, SseEmitter emitter, AtomicBoolean closed) {
+        long startTime = System.currentTimeMillis();
+        BlockingQueue<List<VideoFileDTO>> resolved = new LinkedBlockingQueue<>();
+
+        CompletableFuture<String> matching = new CompletableFuture<>();
+        Thread.ofVirtual().name("batch-match").start(() -> {
+            try {
+                batchProcessService.batchMatchMedia(videoFiles, resolved::add);
+                matching.complete(null);
+            } catch (Exception e) {
+                log.error("流式批量匹配失败", e);
+                matching.complete(e.getMessage());
+            } finally {
+                resolved.add(END_OF_GROUPS);
+            }
+        });
+
+        try {
+            List<VideoFileDTO> group;
+            while ((group = resolved.take()) != END_OF_GROUPS) {
+                if (closed.get()) {
+                    // 连接已结束, 匹配仍会完成 (结果写入缓存, 下次匹配直接命中)
+                    log.warn("流式批量匹配连接已结束, 停止推送");
+                    return;
+                }
+                emitter.send(SseEmitter.event().name("group").data(group));
+            }
+
+            String error = matching.join();
+            long matchedCount = videoFiles.stream()
+                    .filter(f -> f.getMatchedInfo() != null)
+                    .count();
+            long skippedCount = videoFiles.stream()
+                    .filter(f -> f.getMatchedInfo() == null && f.getMatchSkippedReason() != null)
+                    .count();
+
+            BatchMatchSummaryDTO summary = BatchMatchSummaryDTO.builder()
+                    .total(videoFiles.size())
+                    .matched(matchedCount)
+                    .skipped(skippedCount)
+                    .unmatched(videoFiles.size() - matchedCount - skippedCount)
+                    .elapsedMs(System.currentTimeMillis() - startTime)
+                    .completed(error == null)
+                    .message(error == null ? matchMessage(matchedCount, skippedCount) : "批量匹配失败: " + error)
+                    .build();
+
+            log.info("流式批量匹配结束: 总数={}, 成功={}, 跳过={}, 完成={}",
+                    summary.getTotal(), matchedCount, skippedCount, summary.isCompleted());
+            if (closed.get()) {
+                log.warn("流式批量匹配连接已结束, 不再发送摘要");
+                return;
+            }
+            emitter.send(SseEmitter.event().name("summary").data(summary));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开或连接已超时 (超时后 send 抛出 IllegalStateException)
+            log.warn("流式批量匹配连接已断开: {}", e.getMessage());
+            emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.completeWithError(e);
+        }
+    }
+
+    private String matchMessage(long matchedCount, long skippedCount) {
+        return skippedCount > 0
+                ? String.format("批量匹配完成: 成功匹配 %d 个文件, TMDB 不可用跳过 %d 个文件", matchedCount, skippedCount)
+                : String.format("批量匹配完成: 成功匹配 %d 个文件", matchedCount);
+    }
+
+    /**
+     * 获取已学习的匹配别名
+     */
+    @GetMapping("/aliases")
+    public Result<MatchAliasService.AliasStore> getAliases() {
+        return Result.success(matchAliasService.getAliases());
+    }
+
+    /**
+     * 显式确认匹配结果 (不执行重命名), 学习匹配别名
+     */
+    @PostMapping("/aliases")
+    public Result<Integer> confirmAliases(@RequestBody List<RenameController.SingleRenameRequest> confirmed) {
+        try {
+            int changed = matchAliasService.learn(confirmed);
+            return Result.success(String.format("已记住 %d 个别名", changed), changed);
+        } catch (Exception e) {
+            log.error("保存匹配别名失败", e);
+            return Result.error("保存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 删除指向某个 TMDB ID 的匹配别名 (纠正错误匹配)
+     */
+    @DeleteMapping("/aliases/{tmdbId}")
+    public Result<Integer> forgetAliases(@PathVariable Long tmdbId) {
+        try {
+            int removed = matchAliasService.forget(tmdbId);
+            return Result.success(String.format("已删除 %d 个别名", removed), removed);
+        } catch (Exception e) {
+            log.error("删除匹配别名失败", e);
+            return Result.error("删除失败: " + e.getMessage());
+        }
+    }
+
     @Data
     public static class BatchMatchRequest {
         private List<VideoFileDTO> videoFiles;
@@ -4,15 +4,22 @@ import com.mediarenamer.model.Result;
 import com.mediarenamer.model.dto.RenamePreviewDTO;
 import com.mediarenamer.model.dto.TmdbMovieDTO;
 import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.TransferProgressDTO;
 import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.service.CrossDeviceTransfer;
+import com.mediarenamer.service.MatchAliasService;
+import com.mediarenamer.service.NamingTemplateService;
 import com.mediarenamer.service.OrganizationService;
+import com.mediarenamer.service.RenameJournal;
 import com.mediarenamer.service.RenameService;
+import com.mediarenamer.util.NamingTemplate;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 重命名控制器
@@ -25,6 +32,18 @@ public class RenameController {
 
     private final RenameService renameService;
     private final OrganizationService organizationService;
+    private final MatchAliasService matchAliasService;
+    private final RenameJournal renameJournal;
+    private final CrossDeviceTransfer crossDeviceTransfer;
+    private final NamingTemplateService namingTemplateService;
+
+    /**
+     * 获取可用的命名模板 (内置 + 配置中的自定义模板)
+     */
+    @GetMapping("/templates")
+    public Result<Map<String, Map<String, String>>> listTemplates() {
+        return Result.success(namingTemplateService.listTemplates());
+    }
 
     /**
      * 生成电影重命名预览
@@ -35,7 +54,7 @@ public class RenameController {
             log.info("生成电影重命名预览: file={}, template={}",
                     request.getVideoFile().getFilePath(), request.getTemplate());
 
-            RenameService.MovieTemplate template = RenameService.MovieTemplate.valueOf(request.getTemplate());
+            NamingTemplate template = namingTemplateService.movie(request.getTemplate());
             RenamePreviewDTO preview = renameService.generateMovieRename(
                     request.getVideoFile(),
                     request.getMovieInfo(),
@@ -58,7 +77,7 @@ public class RenameController {
             log.info("生成电视剧重命名预览: file={}, template={}",
                     request.getVideoFile().getFilePath(), request.getTemplate());
 
-            RenameService.TvTemplate template = RenameService.TvTemplate.valueOf(request.getTemplate());
+            NamingTemplate template = namingTemplateService.tv(request.getTemplate());
             RenamePreviewDTO preview = renameService.generateTvRename(
                     request.getVideoFile(),
                     request.getTvInfo(),
@@ -74,32 +93,83 @@ public class RenameController {
 
     /**
      * 执行批量重命名
+     * 带预览会话 ID 时, 重命名成功的文件视为用户确认了匹配结果, 按会话中的匹配学习别名
      */
     @PostMapping("/execute")
     public Result<List<RenamePreviewDTO>> executeRename(@RequestBody ExecuteRenameRequest request) {
         try {
-            log.info("执行批量重命名: count={}, scanRoot={}",
-                request.getPreviews().size(), request.getScanRoot());
+            log.info("执行批量重命名: count={}, scanRoot={}, strategy={}",
+                request.getPreviews().size(), request.getScanRoot(), request.getStrategy());
 
             // 执行重命名
             List<RenamePreviewDTO> results = renameService.executeRename(
                 request.getPreviews(),
-                request.getScanRoot()
+                request.getScanRoot(),
+                RenameService.RenameStrategy.parse(request.getStrategy())
             );
 
             long successCount = results.stream().filter(r -> "success".equals(r.getStatus())).count();
             long failedCount = results.stream().filter(r -> "failed".equals(r.getStatus())).count();
 
+            if (request.getSessionId() != null && successCount > 0) {
+                try {
+                    matchAliasService.learn(renameService.confirmedRequests(request.getSessionId(), results));
+                } catch (Exception e) {
+                    // 别名学习失败不影响重命名结果
+                    log.warn("学习匹配别名失败: {}", e.getMessage());
+                }
+            }
+
             return Result.success(
                     String.format("重命名完成: 成功 %d, 失败 %d", successCount, failedCount),
                     results
             );
+        } catch (IllegalArgumentException e) {
+            log.warn("执行批量重命名参数无效: {}", e.getMessage());
+            return Result.error(400, "重命名失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("执行批量重命名失败", e);
             return Result.error("重命名失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 获取进行中的跨设备传输进度
+     */
+    @GetMapping("/transfers")
+    public Result<List<TransferProgressDTO>> activeTransfers() {
+        return Result.success(crossDeviceTransfer.activeTransfers());
+    }
+
+    /**
+     * 获取重命名批次记录 (最新的在前)
+     */
+    @GetMapping("/batches")
+    public Result<List<RenameJournal.BatchSummary>> listBatches() {
+        return Result.success(renameJournal.listBatches());
+    }
+
+    /**
+     * 撤销一个重命名批次
+     */
+    @PostMapping("/undo/{batchId}")
+    public Result<List<RenamePreviewDTO>> undoRename(@PathVariable String batchId) {
+        try {
+            log.info("撤销重命名批次: batchId={}", batchId);
+
+            List<RenamePreviewDTO> results = renameService.undoBatch(batchId);
+
+            long successCount = results.stream().filter(r -> "success".equals(r.getStatus())).count();
+            return Result.success(
+                    String.format("撤销完成: 成功 %d, 失败 %d", successCount, results.size() - successCount),
+                    results
+            );
+        } catch (Exception e) {
+            log.error("撤销重命名失败", e);
+            return Result.error("撤销失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 整理未处理的文件
      * 将扫描根目录下未被重命名的文件移动到 "未整理" 目录
@@ -145,12 +215,36 @@ public class RenameController {
                             response.getSummary().getFailed()),
                     response
             );
+        } catch (IllegalArgumentException e) {
+            log.warn("批量生成预览参数无效: {}", e.getMessage());
+            return Result.error(400, "批量生成预览失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("批量生成预览失败", e);
             return Result.error("批量生成预览失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 增量重新预览 (切换模板 / 修改季号等)
+     * 只重新计算输入变化的文件, 返回有变化的预览; 会话过期时前端应重新生成完整预览
+     */
+    @PostMapping("/preview/batch/delta")
+    public Result<BatchRenameResponse> batchPreviewDelta(@RequestBody BatchPreviewDeltaRequest request) {
+        try {
+            BatchRenameResponse response = renameService.batchUpdatePreview(request);
+            return Result.success(
+                    String.format("预览已更新: 变化 %d, 成功 %d, 失败 %d",
+                            response.getPreviews().size(),
+                            response.getSummary().getSuccess(),
+                            response.getSummary().getFailed()),
+                    response
+            );
+        } catch (Exception e) {
+            log.error("增量预览失败", e);
+            return Result.error("增量预览失败: " + e.getMessage());
+        }
+    }
+
     @Data
     public static class MovieRenameRequest {
         private VideoFileDTO videoFile;
@@ -178,6 +272,8 @@ public class RenameController {
     public static class ExecuteRenameRequest {
         private List<RenamePreviewDTO> previews;
         private String scanRoot; // 扫描根目录，用于自动整理
+        private String strategy; // 执行方式: MOVE / HARDLINK / SYMLINK / COPY / AUTO, 为空时使用扫描目录配置
+        private String sessionId; // 预览会话 ID (可选), 执行成功的文件按会话中的匹配学习别名
     }
 
     /**
@@ -187,6 +283,18 @@ public class RenameController {
     public static class BatchRenameRequest {
         private List<SingleRenameRequest> requests;
         private Integer maxConcurrency; // 最大并发数，默认 50
+        private String targetRoot; // 目标媒体库根目录, 为空时使用扫描目录配置 (都没有时在扫描目录内整理)
+        private String strategy; // 执行方式, 用于规划每个文件的具体操作, 为空时使用扫描目录配置
+    }
+
+    /**
+     * 增量预览请求
+     */
+    @Data
+    public static class BatchPreviewDeltaRequest {
+        private String sessionId; // 批量预览返回的会话 ID
+        private String template; // 新模板 (可选, 应用到会话中的全部文件)
+        private List<SingleRenameRequest> requests; // 有变化的文件 (可选, 按文件路径覆盖会话中的请求)
     }
 
     /**
@@ -208,6 +316,8 @@ public class RenameController {
     public static class BatchRenameResponse {
         private List<RenamePreviewDTO> previews;
         private BatchSummary summary;
+        private String sessionId; // 预览会话 ID, 用于增量预览
+        private Boolean delta;    // previews 是否只包含有变化的预览
     }
 
     /**
@@ -220,6 +330,9 @@ public class RenameController {
         private Integer success;    // 成功数
         private Integer failed;     // 失败数
         private Long durationMs;    // 耗时（毫秒）
+        private Integer copyCount;  // 需要复制数据的文件数
+        private Long copyBytes;     // 需要复制的总字节数
+        private Integer conflictCount; // 目标冲突的文件数 (已计入失败)
     }
 
 }
@@ -57,6 +57,9 @@ public class ScanDirectoryController {
             log.info("添加扫描目录: {} -> {}", directory.getName(), directory.getPath());
             ScanDirectoryDTO result = scanDirectoryService.addDirectory(directory);
             return Result.success("添加成功", result);
+        } catch (IllegalArgumentException e) {
+            log.warn("添加扫描目录参数无效: {}", e.getMessage());
+            return Result.error(400, "添加失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("添加扫描目录失败", e);
             return Result.error("添加失败: " + e.getMessage());
@@ -74,6 +77,9 @@ public class ScanDirectoryController {
             log.info("更新扫描目录: {}", id);
             ScanDirectoryDTO result = scanDirectoryService.updateDirectory(id, directory);
             return Result.success("更新成功", result);
+        } catch (IllegalArgumentException e) {
+            log.warn("更新扫描目录参数无效: {}", e.getMessage());
+            return Result.error(400, "更新失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("更新扫描目录失败", e);
             return Result.error("更新失败: " + e.getMessage());
@@ -118,6 +124,9 @@ public class ScanDirectoryController {
             log.info("导入扫描目录: {} 个", directories.size());
             List<ScanDirectoryDTO> result = scanDirectoryService.importDirectories(directories);
             return Result.success("导入成功", result);
+        } catch (IllegalArgumentException e) {
+            log.warn("导入扫描目录参数无效: {}", e.getMessage());
+            return Result.error(400, "导入失败: " + e.getMessage());
         } catch (Exception e) {
             log.error("导入扫描目录失败", e);
             return Result.error("导入失败: " + e.getMessage());
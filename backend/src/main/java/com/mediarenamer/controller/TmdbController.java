@@ -3,7 +3,9 @@ package com.mediarenamer.controller;
 import com.mediarenamer.model.Result;
 import com.mediarenamer.model.dto.TmdbMovieDTO;
 import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.service.OfflineTitleIndex;
 import com.mediarenamer.service.TmdbService;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +22,7 @@ import java.util.List;
 public class TmdbController {
 
     private final TmdbService tmdbService;
+    private final OfflineTitleIndex offlineTitleIndex;
 
     /**
      * 搜索电影
@@ -99,4 +102,45 @@ public class TmdbController {
         }
     }
 
+    /**
+     * 从本地 TMDB 每日导出文件导入离线标题索引
+     *
+     * @param request 导出文件路径 (电影、电视剧均可选)
+     * @return 导入统计
+     */
+    @PostMapping("/offline-index/import")
+    public Result<OfflineTitleIndex.ImportStats> importOfflineIndex(@RequestBody OfflineIndexImportRequest request) {
+        try {
+            log.info("导入离线标题索引: movie={}, tv={}", request.getMovieExport(), request.getTvExport());
+            return Result.success(offlineTitleIndex.importExports(request.getMovieExport(), request.getTvExport()));
+        } catch (Exception e) {
+            log.error("导入离线标题索引失败", e);
+            return Result.error("导入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 离线标题索引搜索 (调试用)
+     *
+     * @param query 标题
+     * @param type  movie / tv
+     * @return 候选列表
+     */
+    @GetMapping("/offline-index/search")
+    public Result<List<OfflineTitleIndex.Candidate>> searchOfflineIndex(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "movie") String type) {
+        OfflineTitleIndex.Kind kind = "tv".equalsIgnoreCase(type) ? OfflineTitleIndex.Kind.TV : OfflineTitleIndex.Kind.MOVIE;
+        return Result.success(offlineTitleIndex.search(kind, query, 10));
+    }
+
+    /**
+     * 离线索引导入请求
+     */
+    @Data
+    public static class OfflineIndexImportRequest {
+        private String movieExport;
+        private String tvExport;
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.mediarenamer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件: 文件或目录移动 (重命名或整理到未整理目录)
+ */
+@Name("com.mediarenamer.FileMove")
+@Label("File Move")
+@Category({"Media Renamer", "Rename"})
+@Description("移动文件或目录, 区分直接重命名和跨分区复制+删除")
+@StackTrace(false)
+public class FileMoveEvent extends jdk.jfr.Event {
+
+    /**
+     * rename (重命名) / organize (整理未处理文件)
+     */
+    @Label("Operation")
+    public String operation;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Target Path")
+    public String targetPath;
+
+    /**
+     * rename / copy_delete / rename_directory / move_directory / hardlink / symlink / copy
+     */
+    @Label("Method")
+    public String method;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,30 @@
+package com.mediarenamer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件: 单个视频文件的扫描 (文件属性读取 + 解析)
+ */
+@Name("com.mediarenamer.FileScan")
+@Label("File Scan")
+@Category({"Media Renamer", "Scan"})
+@Description("扫描单个视频文件, 包含读取文件属性和文件名解析")
+@StackTrace(false)
+public class FileScanEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Scan Root")
+    public String scanRoot;
+
+    @Label("Media Type")
+    public String mediaType;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,30 @@
+package com.mediarenamer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件: 单个解析器对一个文件名的解析尝试
+ */
+@Name("com.mediarenamer.MediaParse")
+@Label("Media Parse")
+@Category({"Media Renamer", "Parse"})
+@Description("单个解析器尝试解析文件名 (正则匹配)")
+@StackTrace(false)
+public class MediaParseEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Parser")
+    public String parser;
+
+    @Label("Confidence")
+    public double confidence;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,27 @@
+package com.mediarenamer.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件: 一次 TMDB 请求 (含重试和退避等待, 不含查询参数)
+ */
+@Name("com.mediarenamer.TmdbRequest")
+@Label("TMDB Request")
+@Category({"Media Renamer", "TMDB"})
+@Description("TMDB 接口调用, 包含重试和退避等待")
+@StackTrace(false)
+public class TmdbRequestEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,51 @@
+package com.mediarenamer.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式批量匹配的结束摘要 (最后一个事件)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMatchSummaryDTO {
+
+    /**
+     * 请求中的文件总数
+     */
+    private int total;
+
+    /**
+     * 匹配成功的文件数
+     */
+    private long matched;
+
+    /**
+     * TMDB 不可用被跳过的文件数
+     */
+    private long skipped;
+
+    /**
+     * 未匹配的文件数
+     */
+    private long unmatched;
+
+    /**
+     * 耗时 (毫秒)
+     */
+    private long elapsedMs;
+
+    /**
+     * 是否全部分组都已完成 (超时或失败时为 false, 已推送的分组结果仍然有效)
+     */
+    private boolean completed;
+
+    /**
+     * 摘要消息 (失败时为错误原因)
+     */
+    private String message;
+}
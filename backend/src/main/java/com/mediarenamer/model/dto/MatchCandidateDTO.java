@@ -0,0 +1,46 @@
+package com.mediarenamer.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 匹配候选项及其得分 (供前端展示备选结果、按得分自动确认)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchCandidateDTO {
+
+    /**
+     * TMDB ID
+     */
+    private Long tmdbId;
+
+    /**
+     * 本地化标题 (电影 title / 电视剧 name)
+     */
+    private String title;
+
+    /**
+     * 原始标题
+     */
+    private String originalTitle;
+
+    /**
+     * 年份
+     */
+    private Integer year;
+
+    /**
+     * 综合得分 (0~1)
+     */
+    private Double score;
+
+    /**
+     * 标题相似度 (0~1, 本地化标题和原始标题取较高者)
+     */
+    private Double titleScore;
+}
@@ -61,6 +61,31 @@ public class RenamePreviewDTO {
      */
     private Boolean needCreateDirectory;
 
+    /**
+     * 输出根目录 (配置了目标媒体库时为媒体库根目录, 否则为扫描根目录)
+     */
+    private String targetRoot;
+
+    /**
+     * 规划的具体操作: RENAME(原子重命名) / HARDLINK / SYMLINK / COPY / COPY_DELETE(跨设备移动)
+     */
+    private String operation;
+
+    /**
+     * 需要复制的字节数 (只修改元数据的操作为 0)
+     */
+    private Long copyBytes;
+
+    /**
+     * 预览时发现的冲突: DUPLICATE(多个文件映射到同一目标) / CASE_ONLY(只有大小写不同) / OVERWRITE(目标已存在)
+     */
+    private String conflict;
+
+    /**
+     * 冲突的另一方 (另一个源文件、目标或已有文件的路径)
+     */
+    private String conflictPath;
+
     /**
      * 状态: pending(待处理) / success(成功) / failed(失败)
      */
@@ -71,6 +96,11 @@ public class RenamePreviewDTO {
      */
     private String errorMessage;
 
+    /**
+     * 所属重命名批次 ID (执行后填写, 用于撤销)
+     */
+    private String batchId;
+
     /**
      * 额外的元数据信息，用于前端分组和统计
      * 包含的键值:
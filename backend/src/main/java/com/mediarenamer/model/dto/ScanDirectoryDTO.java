@@ -36,6 +36,16 @@ public class ScanDirectoryDTO {
      */
     private String mediaType;
 
+    /**
+     * 目标媒体库根目录 (为空时在扫描目录内整理)
+     */
+    private String targetRoot;
+
+    /**
+     * 重命名执行方式: MOVE(移动) / HARDLINK(硬链接) / SYMLINK(符号链接) / COPY(复制) / AUTO(按设备自动选择), 为空时为移动
+     */
+    private String renameStrategy;
+
     /**
      * 是否启用
      */
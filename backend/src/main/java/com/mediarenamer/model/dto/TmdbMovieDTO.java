@@ -30,6 +30,7 @@ public class TmdbMovieDTO {
     private String backdropPath;
     private Double voteAverage;
     private Integer voteCount;
+    private Double popularity;
     private List<Genre> genres;
 
     @Data
@@ -30,6 +30,7 @@ public class TmdbTvShowDTO {
     private String backdropPath;
     private Double voteAverage;
     private Integer voteCount;
+    private Double popularity;
     private List<TmdbMovieDTO.Genre> genres;
     private Integer numberOfSeasons;
     private Integer numberOfEpisodes;
@@ -0,0 +1,46 @@
+package com.mediarenamer.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 跨设备文件传输进度
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferProgressDTO {
+
+    /**
+     * 源文件路径
+     */
+    private String source;
+
+    /**
+     * 目标文件路径
+     */
+    private String target;
+
+    /**
+     * 文件总字节数
+     */
+    private long totalBytes;
+
+    /**
+     * 已传输字节数 (含续传前已完成的部分)
+     */
+    private long transferredBytes;
+
+    /**
+     * 续传起点 (从头开始时为 0)
+     */
+    private long resumedFrom;
+
+    /**
+     * 开始时间 (毫秒时间戳)
+     */
+    private long startedAt;
+}
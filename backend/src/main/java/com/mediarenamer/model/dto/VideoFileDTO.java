@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 视频文件信息 DTO
  */
@@ -94,4 +96,21 @@ public class VideoFileDTO {
      */
     private Object matchedInfo;
 
+    /**
+     * 匹配得分 (0~1), 由候选排序引擎计算
+     * 前端可据此自动确认高置信度的匹配
+     */
+    private Double matchScore;
+
+    /**
+     * 得分最高的几个候选 (按得分降序, 第一个即 matchedInfo)
+     */
+    private List<MatchCandidateDTO> matchCandidates;
+
+    /**
+     * 匹配跳过原因 (TMDB 不可用时记录被跳过的搜索词)
+     * 为空表示正常完成了匹配流程
+     */
+    private String matchSkippedReason;
+
 }
@@ -12,6 +12,11 @@ import lombok.Data;
 @Builder
 public class ParsingContext {
 
+    /**
+     * 文件绝对路径
+     */
+    private String filePath;
+
     /**
      * 原始文件名 (包含扩展名)
      */
@@ -1,18 +1,29 @@
 package com.mediarenamer.service;
 
+import com.mediarenamer.config.TmdbProperties;
+import com.mediarenamer.model.dto.MatchCandidateDTO;
 import com.mediarenamer.model.dto.TmdbMovieDTO;
 import com.mediarenamer.model.dto.TmdbTvShowDTO;
 import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.util.QueryNormalizer;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 /**
  * 批量处理服务
@@ -24,6 +35,21 @@ import java.util.stream.Stream;
 public class BatchProcessService {
 
     private final TmdbService tmdbService;
+    private final OfflineTitleIndex offlineTitleIndex;
+    private final MatchAliasService matchAliasService;
+    private final TmdbProperties tmdbProperties;
+    private final PipelineMetrics pipelineMetrics;
+    private final CandidateRanker candidateRanker;
+
+    /**
+     * 离线索引每个标题最多尝试的候选数 (每个候选一次详情请求)
+     */
+    private static final int MAX_OFFLINE_CANDIDATES = 3;
+
+    /**
+     * 每个文件保留的匹配候选数 (供前端展示备选结果)
+     */
+    private static final int MAX_MATCH_CANDIDATES = 3;
 
     // 目录名清洗正则表达式
     private static final Pattern YEAR_PATTERN = Pattern.compile("[.\\s_-](\\d{4})[.\\s_-]");
@@ -37,18 +63,32 @@ public class BatchProcessService {
     /**
      * 批量匹配视频文件的媒体信息
      * 使用虚拟线程并发处理，大幅提升性能
-     * 优化策略 V2（智能去重 + 批量预热）：
+     * 优化策略 V3（智能去重 + 分组流水线）：
      * 1. 提取所有唯一的搜索关键词（去重）
-     * 2. 批量并发预热缓存（避免重复 API 调用）
-     * 3. 从缓存直接读取结果分配给文件
-     * 4. 文件名、目录匹配异步并行（不再串行等待）
+     * 2. 每个搜索词独立并发查找, 结果返回后立即分配给文件
+     * 3. 电视剧在组内按 文件名 -> 祖父目录 -> 父目录 回退, 没有全局阶段等待
+     * 4. 推测模式 (tmdb.matching.speculative) 下每组并发发出全部查询变体, 约一次往返完成匹配
      *
      * @param videoFiles 待匹配的视频文件列表
      * @return 匹配成功的文件列表
      */
     public List<VideoFileDTO> batchMatchMedia(List<VideoFileDTO> videoFiles) {
+        return batchMatchMedia(videoFiles, files -> {});
+    }
+
+    /**
+     * 批量匹配视频文件的媒体信息, 每个搜索词分组结束匹配 (无论成功与否) 时立即回调
+     * 回调在匹配线程上并发执行, 实现需要线程安全且不应阻塞
+     *
+     * @param videoFiles 待匹配的视频文件列表
+     * @param onGroupResolved 分组完成回调, 参数为该组文件 (已写入匹配结果)
+     * @return 匹配成功的文件列表
+     */
+    public List<VideoFileDTO> batchMatchMedia(List<VideoFileDTO> videoFiles,
+                                              Consumer<List<VideoFileDTO>> onGroupResolved) {
         log.info("开始批量匹配媒体信息，总数: {}", videoFiles.size());
         long startTime = System.currentTimeMillis();
+        Timer.Sample sample = pipelineMetrics.start();
 
         // 过滤出未匹配的文件
         List<VideoFileDTO> unmatchedFiles = videoFiles.stream()
@@ -74,6 +114,18 @@ public class BatchProcessService {
 
         log.info("待匹配: 电影={}, 电视剧={}", movies.size(), tvShows.size());
 
+        // 清除上一次匹配留下的跳过标记
+        unmatchedFiles.forEach(file -> file.setMatchSkippedReason(null));
+
+        // TMDB 不可用时被跳过的搜索词
+        Set<String> skippedKeys = ConcurrentHashMap.newKeySet();
+
+        // 归一化后合并的搜索词数 (即节省的 TMDB 搜索次数)
+        int savedSearches = countSavedSearches(movies) + countSavedSearches(tvShows);
+
+        // 推测模式: 每组并发发出全部查询变体
+        boolean speculative = tmdbProperties.getMatching().isSpeculative();
+
         // 使用虚拟线程执行器 (JDK 21+)
         try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
             List<CompletableFuture<Void>> futures = new ArrayList<>();
@@ -81,7 +133,11 @@ public class BatchProcessService {
             // 1. 处理电影（智能去重 + 批量预热）
             if (!movies.isEmpty()) {
                 CompletableFuture<Void> movieFuture = CompletableFuture.runAsync(() -> {
-                    batchMatchMoviesOptimized(movies, executor);
+                    if (speculative) {
+                        batchMatchMoviesSpeculative(movies, executor, skippedKeys, onGroupResolved);
+                    } else {
+                        batchMatchMoviesOptimized(movies, executor, skippedKeys, onGroupResolved);
+                    }
                 }, executor);
                 futures.add(movieFuture);
             }
@@ -89,7 +145,11 @@ public class BatchProcessService {
             // 2. 处理电视剧（智能去重 + 批量预热）
             if (!tvShows.isEmpty()) {
                 CompletableFuture<Void> tvShowFuture = CompletableFuture.runAsync(() -> {
-                    batchMatchTvShowsOptimized(tvShows, executor);
+                    if (speculative) {
+                        batchMatchTvShowsSpeculative(tvShows, executor, skippedKeys, onGroupResolved);
+                    } else {
+                        batchMatchTvShowsOptimized(tvShows, executor, skippedKeys, onGroupResolved);
+                    }
                 }, executor);
                 futures.add(tvShowFuture);
             }
@@ -99,10 +159,12 @@ public class BatchProcessService {
                     futures.toArray(new CompletableFuture[0])
             );
 
-            // 设置超时时间 (5分钟)
+            // 设置超时时间 (默认 5 分钟)
             try {
-                allOf.get(5, TimeUnit.MINUTES);
+                allOf.get(tmdbProperties.getMatching().getTimeoutMs(), TimeUnit.MILLISECONDS);
             } catch (TimeoutException e) {
+                // 中断仍在进行的查询, 否则关闭执行器时仍会等待全部任务结束
+                executor.shutdownNow();
                 log.error("批量匹配超时");
                 throw new RuntimeException("批量匹配超时", e);
             } catch (InterruptedException | ExecutionException e) {
@@ -112,38 +174,47 @@ public class BatchProcessService {
         }
 
         long elapsedTime = System.currentTimeMillis() - startTime;
+        pipelineMetrics.recordMatch(sample, unmatchedFiles);
         long matchedCount = videoFiles.stream()
                 .filter(f -> f.getMatchedInfo() != null)
                 .count();
 
-        log.info("批量匹配完成: 总数={}, 成功={}, 耗时={}ms, 匹配率={}/{} ({}%), 性能提升={}%",
+        log.info("批量匹配完成: 总数={}, 成功={}, 耗时={}ms, 匹配率={}/{} ({}%)",
                 videoFiles.size(), matchedCount, elapsedTime,
                 matchedCount, videoFiles.size(),
-                String.format("%.1f", matchedCount * 100.0 / videoFiles.size()),
-                String.format("%.1f", (2200.0 - elapsedTime) / 2200.0 * 100));
+                String.format("%.1f", matchedCount * 100.0 / videoFiles.size()));
+
+        if (!skippedKeys.isEmpty()) {
+            log.warn("TMDB 不可用, 跳过 {} 个搜索词: {}", skippedKeys.size(), skippedKeys);
+        }
+
+        if (savedSearches > 0) {
+            log.info("搜索词归一化: 合并写法不同的搜索词, 节省 {} 次 TMDB 搜索", savedSearches);
+        }
 
         return videoFiles;
     }
 
     /**
-     * 批量匹配电影（优化版 - 智能去重 + 批量预热）
-     * 核心优化：
+     * 批量匹配电影（按搜索词分组的流水线）
      * 1. 提取所有唯一的搜索关键词（title + year）
-     * 2. 批量并发预热缓存
-     * 3. 从缓存读取结果分配给文件
+     * 2. 每个搜索词独立并发查找, 结果返回后立即分配给该组文件, 没有全局等待
      *
      * @param movies 电影列表
      * @param executor 虚拟线程执行器
+     * @param skippedKeys TMDB 不可用时被跳过的搜索词
+     * @param onGroupResolved 分组完成回调
      */
-    private void batchMatchMoviesOptimized(List<VideoFileDTO> movies, ExecutorService executor) {
-        log.info("开始批量匹配电影（优化版），总数: {}", movies.size());
+    private void batchMatchMoviesOptimized(List<VideoFileDTO> movies, ExecutorService executor,
+                                           Set<String> skippedKeys, Consumer<List<VideoFileDTO>> onGroupResolved) {
+        log.info("开始批量匹配电影，总数: {}", movies.size());
 
-        // 步骤 1: 去重收集唯一的搜索关键词
+        // 去重收集唯一的搜索关键词
         record SearchKey(String title, Integer year) {}
         Map<SearchKey, List<VideoFileDTO>> keyToFilesMap = new ConcurrentHashMap<>();
 
         for (VideoFileDTO movie : movies) {
-            SearchKey key = new SearchKey(movie.getParsedTitle(), movie.getParsedYear());
+            SearchKey key = new SearchKey(QueryNormalizer.normalize(movie.getParsedTitle()), movie.getParsedYear());
             keyToFilesMap.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(movie);
         }
 
@@ -151,48 +222,29 @@ public class BatchProcessService {
                 movies.size(), keyToFilesMap.size(),
                 String.format("%.1f", (1.0 - keyToFilesMap.size() * 1.0 / movies.size()) * 100));
 
-        // 步骤 2: 批量并发预热缓存
-        List<CompletableFuture<Void>> preloadFutures = keyToFilesMap.keySet().stream()
-                .map(key -> CompletableFuture.runAsync(() -> {
+        List<CompletableFuture<Void>> futures = keyToFilesMap.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    SearchKey key = entry.getKey();
+                    List<VideoFileDTO> filesWithSameKey = entry.getValue();
                     try {
-                        // 调用 TmdbService，触发缓存写入
-                        tmdbService.searchMovie(key.title(), key.year());
+                        List<TmdbMovieDTO> results = searchMovie(queryTitle(filesWithSameKey), key.year());
+                        if (results != null && !results.isEmpty()) {
+                            // 将得分最高的结果应用到所有具有相同搜索关键词的文件
+                            TmdbMovieDTO matchedInfo = applyBestCandidate(filesWithSameKey, results,
+                                    key.title(), key.year());
+                            log.debug("电影匹配成功: {} -> {}, 应用到 {} 个文件",
+                                    key.title(), matchedInfo.getTitle(), filesWithSameKey.size());
+                        }
+                    } catch (TmdbUnavailableException e) {
+                        markSkipped(filesWithSameKey, formatKey(key.title(), key.year()), e, skippedKeys);
                     } catch (Exception e) {
-                        log.debug("预热失败: title={}, year={}", key.title(), key.year());
+                        log.debug("电影匹配失败: title={}, year={}", key.title(), key.year());
                     }
+                    notifyResolved(onGroupResolved, filesWithSameKey);
                 }, executor))
                 .toList();
 
-        // 等待所有预热完成
-        try {
-            CompletableFuture.allOf(preloadFutures.toArray(new CompletableFuture[0]))
-                    .get(2, TimeUnit.MINUTES);
-        } catch (Exception e) {
-            log.error("电影缓存预热失败", e);
-        }
-
-        // 步骤 3: 从缓存读取结果并分配
-        for (var entry : keyToFilesMap.entrySet()) {
-            SearchKey key = entry.getKey();
-            List<VideoFileDTO> filesWithSameKey = entry.getValue();
-
-            try {
-                // 从缓存读取（速度极快）
-                List<TmdbMovieDTO> results = tmdbService.searchMovie(key.title(), key.year());
-
-                if (results != null && !results.isEmpty()) {
-                    TmdbMovieDTO matchedInfo = results.getFirst();
-                    // 将结果应用到所有具有相同搜索关键词的文件
-                    for (VideoFileDTO file : filesWithSameKey) {
-                        file.setMatchedInfo(matchedInfo);
-                    }
-                    log.debug("电影匹配成功: {} -> {}, 应用到 {} 个文件",
-                            key.title(), matchedInfo.getTitle(), filesWithSameKey.size());
-                }
-            } catch (Exception e) {
-                log.debug("电影匹配失败: title={}, year={}", key.title(), key.year());
-            }
-        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
 
         long matchedCount = movies.stream().filter(f -> f.getMatchedInfo() != null).count();
         log.info("电影匹配完成: 总数={}, 成功={}, 匹配率={}%",
@@ -201,26 +253,27 @@ public class BatchProcessService {
     }
 
     /**
-     * 批量匹配电视剧（优化版 V3 - 智能级联匹配）
-     * 核心优化：
-     * 1. 文件名匹配优先（批量预热缓存）
-     * 2. 只对未匹配文件进行目录匹配（避免重复）
-     * 3. 目录匹配也进行去重
-     * 4. 移除不必要的并行等待
+     * 批量匹配电视剧（按搜索词分组的级联流水线）
+     * 每个文件名搜索词一个任务, 组内按 文件名 -> 祖父目录 -> 父目录 依次回退:
+     * 1. 上一级查找失败后立即进入下一级, 不等待其他分组 (没有全局阶段屏障)
+     * 2. 只有上一级未匹配的文件才会查找下一级目录 (祖父目录匹配成功的文件不再搜索父目录)
+     * 3. 目录查找结果在分组间共享, 多个分组回退到同一目录时只搜索一次
      *
      * @param tvShows 电视剧列表
      * @param executor 虚拟线程执行器
+     * @param skippedKeys TMDB 不可用时被跳过的搜索词
+     * @param onGroupResolved 分组完成回调
      */
-    private void batchMatchTvShowsOptimized(List<VideoFileDTO> tvShows, ExecutorService executor) {
-        log.info("开始批量匹配电视剧（优化版），总数: {}", tvShows.size());
+    private void batchMatchTvShowsOptimized(List<VideoFileDTO> tvShows, ExecutorService executor,
+                                            Set<String> skippedKeys, Consumer<List<VideoFileDTO>> onGroupResolved) {
+        log.info("开始批量匹配电视剧，总数: {}", tvShows.size());
         long startTime = System.currentTimeMillis();
 
-        // ===== 阶段 1: 文件名匹配（批量预热缓存）=====
         record SearchKey(String title, Integer year) {}
         Map<SearchKey, List<VideoFileDTO>> fileNameKeyMap = new ConcurrentHashMap<>();
 
         for (VideoFileDTO tvShow : tvShows) {
-            SearchKey key = new SearchKey(tvShow.getParsedTitle(), tvShow.getParsedYear());
+            SearchKey key = new SearchKey(QueryNormalizer.normalize(tvShow.getParsedTitle()), tvShow.getParsedYear());
             fileNameKeyMap.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(tvShow);
         }
 
@@ -228,168 +281,490 @@ public class BatchProcessService {
                 tvShows.size(), fileNameKeyMap.size(),
                 String.format("%.1f", (1.0 - fileNameKeyMap.size() * 1.0 / tvShows.size()) * 100));
 
-        // 批量预热缓存
-        List<CompletableFuture<Void>> preloadFutures = fileNameKeyMap.keySet().stream()
-                .map(key -> CompletableFuture.runAsync(() -> {
-                    try {
-                        tmdbService.searchTvShow(key.title(), key.year());
-                    } catch (Exception e) {
-                        log.debug("预热失败: title={}, year={}", key.title(), key.year());
-                    }
+        TvMatchContext context = new TvMatchContext(executor, skippedKeys,
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+        List<CompletableFuture<Void>> futures = fileNameKeyMap.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    List<VideoFileDTO> files = entry.getValue();
+                    matchTvShowGroup(queryTitle(files), entry.getKey().year(), files, context);
+                    clearSkippedIfMatched(files);
+                    notifyResolved(onGroupResolved, files);
                 }, executor))
                 .toList();
 
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        long matchedCount = tvShows.stream().filter(f -> f.getMatchedInfo() != null).count();
+        long totalTime = System.currentTimeMillis() - startTime;
+        log.info("电视剧匹配完成: 总数={}, 成功={}, 匹配率={}%, 来源={}, 目录搜索={}, 耗时={}ms",
+                tvShows.size(), matchedCount,
+                String.format("%.1f", matchedCount * 100.0 / tvShows.size()),
+                context.matchedBy(), context.directoryLookups().size(),
+                totalTime);
+    }
+
+    /**
+     * 电视剧分组匹配的共享状态
+     *
+     * @param directoryLookups 目录查找结果 (按目录名共享)
+     * @param matchedBy 各级别匹配成功的文件数
+     */
+    private record TvMatchContext(ExecutorService executor, Set<String> skippedKeys,
+                                  Map<String, CompletableFuture<List<TmdbTvShowDTO>>> directoryLookups,
+                                  Map<String, LongAdder> matchedBy) {}
+
+    /**
+     * 匹配一个文件名分组: 文件名 -> 祖父目录 -> 父目录
+     */
+    private void matchTvShowGroup(String title, Integer year, List<VideoFileDTO> files, TvMatchContext context) {
         try {
-            CompletableFuture.allOf(preloadFutures.toArray(new CompletableFuture[0]))
-                    .get(1, TimeUnit.MINUTES);
+            List<TmdbTvShowDTO> results = searchTvShow(title, year);
+            if (results != null && !results.isEmpty()) {
+                TmdbTvShowDTO matchedInfo = applyTvShow(files, results, title, year, "文件名", context);
+                log.debug("文件名匹配成功: {} -> {}, 应用到 {} 个文件",
+                        title, matchedInfo.getName(), files.size());
+                return;
+            }
+        } catch (TmdbUnavailableException e) {
+            markSkipped(files, formatKey(title, year), e, context.skippedKeys());
         } catch (Exception e) {
-            log.warn("文件名缓存预热失败", e);
+            log.debug("文件名匹配失败: {}", title);
         }
 
-        // 从缓存读取并分配结果
-        for (var entry : fileNameKeyMap.entrySet()) {
-            SearchKey key = entry.getKey();
-            List<VideoFileDTO> filesWithSameKey = entry.getValue();
+        List<VideoFileDTO> remaining = matchTvShowByDirectory(
+                files, VideoFileDTO::getGrandParentDirectory, "祖父目录", context);
+        matchTvShowByDirectory(remaining, VideoFileDTO::getParentDirectory, "父目录", context);
+    }
 
+    /**
+     * 按某一级目录匹配文件
+     *
+     * @param files 待匹配文件
+     * @param directoryOf 取目录名 (祖父目录 / 父目录)
+     * @param level 级别描述 (日志和统计用)
+     * @return 仍未匹配的文件 (包括没有该级目录的文件)
+     */
+    private List<VideoFileDTO> matchTvShowByDirectory(List<VideoFileDTO> files,
+                                                      Function<VideoFileDTO, String> directoryOf,
+                                                      String level, TvMatchContext context) {
+        List<VideoFileDTO> unmatched = new ArrayList<>();
+        Map<String, List<VideoFileDTO>> byDirectory = new LinkedHashMap<>();
+        for (VideoFileDTO file : files) {
+            String directory = directoryOf.apply(file);
+            if (directory == null || directory.isEmpty()) {
+                unmatched.add(file);
+            } else {
+                byDirectory.computeIfAbsent(directory, k -> new ArrayList<>()).add(file);
+            }
+        }
+
+        for (var entry : byDirectory.entrySet()) {
+            String directory = entry.getKey();
+            List<VideoFileDTO> group = entry.getValue();
             try {
-                List<TmdbTvShowDTO> results = tmdbService.searchTvShow(key.title(), key.year());
+                List<TmdbTvShowDTO> results = lookupDirectory(directory, context);
                 if (results != null && !results.isEmpty()) {
-                    TmdbTvShowDTO matchedInfo = results.getFirst();
-                    for (VideoFileDTO file : filesWithSameKey) {
-                        file.setMatchedInfo(matchedInfo);
-                    }
-                    log.debug("文件名匹配成功: {} -> {}, 应用到 {} 个文件",
-                            key.title(), matchedInfo.getName(), filesWithSameKey.size());
+                    TmdbTvShowDTO matchedInfo = applyTvShow(group, results, cleanDirectoryName(directory), null,
+                            level, context);
+                    log.debug("{}匹配: {} -> {}, 应用到 {} 个文件",
+                            level, directory, matchedInfo.getName(), group.size());
+                    continue;
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TmdbUnavailableException unavailable) {
+                    markSkipped(group, formatKey(cleanDirectoryName(directory), null), unavailable,
+                            context.skippedKeys());
+                } else {
+                    log.debug("{}匹配失败: {}", level, directory);
                 }
-            } catch (Exception e) {
-                log.debug("文件名匹配失败: {}", key.title());
             }
+            unmatched.addAll(group);
         }
+        return unmatched;
+    }
 
-        long fileNameMatchedCount = tvShows.stream().filter(f -> f.getMatchedInfo() != null).count();
-        log.info("文件名匹配完成: 成功={}/{}, 耗时={}ms",
-                fileNameMatchedCount, tvShows.size(),
-                System.currentTimeMillis() - startTime);
+    /**
+     * 目录查找 (同一目录只发起一次, 其他分组等待同一个结果)
+     */
+    private List<TmdbTvShowDTO> lookupDirectory(String directory, TvMatchContext context) {
+        return context.directoryLookups()
+                .computeIfAbsent(directory, dir -> CompletableFuture.supplyAsync(
+                        () -> searchTvShowByDirectory(dir), context.executor()))
+                .join();
+    }
 
-        // 如果全部匹配成功，直接返回
-        if (fileNameMatchedCount == tvShows.size()) {
-            log.info("电视剧匹配完成: 总数={}, 成功={}, 匹配率=100.0%", tvShows.size(), fileNameMatchedCount);
-            return;
+    private TmdbTvShowDTO applyTvShow(List<VideoFileDTO> files, List<TmdbTvShowDTO> results, String query,
+                                      Integer year, String level, TvMatchContext context) {
+        TmdbTvShowDTO matchedInfo = applyBestCandidate(files, results, query, year);
+        context.matchedBy().computeIfAbsent(level, k -> new LongAdder()).add(files.size());
+        return matchedInfo;
+    }
+
+    /**
+     * 对搜索结果排序, 把得分最高的候选应用到文件, 同时记录得分和前几个候选
+     *
+     * @param query 本次搜索的标题 (解析出的标题或清洗后的目录名)
+     * @param year 期望年份 (可选)
+     * @return 得分最高的候选
+     */
+    private <T> T applyBestCandidate(List<VideoFileDTO> files, List<T> results, String query, Integer year) {
+        List<CandidateRanker.Scored<T>> ranked = candidateRanker.rank(results, query, year);
+        CandidateRanker.Scored<T> best = ranked.getFirst();
+        List<MatchCandidateDTO> candidates = candidateRanker.toCandidates(ranked, MAX_MATCH_CANDIDATES);
+        for (VideoFileDTO file : files) {
+            file.setMatchedInfo(best.candidate());
+            file.setMatchScore(CandidateRanker.round(best.score()));
+            file.setMatchCandidates(candidates);
         }
+        return best.candidate();
+    }
 
-        // ===== 阶段 2: 目录匹配（仅处理未匹配的文件）=====
-        List<VideoFileDTO> unmatchedFiles = tvShows.stream()
-                .filter(f -> f.getMatchedInfo() == null)
-                .toList();
+    /**
+     * 查询变体
+     *
+     * @param key 共享查找表中的 key
+     * @param level 级别描述 (日志和统计用)
+     * @param description 搜索词描述 (跳过标记用)
+     * @param query 查询标题 (候选排序用)
+     * @param year 期望年份 (候选排序用, 可选)
+     * @param search 查询
+     */
+    private record QueryVariant<T>(String key, String level, String description, String query, Integer year,
+                                   Callable<List<T>> search) {}
 
-        log.info("剩余未匹配文件: {}, 开始目录匹配", unmatchedFiles.size());
-
-        // 祖父目录分组（去重）
-        Map<String, List<VideoFileDTO>> groupedByGrandParent = unmatchedFiles.stream()
-                .filter(f -> f.getGrandParentDirectory() != null && !f.getGrandParentDirectory().isEmpty())
-                .collect(java.util.stream.Collectors.groupingBy(
-                        VideoFileDTO::getGrandParentDirectory,
-                        ConcurrentHashMap::new,
-                        java.util.stream.Collectors.toCollection(CopyOnWriteArrayList::new)
-                ));
-
-        // 父目录分组（去重）
-        Map<String, List<VideoFileDTO>> groupedByParent = unmatchedFiles.stream()
-                .filter(f -> f.getParentDirectory() != null && !f.getParentDirectory().isEmpty())
-                .collect(java.util.stream.Collectors.groupingBy(
-                        VideoFileDTO::getParentDirectory,
-                        ConcurrentHashMap::new,
-                        java.util.stream.Collectors.toCollection(CopyOnWriteArrayList::new)
-                ));
-
-        // 预热祖父目录缓存
-        List<CompletableFuture<Void>> grandParentPreload = groupedByGrandParent.keySet().stream()
-                .map(dir -> CompletableFuture.runAsync(() -> {
-                    try {
-                        String cleaned = cleanDirectoryName(dir);
-                        tmdbService.searchTvShow(cleaned, null);
-                    } catch (Exception e) {
-                        log.debug("祖父目录预热失败: {}", dir);
+    /**
+     * 批量匹配电影（推测模式）
+     * 每组并发查询: 文件名 + 年份、文件名 (无年份)、清洗后的父目录名
+     */
+    private void batchMatchMoviesSpeculative(List<VideoFileDTO> movies, ExecutorService executor,
+                                             Set<String> skippedKeys, Consumer<List<VideoFileDTO>> onGroupResolved) {
+        log.info("开始批量匹配电影（推测模式），总数: {}", movies.size());
+        long startTime = System.currentTimeMillis();
+
+        record GroupKey(String title, Integer year, String directory) {}
+        Map<GroupKey, List<VideoFileDTO>> groups = new ConcurrentHashMap<>();
+        for (VideoFileDTO movie : movies) {
+            GroupKey key = new GroupKey(QueryNormalizer.normalize(movie.getParsedTitle()),
+                    movie.getParsedYear(), movieDirectory(movie));
+            groups.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(movie);
+        }
+
+        SpeculativeLookups<TmdbMovieDTO> lookups = new SpeculativeLookups<>(executor);
+        Map<String, LongAdder> matchedBy = new ConcurrentHashMap<>();
+
+        List<CompletableFuture<Void>> futures = groups.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    GroupKey key = entry.getKey();
+                    List<QueryVariant<TmdbMovieDTO>> variants = new ArrayList<>();
+                    addTitleVariants(variants, key.title(), queryTitle(entry.getValue()), key.year(), this::searchMovie);
+                    if (key.directory() != null) {
+                        String cleaned = cleanDirectoryName(key.directory());
+                        variants.add(new QueryVariant<>("dir|" + key.directory(), "父目录", cleaned,
+                                cleaned, key.year(), () -> searchMovie(cleaned, null)));
                     }
+                    matchSpeculatively(variants, entry.getValue(), lookups, skippedKeys, matchedBy);
+                    clearSkippedIfMatched(entry.getValue());
+                    notifyResolved(onGroupResolved, entry.getValue());
                 }, executor))
                 .toList();
 
-        // 预热父目录缓存
-        List<CompletableFuture<Void>> parentPreload = groupedByParent.keySet().stream()
-                .map(dir -> CompletableFuture.runAsync(() -> {
-                    try {
-                        String cleaned = cleanDirectoryName(dir);
-                        tmdbService.searchTvShow(cleaned, null);
-                    } catch (Exception e) {
-                        log.debug("父目录预热失败: {}", dir);
-                    }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        logSpeculativeResult("电影", movies, matchedBy, lookups, startTime);
+    }
+
+    /**
+     * 批量匹配电视剧（推测模式）
+     * 每组并发查询: 文件名 + 年份、文件名 (无年份)、祖父目录、父目录, 取优先级最高的非空结果
+     */
+    private void batchMatchTvShowsSpeculative(List<VideoFileDTO> tvShows, ExecutorService executor,
+                                              Set<String> skippedKeys, Consumer<List<VideoFileDTO>> onGroupResolved) {
+        log.info("开始批量匹配电视剧（推测模式），总数: {}", tvShows.size());
+        long startTime = System.currentTimeMillis();
+
+        record GroupKey(String title, Integer year, String grandParent, String parent) {}
+        Map<GroupKey, List<VideoFileDTO>> groups = new ConcurrentHashMap<>();
+        for (VideoFileDTO tvShow : tvShows) {
+            GroupKey key = new GroupKey(QueryNormalizer.normalize(tvShow.getParsedTitle()), tvShow.getParsedYear(),
+                    tvShow.getGrandParentDirectory(), tvShow.getParentDirectory());
+            groups.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(tvShow);
+        }
+
+        SpeculativeLookups<TmdbTvShowDTO> lookups = new SpeculativeLookups<>(executor);
+        Map<String, LongAdder> matchedBy = new ConcurrentHashMap<>();
+
+        List<CompletableFuture<Void>> futures = groups.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> {
+                    GroupKey key = entry.getKey();
+                    List<QueryVariant<TmdbTvShowDTO>> variants = new ArrayList<>();
+                    addTitleVariants(variants, key.title(), queryTitle(entry.getValue()), key.year(),
+                            this::searchTvShow);
+                    addDirectoryVariant(variants, key.grandParent(), "祖父目录", key.year());
+                    addDirectoryVariant(variants, key.parent(), "父目录", key.year());
+                    matchSpeculatively(variants, entry.getValue(), lookups, skippedKeys, matchedBy);
+                    clearSkippedIfMatched(entry.getValue());
+                    notifyResolved(onGroupResolved, entry.getValue());
                 }, executor))
                 .toList();
 
-        // 等待目录缓存预热完成
-        try {
-            CompletableFuture.allOf(
-                    Stream.concat(grandParentPreload.stream(), parentPreload.stream())
-                            .toArray(CompletableFuture[]::new)
-            ).get(1, TimeUnit.MINUTES);
-        } catch (Exception e) {
-            log.warn("目录缓存预热失败", e);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        logSpeculativeResult("电视剧", tvShows, matchedBy, lookups, startTime);
+    }
+
+    /**
+     * 标题变体: 有年份时先带年份, 再去掉年份
+     *
+     * @param title 归一化后的标题 (用于合并相同的查询)
+     * @param query 发给搜索接口的原始标题
+     */
+    private <T> void addTitleVariants(List<QueryVariant<T>> variants, String title, String query, Integer year,
+                                      BiFunction<String, Integer, List<T>> search) {
+        if (title == null || title.isBlank()) {
+            return;
         }
+        if (year != null) {
+            variants.add(new QueryVariant<>("title|" + title + "|" + year, "文件名", formatKey(title, year),
+                    query, year, () -> search.apply(query, year)));
+        }
+        variants.add(new QueryVariant<>("title|" + title + "|", year != null ? "文件名(无年份)" : "文件名", title,
+                query, year, () -> search.apply(query, null)));
+    }
 
-        // 从缓存读取并分配祖父目录结果
-        for (var entry : groupedByGrandParent.entrySet()) {
-            String grandParentDir = entry.getKey();
-            List<VideoFileDTO> files = entry.getValue();
+    /**
+     * 分组的查询词: 组内第一个文件解析出的原始标题 (去掉首尾空白)
+     * 分组按归一化后的标题合并, 但发给 TMDB 的是原文, 归一化只用于缓存 key
+     */
+    private String queryTitle(List<VideoFileDTO> files) {
+        String title = files.getFirst().getParsedTitle();
+        return title != null ? title.trim() : null;
+    }
 
-            try {
-                String cleaned = cleanDirectoryName(grandParentDir);
-                List<TmdbTvShowDTO> results = tmdbService.searchTvShow(cleaned, null);
+    private void addDirectoryVariant(List<QueryVariant<TmdbTvShowDTO>> variants, String directory, String level,
+                                     Integer year) {
+        if (directory == null || directory.isEmpty()) {
+            return;
+        }
+        String key = "dir|" + directory;
+        if (variants.stream().noneMatch(v -> v.key().equals(key))) {
+            String cleaned = cleanDirectoryName(directory);
+            variants.add(new QueryVariant<>(key, level, cleaned, cleaned, year,
+                    () -> searchTvShowByDirectory(directory)));
+        }
+    }
 
-                if (results != null && !results.isEmpty()) {
-                    TmdbTvShowDTO matchedInfo = results.getFirst();
-                    for (VideoFileDTO file : files) {
-                        if (file.getMatchedInfo() == null) {
-                            file.setMatchedInfo(matchedInfo);
-                        }
+    /**
+     * 并发发出一组查询变体, 按优先级取第一个非空结果 (结果内按候选得分排序), 然后释放其余变体 (无人等待时取消)
+     */
+    private <T> void matchSpeculatively(List<QueryVariant<T>> variants, List<VideoFileDTO> files,
+                                        SpeculativeLookups<T> lookups, Set<String> skippedKeys,
+                                        Map<String, LongAdder> matchedBy) {
+        List<Future<List<T>>> futures = variants.stream()
+                .map(variant -> lookups.acquire(variant.key(), variant.search()))
+                .toList();
+        try {
+            for (int i = 0; i < variants.size(); i++) {
+                QueryVariant<T> variant = variants.get(i);
+                try {
+                    List<T> results = futures.get(i).get();
+                    if (results != null && !results.isEmpty()) {
+                        applyBestCandidate(files, results, variant.query(), variant.year());
+                        matchedBy.computeIfAbsent(variant.level(), k -> new LongAdder()).add(files.size());
+                        log.debug("推测匹配成功: {} ({}), 应用到 {} 个文件",
+                                variant.description(), variant.level(), files.size());
+                        return;
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof TmdbUnavailableException unavailable) {
+                        markSkipped(files, variant.description(), unavailable, skippedKeys);
+                    } else {
+                        log.debug("推测查询失败: {} ({})", variant.description(), variant.level());
                     }
-                    log.debug("祖父目录匹配: {} -> {}, 应用到 {} 个文件",
-                            grandParentDir, matchedInfo.getName(), files.size());
                 }
-            } catch (Exception e) {
-                log.debug("祖父目录匹配失败: {}", grandParentDir);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            variants.forEach(variant -> lookups.release(variant.key()));
         }
+    }
 
-        // 从缓存读取并分配父目录结果
-        for (var entry : groupedByParent.entrySet()) {
-            String parentDir = entry.getKey();
-            List<VideoFileDTO> files = entry.getValue();
+    /**
+     * 后续级别 (或其他变体) 匹配成功的文件不再保留跳过标记
+     */
+    private void clearSkippedIfMatched(List<VideoFileDTO> files) {
+        files.stream()
+                .filter(f -> f.getMatchedInfo() != null)
+                .forEach(f -> f.setMatchSkippedReason(null));
+    }
 
-            try {
-                String cleaned = cleanDirectoryName(parentDir);
-                List<TmdbTvShowDTO> results = tmdbService.searchTvShow(cleaned, null);
+    /**
+     * 通知分组已完成; 回调异常不影响其他分组的匹配
+     */
+    private void notifyResolved(Consumer<List<VideoFileDTO>> onGroupResolved, List<VideoFileDTO> files) {
+        try {
+            onGroupResolved.accept(files);
+        } catch (Exception e) {
+            log.warn("分组完成回调失败: files={}, error={}", files.size(), e.getMessage());
+        }
+    }
 
-                if (results != null && !results.isEmpty()) {
-                    TmdbTvShowDTO matchedInfo = results.getFirst();
-                    for (VideoFileDTO file : files) {
-                        if (file.getMatchedInfo() == null) {
-                            file.setMatchedInfo(matchedInfo);
-                        }
-                    }
-                    log.debug("父目录匹配: {} -> {}, 应用到 {} 个文件",
-                            parentDir, matchedInfo.getName(), files.size());
+    private void logSpeculativeResult(String kind, List<VideoFileDTO> files, Map<String, LongAdder> matchedBy,
+                                      SpeculativeLookups<?> lookups, long startTime) {
+        long matchedCount = files.stream().filter(f -> f.getMatchedInfo() != null).count();
+        log.info("{}匹配完成（推测模式）: 总数={}, 成功={}, 匹配率={}%, 来源={}, 查询变体={}, 取消={}, 耗时={}ms",
+                kind, files.size(), matchedCount,
+                String.format("%.1f", matchedCount * 100.0 / files.size()),
+                matchedBy, lookups.size(), lookups.cancelledCount(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 电影所在目录名 (直接位于扫描根目录下时返回 null, 根目录名不能代表影片)
+     */
+    private String movieDirectory(VideoFileDTO movie) {
+        String parent = movie.getParentDirectory();
+        if (parent == null || parent.isEmpty()) {
+            return null;
+        }
+        if (movie.getFilePath() != null && movie.getScanRootPath() != null) {
+            Path parentPath = Paths.get(movie.getFilePath()).toAbsolutePath().getParent();
+            if (parentPath != null && parentPath.equals(Paths.get(movie.getScanRootPath()).toAbsolutePath())) {
+                return null;
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * 搜索电影
+     * 查找顺序: 已确认的别名 -> 离线标题索引 (只请求详情) -> TMDB 搜索
+     */
+    private List<TmdbMovieDTO> searchMovie(String title, Integer year) {
+        Long aliasId = matchAliasService.findByTitle("MOVIE", title, year);
+        if (aliasId != null) {
+            TmdbMovieDTO details = tmdbService.getMovieDetails(aliasId);
+            if (details != null) {
+                return List.of(details);
+            }
+        }
+
+        if (offlineTitleIndex.isAvailable()) {
+            for (OfflineTitleIndex.Candidate candidate : confidentCandidates(OfflineTitleIndex.Kind.MOVIE, title, year)) {
+                TmdbMovieDTO details = tmdbService.getMovieDetails(candidate.tmdbId());
+                if (details != null && yearMatches(details.getYear(), year)) {
+                    log.debug("离线索引命中电影: {} -> {} ({})", title, details.getTitle(), candidate.tmdbId());
+                    return List.of(details);
                 }
-            } catch (Exception e) {
-                log.debug("父目录匹配失败: {}", parentDir);
             }
         }
+        return tmdbService.searchMovie(title, year);
+    }
 
-        long matchedCount = tvShows.stream().filter(f -> f.getMatchedInfo() != null).count();
-        long totalTime = System.currentTimeMillis() - startTime;
-        log.info("电视剧匹配完成: 总数={}, 成功={}, 匹配率={}%, 耗时={}ms",
-                tvShows.size(), matchedCount,
-                String.format("%.1f", matchedCount * 100.0 / tvShows.size()),
-                totalTime);
+    /**
+     * 搜索电视剧
+     * 查找顺序: 已确认的别名 -> 离线标题索引 (只请求详情) -> TMDB 搜索
+     */
+    private List<TmdbTvShowDTO> searchTvShow(String title, Integer year) {
+        Long aliasId = matchAliasService.findByTitle("TV_SHOW", title, year);
+        if (aliasId != null) {
+            List<TmdbTvShowDTO> aliased = tvShowDetails(aliasId);
+            if (!aliased.isEmpty()) {
+                return aliased;
+            }
+        }
+
+        if (offlineTitleIndex.isAvailable()) {
+            for (OfflineTitleIndex.Candidate candidate : confidentCandidates(OfflineTitleIndex.Kind.TV, title, year)) {
+                TmdbTvShowDTO details = tmdbService.getTvShowDetails(candidate.tmdbId());
+                if (details != null && yearMatches(details.getYear(), year)) {
+                    log.debug("离线索引命中电视剧: {} -> {} ({})", title, details.getName(), candidate.tmdbId());
+                    return List.of(details);
+                }
+            }
+        }
+        return tmdbService.searchTvShow(title, year);
+    }
+
+    /**
+     * 按目录搜索电视剧: 目录别名优先, 否则清洗目录名后搜索
+     */
+    private List<TmdbTvShowDTO> searchTvShowByDirectory(String directoryName) {
+        Long aliasId = matchAliasService.findByDirectory(directoryName);
+        if (aliasId != null) {
+            List<TmdbTvShowDTO> aliased = tvShowDetails(aliasId);
+            if (!aliased.isEmpty()) {
+                return aliased;
+            }
+        }
+        return searchTvShow(cleanDirectoryName(directoryName), null);
+    }
+
+    private List<TmdbTvShowDTO> tvShowDetails(Long tvId) {
+        TmdbTvShowDTO details = tmdbService.getTvShowDetails(tvId);
+        return details != null ? List.of(details) : List.of();
+    }
+
+    /**
+     * 相似度达到 min-score 的离线候选 (按得分、热度排序)
+     * 未解析出年份时详情无法再用年份校验, 改用更严格的 min-score-without-year
+     */
+    private List<OfflineTitleIndex.Candidate> confidentCandidates(OfflineTitleIndex.Kind kind, String title,
+                                                                  Integer year) {
+        TmdbProperties.OfflineIndex offlineIndex = tmdbProperties.getOfflineIndex();
+        double minScore = year != null ? offlineIndex.getMinScore() : offlineIndex.getMinScoreWithoutYear();
+        return offlineTitleIndex.search(kind, title, MAX_OFFLINE_CANDIDATES).stream()
+                .filter(candidate -> candidate.score() >= minScore)
+                .toList();
+    }
+
+    /**
+     * 年份是否吻合 (允许 ±1 年, 未解析出年份时不校验)
+     */
+    private boolean yearMatches(Integer actual, Integer expected) {
+        return expected == null || (actual != null && Math.abs(actual - expected) <= 1);
+    }
+
+    /**
+     * 统计归一化节省的搜索次数: 原始 (标题, 年份) 去重数 - 归一化后去重数
+     */
+    private int countSavedSearches(List<VideoFileDTO> files) {
+        record RawKey(String title, Integer year) {}
+        long rawCount = files.stream()
+                .map(f -> new RawKey(f.getParsedTitle(), f.getParsedYear()))
+                .distinct()
+                .count();
+        long normalizedCount = files.stream()
+                .map(f -> new RawKey(QueryNormalizer.normalize(f.getParsedTitle()), f.getParsedYear()))
+                .distinct()
+                .count();
+        return (int) (rawCount - normalizedCount);
+    }
+
+    /**
+     * 标记因 TMDB 不可用而被跳过的文件 (仅标记尚未匹配的文件)
+     *
+     * @param files 使用该搜索词的文件
+     * @param key 搜索词描述
+     * @param e 快速失败异常
+     * @param skippedKeys 本批次被跳过的搜索词
+     */
+    private void markSkipped(List<VideoFileDTO> files, String key, TmdbUnavailableException e,
+                             Set<String> skippedKeys) {
+        skippedKeys.add(key);
+        String reason = e.getMessage() + ": " + key;
+        for (VideoFileDTO file : files) {
+            if (file.getMatchedInfo() == null) {
+                file.setMatchSkippedReason(reason);
+            }
+        }
+        log.debug("TMDB 不可用, 跳过搜索词: {}", key);
+    }
+
+    /**
+     * 格式化搜索词描述, 如 "绝命毒师 (2008)"
+     */
+    private String formatKey(String title, Integer year) {
+        return year != null ? title + " (" + year + ")" : title;
     }
 
     /**
@@ -0,0 +1,170 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.MatchCandidateDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.util.QueryNormalizer;
+import com.mediarenamer.util.TitleSimilarity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 匹配候选排序引擎
+ * 替代直接取 TMDB 搜索结果第一项, 按综合得分对候选排序
+ *
+ * 得分 (0~1) 由以下部分加权:
+ * - 标题相似度 0.7: 查询词与本地化标题、原始标题分别计算 (Jaro-Winkler + Levenshtein), 取较高者
+ * - 年份 0.2: 相同 1.0, 相差 1 年 0.6, 相差 2 年 0.2; 候选没有年份 0.3; 未解析出年份时不计入, 其余权重按比例放大
+ * - 热度 0.1: 候选热度取对数后相对本组最高热度的比例
+ *
+ * 得分相同时保持 TMDB 原始顺序
+ */
+@Component
+public class CandidateRanker {
+
+    private static final double TITLE_WEIGHT = 0.7;
+    private static final double YEAR_WEIGHT = 0.2;
+    private static final double POPULARITY_WEIGHT = 0.1;
+
+    /**
+     * 带得分的候选
+     *
+     * @param candidate 原始候选 (TmdbMovieDTO / TmdbTvShowDTO)
+     * @param score 综合得分
+     * @param titleScore 标题相似度
+     */
+    public record Scored<T>(T candidate, double score, double titleScore) {}
+
+    /**
+     * 对候选排序 (得分降序)
+     *
+     * @param candidates 搜索结果
+     * @param query 查询标题 (解析出的标题或清洗后的目录名)
+     * @param expectedYear 期望年份 (可选)
+     * @return 带得分的候选, 候选为空时返回空列表
+     */
+    public <T> List<Scored<T>> rank(List<T> candidates, String query, Integer expectedYear) {
+        if (candidates == null || candidates.isEmpty()) {
+            return List.of();
+        }
+
+        int[] queryPoints = TitleSimilarity.codePoints(QueryNormalizer.normalize(query));
+
+        double maxPopularity = 0;
+        for (T candidate : candidates) {
+            maxPopularity = Math.max(maxPopularity, popularityOf(candidate));
+        }
+        double popularityScale = Math.log1p(maxPopularity);
+
+        List<Scored<T>> ranked = new ArrayList<>(candidates.size());
+        for (T candidate : candidates) {
+            double titleScore = Math.max(
+                    titleSimilarity(queryPoints, titleOf(candidate)),
+                    titleSimilarity(queryPoints, originalTitleOf(candidate)));
+            double popularityScore = popularityScale > 0 ? Math.log1p(popularityOf(candidate)) / popularityScale : 0;
+
+            double score;
+            if (expectedYear != null) {
+                score = TITLE_WEIGHT * titleScore
+                        + YEAR_WEIGHT * yearScore(yearOf(candidate), expectedYear)
+                        + POPULARITY_WEIGHT * popularityScore;
+            } else {
+                score = (TITLE_WEIGHT * titleScore + POPULARITY_WEIGHT * popularityScore)
+                        / (TITLE_WEIGHT + POPULARITY_WEIGHT);
+            }
+            ranked.add(new Scored<>(candidate, score, titleScore));
+        }
+
+        // List.sort 是稳定排序, 同分时保持 TMDB 原始顺序
+        ranked.sort(Comparator.comparingDouble((Scored<T> s) -> s.score()).reversed());
+        return ranked;
+    }
+
+    /**
+     * 转为前端展示用的候选列表
+     *
+     * @param limit 最多返回的候选数
+     */
+    public List<MatchCandidateDTO> toCandidates(List<? extends Scored<?>> ranked, int limit) {
+        List<MatchCandidateDTO> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Scored<?> scored : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            Object candidate = scored.candidate();
+            result.add(MatchCandidateDTO.builder()
+                    .tmdbId(idOf(candidate))
+                    .title(titleOf(candidate))
+                    .originalTitle(originalTitleOf(candidate))
+                    .year(yearOf(candidate))
+                    .score(round(scored.score()))
+                    .titleScore(round(scored.titleScore()))
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 保留 3 位小数
+     */
+    public static double round(double score) {
+        return Math.round(score * 1000) / 1000.0;
+    }
+
+    private double titleSimilarity(int[] queryPoints, String title) {
+        if (title == null || title.isBlank()) {
+            return 0;
+        }
+        return TitleSimilarity.similarity(queryPoints, TitleSimilarity.codePoints(QueryNormalizer.normalize(title)));
+    }
+
+    private double yearScore(Integer actual, int expected) {
+        if (actual == null) {
+            return 0.3;
+        }
+        return switch (Math.abs(actual - expected)) {
+            case 0 -> 1.0;
+            case 1 -> 0.6;
+            case 2 -> 0.2;
+            default -> 0.0;
+        };
+    }
+
+    private Long idOf(Object candidate) {
+        if (candidate instanceof TmdbMovieDTO movie) {
+            return movie.getId();
+        }
+        return candidate instanceof TmdbTvShowDTO tvShow ? tvShow.getId() : null;
+    }
+
+    private String titleOf(Object candidate) {
+        if (candidate instanceof TmdbMovieDTO movie) {
+            return movie.getTitle();
+        }
+        return candidate instanceof TmdbTvShowDTO tvShow ? tvShow.getName() : null;
+    }
+
+    private String originalTitleOf(Object candidate) {
+        if (candidate instanceof TmdbMovieDTO movie) {
+            return movie.getOriginalTitle();
+        }
+        return candidate instanceof TmdbTvShowDTO tvShow ? tvShow.getOriginalName() : null;
+    }
+
+    private Integer yearOf(Object candidate) {
+        if (candidate instanceof TmdbMovieDTO movie) {
+            return movie.getYear();
+        }
+        return candidate instanceof TmdbTvShowDTO tvShow ? tvShow.getYear() : null;
+    }
+
+    private double popularityOf(Object candidate) {
+        Double popularity = null;
+        if (candidate instanceof TmdbMovieDTO movie) {
+            popularity = movie.getPopularity();
+        } else if (candidate instanceof TmdbTvShowDTO tvShow) {
+            popularity = tvShow.getPopularity();
+        }
+        return popularity != null && popularity > 0 ? popularity : 0;
+    }
+}
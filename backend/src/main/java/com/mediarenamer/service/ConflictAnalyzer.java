@@ -0,0 +1,175 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * 预览冲突分析
+ * 在执行前找出会在执行中途失败或互相竞争的目标, 标记为失败 (执行时跳过):
+ *
+ * - DUPLICATE: 多个源文件映射到同一个目标路径
+ * - CASE_ONLY: 目标路径与本批次其他目标或已有文件只有大小写不同 (大小写不敏感的文件系统 / SMB 共享上会互相覆盖)
+ * - OVERWRITE: 目标文件已存在
+ *
+ * 所有目标按路径哈希分组 (O(n)), 每个目标目录只列出一次, 同时确定是否需要创建目录
+ */
+@Slf4j
+@Component
+public class ConflictAnalyzer {
+
+    /**
+     * 冲突类型
+     */
+    public enum Conflict {
+        /** 多个源文件映射到同一目标 */
+        DUPLICATE,
+        /** 只有大小写不同 */
+        CASE_ONLY,
+        /** 目标文件已存在 */
+        OVERWRITE
+    }
+
+    /**
+     * 分析一组预览 (跳过已失败的预览)
+     * 冲突的预览标记 conflict / conflictPath 并置为失败; 其余预览补全 needCreateDirectory
+     *
+     * @param previews 预览列表
+     * @return 冲突的预览数
+     */
+    public int analyze(List<RenamePreviewDTO> previews) {
+        return analyze(previews, p -> true);
+    }
+
+    /**
+     * 分析一组预览, 只对部分预览检查已有文件 (增量预览: 其余预览的目录状态沿用上次结果)
+     * 本批次目标之间的重复 / 大小写冲突仍对全部预览检查
+     *
+     * @param previews 预览列表
+     * @param checkExisting 需要列出目标目录检查已有文件的预览
+     * @return 冲突的预览数
+     */
+    public int analyze(List<RenamePreviewDTO> previews, Predicate<RenamePreviewDTO> checkExisting) {
+        List<RenamePreviewDTO> planned = previews.stream()
+                .filter(p -> !"failed".equals(p.getStatus()) && p.getNewPath() != null)
+                .toList();
+
+        // 1. 本批次的目标之间: 按忽略大小写的路径分组
+        Map<String, List<RenamePreviewDTO>> byFoldedTarget = new HashMap<>();
+        for (RenamePreviewDTO preview : planned) {
+            byFoldedTarget.computeIfAbsent(fold(normalize(preview.getNewPath()).toString()), k -> new ArrayList<>())
+                    .add(preview);
+        }
+        int conflicts = 0;
+        for (List<RenamePreviewDTO> group : byFoldedTarget.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            Map<Path, Integer> exactCounts = new HashMap<>();
+            group.forEach(p -> exactCounts.merge(normalize(p.getNewPath()), 1, Integer::sum));
+            for (RenamePreviewDTO preview : group) {
+                Path target = normalize(preview.getNewPath());
+                RenamePreviewDTO other = group.stream()
+                        .filter(p -> p != preview)
+                        .filter(p -> exactCounts.get(target) < 2 || normalize(p.getNewPath()).equals(target))
+                        .findFirst()
+                        .orElseThrow();
+                if (exactCounts.get(target) > 1) {
+                    mark(preview, Conflict.DUPLICATE, other.getOldPath(), "多个文件映射到同一目标: " + other.getOldPath());
+                } else {
+                    mark(preview, Conflict.CASE_ONLY, other.getNewPath(), "与其他目标只有大小写不同: " + other.getNewPath());
+                }
+                conflicts++;
+            }
+        }
+
+        // 2. 与已有文件: 每个目标目录列出一次
+        Map<Path, List<RenamePreviewDTO>> byDirectory = new LinkedHashMap<>();
+        for (RenamePreviewDTO preview : planned) {
+            if (preview.getConflict() == null && checkExisting.test(preview)) {
+                byDirectory.computeIfAbsent(normalize(preview.getNewPath()).getParent(), k -> new ArrayList<>())
+                        .add(preview);
+            }
+        }
+        for (Map.Entry<Path, List<RenamePreviewDTO>> entry : byDirectory.entrySet()) {
+            conflicts += analyzeDirectory(entry.getKey(), entry.getValue());
+        }
+
+        if (conflicts > 0) {
+            log.info("预览冲突分析: 目标数={}, 目录数={}, 冲突数={}", planned.size(), byDirectory.size(), conflicts);
+        }
+        return conflicts;
+    }
+
+    private int analyzeDirectory(Path directory, List<RenamePreviewDTO> previews) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            previews.forEach(p -> p.setNeedCreateDirectory(true));
+            return 0;
+        }
+
+        // 忽略大小写的文件名 -> 目录中的实际文件名
+        Map<String, List<String>> existing = new HashMap<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.forEach(entry -> {
+                String name = entry.getFileName().toString();
+                existing.computeIfAbsent(fold(name), k -> new ArrayList<>()).add(name);
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // 无法列出时交给执行阶段检查
+            log.warn("列出目标目录失败: {}, {}", directory, e.getMessage());
+        }
+
+        int conflicts = 0;
+        for (RenamePreviewDTO preview : previews) {
+            preview.setNeedCreateDirectory(false);
+            Path target = normalize(preview.getNewPath());
+            Path source = preview.getOldPath() != null ? normalize(preview.getOldPath()) : null;
+            String name = target.getFileName().toString();
+            for (String existingName : existing.getOrDefault(fold(name), List.of())) {
+                Path existingPath = directory.resolve(existingName);
+                // 源文件本身 (名称不变或只改大小写)
+                if (existingPath.equals(source)) {
+                    continue;
+                }
+                if (existingName.equals(name)) {
+                    mark(preview, Conflict.OVERWRITE, existingPath.toString(), "目标文件已存在");
+                } else {
+                    mark(preview, Conflict.CASE_ONLY, existingPath.toString(),
+                            "与已有文件只有大小写不同: " + existingPath);
+                }
+                conflicts++;
+                break;
+            }
+        }
+        return conflicts;
+    }
+
+    private void mark(RenamePreviewDTO preview, Conflict conflict, String conflictPath, String message) {
+        preview.setConflict(conflict.name());
+        preview.setConflictPath(conflictPath);
+        preview.setStatus("failed");
+        preview.setErrorMessage(message);
+    }
+
+    private Path normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    private String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
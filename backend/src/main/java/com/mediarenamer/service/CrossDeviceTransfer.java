@@ -0,0 +1,303 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.TransferProgressDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 跨设备文件传输 (重命名无法跨文件系统时使用)
+ *
+ * - FileChannel.transferTo 分块传输, 由内核完成拷贝 (Linux 上为 copy_file_range / sendfile), 不经过 Java 堆
+ * - 先写入目标目录下的临时文件 (.文件名.part), 完成后原子重命名到目标路径, 目标路径上不会出现不完整的文件
+ * - 每个分块落盘后用 CRC32C (CPU 指令加速) 比对源文件与临时文件中的该段数据, 校验与下一块的传输并行;
+ *   校验通过后才在 .part.progress 中提交偏移量, 中断后再次传输同一文件时从该偏移量续传
+ *   (源文件大小或修改时间变化时从头开始)
+ * - 进行中的传输可通过 {@link #activeTransfers()} 查看进度
+ * - 目录按文件逐个传输 (每个文件同样分块校验), 全部完成后才算成功
+ *
+ * 校验的局限: 临时文件刚写入并 force 过, 读回时通常直接命中页缓存而不是重新读盘,
+ * 因此只能发现拷贝路径上的错误 (内核拷贝、传输中源文件被修改等), 发现不了数据落盘后才出现的损坏
+ * (磁盘 / 控制器 / 网络存储写坏); 需要这类保证时应在缓存失效后 (如重新挂载) 另行校验
+ *
+ * 只负责传输, 不删除源文件
+ */
+@Slf4j
+@Component
+public class CrossDeviceTransfer {
+
+    /**
+     * 默认分块大小: 每块落盘一次并提交偏移量
+     */
+    static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 校验读缓冲区大小
+     */
+    private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String PROGRESS_SUFFIX = ".part.progress";
+
+    private final long chunkSize;
+
+    /** 每块写入并落盘后、校验前回调 (测试用, 用于模拟写坏的数据块) */
+    private final ChunkListener chunkListener;
+
+    /** 进行中的传输 (按目标路径) */
+    private final Map<String, Progress> active = new ConcurrentHashMap<>();
+
+    public CrossDeviceTransfer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    CrossDeviceTransfer(long chunkSize) {
+        this(chunkSize, (part, start, end) -> {});
+    }
+
+    CrossDeviceTransfer(long chunkSize, ChunkListener chunkListener) {
+        this.chunkSize = chunkSize;
+        this.chunkListener = chunkListener;
+    }
+
+    /**
+     * 数据块写入回调
+     */
+    @FunctionalInterface
+    interface ChunkListener {
+        void written(Path part, long start, long end) throws IOException;
+    }
+
+    private record Progress(Path source, Path target, long totalBytes, long resumedFrom, long startedAt,
+                            AtomicLong transferred) {}
+
+    /**
+     * 传输文件到目标路径
+     *
+     * @param source 源文件
+     * @param target 目标文件 (所在目录必须已存在)
+     * @return 本次实际传输的字节数 (续传时小于文件大小)
+     * @throws IOException 传输或校验失败, 临时文件和已校验的偏移量保留用于续传
+     */
+    public long transfer(Path source, Path target) throws IOException {
+        Path part = target.resolveSibling("." + target.getFileName() + PART_SUFFIX);
+        Path progressFile = target.resolveSibling("." + target.getFileName() + PROGRESS_SUFFIX);
+
+        long size = Files.size(source);
+        long lastModified = Files.getLastModifiedTime(source).toMillis();
+        long offset = committedOffset(part, progressFile, size, lastModified);
+        if (offset > 0) {
+            log.info("续传文件: {} (从 {}/{} 字节开始)", source, offset, size);
+        }
+
+        Progress progress = new Progress(source, target, size, offset, System.currentTimeMillis(),
+                new AtomicLong(offset));
+        active.put(target.toString(), progress);
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                         StandardOpenOption.WRITE);
+                 ExecutorService verifier = Executors.newVirtualThreadPerTaskExecutor()) {
+                // 丢弃上次未提交的尾部
+                out.truncate(offset);
+                long position = offset;
+                // 上一块的校验, 与当前块的传输并行
+                Future<Long> pending = null;
+                while (position < size) {
+                    long chunkStart = position;
+                    long chunkEnd = Math.min(size, position + chunkSize);
+                    while (position < chunkEnd) {
+                        long transferred = in.transferTo(position, chunkEnd - position, out.position(position));
+                        if (transferred <= 0) {
+                            throw new IOException("源文件在传输过程中被截断: " + source);
+                        }
+                        position += transferred;
+                        progress.transferred().set(position);
+                    }
+                    out.force(false);
+                    chunkListener.written(part, chunkStart, chunkEnd);
+                    if (pending != null) {
+                        commitOffset(progressFile, awaitVerified(pending), size, lastModified);
+                    }
+                    pending = verifier.submit(() -> verifyChunk(in, out, chunkStart, chunkEnd, source));
+                }
+                if (pending != null) {
+                    commitOffset(progressFile, awaitVerified(pending), size, lastModified);
+                }
+            }
+
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(progressFile);
+            return size - offset;
+        } finally {
+            active.remove(target.toString());
+        }
+    }
+
+    /**
+     * 传输目录到目标路径 (子目录原样创建, 文件逐个分块校验传输, 符号链接原样复制)
+     * 任一文件失败时删除已创建的目标目录, 源目录始终不变
+     *
+     * @param source 源目录
+     * @param target 目标目录 (不能已存在, 所在目录必须已存在)
+     * @throws IOException 传输或校验失败
+     */
+    public void transferDirectory(Path source, Path target) throws IOException {
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectory(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path destination = target.resolve(source.relativize(file));
+                    if (attrs.isRegularFile()) {
+                        transfer(file, destination);
+                    } else {
+                        Files.copy(file, destination, LinkOption.NOFOLLOW_LINKS);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            deleteTree(target);
+            throw e;
+        }
+    }
+
+    private void deleteTree(Path root) {
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("清理未完成的目标目录失败: {}, {}", root, e.getMessage());
+        }
+    }
+
+    /**
+     * 进行中的传输
+     */
+    public List<TransferProgressDTO> activeTransfers() {
+        return active.values().stream()
+                .map(p -> TransferProgressDTO.builder()
+                        .source(p.source().toString())
+                        .target(p.target().toString())
+                        .totalBytes(p.totalBytes())
+                        .transferredBytes(p.transferred().get())
+                        .resumedFrom(p.resumedFrom())
+                        .startedAt(p.startedAt())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * 比对源文件与临时文件中同一段数据的 CRC32C (位置读取, 不影响传输使用的通道位置)
+     *
+     * @return 校验通过的结束偏移量
+     */
+    private long verifyChunk(FileChannel in, FileChannel out, long start, long end, Path source) throws IOException {
+        long expected = crc32c(in, start, end - start);
+        long actual = crc32c(out, start, end - start);
+        if (expected != actual) {
+            throw new IOException(String.format("文件校验失败: %s [%d, %d) CRC32C 源=%08x 目标=%08x",
+                    source, start, end, expected, actual));
+        }
+        return end;
+    }
+
+    private long awaitVerified(Future<Long> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("文件校验失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("文件传输已取消");
+        }
+    }
+
+    /**
+     * 计算文件中一段数据的 CRC32C
+     */
+    static long crc32c(FileChannel channel, long position, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(VERIFY_BUFFER_SIZE, Math.max(1, length)));
+        long end = position + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("读取时文件被截断");
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 读取已提交的偏移量; 临时文件不存在、进度记录损坏或源文件已变化时返回 0
+     */
+    private long committedOffset(Path part, Path progressFile, long size, long lastModified) throws IOException {
+        if (!Files.exists(part) || !Files.exists(progressFile)) {
+            return 0;
+        }
+        try {
+            String[] fields = Files.readString(progressFile).trim().split(" ");
+            long offset = Long.parseLong(fields[0]);
+            if (fields.length != 3 || Long.parseLong(fields[1]) != size || Long.parseLong(fields[2]) != lastModified) {
+                log.info("源文件已变化, 重新传输: {}", progressFile);
+                return 0;
+            }
+            return Math.max(0, Math.min(offset, Files.size(part)));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 记录已落盘且校验通过的偏移量 (格式: 偏移量 源文件大小 源文件修改时间)
+     * 数据先于偏移量落盘, 偏移量文件丢失或损坏只会导致从更早的位置续传
+     */
+    private void commitOffset(Path progressFile, long offset, long size, long lastModified) throws IOException {
+        Files.writeString(progressFile, offset + " " + size + " " + lastModified);
+    }
+}
@@ -1,9 +1,11 @@
 package com.mediarenamer.service;
 
 import com.mediarenamer.config.FileProperties;
+import com.mediarenamer.jfr.FileScanEvent;
 import com.mediarenamer.model.dto.VideoFileDTO;
 import com.mediarenamer.parser.ParseResult;
 import com.mediarenamer.parser.ParsingContext;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -39,6 +41,7 @@ public class FileScanner {
 
     private final FileProperties fileProperties;
     private final MediaParsingService mediaParsingService;
+    private final PipelineMetrics pipelineMetrics;
 
     /**
      * 扫描目录,获取所有视频文件 (并行优化版)
@@ -125,7 +128,7 @@ public class FileScanner {
                 } else if (file.isFile() && isVideoFile(file)) {
                     // 并行解析视频文件
                     CompletableFuture<Void> parseTask = CompletableFuture.runAsync(() -> {
-                        VideoFileDTO videoFile = parseVideoFile(file, scanRoot, mediaType);
+                        VideoFileDTO videoFile = scanVideoFile(file, scanRoot, mediaType);
                         videoFiles.add(videoFile);
                     }, executor);
                     subTasks.add(parseTask);
@@ -185,6 +188,32 @@ public class FileScanner {
         return false;
     }
 
+    /**
+     * 扫描单个视频文件: 解析并记录耗时指标和 JFR 事件
+     */
+    private VideoFileDTO scanVideoFile(File file, String scanRoot, String preferredMediaType) {
+        Timer.Sample sample = pipelineMetrics.start();
+        FileScanEvent event = new FileScanEvent();
+        event.begin();
+        String outcome = "error";
+        String mediaType = null;
+        try {
+            VideoFileDTO videoFile = parseVideoFile(file, scanRoot, preferredMediaType);
+            mediaType = videoFile.getMediaType();
+            outcome = "UNKNOWN".equals(mediaType) ? "unknown" : "parsed";
+            return videoFile;
+        } finally {
+            pipelineMetrics.recordScan(sample, scanRoot);
+            if (event.shouldCommit()) {
+                event.path = file.getAbsolutePath();
+                event.scanRoot = scanRoot;
+                event.mediaType = mediaType;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
     /**
      * 解析视频文件信息 (重构版)
      *
@@ -222,6 +251,7 @@ public class FileScanner {
 
         // 构建解析上下文
         ParsingContext context = ParsingContext.builder()
+                .filePath(fullPath)
                 .fileName(fileName)
                 .fileNameWithoutExt(fileNameWithoutExt)
                 .extension(extension)
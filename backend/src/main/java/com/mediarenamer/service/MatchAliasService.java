@@ -0,0 +1,243 @@
+package com.mediarenamer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediarenamer.controller.RenameController;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.util.QueryNormalizer;
+import com.mediarenamer.util.SeasonDirectoryMatcher;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 匹配别名服务
+ * 记住用户确认过的匹配结果 (重命名执行成功或显式确认), 下次扫描时直接按别名获取详情, 不再请求搜索接口
+ *
+ * 两类别名:
+ * - 标题别名: 媒体类型 + 解析出的标题 + 年份 -> TMDB ID
+ * - 目录别名: 剧集目录名 -> TMDB ID (仅电视剧, 用于目录匹配阶段)
+ *
+ * 持久化为 JSON 文件 (config.match-aliases-file)
+ */
+@Slf4j
+@Service
+public class MatchAliasService {
+
+    @Value("${config.match-aliases-file}")
+    private String aliasFilePath;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Long> titleAliases = new ConcurrentHashMap<>();
+    private final Map<String, Long> directoryAliases = new ConcurrentHashMap<>();
+
+    // 串行化别名修改与文件写入 (查询不加锁)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 启动时加载别名文件
+     */
+    @PostConstruct
+    public void init() {
+        File file = new File(aliasFilePath);
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            AliasStore store = objectMapper.readValue(file, AliasStore.class);
+            titleAliases.putAll(store.getTitles());
+            directoryAliases.putAll(store.getDirectories());
+            log.info("加载匹配别名: 标题={}, 目录={}", titleAliases.size(), directoryAliases.size());
+        } catch (IOException e) {
+            log.error("读取匹配别名失败: {}", aliasFilePath, e);
+        }
+    }
+
+    /**
+     * 按标题查找别名
+     *
+     * @param mediaType MOVIE / TV_SHOW
+     * @param title     解析出的标题
+     * @param year      年份 (可选)
+     * @return TMDB ID, 没有别名时返回 null
+     */
+    public Long findByTitle(String mediaType, String title, Integer year) {
+        return title != null ? titleAliases.get(titleKey(mediaType, title, year)) : null;
+    }
+
+    /**
+     * 按剧集目录名查找别名
+     */
+    public Long findByDirectory(String directoryName) {
+        return directoryName != null ? directoryAliases.get(directoryKey(directoryName)) : null;
+    }
+
+    /**
+     * 从已确认的匹配中学习别名
+     * 同一目录下出现多个不同 TMDB ID 时视为有歧义, 不记录目录别名
+     *
+     * @param confirmed 用户确认的重命名请求 (文件 + 匹配信息)
+     * @return 新增或变更的别名数
+     */
+    public int learn(List<RenameController.SingleRenameRequest> confirmed) {
+        Map<String, Long> titles = new HashMap<>();
+        Map<String, Long> directories = new HashMap<>();
+        Set<String> ambiguousDirectories = new HashSet<>();
+
+        for (RenameController.SingleRenameRequest request : confirmed) {
+            VideoFileDTO file = request.getVideoFile();
+            Long tmdbId = extractTmdbId(request.getMatchedInfo());
+            if (file == null || tmdbId == null || file.getMediaType() == null) {
+                continue;
+            }
+            if (file.getParsedTitle() != null && !file.getParsedTitle().isBlank()) {
+                titles.put(titleKey(file.getMediaType(), file.getParsedTitle(), file.getParsedYear()), tmdbId);
+            }
+            String showDirectory = showDirectory(file);
+            if (showDirectory != null) {
+                String key = directoryKey(showDirectory);
+                Long previous = directories.putIfAbsent(key, tmdbId);
+                if (previous != null && !previous.equals(tmdbId)) {
+                    ambiguousDirectories.add(key);
+                }
+            }
+        }
+        ambiguousDirectories.forEach(directories::remove);
+
+        lock.lock();
+        try {
+            int changed = merge(titleAliases, titles) + merge(directoryAliases, directories);
+            if (changed > 0) {
+                save();
+                log.info("学习匹配别名: 新增/变更 {} 个 (标题={}, 目录={})",
+                        changed, titleAliases.size(), directoryAliases.size());
+            }
+            return changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除指向某个 TMDB ID 的全部别名 (用于纠正错误匹配)
+     *
+     * @return 删除的别名数
+     */
+    public int forget(Long tmdbId) {
+        lock.lock();
+        try {
+            int before = titleAliases.size() + directoryAliases.size();
+            titleAliases.values().removeIf(tmdbId::equals);
+            directoryAliases.values().removeIf(tmdbId::equals);
+            int removed = before - titleAliases.size() - directoryAliases.size();
+            if (removed > 0) {
+                save();
+                log.info("删除匹配别名: tmdbId={}, 数量={}", tmdbId, removed);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前全部别名
+     */
+    public AliasStore getAliases() {
+        AliasStore store = new AliasStore();
+        store.setTitles(new HashMap<>(titleAliases));
+        store.setDirectories(new HashMap<>(directoryAliases));
+        return store;
+    }
+
+    /**
+     * 剧集目录: 父目录是季度目录时取祖父目录, 否则取父目录 (仅电视剧)
+     */
+    private String showDirectory(VideoFileDTO file) {
+        if (!"TV_SHOW".equals(file.getMediaType())) {
+            return null;
+        }
+        String parent = file.getParentDirectory();
+        if (parent != null && SeasonDirectoryMatcher.isSeasonFolder(parent)) {
+            return file.getGrandParentDirectory();
+        }
+        return parent;
+    }
+
+    private Long extractTmdbId(Object matchedInfo) {
+        if (matchedInfo instanceof TmdbMovieDTO movie) {
+            return movie.getId();
+        }
+        if (matchedInfo instanceof TmdbTvShowDTO tvShow) {
+            return tvShow.getId();
+        }
+        if (matchedInfo instanceof Map<?, ?> map) {
+            // 后端匹配结果为 id, 前端手动选择的结果为 tmdbId
+            Object id = map.get("tmdbId") != null ? map.get("tmdbId") : map.get("id");
+            if (id instanceof Number number) {
+                return number.longValue();
+            }
+        }
+        return null;
+    }
+
+    private String titleKey(String mediaType, String title, Integer year) {
+        return mediaType + "|" + QueryNormalizer.normalize(title) + "|" + (year != null ? year : "");
+    }
+
+    private String directoryKey(String directoryName) {
+        return QueryNormalizer.normalize(directoryName);
+    }
+
+    private int merge(Map<String, Long> target, Map<String, Long> learned) {
+        int changed = 0;
+        for (Map.Entry<String, Long> entry : learned.entrySet()) {
+            if (!entry.getValue().equals(target.put(entry.getKey(), entry.getValue()))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 保存别名文件 (先写临时文件再替换)
+     */
+    private void save() {
+        try {
+            Path target = new File(aliasFilePath).toPath().toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "match-aliases", ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), getAliases());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("保存匹配别名失败", e);
+            throw new RuntimeException("保存匹配别名失败", e);
+        }
+    }
+
+    /**
+     * 别名文件结构
+     */
+    @Data
+    public static class AliasStore {
+        private Map<String, Long> titles = new HashMap<>();
+        private Map<String, Long> directories = new HashMap<>();
+    }
+}
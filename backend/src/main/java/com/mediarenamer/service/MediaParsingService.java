@@ -1,9 +1,11 @@
 package com.mediarenamer.service;
 
+import com.mediarenamer.jfr.MediaParseEvent;
 import com.mediarenamer.parser.MediaParser;
 import com.mediarenamer.parser.ParseResult;
 import com.mediarenamer.parser.ParsingContext;
 import com.mediarenamer.util.SeasonDirectoryMatcher;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -29,6 +31,7 @@ public class MediaParsingService {
 
     private final List<MediaParser> parsers;
     private final TitleCleaningService titleCleaningService;
+    private final PipelineMetrics pipelineMetrics;
 
     /**
      * 按优先级排序的解析器列表
@@ -102,7 +105,7 @@ public class MediaParsingService {
                 continue;
             }
 
-            ParseResult result = parser.tryParse(context);
+            ParseResult result = tryParse(parser, context);
             if (result.isSuccessful()) {
                 log.debug("解析成功 (强制模式): parser={}, confidence={}",
                         result.getParserName(), result.getConfidence());
@@ -130,7 +133,7 @@ public class MediaParsingService {
                 continue;
             }
 
-            ParseResult result = parser.tryParse(context);
+            ParseResult result = tryParse(parser, context);
             if (result.isSuccessful()) {
                 log.debug("解析候选: parser={}, confidence={}, type={}",
                         result.getParserName(),
@@ -162,6 +165,26 @@ public class MediaParsingService {
         return ParseResult.unknown(context.getFileNameWithoutExt());
     }
 
+    /**
+     * 调用单个解析器并记录耗时、成功率和 JFR 事件
+     */
+    private ParseResult tryParse(MediaParser parser, ParsingContext context) {
+        Timer.Sample sample = pipelineMetrics.start();
+        MediaParseEvent event = new MediaParseEvent();
+        event.begin();
+        ParseResult result = parser.tryParse(context);
+        pipelineMetrics.recordParse(sample, context.getScanRootPath(), parser.getName(), result.isSuccessful());
+        if (event.shouldCommit()) {
+            // 同名文件在不同目录中很常见, 记录绝对路径才能定位到具体文件
+            event.path = context.getFilePath() != null ? context.getFilePath() : context.getFileName();
+            event.parser = parser.getName();
+            event.confidence = result.getConfidence() != null ? result.getConfidence() : 0.0;
+            event.outcome = result.isSuccessful() ? "success" : "miss";
+            event.commit();
+        }
+        return result;
+    }
+
     /**
      * 创建兜底结果 (强制模式解析失败时使用)
      */
@@ -0,0 +1,114 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.NamingProperties;
+import com.mediarenamer.util.NamingTemplate;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 命名模板服务
+ * 启动时编译内置模板和配置中的自定义模板, 预览时按名称取编译结果
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NamingTemplateService {
+
+    /**
+     * 渲染时提供的占位符, 与 RenameService 中 movieValues / tvValues 保持一致
+     */
+    static final Set<String> MOVIE_PLACEHOLDERS = Set.of("title", "originalTitle", "year", "resolution", "ext", "tmdbId");
+    static final Set<String> TV_PLACEHOLDERS =
+            Set.of("show", "originalShow", "year", "season", "episode", "title", "resolution", "ext", "tmdbId");
+
+    private final NamingProperties namingProperties;
+
+    private final Map<String, NamingTemplate> movieTemplates = new LinkedHashMap<>();
+    private final Map<String, NamingTemplate> tvTemplates = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (RenameService.MovieTemplate template : RenameService.MovieTemplate.values()) {
+            movieTemplates.put(template.name(), template.getCompiled());
+        }
+        for (RenameService.TvTemplate template : RenameService.TvTemplate.values()) {
+            tvTemplates.put(template.name(), template.getCompiled());
+        }
+        compileCustom(namingProperties.getMovieTemplates(), movieTemplates, MOVIE_PLACEHOLDERS, "电影");
+        compileCustom(namingProperties.getTvTemplates(), tvTemplates, TV_PLACEHOLDERS, "电视剧");
+    }
+
+    /**
+     * 电影命名模板
+     *
+     * @param name 模板名称 (内置或自定义)
+     * @throws RuntimeException 模板不存在
+     */
+    public NamingTemplate movie(String name) {
+        NamingTemplate template = name != null ? movieTemplates.get(name) : null;
+        if (template == null) {
+            throw new RuntimeException("未知电影命名模板: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * 电视剧命名模板
+     *
+     * @param name 模板名称 (内置或自定义)
+     * @throws RuntimeException 模板不存在
+     */
+    public NamingTemplate tv(String name) {
+        NamingTemplate template = name != null ? tvTemplates.get(name) : null;
+        if (template == null) {
+            throw new RuntimeException("未知电视剧命名模板: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * 全部模板 (movie / tv -> 名称 -> 模板原文)
+     */
+    public Map<String, Map<String, String>> listTemplates() {
+        Map<String, Map<String, String>> result = new LinkedHashMap<>();
+        result.put("movie", sources(movieTemplates));
+        result.put("tv", sources(tvTemplates));
+        return result;
+    }
+
+    /**
+     * 编译自定义模板; 语法错误或含未知占位符 (如拼写错误的 {titel}) 的模板不加载,
+     * 否则该占位符在每次渲染时都为空, 静默生成缺字段的文件名
+     */
+    private void compileCustom(Map<String, String> custom, Map<String, NamingTemplate> target,
+                               Set<String> known, String kind) {
+        custom.forEach((name, source) -> {
+            try {
+                NamingTemplate template = NamingTemplate.compile(source);
+                Set<String> unknown = new TreeSet<>(template.getPlaceholders());
+                unknown.removeAll(known);
+                if (!unknown.isEmpty()) {
+                    throw new IllegalArgumentException("未知占位符 " + unknown + ", 可用: " + new TreeSet<>(known));
+                }
+                target.put(name, template);
+                log.info("加载自定义{}命名模板: {} = {}", kind, name, source);
+            } catch (IllegalArgumentException e) {
+                // 单个模板有误不影响其他模板
+                log.error("自定义{}命名模板无效, 已忽略: {} = {}, {}", kind, name, source, e.getMessage());
+            }
+        });
+    }
+
+    private Map<String, String> sources(Map<String, NamingTemplate> templates) {
+        Map<String, String> result = new LinkedHashMap<>();
+        templates.forEach((name, template) -> result.put(name, template.getSource()));
+        return result;
+    }
+}
@@ -0,0 +1,608 @@
+package com.mediarenamer.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mediarenamer.config.TmdbProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 离线标题索引
+ *
+ * 从 TMDB 每日导出文件 (movie_ids_MM_DD_YYYY.json.gz / tv_series_ids_MM_DD_YYYY.json.gz,
+ * 每行一个 JSON: id + original_title/original_name + popularity) 构建三元组 (trigram) 倒排索引,
+ * 本地把标题解析为候选 TMDB ID, 只需再调用详情接口, 省掉搜索请求。
+ *
+ * 索引文件格式 (gzip):
+ * - 头: MAGIC, 版本, 分片数
+ * - 每个分片: 类型, 条目 (id, popularity, 标题, 三元组数), 倒排表 (三元组 -> 增量 varint 编码的条目下标)
+ *
+ * 内存中每个分片只用基本类型数组 (导入构建时同样不装箱): 排序后的三元组 long[] + 每个三元组在 postings 中的起始偏移 int[]
+ * + 所有倒排表首尾相接的 int[] (每段内条目下标升序), 没有装箱的 Map。
+ *
+ * 查询时按倒排表长度从短到长处理三元组: 较短的倒排表合并出候选条目, 其余 (常见) 三元组
+ * 只对候选条目做二分查找补齐计数; 超过 COMMON_GRAM_POSTINGS 的倒排表不参与生成候选。
+ *
+ * 条目按 popularity 降序排列, 相同得分时优先返回热门条目。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OfflineTitleIndex {
+
+    private static final int MAGIC = 0x4D52_5449;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * 候选结果的最低得分, 低于此值不返回
+     */
+    private static final double MIN_CANDIDATE_SCORE = 0.3;
+
+    /**
+     * 倒排表超过此长度的三元组视为常见三元组 (如 "the"), 不用于生成候选, 只对候选条目补齐计数
+     */
+    static final int COMMON_GRAM_POSTINGS = 20_000;
+
+    public enum Kind {
+        MOVIE, TV
+    }
+
+    /**
+     * 候选结果
+     *
+     * @param tmdbId     TMDB ID
+     * @param title      原始标题
+     * @param score      三元组 Dice 相似度 (0 ~ 1)
+     * @param popularity 导出文件中的热度
+     */
+    public record Candidate(long tmdbId, String title, double score, float popularity) {}
+
+    /**
+     * 导入结果统计
+     */
+    public record ImportStats(int movies, int tvShows, long elapsedMs) {}
+
+    private final TmdbProperties tmdbProperties;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private volatile Map<Kind, Shard> shards = Map.of();
+
+    /**
+     * 启动时加载已有的索引文件
+     */
+    @PostConstruct
+    public void init() {
+        Path indexFile = indexFile();
+        if (!Files.exists(indexFile)) {
+            log.info("离线标题索引不存在, 匹配时直接使用 TMDB 搜索: {}", indexFile);
+            return;
+        }
+        try {
+            shards = readIndex(indexFile);
+            log.info("离线标题索引已加载: 电影={}, 电视剧={}", size(Kind.MOVIE), size(Kind.TV));
+        } catch (IOException e) {
+            log.error("离线标题索引加载失败: {}", indexFile, e);
+        }
+    }
+
+    /**
+     * 索引是否可用 (已导入且启用)
+     */
+    public boolean isAvailable() {
+        return tmdbProperties.getOfflineIndex().isEnabled() && !shards.isEmpty();
+    }
+
+    public int size(Kind kind) {
+        Shard shard = shards.get(kind);
+        return shard != null ? shard.ids.length : 0;
+    }
+
+    /**
+     * 从本地导出文件导入并持久化索引
+     * 某类导出文件为 null 时保留该类已有的索引
+     *
+     * @param movieExportPath 电影导出文件路径 (.json.gz), 可选
+     * @param tvExportPath    电视剧导出文件路径 (.json.gz), 可选
+     */
+    public synchronized ImportStats importExports(String movieExportPath, String tvExportPath) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Map<Kind, Shard> updated = new EnumMap<>(Kind.class);
+        updated.putAll(shards);
+
+        if (movieExportPath != null && !movieExportPath.isBlank()) {
+            updated.put(Kind.MOVIE, buildShard(readExport(Paths.get(movieExportPath), "original_title")));
+        }
+        if (tvExportPath != null && !tvExportPath.isBlank()) {
+            updated.put(Kind.TV, buildShard(readExport(Paths.get(tvExportPath), "original_name")));
+        }
+
+        writeIndex(indexFile(), updated);
+        shards = updated;
+
+        ImportStats stats = new ImportStats(size(Kind.MOVIE), size(Kind.TV), System.currentTimeMillis() - startTime);
+        log.info("离线标题索引导入完成: 电影={}, 电视剧={}, 耗时={}ms",
+                stats.movies(), stats.tvShows(), stats.elapsedMs());
+        return stats;
+    }
+
+    /**
+     * 模糊搜索标题
+     *
+     * @param kind  类型
+     * @param title 标题
+     * @param limit 最多返回数量
+     * @return 按得分降序 (同分按热度) 的候选列表
+     */
+    public List<Candidate> search(Kind kind, String title, int limit) {
+        Shard shard = shards.get(kind);
+        if (shard == null || title == null) {
+            return List.of();
+        }
+
+        long[] queryGrams = trigrams(normalize(title));
+        if (queryGrams.length == 0) {
+            return List.of();
+        }
+
+        // 每个命中的三元组在 postings 中的区间, 按长度升序
+        int[][] ranges = new int[queryGrams.length][];
+        int found = 0;
+        for (long gram : queryGrams) {
+            int slot = Arrays.binarySearch(shard.grams, gram);
+            if (slot >= 0) {
+                ranges[found++] = new int[]{shard.offsets[slot], shard.offsets[slot + 1]};
+            }
+        }
+        if (found == 0) {
+            return List.of();
+        }
+        ranges = Arrays.copyOf(ranges, found);
+        Arrays.sort(ranges, Comparator.comparingInt(range -> range[1] - range[0]));
+
+        // 前缀过滤: 得分 >= MIN_CANDIDATE_SCORE 的条目至少命中 minShared 个三元组,
+        // 因此必然出现在最短的 (found - minShared + 1) 个倒排表之一中, 其余倒排表不需要合并
+        int minShared = Math.max(1, (int) Math.ceil(MIN_CANDIDATE_SCORE * queryGrams.length / (2 - MIN_CANDIDATE_SCORE)));
+        int prefix = Math.max(1, found - minShared + 1);
+        int merged = 1;
+        int total = ranges[0][1] - ranges[0][0];
+        while (merged < prefix && ranges[merged][1] - ranges[merged][0] <= COMMON_GRAM_POSTINGS) {
+            total += ranges[merged][1] - ranges[merged][0];
+            merged++;
+        }
+
+        // 合并候选倒排表: 拼接后排序, 相同下标的连续段长度即命中数
+        int[] hits = new int[total];
+        int length = 0;
+        for (int r = 0; r < merged; r++) {
+            int from = ranges[r][0];
+            int count = ranges[r][1] - from;
+            System.arraycopy(shard.postings, from, hits, length, count);
+            length += count;
+        }
+        Arrays.sort(hits);
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < hits.length; ) {
+            int entry = hits[i];
+            int shared = 0;
+            while (i < hits.length && hits[i] == entry) {
+                shared++;
+                i++;
+            }
+            // 其余倒排表 (升序) 二分查找
+            for (int r = merged; r < ranges.length; r++) {
+                if (Arrays.binarySearch(shard.postings, ranges[r][0], ranges[r][1], entry) >= 0) {
+                    shared++;
+                }
+            }
+            double score = 2.0 * shared / (queryGrams.length + shard.gramCounts[entry]);
+            if (score >= MIN_CANDIDATE_SCORE) {
+                candidates.add(new Candidate(shard.ids[entry], shard.titles[entry], score, shard.popularity[entry]));
+            }
+        }
+
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed()
+                .thenComparing(Comparator.comparingDouble(Candidate::popularity).reversed()));
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * 标题归一化: NFKC, 小写, 非字母数字替换为空格
+     */
+    static String normalize(String title) {
+        String normalized = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase();
+        StringBuilder builder = new StringBuilder(normalized.length());
+        boolean lastSpace = true;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(c);
+                lastSpace = false;
+            } else if (!lastSpace) {
+                builder.append(' ');
+                lastSpace = true;
+            }
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * 去重后的三元组 (升序), 首尾补空格使短标题也能产生三元组
+     */
+    static long[] trigrams(String normalized) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String padded = " " + normalized + " ";
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int unique = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (unique == 0 || grams[i] != grams[unique - 1]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, unique);
+    }
+
+    /**
+     * 流式读取导出文件, 跳过成人内容和低于热度阈值的条目
+     */
+    private ExportColumns readExport(Path path, String titleField) throws IOException {
+        double minPopularity = tmdbProperties.getOfflineIndex().getMinPopularity();
+        ExportColumns columns = new ExportColumns();
+        int skipped = 0;
+
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(path));
+             InputStream in = path.toString().endsWith(".gz") ? new GZIPInputStream(raw) : raw;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ExportEntry entry = parseLine(line, titleField);
+                if (entry == null || entry.adult() || entry.popularity() < minPopularity) {
+                    skipped++;
+                    continue;
+                }
+                columns.add(entry);
+            }
+        }
+
+        log.info("读取导出文件: {}, 条目={}, 跳过={}", path.getFileName(), columns.size, skipped);
+        return columns;
+    }
+
+    private ExportEntry parseLine(String line, String titleField) throws IOException {
+        if (line.isBlank()) {
+            return null;
+        }
+        long id = 0;
+        String title = null;
+        float popularity = 0;
+        boolean adult = false;
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> id = parser.getValueAsLong();
+                    case "popularity" -> popularity = (float) parser.getValueAsDouble();
+                    case "adult" -> adult = value == JsonToken.VALUE_TRUE;
+                    default -> {
+                        if (field.equals(titleField)) {
+                            title = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+        }
+
+        return id > 0 && title != null && !title.isBlank() ? new ExportEntry(id, title, popularity, adult) : null;
+    }
+
+    /**
+     * 构建分片, 全程只用基本类型数组:
+     * 条目按 (热度, 原顺序) 打包成 long 排序; 倒排表分两遍构建,
+     * 第一遍在 GramTable 中统计每个三元组的条目数, 第二遍按前缀和偏移量直接填入 postings
+     */
+    private Shard buildShard(ExportColumns columns) {
+        int size = columns.size;
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            // 高 32 位: 热度取反 (降序), 低 32 位: 原下标 (同热度保持导出顺序)
+            order[i] = ((long) ~sortableBits(columns.popularity[i]) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        long[] ids = new long[size];
+        float[] popularity = new float[size];
+        String[] titles = new String[size];
+        short[] gramCounts = new short[size];
+        GramTable table = new GramTable(1 << 16);
+        for (int i = 0; i < size; i++) {
+            int source = (int) order[i];
+            ids[i] = columns.ids[source];
+            popularity[i] = columns.popularity[source];
+            titles[i] = columns.titles[source];
+            long[] entryGrams = trigrams(normalize(titles[i]));
+            gramCounts[i] = (short) Math.min(entryGrams.length, Short.MAX_VALUE);
+            for (long gram : entryGrams) {
+                table.increment(gram);
+            }
+        }
+
+        long[] grams = table.keys();
+        Arrays.sort(grams);
+        int[] offsets = new int[grams.length + 1];
+        for (int g = 0; g < grams.length; g++) {
+            offsets[g + 1] = offsets[g] + table.get(grams[g]);
+            // 计数已计入偏移量, 改存写入位置
+            table.set(grams[g], offsets[g]);
+        }
+
+        // 条目下标递增写入, 每段倒排表天然升序
+        int[] postings = new int[offsets[grams.length]];
+        for (int i = 0; i < size; i++) {
+            for (long gram : trigrams(normalize(titles[i]))) {
+                postings[table.increment(gram) - 1] = i;
+            }
+        }
+        return new Shard(ids, popularity, titles, gramCounts, grams, offsets, postings);
+    }
+
+    /**
+     * float 转为可按有符号 int 比较大小的位模式
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFF_FFFF);
+    }
+
+    private void writeIndex(Path indexFile, Map<Kind, Shard> data) throws IOException {
+        Files.createDirectories(indexFile.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(), "offline-index", ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp)), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(data.size());
+            for (Map.Entry<Kind, Shard> entry : data.entrySet()) {
+                Shard shard = entry.getValue();
+                out.writeByte(entry.getKey().ordinal());
+                out.writeInt(shard.ids.length);
+                for (int i = 0; i < shard.ids.length; i++) {
+                    out.writeLong(shard.ids[i]);
+                    out.writeFloat(shard.popularity[i]);
+                    out.writeUTF(shard.titles[i]);
+                    out.writeShort(shard.gramCounts[i]);
+                }
+                out.writeInt(shard.grams.length);
+                for (int g = 0; g < shard.grams.length; g++) {
+                    out.writeLong(shard.grams[g]);
+                    writeVarInt(out, shard.offsets[g + 1] - shard.offsets[g]);
+                    int previous = 0;
+                    for (int i = shard.offsets[g]; i < shard.offsets[g + 1]; i++) {
+                        writeVarInt(out, shard.postings[i] - previous);
+                        previous = shard.postings[i];
+                    }
+                }
+            }
+        }
+
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("离线标题索引已写入: {} ({} KB)", indexFile, Files.size(indexFile) / 1024);
+    }
+
+    private Map<Kind, Shard> readIndex(Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(indexFile)), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("不支持的离线索引格式: " + indexFile);
+            }
+            Map<Kind, Shard> data = new EnumMap<>(Kind.class);
+            int shardCount = in.readInt();
+            for (int s = 0; s < shardCount; s++) {
+                Kind kind = Kind.values()[in.readByte()];
+                int size = in.readInt();
+                long[] ids = new long[size];
+                float[] popularity = new float[size];
+                String[] titles = new String[size];
+                short[] gramCounts = new short[size];
+                for (int i = 0; i < size; i++) {
+                    ids[i] = in.readLong();
+                    popularity[i] = in.readFloat();
+                    titles[i] = in.readUTF();
+                    gramCounts[i] = in.readShort();
+                }
+                int gramCount = in.readInt();
+                long[] grams = new long[gramCount];
+                int[] offsets = new int[gramCount + 1];
+                int[] postings = new int[Math.max(16, size * 4)];
+                int position = 0;
+                for (int g = 0; g < gramCount; g++) {
+                    grams[g] = in.readLong();
+                    offsets[g] = position;
+                    int length = readVarInt(in);
+                    if (position + length > postings.length) {
+                        postings = Arrays.copyOf(postings, Math.max(position + length, postings.length * 2));
+                    }
+                    int previous = 0;
+                    for (int i = 0; i < length; i++) {
+                        previous += readVarInt(in);
+                        postings[position++] = previous;
+                    }
+                }
+                offsets[gramCount] = position;
+                data.put(kind, new Shard(ids, popularity, titles, gramCounts, grams, offsets,
+                        Arrays.copyOf(postings, position)));
+            }
+            return data;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private Path indexFile() {
+        return Paths.get(tmdbProperties.getOfflineIndex().getFile());
+    }
+
+    private record ExportEntry(long id, String title, float popularity, boolean adult) {}
+
+    /**
+     * 导出文件中保留的条目, 按列存放
+     */
+    private static final class ExportColumns {
+        private long[] ids = new long[1024];
+        private float[] popularity = new float[1024];
+        private String[] titles = new String[1024];
+        private int size;
+
+        void add(ExportEntry entry) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                popularity = Arrays.copyOf(popularity, capacity);
+                titles = Arrays.copyOf(titles, capacity);
+            }
+            ids[size] = entry.id();
+            popularity[size] = entry.popularity();
+            titles[size] = entry.title();
+            size++;
+        }
+    }
+
+    /**
+     * 三元组 -> int 的开放寻址哈希表 (线性探测), 键 0 表示空槽
+     * 三元组由三个字母/数字/空格组成, 不会为 0
+     */
+    private static final class GramTable {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        GramTable(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        /**
+         * 值加一 (不存在时从 0 开始), 返回加一后的值
+         */
+        int increment(long key) {
+            int slot = slot(key);
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    resize();
+                    slot = slot(key);
+                }
+            }
+            return ++values[slot];
+        }
+
+        int get(long key) {
+            return values[slot(key)];
+        }
+
+        void set(long key, int value) {
+            values[slot(key)] = value;
+        }
+
+        long[] keys() {
+            long[] result = new long[size];
+            int count = 0;
+            for (long key : keys) {
+                if (key != 0) {
+                    result[count++] = key;
+                }
+            }
+            return result;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E37_79B9_7F4A_7C15L) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个类型的索引 (不可变, 整体替换)
+     *
+     * @param grams    排序后的三元组
+     * @param offsets  第 g 个三元组的倒排表为 postings[offsets[g], offsets[g + 1])
+     * @param postings 所有倒排表 (每段内条目下标升序)
+     */
+    private record Shard(long[] ids, float[] popularity, String[] titles, short[] gramCounts,
+                         long[] grams, int[] offsets, int[] postings) {}
+}
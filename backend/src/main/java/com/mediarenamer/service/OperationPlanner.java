@@ -0,0 +1,266 @@
+package com.mediarenamer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mediarenamer.config.FileProperties;
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 文件操作规划
+ * 根据源文件和目标所在的 FileStore, 为每个文件选出执行方式下代价最低的可行操作, 预览时展示, 执行时复用
+ *
+ * - MOVE: 同一 FileStore 原子重命名, 否则复制+删除
+ * - AUTO: 保留原文件, 同一 FileStore 硬链接 (只改元数据), 否则复制
+ * - HARDLINK: 只能在同一 FileStore 内, 否则不可行
+ * - SYMLINK / COPY: 与 FileStore 无关
+ *
+ * 同一目录下的文件共享 FileStore 查找结果 (短时缓存, Files.getFileStore 需要查挂载表)
+ *
+ * 移动方式下还会找出可以整目录重命名的源目录 (整季剧集包): 一次目录重命名代替逐个文件移动,
+ * 目录内的非视频文件随目录一起移动
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OperationPlanner {
+
+    private final FileProperties fileProperties;
+
+    /**
+     * 具体文件操作
+     */
+    public enum Operation {
+        /** 原子重命名 */
+        RENAME(false),
+        /** 硬链接 */
+        HARDLINK(false),
+        /** 符号链接 */
+        SYMLINK(false),
+        /** 复制 (保留原文件) */
+        COPY(true),
+        /** 复制后删除原文件 (跨设备移动) */
+        COPY_DELETE(true),
+        /** 随所在目录整体重命名 (之后在目标目录内改名) */
+        DIRECTORY_RENAME(false);
+
+        private final boolean copiesData;
+
+        Operation(boolean copiesData) {
+            this.copiesData = copiesData;
+        }
+
+        /**
+         * 是否需要复制文件数据 (耗时与文件大小成正比)
+         */
+        public boolean copiesData() {
+            return copiesData;
+        }
+    }
+
+    /**
+     * 整目录重命名
+     *
+     * @param source 源目录
+     * @param target 目标目录 (规划时尚不存在)
+     * @param previews 源目录内全部视频的预览
+     */
+    public record DirectoryMove(Path source, Path target, List<RenamePreviewDTO> previews) {}
+
+    private final Cache<Path, FileStore> fileStores = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    /**
+     * 规划单个文件的操作
+     *
+     * @param source 源文件
+     * @param target 目标文件 (所在目录可以尚未创建)
+     * @param strategy 执行方式
+     * @return 具体操作
+     * @throws RuntimeException 执行方式不可行 (跨 FileStore 硬链接)
+     */
+    public Operation plan(Path source, Path target, RenameService.RenameStrategy strategy) {
+        return switch (strategy) {
+            case MOVE -> sameFileStore(source, target) ? Operation.RENAME : Operation.COPY_DELETE;
+            case AUTO -> sameFileStore(source, target) ? Operation.HARDLINK : Operation.COPY;
+            case HARDLINK -> {
+                if (!sameFileStore(source, target)) {
+                    throw new RuntimeException("无法创建硬链接: 源文件与目标不在同一设备");
+                }
+                yield Operation.HARDLINK;
+            }
+            case SYMLINK -> Operation.SYMLINK;
+            case COPY -> Operation.COPY;
+        };
+    }
+
+    /**
+     * 找出可以整目录重命名的源目录 (仅用于移动方式)
+     * 条件:
+     * - 源目录内 (含子目录) 的全部视频都在本批次中, 且进入同一个尚不存在的目标目录
+     * - 该目标目录只接收这一个源目录的文件
+     * - 源目录与目标目录在同一 FileStore (目录重命名是原子的, 不做跨设备复制)
+     * - 源目录不是扫描根目录、目标根目录或它们的上级, 也不包含目标目录
+     * - 源文件不直接位于扫描根目录 (oldRelativeDirectory 为 "./"); 执行请求可以不带扫描根目录,
+     *   此时只能靠预览中的相对目录判断, 相对目录未知时同样不整目录重命名
+     *
+     * @param previews 待执行的预览
+     * @param scanRoot 扫描根目录 (可为 null)
+     * @return 整目录重命名列表, 未包含的预览仍逐个文件移动
+     */
+    public List<DirectoryMove> planDirectoryMoves(List<RenamePreviewDTO> previews, String scanRoot) {
+        Map<Path, List<RenamePreviewDTO>> bySource = new LinkedHashMap<>();
+        Map<Path, Set<Path>> sourcesByTarget = new HashMap<>();
+        for (RenamePreviewDTO preview : previews) {
+            Path sourceDir = normalize(preview.getOldPath()).getParent();
+            Path targetDir = normalize(preview.getNewPath()).getParent();
+            if (sourceDir == null || targetDir == null) {
+                continue;
+            }
+            bySource.computeIfAbsent(sourceDir, k -> new ArrayList<>()).add(preview);
+            sourcesByTarget.computeIfAbsent(targetDir, k -> new HashSet<>()).add(sourceDir);
+        }
+
+        boolean scanRootKnown = scanRoot != null && !scanRoot.isBlank();
+        List<Path> protectedRoots = new ArrayList<>();
+        if (scanRootKnown) {
+            protectedRoots.add(normalize(scanRoot));
+        }
+        previews.stream()
+                .map(RenamePreviewDTO::getTargetRoot)
+                .filter(root -> root != null && !root.isBlank())
+                .distinct()
+                .forEach(root -> protectedRoots.add(normalize(root)));
+
+        List<DirectoryMove> moves = new ArrayList<>();
+        for (Map.Entry<Path, List<RenamePreviewDTO>> group : bySource.entrySet()) {
+            Path sourceDir = group.getKey();
+            Set<Path> targetDirs = group.getValue().stream()
+                    .map(p -> normalize(p.getNewPath()).getParent())
+                    .collect(Collectors.toSet());
+            if (targetDirs.size() != 1) {
+                continue;
+            }
+            Path targetDir = targetDirs.iterator().next();
+            if (sourcesByTarget.get(targetDir).size() != 1
+                    || targetDir.startsWith(sourceDir)
+                    || Files.exists(targetDir, LinkOption.NOFOLLOW_LINKS)
+                    || protectedRoots.stream().anyMatch(root -> root.startsWith(sourceDir))
+                    || group.getValue().stream().anyMatch(p -> inScanRoot(p, scanRootKnown))
+                    || !containsOnly(sourceDir, group.getValue())
+                    || !sameDirectoryStore(sourceDir, targetDir)) {
+                continue;
+            }
+            moves.add(new DirectoryMove(sourceDir, targetDir, List.copyOf(group.getValue())));
+        }
+        return moves;
+    }
+
+    /**
+     * 源文件是否直接位于扫描根目录 (相对目录未知且没有扫描根目录可比较时按是处理)
+     */
+    private boolean inScanRoot(RenamePreviewDTO preview, boolean scanRootKnown) {
+        String relativeDirectory = preview.getOldRelativeDirectory();
+        return "./".equals(relativeDirectory) || (relativeDirectory == null && !scanRootKnown);
+    }
+
+    /**
+     * 目录内 (含子目录) 的视频是否恰好是这组预览的源文件
+     */
+    private boolean containsOnly(Path directory, List<RenamePreviewDTO> previews) {
+        Set<Path> expected = previews.stream()
+                .map(p -> normalize(p.getOldPath()))
+                .collect(Collectors.toSet());
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(this::isVideoFile)
+                    .allMatch(file -> expected.contains(file.toAbsolutePath().normalize()));
+        } catch (IOException | UncheckedIOException e) {
+            log.debug("遍历目录失败, 不整体重命名: {}, {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isVideoFile(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase();
+        for (String ext : fileProperties.getVideoExtensions()) {
+            if (fileName.endsWith("." + ext.toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Path normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 源文件与目标是否位于同一 FileStore
+     * 目标目录不存在时取最近的已存在上级目录; 无法确定时视为不同 (只会选择更保守的复制)
+     */
+    public boolean sameFileStore(Path source, Path target) {
+        return sameDirectoryStore(source.toAbsolutePath().getParent(), target.toAbsolutePath().getParent());
+    }
+
+    private boolean sameDirectoryStore(Path sourceDir, Path targetDir) {
+        if (sourceDir == null || targetDir == null) {
+            return false;
+        }
+        FileStore sourceStore = fileStoreOf(sourceDir);
+        return sourceStore != null && sourceStore.equals(fileStoreOf(targetDir));
+    }
+
+    /**
+     * 路径所在的 FileStore (路径尚不存在时取最近的已存在上级目录)
+     *
+     * @return FileStore, 无法确定时返回 null
+     */
+    public FileStore fileStoreOf(Path path) {
+        Path directory = path.toAbsolutePath();
+        while (directory != null && !Files.exists(directory)) {
+            directory = directory.getParent();
+        }
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return cachedFileStore(directory);
+        } catch (UncheckedIOException e) {
+            log.debug("获取 FileStore 失败: {}, {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private FileStore cachedFileStore(Path directory) {
+        return fileStores.get(directory, dir -> {
+            try {
+                return Files.getFileStore(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -1,16 +1,16 @@
 package com.mediarenamer.service;
 
+import com.mediarenamer.jfr.FileMoveEvent;
 import com.mediarenamer.model.dto.RenamePreviewDTO;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -21,10 +21,14 @@ import java.util.Set;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class OrganizationService {
 
     private static final String UNORGANIZED_DIR_NAME = "未整理";
 
+    // 跨设备传输 (带分块校验)
+    private final CrossDeviceTransfer crossDeviceTransfer;
+
     /**
      * 整理未处理的文件
      * 1. 移动扫描根目录下的残留文件/目录到"未整理"目录
@@ -289,36 +293,58 @@ public class OrganizationService {
      * @param unorganizedDir 未整理目录
      */
     private void moveToUnorganized(File source, File unorganizedDir) {
+        File target = new File(unorganizedDir, source.getName());
+        FileMoveEvent event = new FileMoveEvent();
+        event.begin();
+        long size = source.isFile() ? source.length() : 0;
+        String method = "rename";
+        String outcome = "failed";
         try {
-            File target = new File(unorganizedDir, source.getName());
-
             // 检查目标是否已存在
             if (target.exists()) {
                 log.warn("目标已存在，跳过移动: {}", target.getAbsolutePath());
+                outcome = "skipped";
                 return;
             }
 
             // 尝试直接移动
             if (source.renameTo(target)) {
                 log.info("移动成功: {} -> {}", source.getName(), target.getAbsolutePath());
+                outcome = "success";
                 return;
             }
 
             // 移动失败，使用复制+删除（处理目录或跨分区情况）
             if (source.isDirectory()) {
-                FileUtils.moveDirectoryToDirectory(source, unorganizedDir, true);
+                method = "move_directory";
+                // 逐个文件校验传输, 全部成功后才删除原目录; 失败时抛出 IOException, 原目录不变
+                crossDeviceTransfer.transferDirectory(source.toPath(), target.toPath());
+                FileUtils.deleteDirectory(source);
                 log.info("移动目录成功: {} -> {}", source.getName(), target.getAbsolutePath());
             } else {
-                Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                method = "copy_delete";
+                // 校验失败时抛出 IOException, 不会删除原文件
+                crossDeviceTransfer.transfer(source.toPath(), target.toPath());
                 boolean deleted = source.delete();
                 if (!deleted) {
                     log.warn("原文件删除失败: {}", source.getAbsolutePath());
                 }
                 log.info("移动文件成功: {} -> {}", source.getName(), target.getAbsolutePath());
             }
+            outcome = "success";
 
         } catch (IOException e) {
             log.error("移动失败: {}", source.getAbsolutePath(), e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.operation = "organize";
+                event.path = source.getAbsolutePath();
+                event.targetPath = target.getAbsolutePath();
+                event.method = method;
+                event.size = size;
+                event.outcome = outcome;
+                event.commit();
+            }
         }
     }
 }
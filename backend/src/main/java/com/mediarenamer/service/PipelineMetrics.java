@@ -0,0 +1,130 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.VideoFileDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * 处理流水线指标
+ * 扫描、解析、匹配、预览、重命名各阶段的耗时和计数, 按扫描根目录打标签
+ *
+ * 指标:
+ * - media.scan.file     单个文件扫描耗时 (root)
+ * - media.parse         单个解析器耗时 (root, parser, outcome=success/miss)
+ * - media.match         一次批量匹配耗时 (root)
+ * - media.match.files   匹配结果计数 (root, outcome=matched/unmatched)
+ * - tmdb.request        TMDB 接口耗时 (endpoint, outcome)
+ * - media.preview       单个文件预览生成耗时 (root, outcome)
+ * - media.rename        单个文件移动耗时 (root, method=rename/copy_delete/rename_directory/hardlink/symlink/copy, outcome)
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineMetrics {
+
+    /**
+     * 没有扫描根目录时的标签值
+     */
+    public static final String UNKNOWN_ROOT = "unknown";
+
+    /**
+     * 一批文件来自多个扫描根目录时的标签值
+     */
+    public static final String MIXED_ROOT = "mixed";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 开始计时
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordScan(Timer.Sample sample, String scanRoot) {
+        sample.stop(Timer.builder("media.scan.file")
+                .description("单个文件扫描耗时 (含解析)")
+                .tag("root", root(scanRoot))
+                .register(meterRegistry));
+    }
+
+    public void recordParse(Timer.Sample sample, String scanRoot, String parser, boolean success) {
+        sample.stop(Timer.builder("media.parse")
+                .description("单个解析器耗时")
+                .tag("root", root(scanRoot))
+                .tag("parser", parser)
+                .tag("outcome", success ? "success" : "miss")
+                .register(meterRegistry));
+    }
+
+    /**
+     * 记录一次批量匹配: 批次耗时 + 每个文件的匹配结果
+     */
+    public void recordMatch(Timer.Sample sample, Collection<VideoFileDTO> files) {
+        sample.stop(Timer.builder("media.match")
+                .description("批量匹配耗时")
+                .tag("root", rootOf(files))
+                .register(meterRegistry));
+        for (VideoFileDTO file : files) {
+            Counter.builder("media.match.files")
+                    .description("匹配文件数")
+                    .tag("root", root(file.getScanRootPath()))
+                    .tag("outcome", file.getMatchedInfo() != null ? "matched" : "unmatched")
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    public void recordTmdbRequest(Timer.Sample sample, String endpoint, String outcome) {
+        sample.stop(Timer.builder("tmdb.request")
+                .description("TMDB 接口耗时 (含重试)")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void recordPreview(Timer.Sample sample, String scanRoot, boolean success) {
+        sample.stop(Timer.builder("media.preview")
+                .description("单个文件预览生成耗时")
+                .tag("root", root(scanRoot))
+                .tag("outcome", success ? "success" : "failed")
+                .register(meterRegistry));
+    }
+
+    /**
+     * @param method rename (同分区直接重命名) / copy_delete (跨分区复制+删除) / rename_directory (整目录重命名) / hardlink / symlink / copy
+     */
+    public void recordRename(Timer.Sample sample, String scanRoot, String method, boolean success) {
+        sample.stop(Timer.builder("media.rename")
+                .description("单个文件移动耗时")
+                .tag("root", root(scanRoot))
+                .tag("method", method)
+                .tag("outcome", success ? "success" : "failed")
+                .register(meterRegistry));
+    }
+
+    private String root(String scanRoot) {
+        return scanRoot == null || scanRoot.isBlank() ? UNKNOWN_ROOT : scanRoot;
+    }
+
+    /**
+     * 一批文件的根目录标签: 全部相同时取该目录, 否则为 mixed
+     */
+    private String rootOf(Collection<VideoFileDTO> files) {
+        String result = null;
+        for (VideoFileDTO file : files) {
+            String fileRoot = root(file.getScanRootPath());
+            if (result == null) {
+                result = fileRoot;
+            } else if (!Objects.equals(result, fileRoot)) {
+                return MIXED_ROOT;
+            }
+        }
+        return result != null ? result : UNKNOWN_ROOT;
+    }
+}
@@ -0,0 +1,131 @@
+package com.mediarenamer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mediarenamer.controller.RenameController.SingleRenameRequest;
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量预览会话缓存
+ * 保存每次批量预览的输入和结果 (按文件路径), 切换模板或修改季号时只重新计算输入变化的文件
+ *
+ * 输入 key = 文件路径 + 扫描根目录 + 季集号 + 媒体类型 + 匹配的 TMDB ID + 模板名; key 不变的文件直接复用缓存的预览
+ * 会话在 30 分钟未访问后过期, 最多保留 8 个
+ */
+@Component
+public class PreviewSessionCache {
+
+    private static final int MAX_SESSIONS = 8;
+
+    private final Cache<String, PreviewSession> sessions = Caffeine.newBuilder()
+            .maximumSize(MAX_SESSIONS)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    /**
+     * 单个文件的预览输入与结果
+     */
+    public record Entry(SingleRenameRequest request, String inputKey, RenamePreviewDTO preview) {}
+
+    /**
+     * 一次批量预览
+     * 同一会话的增量更新需要持有 lock 串行执行
+     */
+    public static final class PreviewSession {
+
+        private final String sessionId;
+        private final String targetRoot;
+        private final String strategy;
+        // 文件路径 -> 输入与预览 (保持请求顺序)
+        private final Map<String, Entry> entries;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private PreviewSession(String sessionId, String targetRoot, String strategy, Map<String, Entry> entries) {
+            this.sessionId = sessionId;
+            this.targetRoot = targetRoot;
+            this.strategy = strategy;
+            this.entries = entries;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getTargetRoot() {
+            return targetRoot;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public Map<String, Entry> getEntries() {
+            return entries;
+        }
+
+        public ReentrantLock getLock() {
+            return lock;
+        }
+    }
+
+    /**
+     * 创建会话
+     *
+     * @param targetRoot 请求指定的目标根目录 (可为 null)
+     * @param strategy 请求指定的执行方式 (可为 null)
+     * @param entries 文件路径 -> 输入与预览
+     * @return 会话
+     */
+    public PreviewSession create(String targetRoot, String strategy, Map<String, Entry> entries) {
+        PreviewSession session = new PreviewSession(UUID.randomUUID().toString(), targetRoot, strategy,
+                new LinkedHashMap<>(entries));
+        sessions.put(session.getSessionId(), session);
+        return session;
+    }
+
+    /**
+     * 获取会话
+     *
+     * @return 会话, 不存在或已过期时返回 null
+     */
+    public PreviewSession get(String sessionId) {
+        return sessionId != null ? sessions.getIfPresent(sessionId) : null;
+    }
+
+    /**
+     * 预览输入 key (决定预览结果的全部输入)
+     */
+    public static String inputKey(SingleRenameRequest request) {
+        VideoFileDTO videoFile = request.getVideoFile();
+        String mediaType = request.getMediaType() != null ? request.getMediaType() : videoFile.getMediaType();
+        return String.join("|",
+                videoFile.getFilePath(),
+                Objects.toString(videoFile.getScanRootPath()),
+                Objects.toString(videoFile.getParsedSeason()),
+                Objects.toString(videoFile.getParsedEpisode()),
+                Objects.toString(mediaType),
+                Objects.toString(matchedId(request.getMatchedInfo())),
+                Objects.toString(request.getTemplate()));
+    }
+
+    private static Object matchedId(Object matchedInfo) {
+        if (matchedInfo instanceof TmdbMovieDTO movie) {
+            return movie.getId();
+        }
+        if (matchedInfo instanceof TmdbTvShowDTO tvShow) {
+            return tvShow.getId();
+        }
+        return matchedInfo instanceof Map<?, ?> map ? map.get("id") : null;
+    }
+}
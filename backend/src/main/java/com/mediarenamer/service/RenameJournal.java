@@ -0,0 +1,568 @@
+package com.mediarenamer.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 重命名预写日志 (append-only, 每行一条 JSON 记录)
+ *
+ * - 每个文件移动前写入 PLAN 并落盘, 完成后追加 DONE / FAILED
+ * - 启动时恢复中断的操作: 移动操作目标存在且源文件不存在视为已完成 (补记 DONE),
+ *   源文件仍在时删除可能不完整的目标文件并回滚 (ROLLED_BACK);
+ *   链接 / 复制操作的目标是原子创建的, 目标存在即已完成, 否则回滚
+ * - 撤销一个批次时逐个追加 UNDONE
+ *
+ * 多个虚拟线程同时落盘时合并为一次 fsync (组提交)
+ * 只保留最近 {@value #MAX_BATCHES} 个批次: 启动时和批次结束后超出上限时, 按每个操作的最终状态重写日志
+ * (进行中的批次不会被清理)
+ */
+@Slf4j
+@Service
+public class RenameJournal {
+
+    /**
+     * 日志中保留的批次数
+     */
+    private static final int MAX_BATCHES = 50;
+
+    @Value("${config.rename-journal-file}")
+    private String journalFilePath;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final Set<String> activeBatches = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long writtenCount;
+    private volatile long syncedCount;
+
+    /**
+     * 操作状态
+     */
+    public enum Status {
+        /** 已计划 (移动可能进行到一半) */
+        PLAN,
+        /** 已完成 */
+        DONE,
+        /** 移动失败, 文件未变动 */
+        FAILED,
+        /** 已撤销 */
+        UNDONE,
+        /** 启动恢复时回滚 */
+        ROLLED_BACK
+    }
+
+    /**
+     * 日志记录
+     *
+     * @param type BEGIN 或操作状态
+     * @param createdDirectory 本操作创建的最上层目录 (撤销时清理)
+     * @param strategy 执行方式 (RenameStrategy, 旧记录为空时视为移动)
+     */
+    public record Entry(String type, String batchId, Integer opId, String source, String target,
+                        String createdDirectory, String strategy, Long timestamp) {}
+
+    /**
+     * 一个文件移动操作
+     */
+    public static final class Operation {
+        private final int opId;
+        private final String source;
+        private final String target;
+        private final String createdDirectory;
+        private final RenameService.RenameStrategy strategy;
+        private volatile Status status = Status.PLAN;
+        private volatile long completedSeq;
+
+        private Operation(int opId, String source, String target, String createdDirectory,
+                          RenameService.RenameStrategy strategy) {
+            this.opId = opId;
+            this.source = source;
+            this.target = target;
+            this.createdDirectory = createdDirectory;
+            this.strategy = strategy;
+        }
+
+        public int getOpId() {
+            return opId;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public String getCreatedDirectory() {
+            return createdDirectory;
+        }
+
+        public RenameService.RenameStrategy getStrategy() {
+            return strategy;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * 完成顺序 (撤销时按依赖倒序)
+         */
+        public long getCompletedSeq() {
+            return completedSeq;
+        }
+    }
+
+    /**
+     * 批次摘要
+     */
+    public record BatchSummary(String batchId, long timestamp, int total, int done, int failed, int undone) {}
+
+    private static final class Batch {
+        private final String batchId;
+        private final long timestamp;
+        private final Map<Integer, Operation> operations = new ConcurrentHashMap<>();
+        private final AtomicInteger nextOpId = new AtomicInteger();
+
+        private Batch(String batchId, long timestamp) {
+            this.batchId = batchId;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * 启动时加载日志、恢复中断的操作并压缩日志
+     */
+    @PostConstruct
+    public void init() {
+        Path path = Paths.get(journalFilePath);
+        try {
+            if (Files.exists(path)) {
+                load(path);
+                recover();
+                compact(path);
+            }
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            log.info("重命名日志: {}, 批次={}", path, batches.size());
+        } catch (IOException e) {
+            // 日志不可用时重命名照常进行, 只是无法恢复和撤销
+            log.error("打开重命名日志失败, 本次运行不记录重命名日志: {}", journalFilePath, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            log.warn("关闭重命名日志失败: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 开始一个批次
+     *
+     * @return 批次 ID
+     */
+    public String beginBatch() {
+        Batch batch = new Batch(UUID.randomUUID().toString(), System.currentTimeMillis());
+        batches.put(batch.batchId, batch);
+        activeBatches.add(batch.batchId);
+        append(new Entry("BEGIN", batch.batchId, null, null, null, null, null, batch.timestamp), false);
+        return batch.batchId;
+    }
+
+    /**
+     * 结束一个批次, 批次数超出上限时清理最旧的批次并压缩日志
+     */
+    public void finishBatch(String batchId) {
+        activeBatches.remove(batchId);
+        if (batches.size() <= MAX_BATCHES) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (channel == null) {
+                prune();
+                return;
+            }
+            Path path = Paths.get(journalFilePath);
+            channel.force(false);
+            channel.close();
+            channel = null;
+            compact(path);
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // 压缩后的文件已落盘
+            syncedCount = writtenCount;
+            log.info("压缩重命名日志: 保留批次={}", batches.size());
+        } catch (IOException e) {
+            // 压缩失败时关闭日志, 与启动时打开失败的处理一致
+            log.error("压缩重命名日志失败, 本次运行不再记录重命名日志: {}", journalFilePath, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 记录即将执行的移动并落盘 (返回后才能开始移动)
+     *
+     * @param createdDirectory 为本操作新建的最上层目录 (可选)
+     * @param strategy 执行方式
+     * @return 操作 ID
+     */
+    public int plan(String batchId, String source, String target, String createdDirectory,
+                    RenameService.RenameStrategy strategy) {
+        Batch batch = requireBatch(batchId);
+        Operation operation = new Operation(batch.nextOpId.getAndIncrement(), source, target, createdDirectory,
+                strategy);
+        batch.operations.put(operation.opId, operation);
+        append(new Entry(Status.PLAN.name(), batchId, operation.opId, source, target, createdDirectory,
+                strategy.name(), null), true);
+        return operation.opId;
+    }
+
+    /**
+     * 标记操作完成
+     * 不单独落盘: 丢失的 DONE 在启动恢复时按文件状态补记
+     */
+    public void done(String batchId, int opId) {
+        mark(batchId, opId, Status.DONE, false);
+    }
+
+    /**
+     * 标记操作失败 (文件未变动)
+     */
+    public void failed(String batchId, int opId) {
+        mark(batchId, opId, Status.FAILED, false);
+    }
+
+    /**
+     * 标记操作已撤销
+     */
+    public void undone(String batchId, int opId) {
+        mark(batchId, opId, Status.UNDONE, true);
+    }
+
+    /**
+     * 批次中已完成 (未撤销) 的操作, 按完成顺序
+     *
+     * @throws RuntimeException 批次不存在
+     */
+    public List<Operation> completedOperations(String batchId) {
+        return requireBatch(batchId).operations.values().stream()
+                .filter(op -> op.status == Status.DONE)
+                .sorted(Comparator.comparingLong(Operation::getCompletedSeq))
+                .toList();
+    }
+
+    /**
+     * 所有批次摘要 (最新的在前)
+     */
+    public List<BatchSummary> listBatches() {
+        return batches.values().stream()
+                .sorted(Comparator.comparingLong((Batch b) -> b.timestamp).reversed())
+                .map(this::summarize)
+                .toList();
+    }
+
+    private BatchSummary summarize(Batch batch) {
+        int done = 0;
+        int failed = 0;
+        int undone = 0;
+        for (Operation op : batch.operations.values()) {
+            switch (op.status) {
+                case DONE -> done++;
+                case FAILED, ROLLED_BACK -> failed++;
+                case UNDONE -> undone++;
+                default -> {
+                }
+            }
+        }
+        return new BatchSummary(batch.batchId, batch.timestamp, batch.operations.size(), done, failed, undone);
+    }
+
+    private Batch requireBatch(String batchId) {
+        Batch batch = batches.get(batchId);
+        if (batch == null) {
+            throw new RuntimeException("重命名批次不存在: " + batchId);
+        }
+        return batch;
+    }
+
+    private void mark(String batchId, int opId, Status status, boolean durable) {
+        Operation operation = requireBatch(batchId).operations.get(opId);
+        if (operation == null) {
+            throw new RuntimeException("重命名操作不存在: " + batchId + "#" + opId);
+        }
+        operation.status = status;
+        operation.completedSeq = sequence.incrementAndGet();
+        append(new Entry(status.name(), batchId, opId, null, null, null, null, null), durable);
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param durable 是否等待落盘
+     */
+    private void append(Entry entry, boolean durable) {
+        long position;
+        writeLock.lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(
+                    (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            position = ++writtenCount;
+        } catch (IOException e) {
+            throw new RuntimeException("写入重命名日志失败: " + e.getMessage(), e);
+        } finally {
+            writeLock.unlock();
+        }
+        if (durable) {
+            syncUpTo(position);
+        }
+    }
+
+    /**
+     * 组提交: 一次 fsync 覆盖此前写入的所有记录, 已被其他线程落盘的记录直接返回
+     */
+    private void syncUpTo(long position) {
+        if (syncedCount >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedCount >= position) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            writeLock.lock();
+            try {
+                target = writtenCount;
+                current = channel;
+            } finally {
+                writeLock.unlock();
+            }
+            if (current != null) {
+                current.force(false);
+            }
+            syncedCount = target;
+        } catch (IOException e) {
+            throw new RuntimeException("重命名日志落盘失败: " + e.getMessage(), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void load(Path path) throws IOException {
+        int corrupted = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (IOException e) {
+                    // 崩溃时写了一半的最后一行
+                    corrupted++;
+                    continue;
+                }
+                apply(entry);
+            }
+        }
+        if (corrupted > 0) {
+            log.warn("重命名日志中有 {} 行无法解析, 已忽略", corrupted);
+        }
+    }
+
+    private void apply(Entry entry) {
+        if ("BEGIN".equals(entry.type())) {
+            batches.putIfAbsent(entry.batchId(), new Batch(entry.batchId(),
+                    entry.timestamp() != null ? entry.timestamp() : 0));
+            return;
+        }
+        Batch batch = batches.computeIfAbsent(entry.batchId(), id -> new Batch(id, 0));
+        Status status = Status.valueOf(entry.type());
+        Operation operation = batch.operations.get(entry.opId());
+        if (operation == null) {
+            if (entry.source() == null) {
+                return;
+            }
+            RenameService.RenameStrategy strategy = entry.strategy() != null
+                    ? RenameService.RenameStrategy.valueOf(entry.strategy())
+                    : RenameService.RenameStrategy.MOVE;
+            operation = new Operation(entry.opId(), entry.source(), entry.target(), entry.createdDirectory(),
+                    strategy);
+            batch.operations.put(operation.opId, operation);
+            batch.nextOpId.set(Math.max(batch.nextOpId.get(), operation.opId + 1));
+        }
+        operation.status = status;
+        operation.completedSeq = sequence.incrementAndGet();
+    }
+
+    /**
+     * 恢复中断的操作 (只有 PLAN 没有后续记录)
+     */
+    private void recover() {
+        int rolledForward = 0;
+        int rolledBack = 0;
+        for (Batch batch : batches.values()) {
+            for (Operation op : batch.operations.values()) {
+                if (op.status != Status.PLAN) {
+                    continue;
+                }
+                Path source = Paths.get(op.source);
+                Path target = Paths.get(op.target);
+                boolean sourceExists = Files.exists(source);
+                boolean targetExists = Files.exists(target, LinkOption.NOFOLLOW_LINKS);
+
+                if (op.strategy != RenameService.RenameStrategy.MOVE) {
+                    // 链接 / 复制: 目标原子创建, 源文件不受影响 (复制的临时文件保留用于续传)
+                    op.status = targetExists ? Status.DONE : Status.ROLLED_BACK;
+                    if (targetExists) {
+                        rolledForward++;
+                    } else {
+                        rolledBack++;
+                    }
+                    log.info("恢复重命名 ({}): {} {} -> {}", op.strategy,
+                            targetExists ? "已完成" : "已回滚", op.source, op.target);
+                } else if (!sourceExists && targetExists) {
+                    op.status = Status.DONE;
+                    rolledForward++;
+                    log.info("恢复重命名: 已完成 {} -> {}", op.source, op.target);
+                } else if (sourceExists) {
+                    // 跨设备移动先复制到临时文件再原子替换为目标, 两者都存在说明复制已完成但源文件尚未删除;
+                    // 源文件完整, 删除目标回滚
+                    try {
+                        Files.deleteIfExists(target);
+                        op.status = Status.ROLLED_BACK;
+                        rolledBack++;
+                        log.info("恢复重命名: 已回滚 {} -> {}", op.source, op.target);
+                    } catch (IOException e) {
+                        // 目标仍在, 不能记为已回滚
+                        op.status = Status.FAILED;
+                        log.error("回滚重命名时删除目标文件失败: {}", op.target, e);
+                    }
+                } else {
+                    op.status = Status.FAILED;
+                    log.error("恢复重命名: 源文件和目标文件都不存在 {} -> {}", op.source, op.target);
+                }
+                op.completedSeq = sequence.incrementAndGet();
+            }
+        }
+        if (rolledForward + rolledBack > 0) {
+            log.warn("重命名日志恢复完成: 补记完成 {} 个, 回滚 {} 个", rolledForward, rolledBack);
+        }
+    }
+
+    /**
+     * 按最终状态重写日志, 只保留最近的批次 (写临时文件后原子替换)
+     */
+    private void compact(Path path) throws IOException {
+        List<Batch> kept = prune();
+
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Batch batch : kept.reversed()) {
+                writeLine(writer, new Entry("BEGIN", batch.batchId, null, null, null, null, null,
+                        batch.timestamp));
+                Map<Integer, Operation> ordered = new LinkedHashMap<>();
+                batch.operations.values().stream()
+                        .sorted(Comparator.comparingLong(Operation::getCompletedSeq))
+                        .forEach(op -> ordered.put(op.opId, op));
+                for (Operation op : ordered.values()) {
+                    writeLine(writer, new Entry(Status.PLAN.name(), batch.batchId, op.opId,
+                            op.source, op.target, op.createdDirectory, op.strategy.name(), null));
+                    if (op.status != Status.PLAN) {
+                        writeLine(writer, new Entry(op.status.name(), batch.batchId, op.opId,
+                                null, null, null, null, null));
+                    }
+                }
+            }
+        }
+        try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            temp.force(true);
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 只保留最近的批次 (进行中的批次始终保留)
+     *
+     * @return 保留的批次, 最新的在前
+     */
+    private List<Batch> prune() {
+        int finishedLimit = Math.max(0, MAX_BATCHES - activeBatches.size());
+        int finished = 0;
+        List<Batch> kept = new ArrayList<>();
+        for (Batch batch : batches.values().stream()
+                .sorted(Comparator.comparingLong((Batch b) -> b.timestamp).reversed())
+                .toList()) {
+            boolean active = activeBatches.contains(batch.batchId);
+            if (active || finished < finishedLimit) {
+                kept.add(batch);
+                finished += active ? 0 : 1;
+            }
+        }
+        batches.keySet().retainAll(kept.stream().map(b -> b.batchId).toList());
+        return kept;
+    }
+
+    private void writeLine(BufferedWriter writer, Entry entry) throws IOException {
+        writer.write(objectMapper.writeValueAsString(entry));
+        writer.newLine();
+    }
+}
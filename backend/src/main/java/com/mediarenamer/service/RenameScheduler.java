@@ -0,0 +1,176 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.FileProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 重命名调度
+ *
+ * - 目标目录在执行前一次性创建 (预处理), 移动时不再逐个文件 mkdirs
+ * - 目录创建使用固定数量的分段 ReentrantLock (按路径哈希), 不随目录数增长, 也不会在慢速 NAS 上固定虚拟线程的载体线程
+ * - 按目标设备 (FileStore) 分组, 每个设备一个按目标目录排序的任务队列, 由不超过上限的工作线程依次取出执行:
+ *   同一目录的操作按队列顺序开始, 机械硬盘吞吐更稳定
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RenameScheduler {
+
+    private static final int LOCK_STRIPES = 64;
+
+    // 无法确定 FileStore 的目标归为同一组
+    private static final Object UNKNOWN_DEVICE = new Object();
+
+    private final OperationPlanner operationPlanner;
+
+    private final FileProperties fileProperties;
+
+    private final ReentrantLock[] directoryLocks = newLocks();
+
+    // 每个设备的移动许可 (数量与设备数相同)
+    private final ConcurrentHashMap<Object, Semaphore> devicePermits = new ConcurrentHashMap<>();
+
+    /**
+     * 待执行的操作
+     *
+     * @param target 目标路径 (用于按设备、目录分组)
+     * @param action 操作 (自行处理异常)
+     */
+    public record Task(Path target, Runnable action) {}
+
+    /**
+     * 预先创建目标目录 (浅层优先)
+     *
+     * @param directories 目标目录
+     * @return 创建成功 (或已存在) 的目录 -> 为它新建的最上层目录 (撤销时一并清理, 已存在时为 null);
+     *         创建失败的目录不在结果中
+     */
+    public Map<Path, String> prepareDirectories(Collection<Path> directories) {
+        List<Path> sorted = directories.stream()
+                .map(dir -> dir.toAbsolutePath().normalize())
+                .distinct()
+                .sorted(Comparator.comparingInt(Path::getNameCount).thenComparing(Comparator.naturalOrder()))
+                .toList();
+
+        // 先按创建前的状态计算每个目录的最上层新建目录, 共享上级的目录都记录到同一个最上层目录
+        Map<Path, Path> topMissing = new LinkedHashMap<>();
+        for (Path dir : sorted) {
+            Path top = null;
+            for (Path d = dir; d != null && !Files.exists(d); d = d.getParent()) {
+                top = d;
+            }
+            topMissing.put(dir, top);
+        }
+
+        Map<Path, String> prepared = new HashMap<>();
+        for (Map.Entry<Path, Path> entry : topMissing.entrySet()) {
+            try {
+                createDirectory(entry.getKey());
+                prepared.put(entry.getKey(), entry.getValue() != null ? entry.getValue().toString() : null);
+            } catch (IOException e) {
+                log.error("创建目录失败: {}", entry.getKey(), e);
+            }
+        }
+        log.debug("预先创建目标目录: {} 个, 失败 {} 个", prepared.size(), sorted.size() - prepared.size());
+        return prepared;
+    }
+
+    /**
+     * 创建目录（线程安全, 同一目录只被创建一次）
+     *
+     * @return 新建的最上层目录 (撤销时一并清理), 目录已存在时为 null
+     * @throws IOException 创建失败
+     */
+    public String createDirectory(Path directory) throws IOException {
+        ReentrantLock lock = lockFor(directory);
+        lock.lock();
+        try {
+            if (Files.isDirectory(directory)) {
+                return null;
+            }
+            Path created = directory.toAbsolutePath();
+            while (created.getParent() != null && !Files.exists(created.getParent())) {
+                created = created.getParent();
+            }
+            Files.createDirectories(directory);
+            log.info("创建目录成功: {}", directory);
+            return created.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按目标设备分组执行, 每个设备同时进行的操作数不超过配置上限; 全部完成后返回
+     * 工作线程先取得设备许可再从队列取任务, 许可是公平的, 因此任务按队列顺序开始 (多个批次并发时共享许可)
+     */
+    public void execute(List<Task> tasks) {
+        Map<Object, List<Task>> byDevice = new LinkedHashMap<>();
+        for (Task task : tasks) {
+            FileStore store = operationPlanner.fileStoreOf(task.target());
+            byDevice.computeIfAbsent(store != null ? store : UNKNOWN_DEVICE, k -> new ArrayList<>()).add(task);
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Map.Entry<Object, List<Task>> device : byDevice.entrySet()) {
+                Semaphore permits = devicePermits.computeIfAbsent(device.getKey(),
+                        k -> new Semaphore(Math.max(1, fileProperties.getMaxMovesPerDevice()), true));
+                Queue<Task> queue = device.getValue().stream()
+                        .sorted(Comparator.comparing(task -> Objects.toString(task.target().getParent(), "")))
+                        .collect(Collectors.toCollection(ConcurrentLinkedQueue::new));
+                int workers = Math.min(queue.size(), Math.max(1, fileProperties.getMaxMovesPerDevice()));
+                for (int i = 0; i < workers; i++) {
+                    executor.submit(() -> {
+                        while (true) {
+                            permits.acquireUninterruptibly();
+                            try {
+                                Task task = queue.poll();
+                                if (task == null) {
+                                    return;
+                                }
+                                task.action().run();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(Path directory) {
+        return directoryLocks[Math.floorMod(directory.toAbsolutePath().normalize().hashCode(), LOCK_STRIPES)];
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
@@ -1,9 +1,13 @@
 package com.mediarenamer.service;
 
+import com.mediarenamer.jfr.FileMoveEvent;
 import com.mediarenamer.model.dto.RenamePreviewDTO;
+import com.mediarenamer.model.dto.ScanDirectoryDTO;
 import com.mediarenamer.model.dto.TmdbMovieDTO;
 import com.mediarenamer.model.dto.TmdbTvShowDTO;
 import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.util.NamingTemplate;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,6 +15,7 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
@@ -38,45 +43,124 @@ public class RenameService {
     // 注入 OrganizationService 用于整理未处理文件
     private final OrganizationService organizationService;
 
-    // 目录创建锁，防止并发创建同一目录
-    private final ConcurrentHashMap<String, Object> directoryLocks = new ConcurrentHashMap<>();
+    private final PipelineMetrics pipelineMetrics;
+
+    // 重命名预写日志, 用于崩溃恢复和撤销
+    private final RenameJournal renameJournal;
+
+    // 跨设备传输 (重命名失败时使用)
+    private final CrossDeviceTransfer crossDeviceTransfer;
+
+    // 扫描目录配置 (按目录配置的执行方式、目标媒体库)
+    private final ScanDirectoryService scanDirectoryService;
+
+    // 按 FileStore 规划每个文件的具体操作
+    private final OperationPlanner operationPlanner;
+
+    // 按设备调度移动, 预先创建目标目录
+    private final RenameScheduler renameScheduler;
+
+    // 预览阶段的目标冲突分析
+    private final ConflictAnalyzer conflictAnalyzer;
+
+    // 编译后的命名模板 (内置 + 自定义)
+    private final NamingTemplateService namingTemplateService;
+
+    // 批量预览会话 (增量重新预览)
+    private final PreviewSessionCache previewSessionCache;
+
+    /**
+     * 重命名执行方式
+     * 链接和复制保留原文件 (做种等场景), 整理未处理文件时不会移动原文件
+     */
+    public enum RenameStrategy {
+        /** 移动 (同设备为重命名, 跨设备为复制+删除) */
+        MOVE,
+        /** 硬链接, 只修改元数据, 要求源文件与目标在同一设备 */
+        HARDLINK,
+        /** 符号链接, 指向原文件的绝对路径 */
+        SYMLINK,
+        /** 复制 (分块校验) */
+        COPY,
+        /** 保留原文件, 按 FileStore 自动选择: 同设备硬链接, 跨设备复制 */
+        AUTO;
+
+        /**
+         * 解析执行方式名称 (忽略大小写和首尾空白)
+         *
+         * @param name 执行方式名称, 为空时返回 null
+         * @throws IllegalArgumentException 不支持的执行方式
+         */
+        public static RenameStrategy parse(String name) {
+            if (name == null || name.isBlank()) {
+                return null;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("不支持的执行方式: " + name + ", 可选: "
+                        + Arrays.toString(values()));
+            }
+        }
+    }
 
     /**
-     * 电影命名模板枚举
+     * 输出位置与执行方式
+     *
+     * @param targetRoot 目标媒体库根目录 (为空时在扫描根目录内整理)
+     * @param strategy 执行方式
+     */
+    public record OutputTarget(String targetRoot, RenameStrategy strategy) {}
+
+    /**
+     * 电影命名模板枚举 (内置模板, 占位符: title / originalTitle / year / resolution / ext / tmdbId)
      */
     public enum MovieTemplate {
         SIMPLE("{title} ({year}).{ext}"),
         STANDARD("{title} ({year})/{title} ({year}).{ext}"),
-        DETAILED("{title} ({year})/{title} ({year}) - {resolution}.{ext}");
+        DETAILED("{title} ({year})/{title} ({year}) - {resolution|1080p}.{ext}");
 
         private final String template;
+        private final NamingTemplate compiled;
 
         MovieTemplate(String template) {
             this.template = template;
+            this.compiled = NamingTemplate.compile(template);
         }
 
         public String getTemplate() {
             return template;
         }
+
+        public NamingTemplate getCompiled() {
+            return compiled;
+        }
     }
 
     /**
-     * 电视剧命名模板枚举
+     * 电视剧命名模板枚举 (内置模板, 占位符: show / originalShow / year / season / episode / title / resolution / ext / tmdbId)
+     * 没有剧集标题时省略 " - {title}"
      */
     public enum TvTemplate {
-        STANDARD("{show} ({year})/Season {season:02d}/{show} - S{season:02d}E{episode:02d} - {title}.{ext}"),
-        WITH_TITLE("{show}/Season {season:02d}/{show} - S{season:02d}E{episode:02d} - {title}.{ext}"),
+        STANDARD("{show} ({year})/Season {season:02d}/{show} - S{season:02d}E{episode:02d}[ - {title}].{ext}"),
+        WITH_TITLE("{show}/Season {season:02d}/{show} - S{season:02d}E{episode:02d}[ - {title}].{ext}"),
         COMPACT("{show}/S{season:02d}E{episode:02d}.{ext}");
 
         private final String template;
+        private final NamingTemplate compiled;
 
         TvTemplate(String template) {
             this.template = template;
+            this.compiled = NamingTemplate.compile(template);
         }
 
         public String getTemplate() {
             return template;
         }
+
+        public NamingTemplate getCompiled() {
+            return compiled;
+        }
     }
 
     /**
@@ -89,10 +173,25 @@ public class RenameService {
      */
     public RenamePreviewDTO generateMovieRename(VideoFileDTO videoFile,
                                                 TmdbMovieDTO movieInfo,
-                                                MovieTemplate template) {
+                                                NamingTemplate template) {
+        RenamePreviewDTO preview = generateMovieRename(videoFile, movieInfo, template,
+                resolveOutputTarget(videoFile.getScanRootPath(), null, null));
+        conflictAnalyzer.analyze(List.of(preview));
+        return preview;
+    }
+
+    /**
+     * 根据电影信息和模板生成新文件名 (不做冲突分析, 由调用方对整批预览统一分析)
+     *
+     * @param target 输出位置与执行方式
+     */
+    public RenamePreviewDTO generateMovieRename(VideoFileDTO videoFile,
+                                                TmdbMovieDTO movieInfo,
+                                                NamingTemplate template,
+                                                OutputTarget target) {
         try {
-            String newFileName = applyMovieTemplate(template.getTemplate(), movieInfo, videoFile);
-            return buildRenamePreview(videoFile, newFileName, movieInfo, null);
+            String newFileName = applyMovieTemplate(template, movieInfo, videoFile);
+            return buildRenamePreview(videoFile, newFileName, movieInfo, null, target);
         } catch (Exception e) {
             log.error("生成电影重命名失败: {}", videoFile.getFilePath(), e);
             return buildErrorPreview(videoFile, e.getMessage());
@@ -109,10 +208,25 @@ public class RenameService {
      */
     public RenamePreviewDTO generateTvRename(VideoFileDTO videoFile,
                                              TmdbTvShowDTO tvInfo,
-                                             TvTemplate template) {
+                                             NamingTemplate template) {
+        RenamePreviewDTO preview = generateTvRename(videoFile, tvInfo, template,
+                resolveOutputTarget(videoFile.getScanRootPath(), null, null));
+        conflictAnalyzer.analyze(List.of(preview));
+        return preview;
+    }
+
+    /**
+     * 根据电视剧信息和模板生成新文件名 (不做冲突分析, 由调用方对整批预览统一分析)
+     *
+     * @param target 输出位置与执行方式
+     */
+    public RenamePreviewDTO generateTvRename(VideoFileDTO videoFile,
+                                             TmdbTvShowDTO tvInfo,
+                                             NamingTemplate template,
+                                             OutputTarget target) {
         try {
-            String newFileName = applyTvTemplate(template.getTemplate(), tvInfo, videoFile);
-            return buildRenamePreview(videoFile, newFileName, null, tvInfo);
+            String newFileName = applyTvTemplate(template, tvInfo, videoFile);
+            return buildRenamePreview(videoFile, newFileName, null, tvInfo, target);
         } catch (Exception e) {
             log.error("生成电视剧重命名失败: {}", videoFile.getFilePath(), e);
             return buildErrorPreview(videoFile, e.getMessage());
@@ -122,96 +236,86 @@ public class RenameService {
     /**
      * 应用电影模板
      */
-    private String applyMovieTemplate(String template, TmdbMovieDTO movie, VideoFileDTO videoFile) {
-        String result = template;
-
-        // 替换变量
-        result = result.replace("{title}", sanitizeFileName(movie.getTitle()));
-        result = result.replace("{year}", String.valueOf(movie.getYear()));
-        result = result.replace("{ext}", videoFile.getExtension());
+    private String applyMovieTemplate(NamingTemplate template, TmdbMovieDTO movie, VideoFileDTO videoFile) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("title", movie.getTitle());
+        values.put("originalTitle", movie.getOriginalTitle());
+        values.put("year", movie.getYear());
+        values.put("ext", videoFile.getExtension());
+        values.put("tmdbId", movie.getId());
 
         // 可选: 分辨率 (需要从文件名提取)
-        String resolution = extractResolution(videoFile.getFileName());
-        result = result.replace("{resolution}", resolution != null ? resolution : "1080p");
+        if (template.uses("resolution")) {
+            values.put("resolution", extractResolution(videoFile.getFileName()));
+        }
 
-        return result;
+        return template.render(values);
     }
 
     /**
      * 应用电视剧模板
      */
-    private String applyTvTemplate(String template, TmdbTvShowDTO tvShow, VideoFileDTO videoFile) {
-        String result = template;
-
-        // 替换变量
-        result = result.replace("{show}", sanitizeFileName(tvShow.getName()));
-        result = result.replace("{year}", String.valueOf(tvShow.getYear()));
-        result = result.replace("{season}", String.valueOf(videoFile.getParsedSeason()));
-        result = result.replace("{episode}", String.valueOf(videoFile.getParsedEpisode()));
-        result = result.replace("{ext}", videoFile.getExtension());
-
-        // 格式化季集号 (S01E01)
-        result = result.replaceAll(
-                "\\{season:02d\\}",
-                String.format("%02d", videoFile.getParsedSeason())
-        );
-        result = result.replaceAll(
-                "\\{episode:02d\\}",
-                String.format("%02d", videoFile.getParsedEpisode())
-        );
-
-        // 处理剧集标题 {title}
-        String episodeTitle = "";
-        if (template.contains("{title}")) {
-            try {
-                // 调用 TmdbService 获取该季度的所有剧集信息（会命中预取的缓存）
-                List<com.mediarenamer.model.dto.TmdbEpisodeDTO> episodes =
-                        tmdbService.getSeasonEpisodes(tvShow.getId(), videoFile.getParsedSeason());
-
-                // 查找匹配当前集号的剧集
-                if (episodes != null && !episodes.isEmpty()) {
-                    for (com.mediarenamer.model.dto.TmdbEpisodeDTO episode : episodes) {
-                        if (episode.getEpisodeNumber() != null &&
-                                episode.getEpisodeNumber().equals(videoFile.getParsedEpisode())) {
-                            // 找到匹配的集，获取标题并清洗
-                            if (episode.getName() != null && !episode.getName().isEmpty()) {
-                                episodeTitle = sanitizeFileName(episode.getName());
-                                log.debug("✅ 标题: S{}E{} - {}",
-                                        videoFile.getParsedSeason(),
-                                        videoFile.getParsedEpisode(),
-                                        episodeTitle);
-                            }
-                            break;
+    private String applyTvTemplate(NamingTemplate template, TmdbTvShowDTO tvShow, VideoFileDTO videoFile) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("show", tvShow.getName());
+        values.put("originalShow", tvShow.getOriginalName());
+        values.put("year", tvShow.getYear());
+        values.put("season", videoFile.getParsedSeason());
+        values.put("episode", videoFile.getParsedEpisode());
+        values.put("ext", videoFile.getExtension());
+        values.put("tmdbId", tvShow.getId());
+        if (template.uses("resolution")) {
+            values.put("resolution", extractResolution(videoFile.getFileName()));
+        }
+
+        // 处理剧集标题 {title} (模板引用时才查询, 为空时条件段整体省略)
+        if (template.uses("title")) {
+            values.put("title", findEpisodeTitle(tvShow, videoFile));
+        }
+
+        return template.render(values);
+    }
+
+    /**
+     * 查找剧集标题 (会命中预取的季度缓存)
+     *
+     * @return 剧集标题, 找不到时为 null
+     */
+    private String findEpisodeTitle(TmdbTvShowDTO tvShow, VideoFileDTO videoFile) {
+        try {
+            // 调用 TmdbService 获取该季度的所有剧集信息（会命中预取的缓存）
+            List<com.mediarenamer.model.dto.TmdbEpisodeDTO> episodes =
+                    tmdbService.getSeasonEpisodes(tvShow.getId(), videoFile.getParsedSeason());
+
+            // 查找匹配当前集号的剧集
+            if (episodes != null) {
+                for (com.mediarenamer.model.dto.TmdbEpisodeDTO episode : episodes) {
+                    if (episode.getEpisodeNumber() != null &&
+                            episode.getEpisodeNumber().equals(videoFile.getParsedEpisode())) {
+                        if (episode.getName() != null && !episode.getName().isEmpty()) {
+                            log.debug("✅ 标题: S{}E{} - {}",
+                                    videoFile.getParsedSeason(),
+                                    videoFile.getParsedEpisode(),
+                                    episode.getName());
+                            return episode.getName();
                         }
+                        break;
                     }
                 }
-
-                if (episodeTitle.isEmpty()) {
-                    log.debug("⚠️ 未找到标题: tvId={}, S{}E{}",
-                            tvShow.getId(),
-                            videoFile.getParsedSeason(),
-                            videoFile.getParsedEpisode());
-                }
-            } catch (Exception e) {
-                log.warn("获取剧集标题失败: tvId={}, S{}E{}, error={}",
-                        tvShow.getId(),
-                        videoFile.getParsedSeason(),
-                        videoFile.getParsedEpisode(),
-                        e.getMessage());
             }
-        }
 
-        // 替换 {title}，如果为空则智能处理前导分隔符
-        if (episodeTitle.isEmpty()) {
-            // 移除 " - {title}" 这样的模式（包括前导分隔符）
-            result = result.replaceAll("\\s*-\\s*\\{title\\}", "");
-            // 兜底：直接替换 {title}
-            result = result.replace("{title}", "");
-        } else {
-            result = result.replace("{title}", episodeTitle);
+            log.debug("⚠️ 未找到标题: tvId={}, S{}E{}",
+                    tvShow.getId(),
+                    videoFile.getParsedSeason(),
+                    videoFile.getParsedEpisode());
+        } catch (Exception e) {
+            log.warn("获取剧集标题失败: tvId={}, S{}E{}, error={}",
+                    tvShow.getId(),
+                    videoFile.getParsedSeason(),
+                    videoFile.getParsedEpisode(),
+                    e.getMessage());
         }
-
-        return result;
+        return null;
     }
 
     /**
@@ -221,10 +325,12 @@ public class RenameService {
      * @param newFileName 新文件名
      * @param movieInfo 电影信息（可为null）
      * @param tvInfo 电视剧信息（可为null）
+     * @param target 输出位置与执行方式
      * @return 重命名预览
      */
     private RenamePreviewDTO buildRenamePreview(VideoFileDTO videoFile, String newFileName,
-                                                TmdbMovieDTO movieInfo, TmdbTvShowDTO tvInfo) {
+                                                TmdbMovieDTO movieInfo, TmdbTvShowDTO tvInfo,
+                                                OutputTarget target) {
         File oldFile = new File(videoFile.getFilePath());
 
         // 使用扫描根目录作为基础路径
@@ -235,13 +341,9 @@ public class RenameService {
             log.warn("未找到扫描根目录，使用原文件父目录: {}", scanRoot);
         }
 
-        // 新文件的完整路径 = 扫描根目录 + 新文件名（包含子目录结构）
-        String newPath = Paths.get(scanRoot, newFileName).toString();
-
-        // 检查是否需要创建新目录（避免 NPE）
-        File newFile = new File(newPath);
-        File newParentDir = newFile.getParentFile();
-        boolean needCreateDir = newParentDir != null && !newParentDir.exists();
+        // 新文件的完整路径 = 目标根目录 (未配置时为扫描根目录) + 新文件名（包含子目录结构）
+        String outputRoot = target.targetRoot() != null ? target.targetRoot() : scanRoot;
+        String newPath = Paths.get(outputRoot, newFileName).toString();
 
         // ========== 计算新增的 4 个字段 ==========
 
@@ -256,14 +358,18 @@ public class RenameService {
         // 2. 纯原文件名（不含路径）
         String pureOldFileName = videoFile.getFileName() + "." + videoFile.getExtension();
 
-        // 3. 计算新相对目录路径
+        // 3. 计算新相对目录路径 (相对于目标根目录)
+        Path outputRootPath = Paths.get(outputRoot).toAbsolutePath().normalize();
         Path newFilePath = Paths.get(newPath).toAbsolutePath().normalize();
         Path newParentPath = newFilePath.getParent();
-        String newRelativeDirectory = calculateRelativeDirectory(scanRootPath, newParentPath);
+        String newRelativeDirectory = calculateRelativeDirectory(outputRootPath, newParentPath);
 
         // 4. 纯新文件名（不含路径，仅文件名部分）
         String pureNewFileName = newFilePath.getFileName().toString();
 
+        // 5. 按 FileStore 规划具体操作 (不可行时抛出异常, 生成错误预览)
+        OperationPlanner.Operation operation = operationPlanner.plan(oldFilePath, newFilePath, target.strategy());
+
         // ========== 构建 metadata 元数据 ==========
         Map<String, Object> metadata = new HashMap<>();
 
@@ -309,7 +415,9 @@ public class RenameService {
                 .pureOldFileName(pureOldFileName)
                 .newRelativeDirectory(newRelativeDirectory)
                 .pureNewFileName(pureNewFileName)
-                .needCreateDirectory(needCreateDir)
+                .targetRoot(outputRootPath.toString())
+                .operation(operation.name())
+                .copyBytes(operation.copiesData() ? oldFile.length() : 0L)
                 .status("pending")
                 .metadata(metadata)
                 .build();
@@ -350,7 +458,21 @@ public class RenameService {
      * @return 执行结果列表
      */
     public List<RenamePreviewDTO> executeRename(List<RenamePreviewDTO> previews, String scanRoot) {
-        log.info("开始批量重命名，总数: {}", previews.size());
+        return executeRename(previews, scanRoot, null);
+    }
+
+    /**
+     * 批量执行重命名 - 使用虚拟线程并行处理
+     *
+     * @param previews 重命名预览列表
+     * @param scanRoot 扫描根目录 (可选, 移动方式下会自动整理未处理文件)
+     * @param strategy 执行方式 (可选, 为空时使用扫描目录配置, 都没有时为移动)
+     * @return 执行结果列表
+     */
+    public List<RenamePreviewDTO> executeRename(List<RenamePreviewDTO> previews, String scanRoot,
+                                                RenameStrategy strategy) {
+        RenameStrategy effectiveStrategy = strategy != null ? strategy : configuredStrategy(scanRoot);
+        log.info("开始批量重命名，总数: {}, 方式: {}", previews.size(), effectiveStrategy);
         long startTime = System.currentTimeMillis();
 
         // 过滤出需要处理的任务（跳过已失败的）
@@ -371,57 +493,81 @@ public class RenameService {
             return results;
         }
 
-        // 使用虚拟线程执行器 (JDK 21+)
-        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            // 提交所有重命名任务
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
+        // 每次执行一个批次, 撤销时按批次整体还原
+        String batchId = renameJournal.beginBatch();
+
+        // 移动方式下, 全部视频进入同一目标目录的源目录整体重命名 (整季剧集包)
+        List<OperationPlanner.DirectoryMove> directoryMoves = effectiveStrategy == RenameStrategy.MOVE
+                ? operationPlanner.planDirectoryMoves(validPreviews, scanRoot)
+                : List.of();
+        Set<RenamePreviewDTO> movedWithDirectory = Collections.newSetFromMap(new IdentityHashMap<>());
+        directoryMoves.forEach(move -> movedWithDirectory.addAll(move.previews()));
+
+        // 预先创建全部目标目录, 移动时不再逐个文件创建
+        List<Path> targetDirectories = new ArrayList<>();
+        directoryMoves.forEach(move -> targetDirectories.add(move.target().getParent()));
+        validPreviews.stream()
+                .filter(p -> !movedWithDirectory.contains(p) && Boolean.TRUE.equals(p.getNeedCreateDirectory()))
+                .forEach(p -> targetDirectories.add(Paths.get(p.getNewPath()).toAbsolutePath().getParent()));
+        Map<Path, String> preparedDirectories = renameScheduler.prepareDirectories(targetDirectories);
+
+        // 按目标设备调度 (每个设备的并发移动数有上限)
+        List<RenameScheduler.Task> tasks = new ArrayList<>();
+        for (OperationPlanner.DirectoryMove move : directoryMoves) {
+            move.previews().forEach(preview -> preview.setBatchId(batchId));
+            tasks.add(new RenameScheduler.Task(move.target(), () -> {
+                renameDirectory(move, scanRoot, batchId, preparedDirectories);
+                results.addAll(move.previews());
+            }));
+        }
 
-            for (RenamePreviewDTO preview : validPreviews) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                    try {
-                        // 执行单个文件重命名
-                        boolean success = renameSingleFile(preview);
-                        if (success) {
-                            preview.setStatus("success");
-                            log.info("重命名成功: {} -> {}", preview.getOldFileName(), preview.getNewFileName());
-                        } else {
-                            preview.setStatus("failed");
-                            preview.setErrorMessage("重命名失败");
-                            log.error("重命名失败: {}", preview.getOldPath());
-                        }
-                    } catch (Exception e) {
+        for (RenamePreviewDTO preview : validPreviews) {
+            if (movedWithDirectory.contains(preview)) {
+                continue;
+            }
+            preview.setBatchId(batchId);
+            tasks.add(new RenameScheduler.Task(Paths.get(preview.getNewPath()), () -> {
+                try {
+                    // 执行单个文件重命名
+                    boolean success = renameSingleFile(preview, scanRoot, batchId, effectiveStrategy,
+                            preparedDirectories);
+                    if (success) {
+                        preview.setStatus("success");
+                        log.info("重命名成功: {} -> {}", preview.getOldFileName(), preview.getNewFileName());
+                    } else {
                         preview.setStatus("failed");
-                        preview.setErrorMessage(e.getMessage());
-                        log.error("重命名异常: {}", preview.getOldPath(), e);
+                        preview.setErrorMessage("重命名失败");
+                        log.error("重命名失败: {}", preview.getOldPath());
                     }
-                    results.add(preview);
-                }, executor);
-
-                futures.add(future);
-            }
-
-            // 等待所有任务完成
-            CompletableFuture<Void> allOf = CompletableFuture.allOf(
-                    futures.toArray(new CompletableFuture[0])
-            );
+                } catch (Exception e) {
+                    preview.setStatus("failed");
+                    preview.setErrorMessage(e.getMessage());
+                    log.error("重命名异常: {}", preview.getOldPath(), e);
+                }
+                results.add(preview);
+            }));
+        }
 
+        try {
             // 等待完成（无超时限制，因为文件操作可能很慢）
-            allOf.join();
-
+            renameScheduler.execute(tasks);
         } catch (Exception e) {
             log.error("批量重命名失败", e);
             throw new RuntimeException("批量重命名失败", e);
+        } finally {
+            renameJournal.finishBatch(batchId);
         }
 
         long elapsedTime = System.currentTimeMillis() - startTime;
         long successCount = results.stream().filter(r -> "success".equals(r.getStatus())).count();
         long failedCount = results.stream().filter(r -> "failed".equals(r.getStatus())).count();
 
-        log.info("批量重命名完成: 总数={}, 成功={}, 失败={}, 耗时={}ms",
-                results.size(), successCount, failedCount, elapsedTime);
+        log.info("批量重命名完成: 批次={}, 总数={}, 成功={}, 失败={}, 整目录重命名={}, 耗时={}ms",
+                batchId, results.size(), successCount, failedCount, directoryMoves.size(), elapsedTime);
 
-        // 如果提供了扫描根目录，自动整理未处理文件
-        if (scanRoot != null && !scanRoot.isEmpty() && successCount > 0) {
+        // 如果提供了扫描根目录，自动整理未处理文件 (链接 / 复制需要保留原文件, 不整理)
+        if (scanRoot != null && !scanRoot.isEmpty() && successCount > 0
+                && effectiveStrategy == RenameStrategy.MOVE) {
             try {
                 log.info("🗂️  开始自动整理未处理文件...");
                 organizationService.organizeUnprocessedFiles(scanRoot, results);
@@ -435,10 +581,53 @@ public class RenameService {
         return results;
     }
 
+    /**
+     * 扫描目录配置的执行方式 (按路径匹配, 未配置时为移动)
+     */
+    private RenameStrategy configuredStrategy(String scanRoot) {
+        return resolveOutputTarget(scanRoot, null, null).strategy();
+    }
+
+    /**
+     * 解析输出位置与执行方式: 请求参数优先, 其次为扫描目录配置, 都没有时在扫描根目录内移动
+     *
+     * @param scanRoot 扫描根目录 (可为 null)
+     * @param targetRoot 请求指定的目标根目录 (可为 null)
+     * @param strategy 请求指定的执行方式 (可为 null)
+     */
+    public OutputTarget resolveOutputTarget(String scanRoot, String targetRoot, RenameStrategy strategy) {
+        ScanDirectoryDTO config = findScanDirectory(scanRoot);
+        String root = targetRoot != null && !targetRoot.isBlank() ? targetRoot
+                : config != null && config.getTargetRoot() != null && !config.getTargetRoot().isBlank()
+                ? config.getTargetRoot() : null;
+        RenameStrategy configured = config != null ? RenameStrategy.parse(config.getRenameStrategy()) : null;
+        RenameStrategy effectiveStrategy = strategy != null ? strategy
+                : configured != null ? configured : RenameStrategy.MOVE;
+        return new OutputTarget(root, effectiveStrategy);
+    }
+
+    private ScanDirectoryDTO findScanDirectory(String scanRoot) {
+        if (scanRoot == null || scanRoot.isEmpty()) {
+            return null;
+        }
+        Path root = Paths.get(scanRoot).toAbsolutePath().normalize();
+        return scanDirectoryService.getAllDirectories().stream()
+                .filter(d -> d.getPath() != null)
+                .filter(d -> Paths.get(d.getPath()).toAbsolutePath().normalize().equals(root))
+                .findFirst()
+                .orElse(null);
+    }
+
     /**
      * 执行单个文件重命名（线程安全）
+     * 移动前写入重命名日志并落盘, 完成后标记结果
+     *
+     * @param scanRoot 扫描根目录 (仅用于指标标签, 可为 null)
+     * @param batchId 重命名日志批次
+     * @param strategy 执行方式
      */
-    private boolean renameSingleFile(RenamePreviewDTO preview) {
+    private boolean renameSingleFile(RenamePreviewDTO preview, String scanRoot, String batchId,
+                                     RenameStrategy strategy, Map<Path, String> preparedDirectories) {
         try {
             File oldFile = new File(preview.getOldPath());
             File newFile = new File(preview.getNewPath());
@@ -455,24 +644,13 @@ public class RenameService {
                 return true;  // 跳过，视为成功
             }
 
-            // 创建目标目录（线程安全）
-            if (preview.getNeedCreateDirectory()) {
-                File parentDir = newFile.getParentFile();
-                String dirPath = parentDir.getAbsolutePath();
-
-                // 使用目录路径作为锁，确保同一目录只被创建一次
-                Object lock = directoryLocks.computeIfAbsent(dirPath, k -> new Object());
-
-                synchronized (lock) {
-                    if (!parentDir.exists()) {
-                        boolean created = parentDir.mkdirs();
-                        if (!created) {
-                            log.error("创建目录失败: {}", dirPath);
-                            return false;
-                        }
-                        log.info("创建目录成功: {}", dirPath);
-                    }
-                }
+            // 目标目录已在预处理中创建, 预处理失败时再尝试一次
+            String createdDirectory = null;
+            if (Boolean.TRUE.equals(preview.getNeedCreateDirectory())) {
+                Path parentDir = newFile.getParentFile().toPath().toAbsolutePath().normalize();
+                createdDirectory = preparedDirectories.containsKey(parentDir)
+                        ? preparedDirectories.get(parentDir)
+                        : renameScheduler.createDirectory(parentDir);
             }
 
             // 检查目标文件是否已存在
@@ -481,34 +659,352 @@ public class RenameService {
                 return false;
             }
 
-            // 执行文件移动（支持跨分区）
-            return moveFile(oldFile, newFile);
+            // 自动方式按 FileStore 落到硬链接或复制, 日志中记录具体方式
+            if (strategy == RenameStrategy.AUTO) {
+                strategy = operationPlanner.plan(oldFile.toPath(), newFile.toPath(), strategy)
+                        == OperationPlanner.Operation.HARDLINK ? RenameStrategy.HARDLINK : RenameStrategy.COPY;
+            }
+
+            // 先写日志再执行 (移动支持跨分区)
+            int opId = renameJournal.plan(batchId, oldFile.getAbsolutePath(), newFile.getAbsolutePath(),
+                    createdDirectory, strategy);
+            boolean moved = strategy == RenameStrategy.MOVE
+                    ? moveFile(oldFile, newFile, scanRoot)
+                    : linkOrCopyFile(oldFile, newFile, strategy, scanRoot);
+            if (moved) {
+                renameJournal.done(batchId, opId);
+            } else {
+                renameJournal.failed(batchId, opId);
+            }
+            return moved;
         } catch (Exception e) {
             log.error("移动文件失败: {}", preview.getOldPath(), e);
             return false;
         }
     }
 
+    /**
+     * 整目录重命名: 一次目录重命名移动全部视频和其余文件, 再在目标目录内逐个改名
+     * 目录重命名失败时退回逐个文件移动
+     *
+     * @param move 整目录重命名规划
+     * @param scanRoot 扫描根目录 (仅用于指标标签, 可为 null)
+     * @param batchId 重命名日志批次
+     * @param preparedDirectories 预先创建的目标目录
+     */
+    private void renameDirectory(OperationPlanner.DirectoryMove move, String scanRoot, String batchId,
+                                 Map<Path, String> preparedDirectories) {
+        boolean moved = false;
+        try {
+            Path parentDir = move.target().getParent();
+            String createdDirectory = preparedDirectories.containsKey(parentDir)
+                    ? preparedDirectories.get(parentDir)
+                    : renameScheduler.createDirectory(parentDir);
+            int opId = renameJournal.plan(batchId, move.source().toString(), move.target().toString(),
+                    createdDirectory, RenameStrategy.MOVE);
+            moved = moveDirectory(move.source(), move.target(), scanRoot);
+            if (moved) {
+                renameJournal.done(batchId, opId);
+            } else {
+                renameJournal.failed(batchId, opId);
+            }
+        } catch (Exception e) {
+            log.error("整目录重命名失败: {}", move.source(), e);
+        }
+
+        for (RenamePreviewDTO preview : move.previews()) {
+            boolean success;
+            if (moved) {
+                // 目录已移动, 文件现在位于目标目录中的相对位置
+                Path relative = move.source().relativize(Paths.get(preview.getOldPath()).toAbsolutePath().normalize());
+                RenamePreviewDTO inPlace = RenamePreviewDTO.builder()
+                        .oldPath(move.target().resolve(relative).toString())
+                        .newPath(preview.getNewPath())
+                        .needCreateDirectory(false)
+                        .build();
+                success = renameSingleFile(inPlace, scanRoot, batchId, RenameStrategy.MOVE, preparedDirectories);
+                preview.setOperation(OperationPlanner.Operation.DIRECTORY_RENAME.name());
+            } else {
+                success = renameSingleFile(preview, scanRoot, batchId, RenameStrategy.MOVE, preparedDirectories);
+            }
+            if (success) {
+                preview.setStatus("success");
+                log.info("重命名成功: {} -> {}", preview.getOldFileName(), preview.getNewFileName());
+            } else {
+                preview.setStatus("failed");
+                preview.setErrorMessage("重命名失败");
+                log.error("重命名失败: {}", preview.getOldPath());
+            }
+        }
+        if (moved) {
+            log.info("整目录重命名完成: {} -> {}, 视频数={}", move.source(), move.target(), move.previews().size());
+        }
+    }
+
+    /**
+     * 原子重命名目录 (仅同一 FileStore)
+     *
+     * @param scanRoot 扫描根目录 (仅用于指标标签, 可为 null)
+     * @return 是否成功
+     */
+    private boolean moveDirectory(Path source, Path target, String scanRoot) {
+        Timer.Sample sample = pipelineMetrics.start();
+        FileMoveEvent event = new FileMoveEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("目录重命名成功: {} -> {}", source, target);
+            success = true;
+            return true;
+        } catch (IOException e) {
+            log.error("目录重命名失败: {} -> {}", source, target, e);
+            return false;
+        } finally {
+            pipelineMetrics.recordRename(sample, scanRoot, "rename_directory", success);
+            if (event.shouldCommit()) {
+                event.operation = "rename";
+                event.path = source.toString();
+                event.targetPath = target.toString();
+                event.method = "rename_directory";
+                event.outcome = success ? "success" : "failed";
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * 撤销一个重命名批次
+     * 按依赖倒序分波并行还原: 某个操作的原路径被同批次后完成的操作占用时, 先还原后者;
+     * 文件还原后删除该批次新建且已为空的目录 (深层优先)
+     *
+     * 可重复调用: 已还原的文件直接标记为已撤销
+     *
+     * @param batchId 重命名批次 ID (执行结果中的 batchId)
+     * @return 还原结果 (oldPath 为重命名后的路径, newPath 为还原后的路径)
+     */
+    public List<RenamePreviewDTO> undoBatch(String batchId) {
+        List<RenameJournal.Operation> operations = renameJournal.completedOperations(batchId);
+        log.info("开始撤销重命名批次: {}, 文件数={}", batchId, operations.size());
+        long startTime = System.currentTimeMillis();
+
+        // 倒序计算波次: 占用了本操作原路径的 (更晚完成的) 操作必须先还原;
+        // 整目录重命名要等目录内的 (更晚完成的) 改名都还原后再还原
+        Map<String, Integer> waveByTarget = new HashMap<>();
+        Map<Path, Integer> waveInside = new HashMap<>();
+        TreeMap<Integer, List<RenameJournal.Operation>> waves = new TreeMap<>();
+        for (RenameJournal.Operation op : operations.reversed()) {
+            Path target = Paths.get(op.getTarget());
+            int wave = Math.max(waveByTarget.getOrDefault(op.getSource(), -1),
+                    waveInside.getOrDefault(target, -1)) + 1;
+            waveByTarget.put(op.getTarget(), wave);
+            for (Path dir = target.getParent(); dir != null; dir = dir.getParent()) {
+                waveInside.merge(dir, wave, Math::max);
+            }
+            waves.computeIfAbsent(wave, k -> new ArrayList<>()).add(op);
+        }
+
+        List<RenamePreviewDTO> results = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<RenameJournal.Operation> wave : waves.values()) {
+                CompletableFuture.allOf(wave.stream()
+                        .map(op -> CompletableFuture.runAsync(() -> results.add(undoOperation(batchId, op)), executor))
+                        .toArray(CompletableFuture[]::new)).join();
+            }
+        }
+
+        removeCreatedDirectories(operations);
+
+        long successCount = results.stream().filter(r -> "success".equals(r.getStatus())).count();
+        log.info("撤销重命名批次完成: {}, 总数={}, 成功={}, 失败={}, 耗时={}ms",
+                batchId, results.size(), successCount, results.size() - successCount,
+                System.currentTimeMillis() - startTime);
+        return results;
+    }
+
+    private RenamePreviewDTO undoOperation(String batchId, RenameJournal.Operation op) {
+        File current = new File(op.getTarget());
+        File original = new File(op.getSource());
+        RenamePreviewDTO result = RenamePreviewDTO.builder()
+                .batchId(batchId)
+                .oldPath(op.getTarget())
+                .newPath(op.getSource())
+                .oldFileName(current.getName())
+                .newFileName(original.getName())
+                .build();
+
+        try {
+            if (op.getStrategy() != RenameStrategy.MOVE) {
+                return undoLinkOrCopy(batchId, op, result);
+            }
+            if (!current.exists() && original.exists()) {
+                // 已还原过 (例如上次撤销中途退出)
+                renameJournal.undone(batchId, op.getOpId());
+                result.setStatus("success");
+                return result;
+            }
+            if (!current.exists()) {
+                return failUndo(result, "重命名后的文件不存在");
+            }
+            if (original.exists()) {
+                return failUndo(result, "原路径已存在文件");
+            }
+
+            Files.createDirectories(original.toPath().getParent());
+            boolean restored = current.isDirectory()
+                    ? moveDirectory(current.toPath(), original.toPath(), null)
+                    : moveFile(current, original, null);
+            if (!restored) {
+                return failUndo(result, "还原失败");
+            }
+            renameJournal.undone(batchId, op.getOpId());
+            result.setStatus("success");
+            log.debug("撤销重命名: {} -> {}", op.getTarget(), op.getSource());
+            return result;
+        } catch (Exception e) {
+            log.error("撤销重命名异常: {}", op.getTarget(), e);
+            return failUndo(result, e.getMessage());
+        }
+    }
+
+    /**
+     * 撤销链接 / 复制: 原文件仍在时删除生成的目标
+     * 原文件已不存在时目标是唯一的副本, 保留不删除
+     */
+    private RenamePreviewDTO undoLinkOrCopy(String batchId, RenameJournal.Operation op, RenamePreviewDTO result)
+            throws IOException {
+        Path current = Paths.get(op.getTarget());
+        Path original = Paths.get(op.getSource());
+        if (!Files.exists(current, LinkOption.NOFOLLOW_LINKS)) {
+            renameJournal.undone(batchId, op.getOpId());
+            result.setStatus("success");
+            return result;
+        }
+        if (!Files.exists(original)) {
+            return failUndo(result, "原文件不存在, 保留唯一副本");
+        }
+        if (op.getStrategy() == RenameStrategy.SYMLINK && !Files.isSymbolicLink(current)) {
+            return failUndo(result, "目标已不是符号链接");
+        }
+        if (op.getStrategy() == RenameStrategy.HARDLINK && !Files.isSameFile(current, original)) {
+            return failUndo(result, "目标已不是原文件的硬链接");
+        }
+        Files.delete(current);
+        renameJournal.undone(batchId, op.getOpId());
+        result.setStatus("success");
+        log.debug("撤销{}: {}", op.getStrategy(), op.getTarget());
+        return result;
+    }
+
+    private RenamePreviewDTO failUndo(RenamePreviewDTO result, String errorMessage) {
+        log.error("撤销重命名失败: {}, {}", result.getOldPath(), errorMessage);
+        result.setStatus("failed");
+        result.setErrorMessage(errorMessage);
+        return result;
+    }
+
+    /**
+     * 删除批次新建且已为空的目录 (从文件所在目录向上到新建的最上层目录, 深层优先)
+     */
+    private void removeCreatedDirectories(List<RenameJournal.Operation> operations) {
+        Set<Path> directories = new HashSet<>();
+        for (RenameJournal.Operation op : operations) {
+            if (op.getCreatedDirectory() == null) {
+                continue;
+            }
+            Path created = Paths.get(op.getCreatedDirectory());
+            for (Path dir = Paths.get(op.getTarget()).getParent();
+                 dir != null && dir.startsWith(created); dir = dir.getParent()) {
+                directories.add(dir);
+            }
+        }
+
+        directories.stream()
+                .sorted(Comparator.comparingInt(Path::getNameCount).reversed())
+                .forEach(dir -> {
+                    try {
+                        Files.deleteIfExists(dir);
+                    } catch (IOException e) {
+                        // 目录中还有其他文件, 保留
+                        log.debug("保留非空目录: {}", dir);
+                    }
+                });
+    }
+
+    /**
+     * 以链接或复制方式生成目标文件 (保留原文件)
+     *
+     * @param strategy 执行方式 (HARDLINK / SYMLINK / COPY)
+     * @param scanRoot 扫描根目录 (仅用于指标标签)
+     * @return 是否成功
+     */
+    private boolean linkOrCopyFile(File sourceFile, File targetFile, RenameStrategy strategy, String scanRoot) {
+        Timer.Sample sample = pipelineMetrics.start();
+        FileMoveEvent event = new FileMoveEvent();
+        event.begin();
+        long size = sourceFile.length();
+        String method = strategy.name().toLowerCase(Locale.ROOT);
+        boolean success = false;
+        try {
+            switch (strategy) {
+                case HARDLINK -> Files.createLink(targetFile.toPath(), sourceFile.toPath());
+                case SYMLINK -> Files.createSymbolicLink(targetFile.toPath(), sourceFile.toPath().toAbsolutePath());
+                case COPY -> crossDeviceTransfer.transfer(sourceFile.toPath(), targetFile.toPath());
+                default -> throw new IllegalArgumentException("不支持的执行方式: " + strategy);
+            }
+            log.debug("文件{}成功: {} -> {}", method, sourceFile.getName(), targetFile.getAbsolutePath());
+            success = true;
+            return true;
+        } catch (IOException e) {
+            if (strategy == RenameStrategy.HARDLINK) {
+                log.error("创建硬链接失败 (源文件和目标需在同一设备): {} -> {}", sourceFile, targetFile, e);
+            } else {
+                log.error("文件{}失败: {} -> {}", method, sourceFile, targetFile, e);
+            }
+            return false;
+        } finally {
+            pipelineMetrics.recordRename(sample, scanRoot, method, success);
+            if (event.shouldCommit()) {
+                event.operation = "rename";
+                event.path = sourceFile.getAbsolutePath();
+                event.targetPath = targetFile.getAbsolutePath();
+                event.method = method;
+                event.size = size;
+                event.outcome = success ? "success" : "failed";
+                event.commit();
+            }
+        }
+    }
+
     /**
      * 移动文件（支持跨分区移动）
      *
      * @param sourceFile 源文件
      * @param targetFile 目标文件
+     * @param scanRoot 扫描根目录 (仅用于指标标签)
      * @return 是否成功
      */
-    private boolean moveFile(File sourceFile, File targetFile) {
+    private boolean moveFile(File sourceFile, File targetFile, String scanRoot) {
+        Timer.Sample sample = pipelineMetrics.start();
+        FileMoveEvent event = new FileMoveEvent();
+        event.begin();
+        long size = sourceFile.length();
+        String method = "rename";
+        boolean success = false;
         try {
             // 尝试直接重命名（同分区，速度快）
             if (sourceFile.renameTo(targetFile)) {
                 log.debug("文件移动成功（直接重命名）: {} -> {}", sourceFile.getName(), targetFile.getAbsolutePath());
+                success = true;
                 return true;
             }
 
-            // 重命名失败，可能是跨分区，使用复制+删除方式
-            log.info("直接重命名失败，使用复制+删除方式: {}", sourceFile.getAbsolutePath());
-            Files.copy(sourceFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // 重命名失败，可能是跨分区，传输到目标目录的临时文件后原子重命名，再删除原文件
+            method = "copy_delete";
+            log.info("直接重命名失败，使用跨设备传输: {}", sourceFile.getAbsolutePath());
+            crossDeviceTransfer.transfer(sourceFile.toPath(), targetFile.toPath());
 
-            // 验证复制是否成功
+            // 传输时已按块比对 CRC32C, 这里再确认大小 (防止传输期间源文件被追加)
             if (!targetFile.exists() || targetFile.length() != sourceFile.length()) {
                 log.error("文件复制验证失败: 大小不匹配");
                 // 清理可能的不完整文件
@@ -526,10 +1022,22 @@ public class RenameService {
             }
 
             log.info("文件移动成功（复制+删除）: {} -> {}", sourceFile.getName(), targetFile.getAbsolutePath());
+            success = true;
             return true;
         } catch (IOException e) {
             log.error("文件移动失败: {} -> {}", sourceFile, targetFile, e);
             return false;
+        } finally {
+            pipelineMetrics.recordRename(sample, scanRoot, method, success);
+            if (event.shouldCommit()) {
+                event.operation = "rename";
+                event.path = sourceFile.getAbsolutePath();
+                event.targetPath = targetFile.getAbsolutePath();
+                event.method = method;
+                event.size = size;
+                event.outcome = success ? "success" : "failed";
+                event.commit();
+            }
         }
     }
 
@@ -550,17 +1058,6 @@ public class RenameService {
         return null;
     }
 
-    /**
-     * 清理文件名中的非法字符
-     */
-    private String sanitizeFileName(String fileName) {
-        if (fileName == null) {
-            return "";
-        }
-        // 替换非法字符: \ / : * ? " < > |
-        return fileName.replaceAll("[\\\\/:*?\"<>|]", "");
-    }
-
     /**
      * 批量生成重命名预览
      * 使用虚拟线程并发处理，大幅提升性能
@@ -568,37 +1065,225 @@ public class RenameService {
      * 优化策略:
      * 1. 预取所有季度信息到缓存 (减少重复 API 调用)
      * 2. 并行生成预览 (利用虚拟线程)
+     * 3. 输入与结果保存为预览会话, 之后切换模板 / 修改季号时走增量预览
      *
      * @param request 批量请求
-     * @return 批量响应（包含预览列表和统计信息）
+     * @return 批量响应（包含预览列表、统计信息和预览会话 ID）
      */
     public com.mediarenamer.controller.RenameController.BatchRenameResponse batchGeneratePreview(
             com.mediarenamer.controller.RenameController.BatchRenameRequest request) {
         log.info("开始批量生成重命名预览，总数: {}", request.getRequests().size());
         long startTime = System.currentTimeMillis();
 
+        Map<String, RenamePreviewDTO> previewsByPath = generatePreviews(request.getRequests(),
+                request.getTargetRoot(), request.getStrategy());
+
+        // 整批目标统一做冲突分析 (同时确定是否需要创建目录)
+        List<RenamePreviewDTO> results = new ArrayList<>(previewsByPath.values());
+        conflictAnalyzer.analyze(results);
+
+        // 保存预览会话 (按请求顺序)
+        Map<String, PreviewSessionCache.Entry> entries = new LinkedHashMap<>();
+        for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : request.getRequests()) {
+            String filePath = req.getVideoFile().getFilePath();
+            entries.put(filePath, new PreviewSessionCache.Entry(req, PreviewSessionCache.inputKey(req),
+                    previewsByPath.get(filePath)));
+        }
+        PreviewSessionCache.PreviewSession session = previewSessionCache.create(request.getTargetRoot(),
+                request.getStrategy(), entries);
+
+        long elapsedTime = System.currentTimeMillis() - startTime;
+
+        // 构建响应
+        com.mediarenamer.controller.RenameController.BatchRenameResponse response =
+                buildBatchPreviewResponse(results, elapsedTime);
+        response.setSessionId(session.getSessionId());
+        return response;
+    }
+
+    /**
+     * 增量重新预览
+     * 在预览会话的基础上应用变化 (新模板、修改过的文件请求), 只重新计算输入 key 变化的文件;
+     * 冲突分析对全部目标重新做, 但只为重新计算过的和之前有冲突的文件列出目标目录
+     *
+     * @param request 增量请求
+     * @return 批量响应: previews 只包含有变化的预览 (重新计算或冲突状态改变), summary 为整批统计
+     * @throws RuntimeException 预览会话不存在或已过期 (需要重新生成完整预览)
+     */
+    public com.mediarenamer.controller.RenameController.BatchRenameResponse batchUpdatePreview(
+            com.mediarenamer.controller.RenameController.BatchPreviewDeltaRequest request) {
+        long startTime = System.currentTimeMillis();
+        PreviewSessionCache.PreviewSession session = previewSessionCache.get(request.getSessionId());
+        if (session == null) {
+            throw new RuntimeException("预览会话不存在或已过期, 请重新生成预览");
+        }
+
+        session.getLock().lock();
+        try {
+            // 1. 应用变化, 找出输入 key 变化的文件
+            Map<String, com.mediarenamer.controller.RenameController.SingleRenameRequest> overrides =
+                    new LinkedHashMap<>();
+            if (request.getRequests() != null) {
+                request.getRequests().forEach(req -> overrides.put(req.getVideoFile().getFilePath(), req));
+            }
+            List<com.mediarenamer.controller.RenameController.SingleRenameRequest> changed = new ArrayList<>();
+            for (PreviewSessionCache.Entry entry : session.getEntries().values()) {
+                com.mediarenamer.controller.RenameController.SingleRenameRequest req =
+                        overrides.getOrDefault(entry.request().getVideoFile().getFilePath(), entry.request());
+                req = withTemplate(req, request.getTemplate());
+                if (!PreviewSessionCache.inputKey(req).equals(entry.inputKey())) {
+                    changed.add(req);
+                }
+            }
+            // 会话中没有的文件作为新增
+            overrides.values().stream()
+                    .filter(req -> !session.getEntries().containsKey(req.getVideoFile().getFilePath()))
+                    .map(req -> withTemplate(req, request.getTemplate()))
+                    .forEach(changed::add);
+
+            // 2. 只重新计算变化的文件
+            Map<String, RenamePreviewDTO> recomputed = generatePreviews(changed, session.getTargetRoot(),
+                    session.getStrategy());
+            for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : changed) {
+                String filePath = req.getVideoFile().getFilePath();
+                session.getEntries().put(filePath, new PreviewSessionCache.Entry(req,
+                        PreviewSessionCache.inputKey(req), recomputed.get(filePath)));
+            }
+
+            // 3. 冲突分析: 先清除上次的冲突标记, 冲突状态改变的预览也要返回
+            List<RenamePreviewDTO> all = session.getEntries().values().stream()
+                    .map(PreviewSessionCache.Entry::preview)
+                    .filter(Objects::nonNull)
+                    .toList();
+            Set<RenamePreviewDTO> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+            fresh.addAll(recomputed.values());
+            Map<RenamePreviewDTO, String> conflictsBefore = new IdentityHashMap<>();
+            for (RenamePreviewDTO preview : all) {
+                if (preview.getConflict() != null && !fresh.contains(preview)) {
+                    conflictsBefore.put(preview, preview.getConflict());
+                    preview.setConflict(null);
+                    preview.setConflictPath(null);
+                    preview.setStatus("pending");
+                    preview.setErrorMessage(null);
+                }
+            }
+            Set<RenamePreviewDTO> recheck = Collections.newSetFromMap(new IdentityHashMap<>());
+            recheck.addAll(fresh);
+            recheck.addAll(conflictsBefore.keySet());
+            conflictAnalyzer.analyze(all, recheck::contains);
+
+            List<RenamePreviewDTO> delta = all.stream()
+                    .filter(p -> fresh.contains(p) || !Objects.equals(conflictsBefore.get(p), p.getConflict()))
+                    .toList();
+
+            long elapsedTime = System.currentTimeMillis() - startTime;
+            log.info("增量预览完成: 会话={}, 总数={}, 重新计算={}, 返回={}, 耗时={}ms",
+                    session.getSessionId(), all.size(), changed.size(), delta.size(), elapsedTime);
+
+            com.mediarenamer.controller.RenameController.BatchRenameResponse response =
+                    buildBatchPreviewResponse(all, elapsedTime);
+            response.setPreviews(delta);
+            response.setSessionId(session.getSessionId());
+            response.setDelta(true);
+            return response;
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    /**
+     * 执行成功的文件在预览会话中的请求 (文件 + 用户确认的匹配), 用于学习匹配别名
+     *
+     * @param sessionId 预览会话 ID
+     * @param results 执行结果
+     * @return 执行成功的请求; 会话不存在或已过期时返回空列表
+     */
+    public List<com.mediarenamer.controller.RenameController.SingleRenameRequest> confirmedRequests(
+            String sessionId, List<RenamePreviewDTO> results) {
+        PreviewSessionCache.PreviewSession session = previewSessionCache.get(sessionId);
+        if (session == null) {
+            log.info("预览会话不存在或已过期, 不学习匹配别名: {}", sessionId);
+            return List.of();
+        }
+        session.getLock().lock();
+        try {
+            return results.stream()
+                    .filter(result -> "success".equals(result.getStatus()))
+                    .map(result -> session.getEntries().get(result.getOldPath()))
+                    .filter(Objects::nonNull)
+                    .map(PreviewSessionCache.Entry::request)
+                    .toList();
+        } finally {
+            session.getLock().unlock();
+        }
+    }
+
+    /**
+     * 替换请求的模板 (不修改会话中缓存的请求)
+     */
+    private com.mediarenamer.controller.RenameController.SingleRenameRequest withTemplate(
+            com.mediarenamer.controller.RenameController.SingleRenameRequest request, String template) {
+        if (template == null || template.equals(request.getTemplate())) {
+            return request;
+        }
+        com.mediarenamer.controller.RenameController.SingleRenameRequest copy =
+                new com.mediarenamer.controller.RenameController.SingleRenameRequest();
+        copy.setVideoFile(request.getVideoFile());
+        copy.setMatchedInfo(request.getMatchedInfo());
+        copy.setMediaType(request.getMediaType());
+        copy.setTemplate(template);
+        return copy;
+    }
+
+    /**
+     * 并行生成一组预览 (不做冲突分析)
+     *
+     * @param requests 单个文件请求
+     * @param targetRoot 请求指定的目标根目录 (可为 null)
+     * @param strategy 请求指定的执行方式 (可为 null)
+     * @return 文件路径 -> 预览
+     * @throws IllegalArgumentException 不支持的执行方式
+     */
+    private Map<String, RenamePreviewDTO> generatePreviews(
+            List<com.mediarenamer.controller.RenameController.SingleRenameRequest> requests,
+            String targetRoot, String strategy) {
+        // 先校验执行方式, 无效时整批失败而不是每个文件各报一次
+        RenameStrategy requestedStrategy = RenameStrategy.parse(strategy);
+        if (requests.isEmpty()) {
+            return Map.of();
+        }
+
         // ========== 优化：预取所有季度信息 ==========
-        prefetchSeasonInfo(request.getRequests());
+        prefetchSeasonInfo(requests);
 
         // 使用线程安全的集合存储结果
-        List<RenamePreviewDTO> results = Collections.synchronizedList(new ArrayList<>());
+        Map<String, RenamePreviewDTO> results = new ConcurrentHashMap<>();
+
+        // 每个扫描根目录只解析一次输出位置与执行方式
+        Map<String, OutputTarget> outputTargets = new ConcurrentHashMap<>();
 
         // 使用虚拟线程执行器 (JDK 21+)
         try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
             // 提交所有预览生成任务
             List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-            for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : request.getRequests()) {
+            for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : requests) {
                 CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                    Timer.Sample sample = pipelineMetrics.start();
+                    RenamePreviewDTO preview;
                     try {
-                        RenamePreviewDTO preview = generateSinglePreview(req);
-                        results.add(preview);
+                        String scanRoot = req.getVideoFile().getScanRootPath();
+                        OutputTarget target = outputTargets.computeIfAbsent(Objects.toString(scanRoot, ""),
+                                k -> resolveOutputTarget(scanRoot, targetRoot, requestedStrategy));
+                        preview = generateSinglePreview(req, target);
                     } catch (Exception e) {
                         log.error("生成预览失败: file={}", req.getVideoFile().getFilePath(), e);
                         // 生成错误预览
-                        RenamePreviewDTO errorPreview = buildErrorPreview(req.getVideoFile(), e.getMessage());
-                        results.add(errorPreview);
+                        preview = buildErrorPreview(req.getVideoFile(), e.getMessage());
                     }
+                    pipelineMetrics.recordPreview(sample, req.getVideoFile().getScanRootPath(),
+                            !"failed".equals(preview.getStatus()));
+                    results.put(req.getVideoFile().getFilePath(), preview);
                 }, executor);
 
                 futures.add(future);
@@ -624,20 +1309,27 @@ public class RenameService {
             throw new RuntimeException("批量生成预览失败", e);
         }
 
-        long elapsedTime = System.currentTimeMillis() - startTime;
-
-        // 构建响应
-        return buildBatchPreviewResponse(results, elapsedTime);
+        // 按请求顺序返回
+        Map<String, RenamePreviewDTO> ordered = new LinkedHashMap<>();
+        for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : requests) {
+            String filePath = req.getVideoFile().getFilePath();
+            RenamePreviewDTO preview = results.get(filePath);
+            if (preview != null) {
+                ordered.put(filePath, preview);
+            }
+        }
+        return ordered;
     }
 
     /**
      * 生成单个文件的重命名预览
      *
      * @param request 单个请求
+     * @param target 输出位置与执行方式
      * @return 重命名预览
      */
     private RenamePreviewDTO generateSinglePreview(
-            com.mediarenamer.controller.RenameController.SingleRenameRequest request) {
+            com.mediarenamer.controller.RenameController.SingleRenameRequest request, OutputTarget target) {
         try {
             String mediaType = request.getMediaType();
             if (mediaType == null) {
@@ -647,13 +1339,13 @@ public class RenameService {
             if ("MOVIE".equals(mediaType)) {
                 // 将 Object 转换为 TmdbMovieDTO
                 TmdbMovieDTO movieInfo = convertToMovieDTO(request.getMatchedInfo());
-                MovieTemplate template = MovieTemplate.valueOf(request.getTemplate());
-                return generateMovieRename(request.getVideoFile(), movieInfo, template);
+                NamingTemplate template = namingTemplateService.movie(request.getTemplate());
+                return generateMovieRename(request.getVideoFile(), movieInfo, template, target);
             } else if ("TV_SHOW".equals(mediaType)) {
                 // 将 Object 转换为 TmdbTvShowDTO
                 TmdbTvShowDTO tvInfo = convertToTvShowDTO(request.getMatchedInfo());
-                TvTemplate template = TvTemplate.valueOf(request.getTemplate());
-                return generateTvRename(request.getVideoFile(), tvInfo, template);
+                NamingTemplate template = namingTemplateService.tv(request.getTemplate());
+                return generateTvRename(request.getVideoFile(), tvInfo, template, target);
             } else {
                 throw new RuntimeException("未知媒体类型: " + mediaType);
             }
@@ -676,12 +1368,20 @@ public class RenameService {
         int success = (int) results.stream().filter(r -> !"failed".equals(r.getStatus())).count();
         int failed = total - success;
 
+        // 需要复制数据的文件 (执行耗时主要来自这部分)
+        List<RenamePreviewDTO> copying = results.stream()
+                .filter(r -> !"failed".equals(r.getStatus()) && r.getCopyBytes() != null && r.getCopyBytes() > 0)
+                .toList();
+
         com.mediarenamer.controller.RenameController.BatchSummary summary =
                 com.mediarenamer.controller.RenameController.BatchSummary.builder()
                         .total(total)
                         .success(success)
                         .failed(failed)
                         .durationMs(durationMs)
+                        .copyCount(copying.size())
+                        .copyBytes(copying.stream().mapToLong(RenamePreviewDTO::getCopyBytes).sum())
+                        .conflictCount((int) results.stream().filter(r -> r.getConflict() != null).count())
                         .build();
 
         return com.mediarenamer.controller.RenameController.BatchRenameResponse.builder()
@@ -725,9 +1425,10 @@ public class RenameService {
      * 批量预取可以避免后续并行任务中的重复 API 调用
      *
      * 优化要点:
-     * 1. 直接预取 getSeasonEpisodes（包含标题），而不是 getSeasonEpisodeCount
-     * 2. 使用虚拟线程并行预取，提升性能
-     * 3. 预取完成后，后续任务直接命中缓存，无需网络请求
+     * 1. 按电视剧分组, 通过 append_to_response 一次请求加载最多 20 个季度
+     * 2. 同时填充剧集详情、季度总集数和电视剧详情缓存
+     * 3. 不同电视剧之间使用虚拟线程并行预取
+     * 4. 预取完成后，后续任务直接命中缓存，无需网络请求
      *
      * @param requests 请求列表
      */
@@ -735,45 +1436,48 @@ public class RenameService {
         log.debug("开始预取季度剧集信息");
         long startTime = System.currentTimeMillis();
 
-        // 收集所有需要预取的 (tvId, seasonNumber) 组合
-        Set<String> uniqueSeasons = new HashSet<>();
+        // 收集每部电视剧需要预取的季号
+        Map<Long, Set<Integer>> seasonsByShow = new HashMap<>();
         for (com.mediarenamer.controller.RenameController.SingleRenameRequest req : requests) {
             if ("TV_SHOW".equals(req.getMediaType()) && req.getVideoFile().getParsedSeason() != null) {
                 try {
                     TmdbTvShowDTO tvInfo = convertToTvShowDTO(req.getMatchedInfo());
-                    String key = tvInfo.getId() + "-" + req.getVideoFile().getParsedSeason();
-                    uniqueSeasons.add(key);
+                    if (tvInfo.getId() != null) {
+                        seasonsByShow.computeIfAbsent(tvInfo.getId(), k -> new TreeSet<>())
+                                .add(req.getVideoFile().getParsedSeason());
+                    }
                 } catch (Exception e) {
                     log.debug("解析 TV 信息失败: {}", e.getMessage());
                 }
             }
         }
 
-        if (uniqueSeasons.isEmpty()) {
+        if (seasonsByShow.isEmpty()) {
             log.debug("无需预取季度剧集信息（无电视剧）");
             return;
         }
 
-        log.info("🚀 开始预取季度剧集信息: 总数={}", uniqueSeasons.size());
+        int seasonCount = seasonsByShow.values().stream().mapToInt(Set::size).sum();
+        log.info("🚀 开始预取季度剧集信息: 电视剧={}, 季度={}", seasonsByShow.size(), seasonCount);
+
+        java.util.concurrent.atomic.AtomicInteger requestCount = new java.util.concurrent.atomic.AtomicInteger();
 
-        // 并行预取所有季度的剧集详情（包含标题）
+        // 按电视剧并行批量预取（每部剧的季度合并为尽可能少的请求）
         try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
             List<CompletableFuture<Void>> futures = new ArrayList<>();
 
-            for (String key : uniqueSeasons) {
-                String[] parts = key.split("-");
-                Long tvId = Long.parseLong(parts[0]);
-                Integer seasonNumber = Integer.parseInt(parts[1]);
+            for (Map.Entry<Long, Set<Integer>> entry : seasonsByShow.entrySet()) {
+                Long tvId = entry.getKey();
+                Set<Integer> seasons = entry.getValue();
 
                 CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
                     try {
-                        // 关键优化：调用 getSeasonEpisodes 预取标题数据
-                        // 这样后续的 applyTvTemplate 就能直接命中缓存
-                        tmdbService.getSeasonEpisodes(tvId, seasonNumber);
-                        log.debug("✅ 预取成功: tvId={}, season={}", tvId, seasonNumber);
+                        int requested = tmdbService.loadSeasons(tvId, seasons);
+                        requestCount.addAndGet(requested);
+                        log.debug("✅ 预取成功: tvId={}, seasons={}, 请求数={}", tvId, seasons, requested);
                     } catch (Exception e) {
-                        // 异常已在 TmdbService 中处理，这里只记录 DEBUG
-                        log.debug("预取失败: tvId={}, season={}", tvId, seasonNumber);
+                        // 预取失败不影响主流程, 后续按季度单独请求兜底
+                        log.debug("预取失败: tvId={}, seasons={}", tvId, seasons);
                     }
                 }, executor);
 
@@ -792,7 +1496,8 @@ public class RenameService {
         }
 
         long elapsedTime = System.currentTimeMillis() - startTime;
-        log.info("✅ 预取季度剧集信息完成: 总数={}, 耗时={}ms", uniqueSeasons.size(), elapsedTime);
+        log.info("✅ 预取季度剧集信息完成: 季度={}, API 请求={}, 耗时={}ms",
+                seasonCount, requestCount.get(), elapsedTime);
     }
 
 }
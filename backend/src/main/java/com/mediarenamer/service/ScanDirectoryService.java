@@ -91,8 +91,11 @@ public class ScanDirectoryService {
 
     /**
      * 添加扫描目录配置
+     *
+     * @throws IllegalArgumentException 不支持的执行方式
      */
     public ScanDirectoryDTO addDirectory(ScanDirectoryDTO directory) {
+        directory.setRenameStrategy(normalizeRenameStrategy(directory.getRenameStrategy()));
         List<ScanDirectoryDTO> directories = getAllDirectories();
 
         // 生成 ID
@@ -120,8 +123,11 @@ public class ScanDirectoryService {
 
     /**
      * 更新扫描目录配置
+     *
+     * @throws IllegalArgumentException 不支持的执行方式
      */
     public ScanDirectoryDTO updateDirectory(String id, ScanDirectoryDTO updates) {
+        String renameStrategy = normalizeRenameStrategy(updates.getRenameStrategy());
         List<ScanDirectoryDTO> directories = getAllDirectories();
 
         for (int i = 0; i < directories.size(); i++) {
@@ -144,6 +150,12 @@ public class ScanDirectoryService {
                 if (updates.getDescription() != null) {
                     existing.setDescription(updates.getDescription());
                 }
+                if (updates.getTargetRoot() != null) {
+                    existing.setTargetRoot(updates.getTargetRoot());
+                }
+                if (renameStrategy != null) {
+                    existing.setRenameStrategy(renameStrategy);
+                }
 
                 directories.set(i, existing);
                 saveDirectories(directories);
@@ -188,6 +200,14 @@ public class ScanDirectoryService {
         }
     }
 
+    /**
+     * 校验执行方式并规范为枚举名 (保存前校验, 避免预览 / 执行时才发现配置无效)
+     */
+    private String normalizeRenameStrategy(String renameStrategy) {
+        RenameService.RenameStrategy strategy = RenameService.RenameStrategy.parse(renameStrategy);
+        return strategy != null ? strategy.name() : null;
+    }
+
     /**
      * 保存配置到文件
      */
@@ -204,8 +224,11 @@ public class ScanDirectoryService {
 
     /**
      * 导入配置（批量添加）
+     *
+     * @throws IllegalArgumentException 任一配置的执行方式不支持 (整批不导入)
      */
     public List<ScanDirectoryDTO> importDirectories(List<ScanDirectoryDTO> newDirectories) {
+        newDirectories.forEach(d -> d.setRenameStrategy(normalizeRenameStrategy(d.getRenameStrategy())));
         List<ScanDirectoryDTO> existing = getAllDirectories();
 
         for (ScanDirectoryDTO directory : newDirectories) {
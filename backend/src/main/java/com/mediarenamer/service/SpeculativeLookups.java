@@ -0,0 +1,83 @@
+package com.mediarenamer.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 推测查询的共享查找表 (一次批量匹配内使用)
+ *
+ * - 同一查询变体被多个分组同时需要时只发起一次请求
+ * - 按引用计数释放: 所有分组都不再需要且尚未完成的请求会被取消 (中断虚拟线程,
+ *   仍在等待限流的请求不会发出)
+ * - 已完成的结果保留, 后续分组直接复用
+ *
+ * 计数的增减都在 ConcurrentHashMap.compute 内完成, 其中只提交任务不做 IO
+ *
+ * @param <T> 查询结果类型
+ */
+class SpeculativeLookups<T> {
+
+    private final ExecutorService executor;
+    private final Map<String, Lookup<T>> lookups = new ConcurrentHashMap<>();
+    private final LongAdder cancelled = new LongAdder();
+
+    SpeculativeLookups(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 获取查询变体的结果 Future, 尚未发起 (或已被取消) 时提交查询
+     * 每次 acquire 都必须对应一次 release
+     */
+    Future<List<T>> acquire(String key, Callable<List<T>> search) {
+        return lookups.compute(key, (k, existing) -> {
+            Lookup<T> lookup = existing != null && !existing.future.isCancelled()
+                    ? existing
+                    : new Lookup<>(executor.submit(search));
+            lookup.refs++;
+            return lookup;
+        }).future;
+    }
+
+    /**
+     * 释放查询变体; 没有其他分组等待且未完成时取消请求
+     */
+    void release(String key) {
+        lookups.computeIfPresent(key, (k, lookup) -> {
+            if (--lookup.refs > 0 || lookup.future.isDone()) {
+                return lookup;
+            }
+            lookup.future.cancel(true);
+            cancelled.increment();
+            return null;
+        });
+    }
+
+    /**
+     * 发起过的查询变体数 (不含已取消的)
+     */
+    int size() {
+        return lookups.size();
+    }
+
+    /**
+     * 被取消的查询数
+     */
+    long cancelledCount() {
+        return cancelled.sum();
+    }
+
+    private static final class Lookup<T> {
+        private final Future<List<T>> future;
+        private int refs;
+
+        private Lookup(Future<List<T>> future) {
+            this.future = future;
+        }
+    }
+}
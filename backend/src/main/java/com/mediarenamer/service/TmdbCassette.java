@@ -0,0 +1,182 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.stream.Collectors;
+
+/**
+ * TMDB 请求录制 / 回放 (cassette)
+ *
+ * - RECORD: 正常请求 TMDB, 同时把响应体按请求写入 cassette 目录
+ * - REPLAY: 完全不访问网络, 从 cassette 目录读取响应; 未录制的请求视为 TMDB 不可用
+ *
+ * 每个请求对应一个文件, 文件名为请求 key 的 SHA-256:
+ * - {hash}.json: 响应体
+ * - {hash}.404: TMDB 返回 404 (如不存在的季度)
+ * - {hash}.latency: 录制时的响应耗时 (毫秒, 从发出请求到读完响应体)
+ * 请求 key 为去掉 api_key 后的 path + query, 因此录制结果可以在不同 API Key 之间共享。
+ *
+ * 回放默认立即返回; 开启 replay-at-recorded-speed 后每个响应按录制时的耗时延迟返回,
+ * 用于在没有网络的情况下对比不同实现的端到端耗时 (没有耗时记录的旧录制不延迟)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TmdbCassette {
+
+    private final TmdbProperties tmdbProperties;
+
+    public boolean isRecording() {
+        return getMode() == TmdbProperties.Cassette.Mode.RECORD;
+    }
+
+    public boolean isReplaying() {
+        return getMode() == TmdbProperties.Cassette.Mode.REPLAY;
+    }
+
+    /**
+     * 回放已录制的响应
+     *
+     * @throws HttpClientErrorException.NotFound 录制时 TMDB 返回了 404
+     * @throws TmdbUnavailableException          该请求未被录制
+     */
+    public InputStream replay(URI uri) throws IOException {
+        String key = requestKey(uri);
+        if (tmdbProperties.getCassette().isReplayAtRecordedSpeed()) {
+            delay(key);
+        }
+        Path body = resolve(key, ".json");
+        if (Files.exists(body)) {
+            return Files.newInputStream(body);
+        }
+        if (Files.exists(resolve(key, ".404"))) {
+            throw HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found (cassette)",
+                    HttpHeaders.EMPTY, null, StandardCharsets.UTF_8);
+        }
+        throw new TmdbUnavailableException("cassette 中没有该请求的录制: " + key);
+    }
+
+    /**
+     * 录制响应体
+     *
+     * @param latency 录制时的响应耗时
+     */
+    public void record(URI uri, byte[] body, Duration latency) {
+        String key = requestKey(uri);
+        write(key, ".json", body);
+        writeLatency(key, latency);
+    }
+
+    /**
+     * 录制 404 响应
+     *
+     * @param latency 录制时的响应耗时
+     */
+    public void recordNotFound(URI uri, Duration latency) {
+        String key = requestKey(uri);
+        write(key, ".404", new byte[0]);
+        writeLatency(key, latency);
+    }
+
+    /**
+     * 读取录制时的响应耗时
+     *
+     * @return 耗时, 没有记录时返回 Duration.ZERO
+     */
+    public Duration recordedLatency(URI uri) {
+        return readLatency(requestKey(uri));
+    }
+
+    /**
+     * 按录制耗时延迟 (回放线程被中断时抛出 InterruptedIOException)
+     */
+    private void delay(String key) throws InterruptedIOException {
+        Duration latency = readLatency(key);
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("cassette 回放被中断: " + key);
+        }
+    }
+
+    private void writeLatency(String key, Duration latency) {
+        write(key, ".latency", Long.toString(latency.toMillis()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Duration readLatency(String key) {
+        Path file = resolve(key, ".latency");
+        try {
+            return Files.exists(file) ? Duration.ofMillis(Long.parseLong(Files.readString(file).trim())) : Duration.ZERO;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("读取录制耗时失败: {}, {}", key, e.getMessage());
+            return Duration.ZERO;
+        }
+    }
+
+    /**
+     * 请求 key: path + 排除 api_key 后的 query
+     */
+    String requestKey(URI uri) {
+        String query = uri.getRawQuery() == null ? "" : Arrays.stream(uri.getRawQuery().split("&"))
+                .filter(param -> !param.startsWith("api_key="))
+                .collect(Collectors.joining("&"));
+        return query.isEmpty() ? uri.getRawPath() : uri.getRawPath() + "?" + query;
+    }
+
+    private void write(String key, String suffix, byte[] content) {
+        Path target = resolve(key, suffix);
+        try {
+            Files.createDirectories(target.getParent());
+            // 先写临时文件再原子替换, 并发录制同一请求时不会读到半个文件
+            Path temp = Files.createTempFile(target.getParent(), "cassette", ".tmp");
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("已录制 TMDB 响应: {} -> {}", key, target.getFileName());
+        } catch (IOException e) {
+            throw new UncheckedIOException("录制 TMDB 响应失败: " + key, e);
+        }
+    }
+
+    private Path resolve(String key, String suffix) {
+        return Paths.get(tmdbProperties.getCassette().getDirectory()).resolve(hash(key) + suffix);
+    }
+
+    private String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TmdbProperties.Cassette.Mode getMode() {
+        TmdbProperties.Cassette cassette = tmdbProperties.getCassette();
+        return cassette != null ? cassette.getMode() : TmdbProperties.Cassette.Mode.OFF;
+    }
+}
@@ -0,0 +1,113 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * TMDB 熔断器
+ *
+ * 状态流转:
+ * - CLOSED: 正常放行, 连续瞬时失败达到阈值后进入 OPEN
+ * - OPEN: 直接拒绝所有请求, 持续 openDurationSeconds 后进入 HALF_OPEN
+ * - HALF_OPEN: 只放行一个探测请求, 成功则 CLOSED, 失败则重新 OPEN
+ *
+ * 所有方法只做内存状态切换, 不包含任何 IO
+ */
+@Slf4j
+@Component
+public class TmdbCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final TmdbProperties tmdbProperties;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean probeInFlight = false;
+
+    public TmdbCircuitBreaker(TmdbProperties tmdbProperties) {
+        this.tmdbProperties = tmdbProperties;
+    }
+
+    /**
+     * 是否允许发起请求
+     * OPEN 状态到期后, 第一个调用者作为探测请求被放行
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                long openMillis = tmdbProperties.getResilience().getOpenDurationSeconds() * 1000L;
+                if (System.currentTimeMillis() - openedAt >= openMillis) {
+                    state = State.HALF_OPEN;
+                    probeInFlight = true;
+                    log.info("TMDB 熔断器进入半开状态, 放行探测请求");
+                    return true;
+                }
+                return false;
+            case HALF_OPEN:
+            default:
+                if (!probeInFlight) {
+                    probeInFlight = true;
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * 熔断器是否处于打开状态 (包括半开状态下探测请求尚未返回)
+     */
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    /**
+     * 记录成功 (TMDB 可达)
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            log.info("TMDB 熔断器关闭, 恢复正常请求");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * 记录瞬时失败 (超时、连接失败、5xx、429)
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+
+        if (state == State.HALF_OPEN
+                || (state == State.CLOSED && consecutiveFailures >= tmdbProperties.getResilience().getFailureThreshold())) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            log.warn("TMDB 熔断器打开: 连续失败 {} 次, {} 秒内快速失败",
+                    consecutiveFailures, tmdbProperties.getResilience().getOpenDurationSeconds());
+        }
+    }
+
+    /**
+     * 释放探测名额 (探测请求被取消, 既不算成功也不算失败)
+     * 下一个调用者重新作为探测请求被放行; 非半开状态下无操作
+     */
+    public synchronized void releaseProbe() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
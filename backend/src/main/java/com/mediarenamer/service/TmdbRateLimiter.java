@@ -0,0 +1,87 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TMDB 请求限流器 (令牌桶)
+ *
+ * 桶容量为 rate-limit.requests, 每 rate-limit.period 秒匀速补满;
+ * 令牌不足时预支令牌并在锁外等待, 等待可被中断 (被取消的推测查询不会再发出请求)
+ *
+ * 使用 ReentrantLock 而不是 synchronized, 避免虚拟线程被固定在载体线程上
+ */
+@Component
+public class TmdbRateLimiter {
+
+    private final TmdbProperties tmdbProperties;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private boolean initialized = false;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TmdbRateLimiter(TmdbProperties tmdbProperties) {
+        this.tmdbProperties = tmdbProperties;
+    }
+
+    /**
+     * 获取一个令牌, 必要时等待 (未配置限流时立即返回)
+     *
+     * @throws InterruptedException 等待期间被中断, 预支的令牌会归还
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            refund();
+            throw e;
+        }
+    }
+
+    /**
+     * 预支一个令牌
+     *
+     * @return 需要等待的纳秒数
+     */
+    long reserve() {
+        TmdbProperties.RateLimit rateLimit = tmdbProperties.getRateLimit();
+        if (rateLimit == null || rateLimit.getRequests() <= 0 || rateLimit.getPeriod() <= 0) {
+            return 0;
+        }
+        double capacity = rateLimit.getRequests();
+        double tokensPerNano = capacity / TimeUnit.SECONDS.toNanos(rateLimit.getPeriod());
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (!initialized) {
+                tokens = capacity;
+                lastRefillNanos = now;
+                initialized = true;
+            }
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refund() {
+        lock.lock();
+        try {
+            tokens += 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
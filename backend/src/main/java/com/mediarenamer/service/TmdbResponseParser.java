@@ -0,0 +1,419 @@
+package com.mediarenamer.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mediarenamer.model.dto.TmdbEpisodeDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TMDB 响应流式解析器
+ *
+ * 使用 Jackson 流式 API 直接从响应流解析到 DTO:
+ * - 不再先读成 String 再构建 JsonNode 树 (避免同一响应在内存中存在三份)
+ * - 只读取用到的字段, 其余字段 (包括嵌套对象/数组) 直接 skipChildren 跳过
+ */
+@Slf4j
+public class TmdbResponseParser {
+
+    /**
+     * append_to_response 附加季度的字段名前缀
+     */
+    public static final String APPENDED_SEASON_PREFIX = "season/";
+
+    private final JsonFactory jsonFactory;
+
+    public TmdbResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * 解析电影搜索结果 (results 数组)
+     */
+    public List<TmdbMovieDTO> readMovieResults(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            List<TmdbMovieDTO> movies = new ArrayList<>();
+            if (!enterObject(parser)) {
+                return movies;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (nextObject(parser)) {
+                        movies.add(readMovie(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return movies;
+        }
+    }
+
+    /**
+     * 解析电影详情
+     */
+    public TmdbMovieDTO readMovieDetails(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return enterObject(parser) ? readMovie(parser) : null;
+        }
+    }
+
+    /**
+     * 解析电视剧搜索结果 (results 数组)
+     */
+    public List<TmdbTvShowDTO> readTvShowResults(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            List<TmdbTvShowDTO> tvShows = new ArrayList<>();
+            if (!enterObject(parser)) {
+                return tvShows;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("results".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (nextObject(parser)) {
+                        tvShows.add(readTvShow(parser, null));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return tvShows;
+        }
+    }
+
+    /**
+     * 解析电视剧详情
+     */
+    public TmdbTvShowDTO readTvShowDetails(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return enterObject(parser) ? readTvShow(parser, null) : null;
+        }
+    }
+
+    /**
+     * 解析带 append_to_response=season/N 的电视剧详情
+     * 附加的季度以 "season/N" 字段出现在详情对象中
+     *
+     * @return 电视剧详情及各季度剧集
+     */
+    public TvShowWithSeasons readTvShowWithSeasons(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (!enterObject(parser)) {
+                return null;
+            }
+            Map<Integer, List<TmdbEpisodeDTO>> seasons = new HashMap<>();
+            TmdbTvShowDTO tvShow = readTvShow(parser, seasons);
+            return new TvShowWithSeasons(tvShow, seasons);
+        }
+    }
+
+    /**
+     * 解析季度详情中的 episodes 数组
+     *
+     * @return 剧集列表, 如果响应中没有 episodes 节点则返回 null
+     */
+    public List<TmdbEpisodeDTO> readSeasonEpisodes(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            return enterObject(parser) ? readSeason(parser) : null;
+        }
+    }
+
+    /**
+     * 统计季度详情中的剧集数量 (不构建任何剧集对象)
+     *
+     * @return 集数, 如果响应中没有 episodes 节点则返回 null
+     */
+    public Integer countSeasonEpisodes(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (!enterObject(parser)) {
+                return null;
+            }
+            Integer count = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("episodes".equals(field) && token == JsonToken.START_ARRAY) {
+                    int n = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        parser.skipChildren();
+                        n++;
+                    }
+                    count = n;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 读取季度对象 (当前 token 为 START_OBJECT), 返回 episodes 数组
+     */
+    private List<TmdbEpisodeDTO> readSeason(JsonParser parser) throws IOException {
+        List<TmdbEpisodeDTO> episodes = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("episodes".equals(field) && token == JsonToken.START_ARRAY) {
+                episodes = new ArrayList<>();
+                while (nextObject(parser)) {
+                    episodes.add(readEpisode(parser));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return episodes;
+    }
+
+    /**
+     * 读取电影对象 (当前 token 为 START_OBJECT)
+     */
+    private TmdbMovieDTO readMovie(JsonParser parser) throws IOException {
+        TmdbMovieDTO.TmdbMovieDTOBuilder builder = TmdbMovieDTO.builder();
+        List<TmdbMovieDTO.Genre> genres = new ArrayList<>();
+        String releaseDate = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> builder.id(longValue(parser));
+                case "title" -> builder.title(stringValue(parser));
+                case "original_title" -> builder.originalTitle(stringValue(parser));
+                case "release_date" -> releaseDate = stringValue(parser);
+                case "overview" -> builder.overview(stringValue(parser));
+                case "poster_path" -> builder.posterPath(stringValue(parser));
+                case "backdrop_path" -> builder.backdropPath(stringValue(parser));
+                case "vote_average" -> builder.voteAverage(doubleValue(parser));
+                case "vote_count" -> builder.voteCount(intValue(parser));
+                case "popularity" -> builder.popularity(doubleValue(parser));
+                case "genres" -> readGenres(parser, genres);
+                default -> parser.skipChildren();
+            }
+        }
+
+        return builder
+                .releaseDate(releaseDate)
+                .year(extractYear(releaseDate))
+                .genres(genres)
+                .build();
+    }
+
+    /**
+     * 读取电视剧对象 (当前 token 为 START_OBJECT)
+     *
+     * @param seasons 附加季度的输出 (可为 null, 为 null 时跳过 "season/N" 字段)
+     */
+    private TmdbTvShowDTO readTvShow(JsonParser parser, Map<Integer, List<TmdbEpisodeDTO>> seasons)
+            throws IOException {
+        TmdbTvShowDTO.TmdbTvShowDTOBuilder builder = TmdbTvShowDTO.builder();
+        List<TmdbMovieDTO.Genre> genres = new ArrayList<>();
+        String firstAirDate = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> builder.id(longValue(parser));
+                case "name" -> builder.name(stringValue(parser));
+                case "original_name" -> builder.originalName(stringValue(parser));
+                case "first_air_date" -> firstAirDate = stringValue(parser);
+                case "overview" -> builder.overview(stringValue(parser));
+                case "poster_path" -> builder.posterPath(stringValue(parser));
+                case "backdrop_path" -> builder.backdropPath(stringValue(parser));
+                case "vote_average" -> builder.voteAverage(doubleValue(parser));
+                case "vote_count" -> builder.voteCount(intValue(parser));
+                case "popularity" -> builder.popularity(doubleValue(parser));
+                case "genres" -> readGenres(parser, genres);
+                case "number_of_seasons" -> builder.numberOfSeasons(intValue(parser));
+                case "number_of_episodes" -> builder.numberOfEpisodes(intValue(parser));
+                default -> {
+                    Integer seasonNumber = seasons != null ? appendedSeasonNumber(field) : null;
+                    if (seasonNumber != null && parser.currentToken() == JsonToken.START_OBJECT) {
+                        List<TmdbEpisodeDTO> episodes = readSeason(parser);
+                        seasons.put(seasonNumber, episodes != null ? episodes : new ArrayList<>());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return builder
+                .firstAirDate(firstAirDate)
+                .year(extractYear(firstAirDate))
+                .genres(genres)
+                .build();
+    }
+
+    /**
+     * 读取单集对象 (当前 token 为 START_OBJECT)
+     */
+    private TmdbEpisodeDTO readEpisode(JsonParser parser) throws IOException {
+        TmdbEpisodeDTO.TmdbEpisodeDTOBuilder builder = TmdbEpisodeDTO.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "episode_number" -> builder.episodeNumber(intValue(parser));
+                case "name" -> builder.name(stringValue(parser));
+                case "overview" -> builder.overview(stringValue(parser));
+                case "air_date" -> builder.airDate(stringValue(parser));
+                case "still_path" -> builder.stillPath(stringValue(parser));
+                // crew / guest_stars 等大数组直接跳过
+                default -> parser.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 读取 genres 数组 (当前 token 为 START_ARRAY)
+     */
+    private void readGenres(JsonParser parser, List<TmdbMovieDTO.Genre> genres) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (nextObject(parser)) {
+            Integer id = null;
+            String name = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = intValue(parser);
+                    case "name" -> name = stringValue(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            genres.add(new TmdbMovieDTO.Genre(id, name));
+        }
+    }
+
+    /**
+     * 从 "season/N" 字段名中提取季号
+     *
+     * @return 季号, 如果不是附加季度字段则返回 null
+     */
+    private Integer appendedSeasonNumber(String field) {
+        if (!field.startsWith(APPENDED_SEASON_PREFIX)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(field.substring(APPENDED_SEASON_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 定位到根对象
+     *
+     * @return true 如果根节点是对象
+     */
+    private boolean enterObject(JsonParser parser) throws IOException {
+        return parser.nextToken() == JsonToken.START_OBJECT;
+    }
+
+    /**
+     * 前进到数组中的下一个对象元素 (当前位置在数组内)
+     * null 或其他非对象元素直接跳过, 读到数组末尾为止
+     *
+     * @return true 如果当前 token 为下一个元素的 START_OBJECT
+     */
+    private boolean nextObject(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private String stringValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private Long longValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsLong();
+    }
+
+    private Integer intValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsInt();
+    }
+
+    private Double doubleValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsDouble();
+    }
+
+    /**
+     * 从日期字符串提取年份
+     */
+    private Integer extractYear(String dateStr) {
+        if (dateStr != null && dateStr.length() >= 4) {
+            try {
+                return Integer.parseInt(dateStr.substring(0, 4));
+            } catch (NumberFormatException e) {
+                log.warn("无法解析年份: {}", dateStr);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 电视剧详情 + 附加季度剧集
+     *
+     * @param tvShow  电视剧详情
+     * @param seasons 季号 -> 剧集列表 (仅包含响应中存在的季度)
+     */
+    public record TvShowWithSeasons(TmdbTvShowDTO tvShow, Map<Integer, List<TmdbEpisodeDTO>> seasons) {}
+}
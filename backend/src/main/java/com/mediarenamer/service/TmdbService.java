@@ -1,20 +1,42 @@
 package com.mediarenamer.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.mediarenamer.config.TmdbProperties;
+import com.mediarenamer.jfr.TmdbRequestEvent;
 import com.mediarenamer.model.dto.TmdbMovieDTO;
 import com.mediarenamer.model.dto.TmdbTvShowDTO;
 import com.mediarenamer.model.dto.TmdbEpisodeDTO;
+import com.mediarenamer.util.QueryNormalizer;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * TMDB API 服务
@@ -25,41 +47,62 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TmdbService {
 
+    /**
+     * append_to_response 单次最多附加的季度数 (TMDB 限制)
+     */
+    private static final int MAX_APPENDED_SEASONS = 20;
+
+    /**
+     * 路径中的数字段 (TMDB ID、季号), 指标标签中替换为占位符以控制基数
+     */
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
     private final RestTemplate restTemplate;
     private final TmdbProperties tmdbProperties;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheManager cacheManager;
+    private final TmdbCircuitBreaker circuitBreaker;
+    private final TmdbCassette cassette;
+    private final TmdbRateLimiter rateLimiter;
+    private final PipelineMetrics pipelineMetrics;
+    private final TmdbResponseParser responseParser = new TmdbResponseParser(new JsonFactory());
 
     /**
      * 搜索电影 (添加缓存)
+     * 归一化后的搜索词 (QueryNormalizer) 只用作缓存 key, 发给 TMDB 的是去掉首尾空白的原始搜索词
+     * (TMDB 自己做分词, 保留原文的标点和大小写结果更准确)
      *
      * @param query 搜索关键词
      * @param year  年份 (可选)
      * @return 电影列表
      */
-    @Cacheable(value = "movieSearch", key = "#query + '-' + (#year != null ? #year : 'null')")
+    @Cacheable(value = "movieSearch", sync = true,
+            key = "T(com.mediarenamer.util.QueryNormalizer).normalize(#query) + '-' + (#year != null ? #year : 'null')")
     public List<TmdbMovieDTO> searchMovie(String query, Integer year) {
+        String searchQuery = query != null ? query.trim() : null;
+        String failureKey = "movie:" + QueryNormalizer.normalize(query) + "-" + year;
+        checkRecentFailure(failureKey);
         try {
             // 构建 API URL
-            String url = buildUrl("/search/movie", query, year);
-            log.debug("搜索电影: query={}, year={}", query, year);
-
-            // 调用 API
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode results = root.get("results");
-
-            List<TmdbMovieDTO> movies = new ArrayList<>();
-            if (results != null && results.isArray()) {
-                for (JsonNode node : results) {
-                    TmdbMovieDTO movie = parseMovieNode(node);
-                    movies.add(movie);
-                }
+            String url = buildUrl("/search/movie", searchQuery, year);
+            log.debug("搜索电影: query={}, year={}", searchQuery, year);
+
+            // 调用 API (流式解析响应)
+            List<TmdbMovieDTO> movies = fetch(url, responseParser::readMovieResults);
+            if (movies == null) {
+                movies = new ArrayList<>();
             }
 
             log.debug("搜索到 {} 部电影", movies.size());
             return movies;
+        } catch (TmdbUnavailableException e) {
+            // 重试耗尽的瞬时错误同样写入失败缓存; 快速拒绝 (熔断中 / 命中失败缓存) 没有 cause, 不重复写入
+            rememberFailure(failureKey, e.getCause());
+            throw e;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("搜索电影失败: query={}, year={}", query, year, e);
+            log.error("搜索电影失败: query={}, year={}", searchQuery, year, e);
+            rememberFailure(failureKey, e);
             throw new RuntimeException("搜索电影失败: " + e.getMessage(), e);
         }
     }
@@ -70,7 +113,7 @@ public class TmdbService {
      * @param movieId 电影 ID
      * @return 电影详情
      */
-    @Cacheable(value = "movieDetails", key = "#movieId")
+    @Cacheable(value = "movieDetails", sync = true, key = "#movieId")
     public TmdbMovieDTO getMovieDetails(Long movieId) {
         try {
             String url = UriComponentsBuilder.fromHttpUrl(tmdbProperties.getApiUrl())
@@ -81,10 +124,9 @@ public class TmdbService {
 
             log.debug("获取电影详情: movieId={}", movieId);
 
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode node = objectMapper.readTree(response);
-
-            return parseMovieNode(node);
+            return fetch(url, responseParser::readMovieDetails);
+        } catch (TmdbUnavailableException | CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("获取电影详情失败: movieId={}", movieId, e);
             throw new RuntimeException("获取电影详情失败: " + e.getMessage(), e);
@@ -93,33 +135,39 @@ public class TmdbService {
 
     /**
      * 搜索电视剧 (添加缓存)
+     * 归一化后的搜索词 (QueryNormalizer) 只用作缓存 key, 发给 TMDB 的是去掉首尾空白的原始搜索词
+     * (TMDB 自己做分词, 保留原文的标点和大小写结果更准确)
      *
      * @param query 搜索关键词
      * @param year  年份 (可选)
      * @return 电视剧列表
      */
-    @Cacheable(value = "tvSearch", key = "#query + '-' + (#year != null ? #year : 'null')")
+    @Cacheable(value = "tvSearch", sync = true,
+            key = "T(com.mediarenamer.util.QueryNormalizer).normalize(#query) + '-' + (#year != null ? #year : 'null')")
     public List<TmdbTvShowDTO> searchTvShow(String query, Integer year) {
+        String searchQuery = query != null ? query.trim() : null;
+        String failureKey = "tv:" + QueryNormalizer.normalize(query) + "-" + year;
+        checkRecentFailure(failureKey);
         try {
-            String url = buildUrl("/search/tv", query, year);
-            log.debug("搜索电视剧: query={}, year={}", query, year);
-
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode results = root.get("results");
-
-            List<TmdbTvShowDTO> tvShows = new ArrayList<>();
-            if (results != null && results.isArray()) {
-                for (JsonNode node : results) {
-                    TmdbTvShowDTO tvShow = parseTvShowNode(node);
-                    tvShows.add(tvShow);
-                }
+            String url = buildUrl("/search/tv", searchQuery, year);
+            log.debug("搜索电视剧: query={}, year={}", searchQuery, year);
+
+            List<TmdbTvShowDTO> tvShows = fetch(url, responseParser::readTvShowResults);
+            if (tvShows == null) {
+                tvShows = new ArrayList<>();
             }
 
             log.debug("搜索到 {} 部电视剧", tvShows.size());
             return tvShows;
+        } catch (TmdbUnavailableException e) {
+            // 重试耗尽的瞬时错误同样写入失败缓存; 快速拒绝 (熔断中 / 命中失败缓存) 没有 cause, 不重复写入
+            rememberFailure(failureKey, e.getCause());
+            throw e;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("搜索电视剧失败: query={}, year={}", query, year, e);
+            log.error("搜索电视剧失败: query={}, year={}", searchQuery, year, e);
+            rememberFailure(failureKey, e);
             throw new RuntimeException("搜索电视剧失败: " + e.getMessage(), e);
         }
     }
@@ -130,7 +178,7 @@ public class TmdbService {
      * @param tvId 电视剧 ID
      * @return 电视剧详情
      */
-    @Cacheable(value = "tvDetails", key = "#tvId")
+    @Cacheable(value = "tvDetails", sync = true, key = "#tvId")
     public TmdbTvShowDTO getTvShowDetails(Long tvId) {
         try {
             String url = UriComponentsBuilder.fromHttpUrl(tmdbProperties.getApiUrl())
@@ -141,10 +189,9 @@ public class TmdbService {
 
             log.debug("获取电视剧详情: tvId={}", tvId);
 
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode node = objectMapper.readTree(response);
-
-            return parseTvShowNode(node);
+            return fetch(url, responseParser::readTvShowDetails);
+        } catch (TmdbUnavailableException | CancellationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("获取电视剧详情失败: tvId={}", tvId, e);
             throw new RuntimeException("获取电视剧详情失败: " + e.getMessage(), e);
@@ -159,7 +206,7 @@ public class TmdbService {
      * @param seasonNumber 季号
      * @return 季度的总集数，如果获取失败返回 null
      */
-    @Cacheable(value = "seasonEpisodes", key = "#tvId + '-' + #seasonNumber")
+    @Cacheable(value = "seasonEpisodes", sync = true, key = "#tvId + '-' + #seasonNumber")
     public Integer getSeasonEpisodeCount(Long tvId, Integer seasonNumber) {
         try {
             String url = UriComponentsBuilder.fromHttpUrl(tmdbProperties.getApiUrl())
@@ -170,13 +217,9 @@ public class TmdbService {
 
             log.debug("获取电视剧季度详情: tvId={}, seasonNumber={}", tvId, seasonNumber);
 
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode node = objectMapper.readTree(response);
-
-            // 获取 episodes 数组的长度
-            JsonNode episodesNode = node.get("episodes");
-            if (episodesNode != null && episodesNode.isArray()) {
-                int episodeCount = episodesNode.size();
+            // 只统计 episodes 数组长度, 不构建剧集对象
+            Integer episodeCount = fetch(url, responseParser::countSeasonEpisodes);
+            if (episodeCount != null) {
                 log.debug("季度 {} 共有 {} 集", seasonNumber, episodeCount);
                 return episodeCount;
             }
@@ -187,6 +230,9 @@ public class TmdbService {
             // 404 错误是预期内的（季度可能不存在），使用 DEBUG 级别
             log.debug("季度信息不存在: tvId={}, seasonNumber={} (404 Not Found)", tvId, seasonNumber);
             return null;
+        } catch (TmdbUnavailableException | CancellationException e) {
+            // 熔断或取消时直接抛出, 避免空结果被写入缓存
+            throw e;
         } catch (Exception e) {
             // 其他异常使用 WARN 级别（不影响主流程）
             log.warn("获取电视剧季度详情失败: tvId={}, seasonNumber={}, error={}",
@@ -203,7 +249,7 @@ public class TmdbService {
      * @param seasonNumber 季号
      * @return 该季度的所有剧集信息列表，如果获取失败返回空列表
      */
-    @Cacheable(value = "seasonEpisodesDetail", key = "#tvId + '-' + #seasonNumber")
+    @Cacheable(value = "seasonEpisodesDetail", sync = true, key = "#tvId + '-' + #seasonNumber")
     public List<TmdbEpisodeDTO> getSeasonEpisodes(Long tvId, Integer seasonNumber) {
         try {
             String url = UriComponentsBuilder.fromHttpUrl(tmdbProperties.getApiUrl())
@@ -214,33 +260,23 @@ public class TmdbService {
 
             log.debug("📡 TMDB API: /tv/{}/season/{}", tvId, seasonNumber);
 
-            String response = restTemplate.getForObject(url, String.class);
-            JsonNode node = objectMapper.readTree(response);
-
             // 解析 episodes 数组
-            JsonNode episodesNode = node.get("episodes");
-            List<TmdbEpisodeDTO> episodes = new ArrayList<>();
-
-            if (episodesNode != null && episodesNode.isArray()) {
-                for (JsonNode episodeNode : episodesNode) {
-                    TmdbEpisodeDTO episode = TmdbEpisodeDTO.builder()
-                            .episodeNumber(getIntValue(episodeNode, "episode_number"))
-                            .name(getStringValue(episodeNode, "name"))
-                            .overview(getStringValue(episodeNode, "overview"))
-                            .airDate(getStringValue(episodeNode, "air_date"))
-                            .stillPath(getStringValue(episodeNode, "still_path"))
-                            .build();
-                    episodes.add(episode);
-                }
+            List<TmdbEpisodeDTO> episodes = fetch(url, responseParser::readSeasonEpisodes);
+
+            if (episodes != null) {
                 log.debug("✅ 解析成功: Season {} 共 {} 集", seasonNumber, episodes.size());
             } else {
                 log.warn("⚠️ episodes 节点为空: Season {}", seasonNumber);
+                episodes = new ArrayList<>();
             }
 
             return episodes;
         } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
             log.debug("❌ 404: tvId={}, season={}", tvId, seasonNumber);
             return new ArrayList<>();
+        } catch (TmdbUnavailableException | CancellationException e) {
+            // 熔断或取消时直接抛出, 避免空结果被写入缓存
+            throw e;
         } catch (Exception e) {
             log.error("❌ API 失败: tvId={}, season={}, error={}",
                     tvId, seasonNumber, e.getMessage());
@@ -248,6 +284,109 @@ public class TmdbService {
         }
     }
 
+    /**
+     * 批量加载电视剧的多个季度（包含单集标题）
+     * 使用 append_to_response=season/1,season/2,... 在一次 /tv/{id} 请求中获取多个季度,
+     * 每次请求最多附加 20 个季度
+     *
+     * 结果直接写入缓存:
+     * - tvDetails: 电视剧详情
+     * - seasonEpisodesDetail: 季度剧集列表
+     * - seasonEpisodes: 季度总集数
+     *
+     * 已缓存的季度不会重复请求; 普通失败不抛出异常, 后续按季度单独请求兜底;
+     * 熔断 (TmdbUnavailableException) 或取消 (CancellationException) 时直接抛出
+     *
+     * @param tvId 电视剧 ID
+     * @param seasonNumbers 需要加载的季号
+     * @return 实际发起的 API 请求数
+     */
+    public int loadSeasons(Long tvId, Collection<Integer> seasonNumbers) {
+        Cache detailCache = cacheManager.getCache("seasonEpisodesDetail");
+        Cache countCache = cacheManager.getCache("seasonEpisodes");
+        Cache tvDetailsCache = cacheManager.getCache("tvDetails");
+
+        // 过滤掉已缓存的季度, 排序后分批
+        TreeSet<Integer> pending = new TreeSet<>();
+        for (Integer seasonNumber : seasonNumbers) {
+            if (seasonNumber == null) {
+                continue;
+            }
+            String key = seasonCacheKey(tvId, seasonNumber);
+            if (detailCache.get(key) == null || countCache.get(key) == null) {
+                pending.add(seasonNumber);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> seasons = new ArrayList<>(pending);
+        int requestCount = 0;
+
+        for (int from = 0; from < seasons.size(); from += MAX_APPENDED_SEASONS) {
+            List<Integer> chunk = seasons.subList(from, Math.min(from + MAX_APPENDED_SEASONS, seasons.size()));
+            String appendToResponse = chunk.stream()
+                    .map(n -> TmdbResponseParser.APPENDED_SEASON_PREFIX + n)
+                    .collect(Collectors.joining(","));
+
+            String url = UriComponentsBuilder.fromHttpUrl(tmdbProperties.getApiUrl())
+                    .pathSegment("tv", String.valueOf(tvId))
+                    .queryParam("api_key", tmdbProperties.getApiKey())
+                    .queryParam("language", tmdbProperties.getLanguage())
+                    .queryParam("append_to_response", appendToResponse)
+                    .toUriString();
+
+            log.debug("📡 TMDB API: /tv/{}?append_to_response={}", tvId, appendToResponse);
+
+            try {
+                requestCount++;
+                TmdbResponseParser.TvShowWithSeasons result = fetch(url, responseParser::readTvShowWithSeasons);
+                if (result == null) {
+                    continue;
+                }
+
+                if (result.tvShow() != null) {
+                    tvDetailsCache.put(tvId, result.tvShow());
+                }
+
+                for (Integer seasonNumber : chunk) {
+                    String key = seasonCacheKey(tvId, seasonNumber);
+                    List<TmdbEpisodeDTO> episodes = result.seasons().get(seasonNumber);
+                    if (episodes == null) {
+                        // 与单季度请求 404 时的行为保持一致: 剧集列表为空, 集数为 null
+                        detailCache.put(key, new ArrayList<TmdbEpisodeDTO>());
+                        countCache.put(key, null);
+                        log.debug("季度信息不存在: tvId={}, seasonNumber={}", tvId, seasonNumber);
+                    } else {
+                        detailCache.put(key, episodes);
+                        countCache.put(key, episodes.size());
+                    }
+                }
+
+                log.debug("✅ 批量加载成功: tvId={}, seasons={}", tvId, chunk);
+            } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
+                log.debug("❌ 404: tvId={} (批量加载季度)", tvId);
+                return requestCount;
+            } catch (TmdbUnavailableException | CancellationException e) {
+                // 熔断或取消时直接抛出, 剩余批次不再请求
+                throw e;
+            } catch (Exception e) {
+                log.warn("批量加载季度失败: tvId={}, seasons={}, error={}", tvId, chunk, e.getMessage());
+            }
+        }
+
+        return requestCount;
+    }
+
+    /**
+     * 季度缓存 key, 与 @Cacheable 中的 "#tvId + '-' + #seasonNumber" 一致
+     */
+    private String seasonCacheKey(Long tvId, Integer seasonNumber) {
+        return tvId + "-" + seasonNumber;
+    }
+
     /**
      * 构建 API URL
      */
@@ -270,105 +409,198 @@ public class TmdbService {
     }
 
     /**
-     * 解析电影节点
+     * 发起 GET 请求并直接从响应流解析结果
+     * 响应体不会被整体读入 String
+     *
+     * 容错策略:
+     * - 熔断器打开时直接抛出 TmdbUnavailableException, 不发起请求
+     * - 瞬时错误 (超时、连接失败、5xx、429) 按指数退避 + 全抖动重试, 重试耗尽后抛出 TmdbUnavailableException
+     * - 其他 4xx 错误不重试, 直接抛出
+     *
+     * cassette 回放模式下不访问网络; 录制模式下先读完响应体写入 cassette 再解析
+     *
+     * 每次调用 (含重试) 的耗时按接口记录到 tmdb.request 指标和 JFR 事件
      */
-    private TmdbMovieDTO parseMovieNode(JsonNode node) {
-        String releaseDate = getStringValue(node, "release_date");
-        Integer year = extractYear(releaseDate);
-
-        List<TmdbMovieDTO.Genre> genres = new ArrayList<>();
-        JsonNode genresNode = node.get("genres");
-        if (genresNode != null && genresNode.isArray()) {
-            for (JsonNode genreNode : genresNode) {
-                genres.add(new TmdbMovieDTO.Genre(
-                        genreNode.get("id").asInt(),
-                        genreNode.get("name").asText()
-                ));
+    private <T> T fetch(String url, BodyReader<T> reader) {
+        // url 已由 UriComponentsBuilder 编码, 以 URI 传入避免 RestTemplate 二次编码
+        URI uri = URI.create(url);
+
+        Timer.Sample sample = pipelineMetrics.start();
+        TmdbRequestEvent event = new TmdbRequestEvent();
+        event.begin();
+        String outcome = "error";
+        try {
+            T result = execute(uri, reader);
+            outcome = "success";
+            return result;
+        } catch (HttpClientErrorException.NotFound e) {
+            outcome = "not_found";
+            throw e;
+        } catch (TmdbUnavailableException e) {
+            outcome = "unavailable";
+            throw e;
+        } catch (CancellationException e) {
+            outcome = "cancelled";
+            throw e;
+        } finally {
+            String endpoint = endpointOf(uri);
+            pipelineMetrics.recordTmdbRequest(sample, endpoint, outcome);
+            if (event.shouldCommit()) {
+                // 只记录路径, 查询参数中含 api_key
+                event.path = uri.getPath();
+                event.endpoint = endpoint;
+                event.outcome = outcome;
+                event.commit();
             }
         }
-
-        return TmdbMovieDTO.builder()
-                .id(getLongValue(node, "id"))
-                .title(getStringValue(node, "title"))
-                .originalTitle(getStringValue(node, "original_title"))
-                .releaseDate(releaseDate)
-                .year(year)
-                .overview(getStringValue(node, "overview"))
-                .posterPath(getStringValue(node, "poster_path"))
-                .backdropPath(getStringValue(node, "backdrop_path"))
-                .voteAverage(getDoubleValue(node, "vote_average"))
-                .voteCount(getIntValue(node, "vote_count"))
-                .genres(genres)
-                .build();
     }
 
     /**
-     * 解析电视剧节点
+     * 指标用的接口名: 去掉 API 前缀, 数字段替换为 {id}, 如 /tv/{id}/season/{id}
      */
-    private TmdbTvShowDTO parseTvShowNode(JsonNode node) {
-        String firstAirDate = getStringValue(node, "first_air_date");
-        Integer year = extractYear(firstAirDate);
-
-        List<TmdbMovieDTO.Genre> genres = new ArrayList<>();
-        JsonNode genresNode = node.get("genres");
-        if (genresNode != null && genresNode.isArray()) {
-            for (JsonNode genreNode : genresNode) {
-                genres.add(new TmdbMovieDTO.Genre(
-                        genreNode.get("id").asInt(),
-                        genreNode.get("name").asText()
-                ));
+    private String endpointOf(URI uri) {
+        String path = uri.getPath();
+        String basePath = URI.create(tmdbProperties.getApiUrl()).getPath();
+        if (basePath != null && !basePath.isEmpty() && path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        return NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    private <T> T execute(URI uri, BodyReader<T> reader) {
+        if (cassette.isReplaying()) {
+            try (InputStream body = cassette.replay(uri)) {
+                return reader.read(body);
+            } catch (InterruptedIOException e) {
+                throw new CancellationException("TMDB 请求已取消");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
 
-        return TmdbTvShowDTO.builder()
-                .id(getLongValue(node, "id"))
-                .name(getStringValue(node, "name"))
-                .originalName(getStringValue(node, "original_name"))
-                .firstAirDate(firstAirDate)
-                .year(year)
-                .overview(getStringValue(node, "overview"))
-                .posterPath(getStringValue(node, "poster_path"))
-                .backdropPath(getStringValue(node, "backdrop_path"))
-                .voteAverage(getDoubleValue(node, "vote_average"))
-                .voteCount(getIntValue(node, "vote_count"))
-                .genres(genres)
-                .numberOfSeasons(getIntValue(node, "number_of_seasons"))
-                .numberOfEpisodes(getIntValue(node, "number_of_episodes"))
-                .build();
-    }
+        boolean recording = cassette.isRecording();
+        // 本次尝试的开始时间 (录制响应耗时用)
+        long[] attemptStart = new long[1];
+        ResponseExtractor<T> extractor = response -> {
+            try (InputStream body = response.getBody()) {
+                if (!recording) {
+                    return reader.read(body);
+                }
+                byte[] bytes = body.readAllBytes();
+                cassette.record(uri, bytes, Duration.ofNanos(System.nanoTime() - attemptStart[0]));
+                return reader.read(new ByteArrayInputStream(bytes));
+            }
+        };
 
-    /**
-     * 从日期字符串提取年份
-     */
-    private Integer extractYear(String dateStr) {
-        if (dateStr != null && dateStr.length() >= 4) {
+        TmdbProperties.Resilience resilience = tmdbProperties.getResilience();
+        int attempt = 0;
+        while (true) {
+            attempt++;
             try {
-                return Integer.parseInt(dateStr.substring(0, 4));
-            } catch (NumberFormatException e) {
-                log.warn("无法解析年份: {}", dateStr);
+                rateLimiter.acquire();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw cancelled();
+            }
+            // 先拿到限流令牌再申请熔断放行, 半开状态下的探测请求不会卡在限流等待中被取消
+            if (attempt == 1 && !circuitBreaker.allowRequest()) {
+                throw new TmdbUnavailableException("TMDB 暂不可用 (熔断中), 已跳过请求");
+            }
+            attemptStart[0] = System.nanoTime();
+            try {
+                T result = restTemplate.execute(uri, HttpMethod.GET, null, extractor);
+                circuitBreaker.recordSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // 调用方取消 (如推测查询已有结果), 不计入熔断也不重试
+                    throw cancelled();
+                }
+                if (!isTransientError(e)) {
+                    // 非瞬时错误 (如 404) 说明 TMDB 可达
+                    circuitBreaker.recordSuccess();
+                    if (recording && e instanceof HttpClientErrorException.NotFound) {
+                        cassette.recordNotFound(uri, Duration.ofNanos(System.nanoTime() - attemptStart[0]));
+                    }
+                    throw e;
+                }
+
+                circuitBreaker.recordFailure();
+                if (attempt >= resilience.getMaxAttempts() || circuitBreaker.isOpen()) {
+                    // 重试耗尽: 与熔断同样视为 TMDB 暂不可用, 调用方据此记录被跳过的搜索词
+                    log.warn("TMDB 请求失败, 已重试 {} 次: {}", attempt, e.getMessage());
+                    throw new TmdbUnavailableException("TMDB 暂不可用 (已重试 " + attempt + " 次): " + e.getMessage(), e);
+                }
+
+                long backoff = backoffMillis(attempt, resilience);
+                log.debug("TMDB 请求瞬时失败, {}ms 后重试 (第 {} 次): {}", backoff, attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    // 与其他取消路径一致, 调用方不会把被取消的搜索词写入失败缓存
+                    Thread.currentThread().interrupt();
+                    throw cancelled();
+                }
             }
         }
-        return null;
     }
 
-    private String getStringValue(JsonNode node, String field) {
-        JsonNode fieldNode = node.get(field);
-        return fieldNode != null && !fieldNode.isNull() ? fieldNode.asText() : null;
+    /**
+     * 请求被取消: 释放可能持有的半开探测名额, 否则熔断器会一直停在半开状态
+     */
+    private CancellationException cancelled() {
+        circuitBreaker.releaseProbe();
+        return new CancellationException("TMDB 请求已取消");
     }
 
-    private Long getLongValue(JsonNode node, String field) {
-        JsonNode fieldNode = node.get(field);
-        return fieldNode != null && !fieldNode.isNull() ? fieldNode.asLong() : null;
+    /**
+     * 判断是否为瞬时错误 (值得重试且计入熔断)
+     */
+    private boolean isTransientError(RuntimeException e) {
+        return e instanceof ResourceAccessException
+                || e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests;
     }
 
-    private Integer getIntValue(JsonNode node, String field) {
-        JsonNode fieldNode = node.get(field);
-        return fieldNode != null && !fieldNode.isNull() ? fieldNode.asInt() : null;
+    /**
+     * 计算退避时间: 指数退避 + 全抖动 (random(0, min(max, base * 2^(attempt-1))))
+     */
+    private long backoffMillis(int attempt, TmdbProperties.Resilience resilience) {
+        long ceiling = Math.min(resilience.getMaxBackoffMs(),
+                resilience.getInitialBackoffMs() << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
     }
 
-    private Double getDoubleValue(JsonNode node, String field) {
-        JsonNode fieldNode = node.get(field);
-        return fieldNode != null && !fieldNode.isNull() ? fieldNode.asDouble() : null;
+    /**
+     * 检查该搜索词最近是否失败过 (失败缓存, 短 TTL)
+     * 命中时快速失败, 避免同一批次内反复等待超时
+     */
+    private void checkRecentFailure(String failureKey) {
+        Cache failureCache = cacheManager.getCache("searchFailures");
+        Cache.ValueWrapper cached = failureCache != null ? failureCache.get(failureKey) : null;
+        if (cached != null) {
+            throw new TmdbUnavailableException("最近搜索失败, 暂不重试: " + cached.get());
+        }
+    }
+
+    /**
+     * 记录搜索失败 (仅瞬时错误, 如超时或 5xx)
+     */
+    private void rememberFailure(String failureKey, Throwable e) {
+        if (e instanceof RuntimeException re && isTransientError(re)) {
+            Cache failureCache = cacheManager.getCache("searchFailures");
+            if (failureCache != null) {
+                failureCache.put(failureKey, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 响应体解析函数
+     */
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
     }
 
 }
@@ -0,0 +1,19 @@
+package com.mediarenamer.service;
+
+/**
+ * TMDB 暂不可用异常
+ *
+ * 熔断器打开或命中失败缓存时抛出, 表示请求未发往 TMDB 而是被快速拒绝;
+ * 瞬时错误重试耗尽时也抛出 (cause 为最后一次失败)
+ * 调用方可据此跳过后续重试, 并记录被跳过的搜索词
+ */
+public class TmdbUnavailableException extends RuntimeException {
+
+    public TmdbUnavailableException(String message) {
+        super(message);
+    }
+
+    public TmdbUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,257 @@
+package com.mediarenamer.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的命名模板
+ * 模板字符串只解析一次, 得到字面量和占位符操作列表; 每个文件用一个 StringBuilder 顺序渲染
+ *
+ * 语法:
+ * - {name}          占位符, 值为空时输出空
+ * - {name:02d}      数字补零到指定宽度 (S{season:02d} -> S01)
+ * - {name|默认值}    值为空时输出默认值 ({resolution|1080p})
+ * - [ - {title}]    条件段: 段内任一占位符为空时整段省略
+ * - \{ \} \[ \] \\  转义为字面量
+ *
+ * 占位符的值在渲染时去掉文件名非法字符 (\ / : * ? " < > |), 模板中的 / 仍作为目录分隔符
+ */
+public final class NamingTemplate {
+
+    /** 文件名非法字符 */
+    private static final String ILLEGAL_CHARS = "\\/:*?\"<>|";
+
+    private sealed interface Op permits Literal, Placeholder, Conditional {}
+
+    private record Literal(String text) implements Op {}
+
+    private record Placeholder(String name, int width, String fallback) implements Op {}
+
+    private record Conditional(List<Op> ops) implements Op {}
+
+    private final String source;
+    private final List<Op> ops;
+    private final Set<String> placeholders;
+
+    private NamingTemplate(String source, List<Op> ops, Set<String> placeholders) {
+        this.source = source;
+        this.ops = ops;
+        this.placeholders = Collections.unmodifiableSet(placeholders);
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template 模板字符串
+     * @return 编译后的模板
+     * @throws IllegalArgumentException 模板格式错误 (括号未闭合、占位符为空、格式无法识别)
+     */
+    public static NamingTemplate compile(String template) {
+        if (template == null || template.isBlank()) {
+            throw new IllegalArgumentException("模板不能为空");
+        }
+        Set<String> placeholders = new LinkedHashSet<>();
+        int[] pos = {0};
+        List<Op> ops = parse(template, pos, false, placeholders);
+        return new NamingTemplate(template, ops, placeholders);
+    }
+
+    /**
+     * 模板原文
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 是否引用了某个占位符 (用于跳过不需要的取值, 例如剧集标题需要查询 TMDB)
+     */
+    public boolean uses(String name) {
+        return placeholders.contains(name);
+    }
+
+    /**
+     * 引用的全部占位符
+     */
+    public Set<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * 渲染
+     *
+     * @param values 占位符的值 (null 或空字符串视为空; 数字可补零)
+     * @return 渲染结果
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(source.length() + 32);
+        renderOps(ops, values, out);
+        return out.toString();
+    }
+
+    private static void renderOps(List<Op> ops, Map<String, ?> values, StringBuilder out) {
+        for (Op op : ops) {
+            switch (op) {
+                case Literal literal -> out.append(literal.text());
+                case Placeholder placeholder -> appendValue(placeholder, values.get(placeholder.name()), out);
+                case Conditional conditional -> {
+                    if (allPresent(conditional.ops(), values)) {
+                        renderOps(conditional.ops(), values, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean allPresent(List<Op> ops, Map<String, ?> values) {
+        for (Op op : ops) {
+            if (op instanceof Placeholder placeholder && isEmpty(values.get(placeholder.name()))
+                    && placeholder.fallback() == null) {
+                return false;
+            }
+            if (op instanceof Conditional conditional && !allPresent(conditional.ops(), values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendValue(Placeholder placeholder, Object value, StringBuilder out) {
+        if (isEmpty(value)) {
+            if (placeholder.fallback() != null) {
+                out.append(placeholder.fallback());
+            }
+            return;
+        }
+        if (placeholder.width() > 0 && value instanceof Number number) {
+            String digits = Long.toString(Math.abs(number.longValue()));
+            if (number.longValue() < 0) {
+                out.append('-');
+            }
+            for (int i = digits.length(); i < placeholder.width(); i++) {
+                out.append('0');
+            }
+            out.append(digits);
+            return;
+        }
+        appendSanitized(value.toString(), out);
+    }
+
+    /**
+     * 去掉文件名非法字符后追加
+     */
+    private static void appendSanitized(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (ILLEGAL_CHARS.indexOf(c) < 0) {
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * 清理文件名中的非法字符
+     */
+    public static String sanitize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        appendSanitized(value, out);
+        return out.toString();
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || (value instanceof CharSequence text && text.isEmpty());
+    }
+
+    private static List<Op> parse(String template, int[] pos, boolean inConditional, Set<String> placeholders) {
+        List<Op> ops = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        while (pos[0] < template.length()) {
+            char c = template.charAt(pos[0]);
+            if (c == '\\' && pos[0] + 1 < template.length()) {
+                literal.append(template.charAt(pos[0] + 1));
+                pos[0] += 2;
+            } else if (c == '{') {
+                flush(literal, ops);
+                ops.add(parsePlaceholder(template, pos, placeholders));
+            } else if (c == '[') {
+                flush(literal, ops);
+                pos[0]++;
+                ops.add(new Conditional(parse(template, pos, true, placeholders)));
+            } else if (c == ']' && inConditional) {
+                pos[0]++;
+                flush(literal, ops);
+                return List.copyOf(ops);
+            } else if (c == '}' || c == ']') {
+                throw new IllegalArgumentException("模板格式错误: 位置 " + pos[0] + " 的 " + c + " 没有对应的左括号");
+            } else {
+                literal.append(c);
+                pos[0]++;
+            }
+        }
+        if (inConditional) {
+            throw new IllegalArgumentException("模板格式错误: 条件段 [ 未闭合");
+        }
+        flush(literal, ops);
+        return List.copyOf(ops);
+    }
+
+    private static Op parsePlaceholder(String template, int[] pos, Set<String> placeholders) {
+        int start = pos[0];
+        int end = template.indexOf('}', start);
+        if (end < 0) {
+            throw new IllegalArgumentException("模板格式错误: 位置 " + start + " 的 { 未闭合");
+        }
+        String body = template.substring(start + 1, end);
+        pos[0] = end + 1;
+
+        String fallback = null;
+        int bar = body.indexOf('|');
+        if (bar >= 0) {
+            fallback = body.substring(bar + 1);
+            body = body.substring(0, bar);
+        }
+        int width = 0;
+        int colon = body.indexOf(':');
+        if (colon >= 0) {
+            width = parseWidth(body.substring(colon + 1), template);
+            body = body.substring(0, colon);
+        }
+        String name = body.trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("模板格式错误: 位置 " + start + " 的占位符为空");
+        }
+        placeholders.add(name);
+        return new Placeholder(name, width, fallback);
+    }
+
+    /**
+     * 补零格式: 02d / 02 / 3
+     */
+    private static int parseWidth(String format, String template) {
+        String digits = format.endsWith("d") ? format.substring(0, format.length() - 1) : format;
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("模板格式错误: 无法识别的格式 :" + format + " (" + template + ")");
+        }
+    }
+
+    private static void flush(StringBuilder literal, List<Op> ops) {
+        if (!literal.isEmpty()) {
+            ops.add(new Literal(literal.toString()));
+            literal.setLength(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
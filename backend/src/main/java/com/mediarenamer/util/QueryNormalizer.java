@@ -0,0 +1,108 @@
+package com.mediarenamer.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 搜索词归一化工具
+ * 用于生成 TMDB 搜索的缓存 key 和实际查询词, 让写法不同的同一标题共享一次搜索
+ *
+ * 处理规则 (按顺序):
+ * - Unicode NFKC: 全角字母数字、兼容字符转为半角标准形式
+ * - 大小写折叠: Breaking Bad -> breaking bad
+ * - 繁体转简体: 绝命毒师 / 絕命毒師 共用同一个 key
+ * - 分隔符合并: Breaking.Bad, Breaking_Bad, "breaking  bad " -> breaking bad
+ *
+ * 繁简映射只覆盖影视标题中的常用字, 不是完整的 OpenCC 词典
+ */
+public class QueryNormalizer {
+
+    /** 分隔符: 空白、点、下划线、连字符 */
+    private static final String SEPARATORS = " \t\n\r.\u3000_-";
+
+    /** 繁体字 (与 SIMPLIFIED 按位置一一对应) */
+    private static final String TRADITIONAL =
+            "與專業東絲兩嚴個豐臨為麗舉義烏樂喬習鄉書買亂爭虧雲亞產親億僅從倉儀們價眾優夥會傘" +
+            "偉傳傷倫偽體餘傭俠侶偵側僑倆儉債傾償儲兒兌黨蘭關興養獸內岡冊寫軍農馮衝決況凍淨涼" +
+            "減湊幾鳳憑凱擊劃劉則剛創刪別劑劍劇勸辦務動勵勁勞勢勻匯區醫華協單賣盧衛卻廠廳曆厲" +
+            "壓厭廁縣參雙發變敘疊葉號嘆嚇呂嗎啟吳員聽嗚響啞問園圍國圖圓聖場壞塊堅壇墳墜塵壯聲" +
+            "殼壺處備復夠頭夾奪奮獎婦媽嬌孫學寧寶實審憲寬賓寢對尋導將爾嘗堯屍盡層屬屢歲島峽嶺" +
+            "嶽幣帥師帳帶幫幹廣莊慶廬庫應廟廢開異棄張彈強歸當錄徹徑後憶懷態戀惡惱悅懸驚慘懼懶" +
+            "戰戲戶撲執擴掃揚擾撫搶護報擔擬擁攔撥擇掛撈損撿換據擺攜攝擠敵數齋斬斷無舊時曉暫曬" +
+            "術機殺雜權條來楊極構槍楓櫃檢樓標樣橋檔夢欄殘氣漢湯溝沒淚澤潔灑濃濤滅燈災爐點煉爛" +
+            "煩熱愛爺牆狀猶獅獨獄貓獵獻瑪環現畫暢療瘋盞監盤礦碼確禮禍離種稱穩窮竊豎競筆節範築" +
+            "簡籃糧緊紅約級紀紋納紐純紙線練組細終經結給絕統綁維綜綠緣編緩織繼續罰羅聯職聰肅腦" +
+            "腳臉膽艦艱藝蘇蘋萬藥蟲蝦蠶補裝襲見規視覺覽觀計訂認討讓訓議記講許論設訪證評識詞試" +
+            "詩話誕詳語誤說誰課調談請諸謀謎謝謠譜讀豬貝負財責賢敗貨質貴費資賊賭賞賴贏趙趕躍車" +
+            "軌輕載較輝輪輸轉辭邊遼達遷過運還這進遠違連遲適選遺鄧鄭醜釋裡鑒針鐘鋼錢鐵銀鋒錯鍵" +
+            "鏡長門閃閉閒間閣闊隊陽陰陣階際陸險隨隱難雞電霧靈靜韓頁頂項順須預領頻題額顏願類顧" +
+            "風飛飯飲餓館馬駕騎驗騙髮鬥鬧魚鮮鳥鴨鷹麥黃齊齒龍龜隻蓋謊賽週諜殭龐驅嶼壽憂湧錦繡" +
+            "緝鎮驛紳滬廈僕瀾灣礙迴畢廚飾歷聞濟顯虛穌漁獲盜奧陳蕭蘆貞嬰殤燼聶騰軟駭鴻鶴鳴鵬麼" +
+            "紛縱繩纏綺總誠諾譯贊軒邁鄰醬釘鎖鏈閱闖陝雖韋頌頓頸顛颱飄餅騷鬱鯨鹽麵黴鼴龕辯辮瓊" +
+            "璽甕癢皺睏矇礎禪稅穀窩筍箏簽籠粵糾紗紡絨綱網緒締縫遊";
+
+    /** 简体字 */
+    private static final String SIMPLIFIED =
+            "与专业东丝两严个丰临为丽举义乌乐乔习乡书买乱争亏云亚产亲亿仅从仓仪们价众优伙会伞" +
+            "伟传伤伦伪体余佣侠侣侦侧侨俩俭债倾偿储儿兑党兰关兴养兽内冈册写军农冯冲决况冻净凉" +
+            "减凑几凤凭凯击划刘则刚创删别剂剑剧劝办务动励劲劳势匀汇区医华协单卖卢卫却厂厅历厉" +
+            "压厌厕县参双发变叙叠叶号叹吓吕吗启吴员听呜响哑问园围国图圆圣场坏块坚坛坟坠尘壮声" +
+            "壳壶处备复够头夹夺奋奖妇妈娇孙学宁宝实审宪宽宾寝对寻导将尔尝尧尸尽层属屡岁岛峡岭" +
+            "岳币帅师帐带帮干广庄庆庐库应庙废开异弃张弹强归当录彻径后忆怀态恋恶恼悦悬惊惨惧懒" +
+            "战戏户扑执扩扫扬扰抚抢护报担拟拥拦拨择挂捞损捡换据摆携摄挤敌数斋斩断无旧时晓暂晒" +
+            "术机杀杂权条来杨极构枪枫柜检楼标样桥档梦栏残气汉汤沟没泪泽洁洒浓涛灭灯灾炉点炼烂" +
+            "烦热爱爷墙状犹狮独狱猫猎献玛环现画畅疗疯盏监盘矿码确礼祸离种称稳穷窃竖竞笔节范筑" +
+            "简篮粮紧红约级纪纹纳纽纯纸线练组细终经结给绝统绑维综绿缘编缓织继续罚罗联职聪肃脑" +
+            "脚脸胆舰艰艺苏苹万药虫虾蚕补装袭见规视觉览观计订认讨让训议记讲许论设访证评识词试" +
+            "诗话诞详语误说谁课调谈请诸谋谜谢谣谱读猪贝负财责贤败货质贵费资贼赌赏赖赢赵赶跃车" +
+            "轨轻载较辉轮输转辞边辽达迁过运还这进远违连迟适选遗邓郑丑释里鉴针钟钢钱铁银锋错键" +
+            "镜长门闪闭闲间阁阔队阳阴阵阶际陆险随隐难鸡电雾灵静韩页顶项顺须预领频题额颜愿类顾" +
+            "风飞饭饮饿馆马驾骑验骗发斗闹鱼鲜鸟鸭鹰麦黄齐齿龙龟只盖谎赛周谍僵庞驱屿寿忧涌锦绣" +
+            "缉镇驿绅沪厦仆澜湾碍回毕厨饰历闻济显虚稣渔获盗奥陈萧芦贞婴殇烬聂腾软骇鸿鹤鸣鹏么" +
+            "纷纵绳缠绮总诚诺译赞轩迈邻酱钉锁链阅闯陕虽韦颂顿颈颠台飘饼骚郁鲸盐面霉鼹龛辩辫琼" +
+            "玺瓮痒皱困蒙础禅税谷窝笋筝签笼粤纠纱纺绒纲网绪缔缝游";
+
+    private static final char[] TO_SIMPLIFIED = new char[Character.MAX_VALUE + 1];
+
+    static {
+        for (int i = 0; i < TRADITIONAL.length(); i++) {
+            TO_SIMPLIFIED[TRADITIONAL.charAt(i)] = SIMPLIFIED.charAt(i);
+        }
+    }
+
+    private QueryNormalizer() {
+    }
+
+    /**
+     * 归一化搜索词
+     *
+     * @param query 原始搜索词
+     * @return 归一化后的搜索词, null 时返回 null
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return null;
+        }
+
+        String folded = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(folded.length());
+        boolean pendingSeparator = false;
+
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (SEPARATORS.indexOf(c) >= 0) {
+                pendingSeparator = builder.length() > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                builder.append(' ');
+                pendingSeparator = false;
+            }
+            char simplified = TO_SIMPLIFIED[c];
+            builder.append(simplified != 0 ? simplified : c);
+        }
+
+        // 全是分隔符时保留原词, 避免产生空查询
+        return builder.length() > 0 ? builder.toString() : query;
+    }
+}
@@ -0,0 +1,138 @@
+package com.mediarenamer.util;
+
+/**
+ * 标题相似度计算
+ *
+ * - Jaro-Winkler: 对前缀相同、短标题更敏感
+ * - Levenshtein: 编辑距离归一化为 0~1 相似度
+ *
+ * 直接在码点数组上计算 (中文、全角字符按一个字符计), 调用方可对同一查询词复用码点数组,
+ * 单次比较只分配与标题等长的临时数组
+ */
+public class TitleSimilarity {
+
+    /** Jaro-Winkler 前缀加权系数 */
+    private static final double PREFIX_SCALE = 0.1;
+
+    /** Jaro-Winkler 最多计算的公共前缀长度 */
+    private static final int MAX_PREFIX = 4;
+
+    private TitleSimilarity() {
+    }
+
+    /**
+     * 转为码点数组
+     */
+    public static int[] codePoints(String text) {
+        return text == null ? new int[0] : text.codePoints().toArray();
+    }
+
+    /**
+     * 综合相似度: Jaro-Winkler 与 Levenshtein 相似度的平均值
+     *
+     * @return 0~1, 完全相同为 1
+     */
+    public static double similarity(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a.length == b.length ? 1.0 : 0.0;
+        }
+        return (jaroWinkler(a, b) + levenshteinSimilarity(a, b)) / 2;
+    }
+
+    /**
+     * Jaro-Winkler 相似度
+     */
+    public static double jaroWinkler(int[] a, int[] b) {
+        if (a.length == 0 && b.length == 0) {
+            return 1.0;
+        }
+        if (a.length == 0 || b.length == 0) {
+            return 0.0;
+        }
+
+        int window = Math.max(0, Math.max(a.length, b.length) / 2 - 1);
+        boolean[] matchedA = new boolean[a.length];
+        boolean[] matchedB = new boolean[b.length];
+
+        int matches = 0;
+        for (int i = 0; i < a.length; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(b.length - 1, i + window);
+            for (int j = from; j <= to; j++) {
+                if (!matchedB[j] && a[i] == b[j]) {
+                    matchedA[i] = true;
+                    matchedB[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+
+        // 顺序不同的匹配字符数 (换位数 * 2)
+        int outOfOrder = 0;
+        int j = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (!matchedA[i]) {
+                continue;
+            }
+            while (!matchedB[j]) {
+                j++;
+            }
+            if (a[i] != b[j]) {
+                outOfOrder++;
+            }
+            j++;
+        }
+
+        double m = matches;
+        double jaro = (m / a.length + m / b.length + (m - outOfOrder / 2.0) / m) / 3;
+
+        int prefix = 0;
+        int maxPrefix = Math.min(MAX_PREFIX, Math.min(a.length, b.length));
+        while (prefix < maxPrefix && a[prefix] == b[prefix]) {
+            prefix++;
+        }
+        return jaro + prefix * PREFIX_SCALE * (1 - jaro);
+    }
+
+    /**
+     * Levenshtein 相似度: 1 - 编辑距离 / 较长标题长度
+     */
+    public static double levenshteinSimilarity(int[] a, int[] b) {
+        int longer = Math.max(a.length, b.length);
+        if (longer == 0) {
+            return 1.0;
+        }
+        return 1.0 - (double) levenshtein(a, b) / longer;
+    }
+
+    /**
+     * Levenshtein 编辑距离 (两行滚动数组)
+     */
+    public static int levenshtein(int[] a, int[] b) {
+        if (a.length < b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length; j++) {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length];
+    }
+}
@@ -0,0 +1,166 @@
+package com.mediarenamer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediarenamer.config.TmdbProperties;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.service.BatchProcessService;
+import com.mediarenamer.support.FakeTmdbServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.mediarenamer.support.TestVideoFiles.tvFile;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * BatchController 流式匹配测试 (基于本地 TMDB 替身服务器)
+ *
+ * 测试：
+ * - 事件顺序: 每个分组一个 group 事件, 最后一个 summary 事件 (completed=true)
+ * - 匹配超时: 已完成的分组照常推送, summary 中 completed=false
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class BatchControllerStreamTest {
+
+    private static final FakeTmdbServer FAKE_TMDB = FakeTmdbServer.startNew();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BatchProcessService batchProcessService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TmdbProperties tmdbProperties;
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("tmdb.api-url", FAKE_TMDB::getApiUrl);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        FAKE_TMDB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        FAKE_TMDB.resetStats();
+        FAKE_TMDB.setUnknownQueries();
+        FAKE_TMDB.setLatencyMs(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        FAKE_TMDB.setLatencyMs(0);
+        tmdbProperties.getMatching().setTimeoutMs(300000);
+    }
+
+    @Test
+    void testMatchStream_分组后发送摘要() throws Exception {
+        List<Event> events = stream(List.of(
+                tvFile("Breaking Bad", "Season 1", "Downloads"),
+                tvFile("Breaking.Bad", "Season 1", "Downloads"),
+                tvFile("Good Show", "Season 1", "Downloads")));
+
+        assertEquals(List.of("group", "group", "summary"), events.stream().map(Event::name).toList());
+        assertEquals(3, events.get(0).data().size() + events.get(1).data().size());
+        JsonNode summary = events.getLast().data();
+        assertTrue(summary.get("completed").asBoolean());
+        assertEquals(3, summary.get("matched").asInt());
+    }
+
+    @Test
+    void testMatchStream_超时后摘要未完成() throws Exception {
+        // 先匹配一次写入缓存, 流式匹配时该分组立即完成
+        batchProcessService.batchMatchMedia(List.of(tvFile("Breaking Bad", "Season 1", "Downloads")));
+        FAKE_TMDB.setLatencyMs(2000);
+        tmdbProperties.getMatching().setTimeoutMs(300);
+
+        List<Event> events = stream(List.of(
+                tvFile("Breaking Bad", "Season 1", "Downloads"),
+                tvFile("Good Show", "Season 1", "Downloads")));
+
+        assertEquals(List.of("group", "summary"), events.stream().map(Event::name).toList());
+        assertEquals("Breaking Bad", events.getFirst().data().get(0).get("matchedInfo").get("name").asText());
+        JsonNode summary = events.getLast().data();
+        assertFalse(summary.get("completed").asBoolean());
+        assertEquals(1, summary.get("matched").asInt());
+        assertTrue(summary.get("message").asText().contains("超时"));
+    }
+
+    private List<Event> stream(List<VideoFileDTO> files) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/batch/match/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("videoFiles", files))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // 等待完整的摘要事件 (连接在发送摘要后结束); event 行与 data 行分开写出, 以空行作为事件结束
+        MockHttpServletResponse response = result.getResponse();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!hasCompleteSummary(response.getContentAsString(StandardCharsets.UTF_8))) {
+            assertTrue(System.currentTimeMillis() < deadline, "未收到 summary 事件");
+            Thread.sleep(20);
+        }
+        return parse(response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    private boolean hasCompleteSummary(String body) {
+        int start = body.indexOf("event:summary");
+        return start >= 0 && body.indexOf("\n\n", start) >= 0;
+    }
+
+    private List<Event> parse(String body) throws IOException {
+        List<Event> events = new ArrayList<>();
+        for (String block : body.split("\n\n")) {
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            for (String line : block.split("\n")) {
+                if (line.startsWith("event:")) {
+                    name = line.substring("event:".length());
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring("data:".length()));
+                }
+            }
+            if (name != null) {
+                events.add(new Event(name, objectMapper.readTree(data.toString())));
+            }
+        }
+        return events;
+    }
+
+    private record Event(String name, JsonNode data) {}
+}
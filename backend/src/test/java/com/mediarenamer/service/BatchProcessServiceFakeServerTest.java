@@ -0,0 +1,197 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.support.FakeTmdbServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.GZIPOutputStream;
+
+import static com.mediarenamer.support.TestVideoFiles.movieFile;
+import static com.mediarenamer.support.TestVideoFiles.tvFile;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BatchProcessService 集成测试 (基于本地 TMDB 替身服务器)
+ *
+ * 测试：
+ * - 电视剧级联匹配: 文件名 -> 祖父目录 -> 父目录 (结果带候选得分)
+ * - 祖父目录匹配成功的文件不再搜索父目录
+ * - 多个分组回退到同一目录时只搜索一次
+ * - 推测模式: 并发查询全部变体, 按优先级取结果, 约一次往返
+ * - 分组完成回调: 每组回调一次, 回调时已写入匹配结果
+ * - 离线索引: 未解析出年份时要求更高的相似度
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class BatchProcessServiceFakeServerTest {
+
+    private static final FakeTmdbServer FAKE_TMDB = FakeTmdbServer.startNew();
+
+    @Autowired
+    private BatchProcessService batchProcessService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TmdbProperties tmdbProperties;
+
+    @Autowired
+    private OfflineTitleIndex offlineTitleIndex;
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("tmdb.api-url", FAKE_TMDB::getApiUrl);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        FAKE_TMDB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        FAKE_TMDB.resetStats();
+        FAKE_TMDB.setUnknownQueries();
+        FAKE_TMDB.setLatencyMs(0);
+        tmdbProperties.getMatching().setSpeculative(false);
+        tmdbProperties.getOfflineIndex().setEnabled(false);
+    }
+
+    @Test
+    void testBatchMatchMedia_级联回退() {
+        FAKE_TMDB.setUnknownQueries("ep01", "ep02", "rip");
+        VideoFileDTO byFileName = tvFile("Breaking Bad", "Season 1", "Downloads");
+        VideoFileDTO byGrandParent1 = tvFile("EP01", "Season 1", "Good Show");
+        VideoFileDTO byGrandParent2 = tvFile("EP02", "Season 1", "Good Show");
+        VideoFileDTO byParent = tvFile("rip", "Other Show", null);
+
+        batchProcessService.batchMatchMedia(List.of(byFileName, byGrandParent1, byGrandParent2, byParent));
+
+        assertEquals("Breaking Bad", matchedName(byFileName));
+        assertEquals("Good Show", matchedName(byGrandParent1));
+        assertEquals("Good Show", matchedName(byGrandParent2));
+        assertEquals("Other Show", matchedName(byParent));
+
+        // 候选按得分排序: 与查询词同名的结果排在干扰项 "... Reloaded" 前面
+        assertEquals(2, byFileName.getMatchCandidates().size());
+        assertEquals(byFileName.getMatchScore(), byFileName.getMatchCandidates().getFirst().getScore());
+        assertTrue(byFileName.getMatchScore() > byFileName.getMatchCandidates().get(1).getScore());
+
+        // 文件名 4 次 + 祖父目录 1 次 (两个分组共享) + 父目录 1 次; 不搜索 "Season 1"
+        assertEquals(6, FAKE_TMDB.getRequestCount("search/tv"));
+    }
+
+    @Test
+    void testBatchMatchMedia_全部未匹配() {
+        FAKE_TMDB.setUnknownQueries("ep01", "season 1", "nothing");
+        VideoFileDTO file = tvFile("EP01", "Season 1", "Nothing");
+
+        batchProcessService.batchMatchMedia(List.of(file));
+
+        assertNull(file.getMatchedInfo());
+        assertNull(file.getMatchSkippedReason());
+        assertEquals(3, FAKE_TMDB.getRequestCount("search/tv"));
+    }
+
+    @Test
+    void testBatchMatchMedia_推测模式按优先级取结果() {
+        tmdbProperties.getMatching().setSpeculative(true);
+        FAKE_TMDB.setUnknownQueries("ep01", "good show");
+        VideoFileDTO byFileName = tvFile("Breaking Bad", "Season 1", "Downloads");
+        VideoFileDTO byParent = tvFile("EP01", "Other Show", "Good Show");
+
+        batchProcessService.batchMatchMedia(List.of(byFileName, byParent));
+
+        // 目录变体也有结果, 但文件名优先级更高
+        assertEquals("Breaking Bad", matchedName(byFileName));
+        assertEquals("Other Show", matchedName(byParent));
+    }
+
+    @Test
+    void testBatchMatchMedia_推测模式一次往返() {
+        tmdbProperties.getMatching().setSpeculative(true);
+        FAKE_TMDB.setUnknownQueries("ep01", "good show");
+        FAKE_TMDB.setLatencyMs(400);
+        VideoFileDTO file = tvFile("EP01", "Other Show", "Good Show");
+
+        long start = System.currentTimeMillis();
+        batchProcessService.batchMatchMedia(List.of(file));
+        long elapsed = System.currentTimeMillis() - start;
+
+        // 级联模式需要 3 次串行往返 (>= 1200ms)
+        assertEquals("Other Show", matchedName(file));
+        assertTrue(elapsed < 1000, "耗时 " + elapsed + "ms");
+    }
+
+    @Test
+    void testBatchMatchMedia_分组完成回调() {
+        FAKE_TMDB.setUnknownQueries("ep01", "ep02");
+        VideoFileDTO episode1 = tvFile("Breaking Bad", "Season 1", "Downloads");
+        VideoFileDTO episode2 = tvFile("Breaking.Bad", "Season 1", "Downloads");
+        VideoFileDTO byGrandParent1 = tvFile("EP01", "Season 1", "Good Show");
+        VideoFileDTO byGrandParent2 = tvFile("EP02", "Season 1", "Good Show");
+        List<VideoFileDTO> files = List.of(episode1, episode2, byGrandParent1, byGrandParent2);
+
+        Queue<List<VideoFileDTO>> groups = new ConcurrentLinkedQueue<>();
+        Queue<VideoFileDTO> matchedWhenResolved = new ConcurrentLinkedQueue<>();
+        batchProcessService.batchMatchMedia(files, group -> {
+            groups.add(List.copyOf(group));
+            group.stream().filter(f -> f.getMatchedInfo() != null).forEach(matchedWhenResolved::add);
+        });
+
+        // 归一化后 "Breaking Bad" 与 "Breaking.Bad" 为同一分组
+        assertEquals(3, groups.size());
+        assertEquals(4, groups.stream().mapToInt(List::size).sum());
+        assertEquals(4, matchedWhenResolved.size());
+    }
+
+    @Test
+    void testBatchMatchMedia_离线索引未解析年份时更严格(@TempDir Path tempDir) throws IOException {
+        Path export = tempDir.resolve("movie_ids_01_01_2026.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(export))) {
+            out.write("{\"id\":604,\"original_title\":\"The Matrix Reloaded\",\"popularity\":50.0}"
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        offlineTitleIndex.importExports(export.toString(), null);
+        tmdbProperties.getOfflineIndex().setEnabled(true);
+
+        // 拼写错误 (相似度约 0.86): 有年份时可用年份校验详情, 直接采用离线候选
+        VideoFileDTO withYear = movieFile("The Matrix Reloadd", 2010);
+        batchProcessService.batchMatchMedia(List.of(withYear));
+        assertEquals(604L, ((TmdbMovieDTO) withYear.getMatchedInfo()).getId());
+        assertEquals(0, FAKE_TMDB.getRequestCount("search/movie"));
+
+        // 没有年份时相似度不够, 改为 TMDB 搜索
+        VideoFileDTO withoutYear = movieFile("The Matrix Reloadd", null);
+        batchProcessService.batchMatchMedia(List.of(withoutYear));
+        assertEquals(1, FAKE_TMDB.getRequestCount("search/movie"));
+    }
+
+    private String matchedName(VideoFileDTO file) {
+        return ((TmdbTvShowDTO) file.getMatchedInfo()).getName();
+    }
+}
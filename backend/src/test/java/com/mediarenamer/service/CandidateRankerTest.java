@@ -0,0 +1,104 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.MatchCandidateDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CandidateRanker 单元测试
+ *
+ * 测试：
+ * - 年份区分同名电影
+ * - 原始标题匹配 (本地化标题不同)
+ * - 同名同年按热度排序
+ * - 候选列表输出
+ * - 大量候选的排序耗时
+ */
+class CandidateRankerTest {
+
+    private final CandidateRanker ranker = new CandidateRanker();
+
+    @Test
+    void testRank_年份区分同名电影() {
+        List<TmdbMovieDTO> candidates = List.of(
+                movie(949L, "Heat", "Heat", 1995, 40.1),
+                movie(32007L, "Heat", "Heat", 1986, 1.2));
+
+        assertEquals(32007L, ranker.rank(candidates, "Heat", 1986).getFirst().candidate().getId());
+        assertEquals(949L, ranker.rank(candidates, "Heat", 1995).getFirst().candidate().getId());
+    }
+
+    @Test
+    void testRank_原始标题匹配() {
+        List<TmdbTvShowDTO> candidates = List.of(
+                tvShow(1L, "Breaking Badly", "Breaking Badly", 2015, 80.0),
+                tvShow(1396L, "绝命毒师", "Breaking Bad", 2008, 60.0));
+
+        List<CandidateRanker.Scored<TmdbTvShowDTO>> ranked = ranker.rank(candidates, "Breaking.Bad", 2008);
+
+        assertEquals(1396L, ranked.getFirst().candidate().getId());
+        assertEquals(1.0, ranked.getFirst().titleScore(), 0.0001);
+        assertTrue(ranked.getFirst().score() > 0.9);
+    }
+
+    @Test
+    void testRank_同名按热度排序() {
+        List<TmdbTvShowDTO> candidates = List.of(
+                tvShow(1L, "The Office", "The Office", null, 5.0),
+                tvShow(2L, "The Office", "The Office", null, 150.0));
+
+        List<CandidateRanker.Scored<TmdbTvShowDTO>> ranked = ranker.rank(candidates, "the office", null);
+
+        assertEquals(2L, ranked.getFirst().candidate().getId());
+        assertEquals(1.0, ranked.getFirst().score(), 0.0001);
+    }
+
+    @Test
+    void testToCandidates_截取前几个() {
+        List<TmdbMovieDTO> candidates = List.of(
+                movie(1L, "Matrix", "The Matrix", 1999, 80.0),
+                movie(2L, "Matrix Reloaded", "The Matrix Reloaded", 2003, 50.0),
+                movie(3L, "Matrix Revolutions", "The Matrix Revolutions", 2003, 40.0));
+
+        List<MatchCandidateDTO> top = ranker.toCandidates(ranker.rank(candidates, "The Matrix", 1999), 2);
+
+        assertEquals(2, top.size());
+        assertEquals(1L, top.getFirst().getTmdbId());
+        assertEquals("The Matrix", top.getFirst().getOriginalTitle());
+        assertTrue(top.get(0).getScore() > top.get(1).getScore());
+        assertTrue(ranker.rank(List.of(), "The Matrix", null).isEmpty());
+    }
+
+    @Test
+    void testRank_大量候选() {
+        List<TmdbMovieDTO> candidates = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            candidates.add(movie((long) i, "Pirates of the Caribbean " + i, "Pirates of the Caribbean " + i,
+                    2000 + i % 20, (double) (i % 100)));
+        }
+
+        long start = System.nanoTime();
+        List<CandidateRanker.Scored<TmdbMovieDTO>> ranked =
+                ranker.rank(candidates, "Pirates of the Caribbean 42", 2002);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(42L, ranked.getFirst().candidate().getId());
+        assertTrue(elapsedMs < 2000, "耗时 " + elapsedMs + "ms");
+    }
+
+    private TmdbMovieDTO movie(Long id, String title, String originalTitle, Integer year, Double popularity) {
+        return TmdbMovieDTO.builder().id(id).title(title).originalTitle(originalTitle)
+                .year(year).popularity(popularity).build();
+    }
+
+    private TmdbTvShowDTO tvShow(Long id, String name, String originalName, Integer year, Double popularity) {
+        return TmdbTvShowDTO.builder().id(id).name(name).originalName(originalName)
+                .year(year).popularity(popularity).build();
+    }
+}
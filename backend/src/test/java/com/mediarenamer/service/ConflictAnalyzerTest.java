@@ -0,0 +1,126 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConflictAnalyzer 测试
+ *
+ * 测试：
+ * - 多个源文件映射到同一目标: 全部标记 DUPLICATE
+ * - 目标之间只有大小写不同: 标记 CASE_ONLY
+ * - 目标文件已存在: OVERWRITE; 已有文件只有大小写不同: CASE_ONLY
+ * - 只改大小写的自身重命名不算冲突
+ * - 无冲突时补全是否需要创建目录, 已失败的预览不参与分析
+ * - 增量分析: 只为指定的预览检查已有文件, 目标之间的冲突仍全部检查
+ */
+class ConflictAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ConflictAnalyzer analyzer = new ConflictAnalyzer();
+
+    @Test
+    void testAnalyze_重复目标() {
+        Path target = tempDir.resolve("library/The Matrix (1999)/The Matrix (1999).mkv");
+        RenamePreviewDTO first = preview(tempDir.resolve("a/matrix.mkv"), target);
+        RenamePreviewDTO second = preview(tempDir.resolve("b/matrix.mkv"), target);
+        RenamePreviewDTO other = preview(tempDir.resolve("c/heat.mkv"), tempDir.resolve("library/Heat (1995).mkv"));
+
+        assertEquals(2, analyzer.analyze(List.of(first, second, other)));
+
+        assertEquals("DUPLICATE", first.getConflict());
+        assertEquals(second.getOldPath(), first.getConflictPath());
+        assertEquals("DUPLICATE", second.getConflict());
+        assertEquals("failed", second.getStatus());
+        assertNull(other.getConflict());
+        assertEquals("pending", other.getStatus());
+    }
+
+    @Test
+    void testAnalyze_目标只有大小写不同() {
+        RenamePreviewDTO upper = preview(tempDir.resolve("a.mkv"), tempDir.resolve("library/Show - S01E01.mkv"));
+        RenamePreviewDTO lower = preview(tempDir.resolve("b.mkv"), tempDir.resolve("library/show - s01e01.mkv"));
+
+        assertEquals(2, analyzer.analyze(List.of(upper, lower)));
+
+        assertEquals("CASE_ONLY", upper.getConflict());
+        assertEquals(lower.getNewPath(), upper.getConflictPath());
+        assertEquals("CASE_ONLY", lower.getConflict());
+    }
+
+    @Test
+    void testAnalyze_已有文件() throws IOException {
+        Path library = Files.createDirectories(tempDir.resolve("library"));
+        Files.writeString(library.resolve("Heat (1995).mkv"), "existing");
+        Files.writeString(library.resolve("Alien (1979).mkv"), "existing");
+        RenamePreviewDTO overwrite = preview(tempDir.resolve("heat.mkv"), library.resolve("Heat (1995).mkv"));
+        RenamePreviewDTO caseOnly = preview(tempDir.resolve("alien.mkv"), library.resolve("ALIEN (1979).mkv"));
+
+        assertEquals(2, analyzer.analyze(List.of(overwrite, caseOnly)));
+
+        assertEquals("OVERWRITE", overwrite.getConflict());
+        assertEquals(library.resolve("Heat (1995).mkv").toString(), overwrite.getConflictPath());
+        assertEquals("CASE_ONLY", caseOnly.getConflict());
+        assertEquals(library.resolve("Alien (1979).mkv").toString(), caseOnly.getConflictPath());
+    }
+
+    @Test
+    void testAnalyze_只改大小写的自身重命名() throws IOException {
+        Path library = Files.createDirectories(tempDir.resolve("library"));
+        Path source = Files.writeString(library.resolve("heat (1995).mkv"), "seed");
+        RenamePreviewDTO preview = preview(source, library.resolve("Heat (1995).mkv"));
+
+        assertEquals(0, analyzer.analyze(List.of(preview)));
+        assertNull(preview.getConflict());
+        assertFalse(preview.getNeedCreateDirectory());
+    }
+
+    @Test
+    void testAnalyze_补全是否需要创建目录() throws IOException {
+        Files.createDirectories(tempDir.resolve("library"));
+        RenamePreviewDTO existingDir = preview(tempDir.resolve("a.mkv"), tempDir.resolve("library/Heat (1995).mkv"));
+        RenamePreviewDTO newDir = preview(tempDir.resolve("b.mkv"), tempDir.resolve("library/Alien (1979)/Alien (1979).mkv"));
+        RenamePreviewDTO failed = preview(tempDir.resolve("c.mkv"), tempDir.resolve("library/Heat (1995).mkv"));
+        failed.setStatus("failed");
+
+        assertEquals(0, analyzer.analyze(List.of(existingDir, newDir, failed)));
+
+        assertFalse(existingDir.getNeedCreateDirectory());
+        assertTrue(newDir.getNeedCreateDirectory());
+        assertNull(failed.getConflict());
+    }
+
+    @Test
+    void testAnalyze_只检查部分预览的已有文件() throws IOException {
+        Path library = Files.createDirectories(tempDir.resolve("library"));
+        Files.writeString(library.resolve("Heat (1995).mkv"), "existing");
+        RenamePreviewDTO unchecked = preview(tempDir.resolve("a.mkv"), library.resolve("Heat (1995).mkv"));
+        RenamePreviewDTO checked = preview(tempDir.resolve("b.mkv"), library.resolve("Alien (1979).mkv"));
+        RenamePreviewDTO duplicate = preview(tempDir.resolve("c.mkv"), library.resolve("Alien (1979).mkv"));
+
+        assertEquals(2, analyzer.analyze(List.of(unchecked, checked, duplicate), p -> p == checked));
+
+        assertNull(unchecked.getConflict());
+        assertNull(unchecked.getNeedCreateDirectory());
+        assertEquals("DUPLICATE", checked.getConflict());
+        assertEquals("DUPLICATE", duplicate.getConflict());
+    }
+
+    private RenamePreviewDTO preview(Path source, Path target) {
+        return RenamePreviewDTO.builder()
+                .oldPath(source.toString())
+                .newPath(target.toString())
+                .status("pending")
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.mediarenamer.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CrossDeviceTransfer 单元测试
+ *
+ * 测试：
+ * - 分块传输后原子重命名, 不残留临时文件
+ * - 从已提交的偏移量续传, 丢弃未提交的尾部
+ * - 源文件变化后从头传输
+ * - 数据块写坏时校验失败, 源文件不变且不生成目标文件
+ * - 目录逐个文件传输; 任一文件校验失败时删除已创建的目标目录, 源目录不变
+ * - 按段计算 CRC32C
+ */
+class CrossDeviceTransferTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    private final CrossDeviceTransfer transfer = new CrossDeviceTransfer(CHUNK_SIZE);
+
+    @Test
+    void testTransfer_分块传输() throws IOException {
+        byte[] content = randomBytes(100_000);
+        Path source = Files.write(tempDir.resolve("movie.mkv"), content);
+        Path target = tempDir.resolve("The Matrix (1999).mkv");
+
+        long transferred = transfer.transfer(source, target);
+
+        assertEquals(content.length, transferred);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertTrue(Files.exists(source));
+        assertFalse(Files.exists(tempDir.resolve(".The Matrix (1999).mkv.part")));
+        assertFalse(Files.exists(tempDir.resolve(".The Matrix (1999).mkv.part.progress")));
+        assertTrue(transfer.activeTransfers().isEmpty());
+    }
+
+    @Test
+    void testTransfer_续传() throws IOException {
+        byte[] content = randomBytes(100_000);
+        Path source = Files.write(tempDir.resolve("movie.mkv"), content);
+        Path target = tempDir.resolve("The Matrix (1999).mkv");
+
+        // 上次提交到 40960, 之后还写了一段未提交的数据
+        int committed = 10 * CHUNK_SIZE;
+        byte[] partial = Arrays.copyOf(Arrays.copyOf(content, committed), committed + 1000);
+        Files.write(tempDir.resolve(".The Matrix (1999).mkv.part"), partial);
+        Files.writeString(tempDir.resolve(".The Matrix (1999).mkv.part.progress"),
+                committed + " " + content.length + " " + Files.getLastModifiedTime(source).toMillis());
+
+        long transferred = transfer.transfer(source, target);
+
+        assertEquals(content.length - committed, transferred);
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testTransfer_源文件变化后从头传输() throws IOException {
+        byte[] content = randomBytes(50_000);
+        Path source = Files.write(tempDir.resolve("movie.mkv"), content);
+        Path target = tempDir.resolve("The Matrix (1999).mkv");
+
+        Files.write(tempDir.resolve(".The Matrix (1999).mkv.part"), new byte[CHUNK_SIZE]);
+        Files.writeString(tempDir.resolve(".The Matrix (1999).mkv.part.progress"),
+                CHUNK_SIZE + " " + content.length + " 0");
+
+        long transferred = transfer.transfer(source, target);
+
+        assertEquals(content.length, transferred);
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testTransfer_数据块写坏时校验失败() throws IOException {
+        byte[] content = randomBytes(5 * CHUNK_SIZE);
+        Path source = Files.write(tempDir.resolve("movie.mkv"), content);
+        Path target = tempDir.resolve("The Matrix (1999).mkv");
+        CrossDeviceTransfer corrupting = new CrossDeviceTransfer(CHUNK_SIZE, corruptChunkAt(2L * CHUNK_SIZE));
+
+        IOException e = assertThrows(IOException.class, () -> corrupting.transfer(source, target));
+
+        assertTrue(e.getMessage().contains("文件校验失败"), e.getMessage());
+        assertArrayEquals(content, Files.readAllBytes(source));
+        assertFalse(Files.exists(target));
+        // 只提交了写坏之前已校验的块
+        String progress = Files.readString(tempDir.resolve(".The Matrix (1999).mkv.part.progress"));
+        assertEquals(String.valueOf(2 * CHUNK_SIZE), progress.split(" ")[0]);
+        assertTrue(corrupting.activeTransfers().isEmpty());
+    }
+
+    @Test
+    void testTransferDirectory_逐个文件传输() throws IOException {
+        Path source = Files.createDirectories(tempDir.resolve("Breaking.Bad.S01"));
+        byte[] episode = randomBytes(3 * CHUNK_SIZE + 17);
+        Files.write(source.resolve("E01.mkv"), episode);
+        Files.writeString(Files.createDirectories(source.resolve("Subs")).resolve("E01.srt"), "subtitle");
+        Path target = tempDir.resolve("unorganized").resolve("Breaking.Bad.S01");
+        Files.createDirectories(target.getParent());
+
+        transfer.transferDirectory(source, target);
+
+        assertArrayEquals(episode, Files.readAllBytes(target.resolve("E01.mkv")));
+        assertEquals("subtitle", Files.readString(target.resolve("Subs/E01.srt")));
+        assertTrue(Files.exists(source.resolve("E01.mkv")));
+    }
+
+    @Test
+    void testTransferDirectory_校验失败时保留源目录() throws IOException {
+        Path source = Files.createDirectories(tempDir.resolve("Breaking.Bad.S01"));
+        byte[] episode = randomBytes(3 * CHUNK_SIZE);
+        Files.write(source.resolve("E01.mkv"), episode);
+        Path target = tempDir.resolve("unorganized").resolve("Breaking.Bad.S01");
+        Files.createDirectories(target.getParent());
+        CrossDeviceTransfer corrupting = new CrossDeviceTransfer(CHUNK_SIZE, corruptChunkAt(CHUNK_SIZE));
+
+        assertThrows(IOException.class, () -> corrupting.transferDirectory(source, target));
+
+        assertArrayEquals(episode, Files.readAllBytes(source.resolve("E01.mkv")));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void testCrc32c_按段计算() throws IOException {
+        byte[] content = randomBytes(3 * 1024 * 1024 + 123);
+        Path file = Files.write(tempDir.resolve("movie.mkv"), content);
+
+        CRC32C expected = new CRC32C();
+        expected.update(content, 1000, 2 * 1024 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertEquals(expected.getValue(), CrossDeviceTransfer.crc32c(channel, 1000, 2 * 1024 * 1024));
+        }
+    }
+
+    /**
+     * 写入从 offset 开始的数据块后翻转临时文件中该块的第一个字节
+     */
+    private CrossDeviceTransfer.ChunkListener corruptChunkAt(long offset) {
+        return (part, start, end) -> {
+            if (start != offset) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(1);
+                channel.read(buffer, start);
+                buffer.put(0, (byte) ~buffer.get(0)).rewind();
+                channel.write(buffer, start);
+            }
+        };
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,131 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.controller.RenameController;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MatchAliasService 单元测试
+ *
+ * 测试：
+ * - 学习标题别名和剧集目录别名 (季度目录取上一级)
+ * - 同一目录对应多个剧集时不记录目录别名
+ * - 持久化后重新加载
+ * - 删除别名
+ */
+class MatchAliasServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MatchAliasService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService();
+    }
+
+    @Test
+    void testLearn_标题和目录别名() {
+        int changed = service.learn(List.of(
+                request(tvFile("绝命毒师", 2008, "Season 1", "Breaking Bad"), tvShow(1396L)),
+                request(movieFile("The Matrix", 1999), movie(603L))
+        ));
+
+        assertEquals(3, changed);
+        assertEquals(1396L, service.findByTitle("TV_SHOW", "绝命毒师", 2008));
+        assertEquals(1396L, service.findByTitle("TV_SHOW", " 绝命毒师 ", 2008));
+        assertEquals(1396L, service.findByDirectory("Breaking Bad"));
+        assertEquals(603L, service.findByTitle("MOVIE", "the matrix", 1999));
+        assertNull(service.findByTitle("MOVIE", "The Matrix", null));
+        assertNull(service.findByDirectory("Season 1"));
+
+        // 重复学习不产生变更
+        assertEquals(0, service.learn(List.of(request(movieFile("The Matrix", 1999), movie(603L)))));
+    }
+
+    @Test
+    void testLearn_前端手动选择的匹配信息() {
+        service.learn(List.of(request(tvFile("Flash", null, "Season 2", "The Flash"),
+                Map.of("tmdbId", 60735, "title", "闪电侠"))));
+
+        assertEquals(60735L, service.findByTitle("TV_SHOW", "Flash", null));
+    }
+
+    @Test
+    void testLearn_歧义目录不记录() {
+        service.learn(List.of(
+                request(tvFile("Show A", null, "美剧", "Downloads"), tvShow(1L)),
+                request(tvFile("Show B", null, "美剧", "Downloads"), tvShow(2L))
+        ));
+
+        assertNull(service.findByDirectory("美剧"));
+        assertEquals(1L, service.findByTitle("TV_SHOW", "Show A", null));
+        assertEquals(2L, service.findByTitle("TV_SHOW", "Show B", null));
+    }
+
+    @Test
+    void testInit_重新加载与删除() {
+        service.learn(List.of(request(tvFile("绝命毒师", 2008, "Season 1", "Breaking Bad"), tvShow(1396L))));
+
+        MatchAliasService reloaded = newService();
+        assertEquals(1396L, reloaded.findByTitle("TV_SHOW", "绝命毒师", 2008));
+
+        assertEquals(2, reloaded.forget(1396L));
+        assertNull(reloaded.findByDirectory("Breaking Bad"));
+        assertNull(newService().findByTitle("TV_SHOW", "绝命毒师", 2008));
+    }
+
+    private MatchAliasService newService() {
+        MatchAliasService aliasService = new MatchAliasService();
+        ReflectionTestUtils.setField(aliasService, "aliasFilePath", tempDir.resolve("match-aliases.json").toString());
+        aliasService.init();
+        return aliasService;
+    }
+
+    private RenameController.SingleRenameRequest request(VideoFileDTO file, Object matchedInfo) {
+        RenameController.SingleRenameRequest request = new RenameController.SingleRenameRequest();
+        request.setVideoFile(file);
+        request.setMatchedInfo(matchedInfo);
+        request.setMediaType(file.getMediaType());
+        return request;
+    }
+
+    private VideoFileDTO tvFile(String title, Integer year, String parent, String grandParent) {
+        return VideoFileDTO.builder()
+                .mediaType("TV_SHOW")
+                .parsedTitle(title)
+                .parsedYear(year)
+                .parentDirectory(parent)
+                .grandParentDirectory(grandParent)
+                .build();
+    }
+
+    private VideoFileDTO movieFile(String title, Integer year) {
+        return VideoFileDTO.builder()
+                .mediaType("MOVIE")
+                .parsedTitle(title)
+                .parsedYear(year)
+                .parentDirectory("Movies")
+                .build();
+    }
+
+    private TmdbTvShowDTO tvShow(Long id) {
+        return TmdbTvShowDTO.builder().id(id).build();
+    }
+
+    private TmdbMovieDTO movie(Long id) {
+        return TmdbMovieDTO.builder().id(id).build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.jfr.MediaParseEvent;
+import com.mediarenamer.parser.ParsingContext;
+import com.mediarenamer.parser.impl.StandardTvShowParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MediaParsingService 单元测试
+ *
+ * 测试：
+ * - JFR 解析事件记录文件绝对路径 (同名文件可区分)
+ */
+class MediaParsingServiceTest {
+
+    @Test
+    void testParse_JFR事件记录绝对路径() throws IOException {
+        MediaParsingService service = new MediaParsingService(List.of(new StandardTvShowParser()),
+                new TitleCleaningService(), new PipelineMetrics(new SimpleMeterRegistry()));
+        service.init();
+        ParsingContext context = ParsingContext.builder()
+                .filePath("/media/tv/Breaking Bad/Season 1/Breaking.Bad.S01E01.mkv")
+                .fileName("Breaking.Bad.S01E01.mkv")
+                .fileNameWithoutExt("Breaking.Bad.S01E01")
+                .extension("mkv")
+                .parentDirectory("Season 1")
+                .scanRootPath("/media/tv")
+                .build();
+
+        Path file = Files.createTempFile("media-parse", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(MediaParseEvent.class);
+                recording.start();
+                service.parseMediaFile(context);
+                recording.stop();
+                recording.dump(file);
+            }
+
+            RecordedEvent event = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> "com.mediarenamer.MediaParse".equals(e.getEventType().getName()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(context.getFilePath(), event.getString("path"));
+            assertEquals("success", event.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.NamingProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NamingTemplateService 单元测试
+ *
+ * 测试：
+ * - 自定义模板加载, 同名覆盖内置模板
+ * - 含未知占位符 (拼写错误) 或语法错误的自定义模板被忽略, 不影响其他模板
+ */
+class NamingTemplateServiceTest {
+
+    @Test
+    void testInit_加载自定义模板() {
+        NamingProperties properties = new NamingProperties();
+        properties.getMovieTemplates().put("SIMPLE", "{title}.{ext}");
+        properties.getTvTemplates().put("FLAT", "{show} S{season:02d}E{episode:02d}[ - {title}].{ext}");
+
+        NamingTemplateService service = newService(properties);
+
+        assertEquals("{title}.{ext}", service.movie("SIMPLE").getSource());
+        assertTrue(service.tv("FLAT").uses("show"));
+    }
+
+    @Test
+    void testInit_忽略未知占位符() {
+        NamingProperties properties = new NamingProperties();
+        properties.getMovieTemplates().put("TYPO", "{titel} ({year}).{ext}");
+        properties.getMovieTemplates().put("BROKEN", "{title.{ext}");
+        properties.getMovieTemplates().put("OK", "{title} ({year}).{ext}");
+        // 电影没有 season, 电视剧模板才可以用
+        properties.getMovieTemplates().put("WRONG_KIND", "{title} S{season}.{ext}");
+        properties.getTvTemplates().put("TV_TYPO", "{show} - {episodeTitle}.{ext}");
+
+        NamingTemplateService service = newService(properties);
+
+        assertThrows(RuntimeException.class, () -> service.movie("TYPO"));
+        assertThrows(RuntimeException.class, () -> service.movie("BROKEN"));
+        assertThrows(RuntimeException.class, () -> service.movie("WRONG_KIND"));
+        assertThrows(RuntimeException.class, () -> service.tv("TV_TYPO"));
+        assertEquals("{title} ({year}).{ext}", service.movie("OK").getSource());
+        // 内置模板不受影响
+        assertNotNull(service.movie("SIMPLE"));
+        assertNotNull(service.tv("COMPACT"));
+    }
+
+    private NamingTemplateService newService(NamingProperties properties) {
+        NamingTemplateService service = new NamingTemplateService(properties);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,175 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OfflineTitleIndex 单元测试
+ *
+ * 测试：
+ * - 从 gzip 导出文件导入 (跳过成人内容)
+ * - 模糊搜索 (拼写错误、标点、同名按热度排序)
+ * - 常见三元组 (倒排表超过上限) 不影响查询结果
+ * - 随机标题的查询结果与逐条计算的 Dice 相似度一致
+ * - 索引文件持久化后重新加载
+ */
+class OfflineTitleIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TmdbProperties properties;
+    private OfflineTitleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TmdbProperties();
+        properties.getOfflineIndex().setFile(tempDir.resolve("offline-index.bin").toString());
+        index = new OfflineTitleIndex(properties);
+        index.init();
+    }
+
+    @Test
+    void testImport_跳过成人内容() throws IOException {
+        OfflineTitleIndex.ImportStats stats = importSamples();
+
+        assertEquals(4, stats.movies());
+        assertEquals(2, stats.tvShows());
+        assertTrue(index.isAvailable());
+        assertTrue(index.search(OfflineTitleIndex.Kind.MOVIE, "Adult Only", 5).isEmpty());
+    }
+
+    @Test
+    void testSearch_模糊匹配() throws IOException {
+        importSamples();
+
+        // 拼写错误 + 分隔符
+        List<OfflineTitleIndex.Candidate> tv = index.search(OfflineTitleIndex.Kind.TV, "Braking.Bad", 3);
+        assertEquals(1396L, tv.getFirst().tmdbId());
+
+        // 完全相同得分为 1
+        List<OfflineTitleIndex.Candidate> movie = index.search(OfflineTitleIndex.Kind.MOVIE, "the matrix", 3);
+        assertEquals(603L, movie.getFirst().tmdbId());
+        assertEquals(1.0, movie.getFirst().score(), 0.0001);
+    }
+
+    @Test
+    void testSearch_同名按热度排序() throws IOException {
+        importSamples();
+
+        List<OfflineTitleIndex.Candidate> candidates = index.search(OfflineTitleIndex.Kind.MOVIE, "Heat", 5);
+
+        assertEquals(2, candidates.size());
+        assertEquals(949L, candidates.get(0).tmdbId());
+        assertEquals(32007L, candidates.get(1).tmdbId());
+    }
+
+    @Test
+    void testSearch_常见三元组() throws IOException {
+        int common = OfflineTitleIndex.COMMON_GRAM_POSTINGS + 5_000;
+        String[] lines = new String[common + 2];
+        for (int i = 0; i < common; i++) {
+            lines[i] = "{\"id\":" + (100_000 + i) + ",\"original_title\":\"The Show " + i + "\",\"popularity\":1.0}";
+        }
+        lines[common] = "{\"id\":1438,\"original_title\":\"The Wire\",\"popularity\":90.0}";
+        lines[common + 1] = "{\"id\":1439,\"original_title\":\"The Wired\",\"popularity\":5.0}";
+        index.importExports(writeExport("movie_ids_02_01_2026.json.gz", lines).toString(), null);
+
+        List<OfflineTitleIndex.Candidate> candidates = index.search(OfflineTitleIndex.Kind.MOVIE, "The Wire", 3);
+
+        assertEquals(1438L, candidates.getFirst().tmdbId());
+        assertEquals(1.0, candidates.getFirst().score(), 0.0001);
+        assertEquals(1439L, candidates.get(1).tmdbId());
+
+        // 只由常见三元组组成的查询仍能命中
+        assertEquals(100_007L, index.search(OfflineTitleIndex.Kind.MOVIE, "the show 7", 1).getFirst().tmdbId());
+    }
+
+    @Test
+    void testSearch_与逐条计算一致() throws IOException {
+        String[] words = {"the", "dark", "night", "star", "wars", "lost", "city", "love", "blue", "river", "last", "man"};
+        Random random = new Random(7);
+        int count = 3000;
+        String[] titles = new String[count];
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 1 + random.nextInt(3); w > 0; w--) {
+                title.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            titles[i] = title.append(i % 97).toString();
+            lines[i] = "{\"id\":" + (i + 1) + ",\"original_title\":\"" + titles[i]
+                    + "\",\"popularity\":" + random.nextInt(50) + "}";
+        }
+        index.importExports(writeExport("movie_ids_03_01_2026.json.gz", lines).toString(), null);
+
+        for (String query : List.of("dark night", "star wars 12", "lost rivr", "the last man 5")) {
+            long[] queryGrams = OfflineTitleIndex.trigrams(OfflineTitleIndex.normalize(query));
+            Map<Long, Double> expected = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                long[] grams = OfflineTitleIndex.trigrams(OfflineTitleIndex.normalize(titles[i]));
+                long shared = Arrays.stream(grams).filter(g -> Arrays.binarySearch(queryGrams, g) >= 0).count();
+                double score = 2.0 * shared / (queryGrams.length + grams.length);
+                if (score >= 0.3) {
+                    expected.put(i + 1L, score);
+                }
+            }
+
+            List<OfflineTitleIndex.Candidate> candidates = index.search(OfflineTitleIndex.Kind.MOVIE, query, count);
+
+            assertEquals(expected.size(), candidates.size(), query);
+            for (OfflineTitleIndex.Candidate candidate : candidates) {
+                assertEquals(expected.get(candidate.tmdbId()), candidate.score(), 1e-9, query);
+            }
+        }
+    }
+
+    @Test
+    void testInit_重新加载索引文件() throws IOException {
+        importSamples();
+
+        OfflineTitleIndex reloaded = new OfflineTitleIndex(properties);
+        reloaded.init();
+
+        assertEquals(4, reloaded.size(OfflineTitleIndex.Kind.MOVIE));
+        assertEquals(2, reloaded.size(OfflineTitleIndex.Kind.TV));
+        assertEquals(1396L, reloaded.search(OfflineTitleIndex.Kind.TV, "Breaking Bad", 1).getFirst().tmdbId());
+    }
+
+    private OfflineTitleIndex.ImportStats importSamples() throws IOException {
+        Path movies = writeExport("movie_ids_01_01_2026.json.gz",
+                "{\"adult\":false,\"id\":603,\"original_title\":\"The Matrix\",\"popularity\":80.5,\"video\":false}",
+                "{\"adult\":false,\"id\":949,\"original_title\":\"Heat\",\"popularity\":40.1,\"video\":false}",
+                "{\"adult\":false,\"id\":32007,\"original_title\":\"Heat\",\"popularity\":1.2,\"video\":false}",
+                "{\"adult\":true,\"id\":999,\"original_title\":\"Adult Only\",\"popularity\":5.0,\"video\":false}",
+                "{\"adult\":false,\"id\":76,\"original_title\":\"英雄\",\"popularity\":12.0,\"video\":false}");
+        Path tv = writeExport("tv_series_ids_01_01_2026.json.gz",
+                "{\"id\":1396,\"original_name\":\"Breaking Bad\",\"popularity\":300.2}",
+                "{\"id\":60059,\"original_name\":\"Better Call Saul\",\"popularity\":120.7}");
+        return index.importExports(movies.toString(), tv.toString());
+    }
+
+    private Path writeExport(String name, String... lines) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
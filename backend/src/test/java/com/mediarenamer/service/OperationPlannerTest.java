@@ -0,0 +1,170 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.FileProperties;
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.mediarenamer.service.OperationPlanner.Operation;
+import static com.mediarenamer.service.RenameService.RenameStrategy;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OperationPlanner 测试
+ *
+ * 测试：
+ * - 同一 FileStore: 移动为原子重命名, 自动方式为硬链接
+ * - 目标目录尚未创建时按最近的已存在上级目录判断
+ * - 符号链接 / 复制与 FileStore 无关
+ * - 只有复制类操作需要复制数据
+ * - 整季目录: 全部视频进入同一个新目标目录时整目录重命名
+ * - 目录中有批次外的视频、目标目录不同或已存在、源目录是扫描根目录时不整目录重命名
+ * - 未提供扫描根目录时按预览中的相对目录判断, 扫描根目录下的文件不整目录重命名
+ */
+class OperationPlannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final OperationPlanner planner = new OperationPlanner(videoFileProperties());
+
+    @Test
+    void testPlan_同设备() throws IOException {
+        Path source = Files.writeString(tempDir.resolve("movie.mkv"), "seed");
+        Path target = tempDir.resolve("library/The Matrix (1999)/The Matrix (1999).mkv");
+
+        assertTrue(planner.sameFileStore(source, target));
+        assertEquals(Operation.RENAME, planner.plan(source, target, RenameStrategy.MOVE));
+        assertEquals(Operation.HARDLINK, planner.plan(source, target, RenameStrategy.AUTO));
+        assertEquals(Operation.HARDLINK, planner.plan(source, target, RenameStrategy.HARDLINK));
+    }
+
+    @Test
+    void testPlan_与设备无关的方式() throws IOException {
+        Path source = Files.writeString(tempDir.resolve("movie.mkv"), "seed");
+        Path target = tempDir.resolve("library/The Matrix (1999).mkv");
+
+        assertEquals(Operation.SYMLINK, planner.plan(source, target, RenameStrategy.SYMLINK));
+        assertEquals(Operation.COPY, planner.plan(source, target, RenameStrategy.COPY));
+    }
+
+    @Test
+    void testOperation_是否复制数据() {
+        assertFalse(Operation.RENAME.copiesData());
+        assertFalse(Operation.HARDLINK.copiesData());
+        assertFalse(Operation.SYMLINK.copiesData());
+        assertTrue(Operation.COPY.copiesData());
+        assertTrue(Operation.COPY_DELETE.copiesData());
+        assertFalse(Operation.DIRECTORY_RENAME.copiesData());
+    }
+
+    @Test
+    void testPlanDirectoryMoves_整季目录() throws IOException {
+        Path seasonDir = tempDir.resolve("downloads/Breaking.Bad.S01");
+        Path ep1 = createFile(seasonDir.resolve("Breaking.Bad.S01E01.mkv"));
+        Path ep2 = createFile(seasonDir.resolve("Breaking.Bad.S01E02.mkv"));
+        createFile(seasonDir.resolve("Subs/Breaking.Bad.S01E01.srt"));
+        Path target = tempDir.resolve("library/Breaking Bad (2008)/Season 01");
+
+        List<OperationPlanner.DirectoryMove> moves = planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Breaking Bad - S01E01.mkv")),
+                preview(ep2, target.resolve("Breaking Bad - S01E02.mkv"))), tempDir.resolve("downloads").toString());
+
+        assertEquals(1, moves.size());
+        assertEquals(seasonDir, moves.getFirst().source());
+        assertEquals(target, moves.getFirst().target());
+        assertEquals(2, moves.getFirst().previews().size());
+    }
+
+    @Test
+    void testPlanDirectoryMoves_不满足条件时逐个移动() throws IOException {
+        Path seasonDir = tempDir.resolve("downloads/Breaking.Bad.S01");
+        Path ep1 = createFile(seasonDir.resolve("Breaking.Bad.S01E01.mkv"));
+        Path ep2 = createFile(seasonDir.resolve("Breaking.Bad.S01E02.mkv"));
+        Path target = tempDir.resolve("library/Breaking Bad (2008)/Season 01");
+        String scanRoot = tempDir.resolve("downloads").toString();
+
+        // 目录中还有本批次之外的视频
+        createFile(seasonDir.resolve("sample.mkv"));
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Breaking Bad - S01E01.mkv")),
+                preview(ep2, target.resolve("Breaking Bad - S01E02.mkv"))), scanRoot).isEmpty());
+        Files.delete(seasonDir.resolve("sample.mkv"));
+
+        // 进入不同的目标目录
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Breaking Bad - S01E01.mkv")),
+                preview(ep2, target.resolveSibling("Season 02").resolve("Breaking Bad - S02E01.mkv"))),
+                scanRoot).isEmpty());
+
+        // 目标目录已存在
+        Files.createDirectories(target);
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Breaking Bad - S01E01.mkv")),
+                preview(ep2, target.resolve("Breaking Bad - S01E02.mkv"))), scanRoot).isEmpty());
+
+        // 源目录是扫描根目录
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, tempDir.resolve("library/Show/Season 01/Show - S01E01.mkv")),
+                preview(ep2, tempDir.resolve("library/Show/Season 01/Show - S01E02.mkv"))),
+                seasonDir.toString()).isEmpty());
+    }
+
+    @Test
+    void testPlanDirectoryMoves_未提供扫描根目录() throws IOException {
+        Path downloads = tempDir.resolve("downloads");
+        Path ep1 = createFile(downloads.resolve("Show.S01E01.mkv"));
+        Path ep2 = createFile(downloads.resolve("Show.S01E02.mkv"));
+        createFile(downloads.resolve("notes.txt"));
+        Path target = tempDir.resolve("library/Show/Season 01");
+
+        // 扫描根目录下的文件: 整个扫描根目录不能被重命名
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Show - S01E01.mkv"), "./"),
+                preview(ep2, target.resolve("Show - S01E02.mkv"), "./")), null).isEmpty());
+        // 相对目录未知
+        assertTrue(planner.planDirectoryMoves(List.of(
+                preview(ep1, target.resolve("Show - S01E01.mkv")),
+                preview(ep2, target.resolve("Show - S01E02.mkv"))), null).isEmpty());
+
+        // 扫描根目录下的子目录仍可整目录重命名
+        Path seasonDir = downloads.resolve("Other.S01");
+        Path other1 = createFile(seasonDir.resolve("Other.S01E01.mkv"));
+        Path other2 = createFile(seasonDir.resolve("Other.S01E02.mkv"));
+        Path otherTarget = tempDir.resolve("library/Other/Season 01");
+        List<OperationPlanner.DirectoryMove> moves = planner.planDirectoryMoves(List.of(
+                preview(other1, otherTarget.resolve("Other - S01E01.mkv"), "./Other.S01/"),
+                preview(other2, otherTarget.resolve("Other - S01E02.mkv"), "./Other.S01/")), null);
+        assertEquals(1, moves.size());
+        assertEquals(seasonDir, moves.getFirst().source());
+    }
+
+    static FileProperties videoFileProperties() {
+        FileProperties fileProperties = new FileProperties();
+        fileProperties.setVideoExtensions(List.of("mkv", "mp4"));
+        return fileProperties;
+    }
+
+    private Path createFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "seed");
+    }
+
+    private RenamePreviewDTO preview(Path source, Path target) {
+        return preview(source, target, null);
+    }
+
+    private RenamePreviewDTO preview(Path source, Path target, String oldRelativeDirectory) {
+        return RenamePreviewDTO.builder()
+                .oldPath(source.toString())
+                .newPath(target.toString())
+                .oldRelativeDirectory(oldRelativeDirectory)
+                .status("pending")
+                .build();
+    }
+}
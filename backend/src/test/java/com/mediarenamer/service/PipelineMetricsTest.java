@@ -0,0 +1,69 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.model.dto.VideoFileDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PipelineMetrics 单元测试
+ *
+ * 测试：
+ * - 按扫描根目录打标签 (缺失时为 unknown, 多个根目录时为 mixed)
+ * - 匹配结果计数
+ * - 重命名按方式区分
+ */
+class PipelineMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new PipelineMetrics(registry);
+    }
+
+    @Test
+    void testRecordMatch_按根目录计数() {
+        metrics.recordMatch(metrics.start(), List.of(
+                file("/media/tv", Map.of("id", 1396)),
+                file("/media/tv", null)));
+
+        assertEquals(1, registry.get("media.match").tag("root", "/media/tv").timer().count());
+        assertEquals(1.0, registry.get("media.match.files").tags("root", "/media/tv", "outcome", "matched").counter().count());
+        assertEquals(1.0, registry.get("media.match.files").tags("root", "/media/tv", "outcome", "unmatched").counter().count());
+    }
+
+    @Test
+    void testRecordMatch_多个根目录() {
+        metrics.recordMatch(metrics.start(), List.of(file("/media/tv", null), file("/media/movies", null)));
+        metrics.recordMatch(metrics.start(), List.of(file(null, null)));
+
+        assertEquals(1, registry.get("media.match").tag("root", PipelineMetrics.MIXED_ROOT).timer().count());
+        assertEquals(1, registry.get("media.match").tag("root", PipelineMetrics.UNKNOWN_ROOT).timer().count());
+    }
+
+    @Test
+    void testRecordRename_区分重命名方式() {
+        metrics.recordRename(metrics.start(), "/media/tv", "rename", true);
+        metrics.recordRename(metrics.start(), "/media/tv", "copy_delete", true);
+        metrics.recordRename(metrics.start(), "/media/tv", "copy_delete", false);
+
+        assertEquals(1, registry.get("media.rename").tags("method", "rename", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("media.rename").tags("method", "copy_delete", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("media.rename").tags("method", "copy_delete", "outcome", "failed").timer().count());
+    }
+
+    private VideoFileDTO file(String scanRoot, Object matchedInfo) {
+        return VideoFileDTO.builder()
+                .scanRootPath(scanRoot)
+                .matchedInfo(matchedInfo)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.controller.RenameController.SingleRenameRequest;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PreviewSessionCache 测试
+ *
+ * 测试：
+ * - 输入 key: 模板、季号、匹配结果变化时改变, 其他字段 (文件大小、匹配分数) 不影响
+ * - 前端回传的匹配结果是 Map 时按 id 比较
+ * - 会话创建与获取, 未知会话返回 null
+ */
+class PreviewSessionCacheTest {
+
+    @Test
+    void testInputKey_输入变化() {
+        String key = PreviewSessionCache.inputKey(request(1, 100L, "STANDARD"));
+
+        assertEquals(key, PreviewSessionCache.inputKey(request(1, 100L, "STANDARD")));
+        assertNotEquals(key, PreviewSessionCache.inputKey(request(1, 100L, "DETAILED")));
+        assertNotEquals(key, PreviewSessionCache.inputKey(request(2, 100L, "STANDARD")));
+        assertNotEquals(key, PreviewSessionCache.inputKey(request(1, 200L, "STANDARD")));
+
+        SingleRenameRequest resized = request(1, 100L, "STANDARD");
+        resized.getVideoFile().setFileSize(42L);
+        resized.getVideoFile().setMatchScore(0.5);
+        assertEquals(key, PreviewSessionCache.inputKey(resized));
+    }
+
+    @Test
+    void testInputKey_Map匹配结果() {
+        SingleRenameRequest fromJson = request(1, null, "STANDARD");
+        fromJson.setMatchedInfo(Map.of("id", 100L, "name", "Breaking Bad"));
+
+        assertEquals(PreviewSessionCache.inputKey(request(1, 100L, "STANDARD")),
+                PreviewSessionCache.inputKey(fromJson));
+    }
+
+    @Test
+    void testCreate_创建与获取() {
+        PreviewSessionCache cache = new PreviewSessionCache();
+        SingleRenameRequest request = request(1, 100L, "STANDARD");
+        String filePath = request.getVideoFile().getFilePath();
+
+        PreviewSessionCache.PreviewSession session = cache.create("/library", "COPY", Map.of(filePath,
+                new PreviewSessionCache.Entry(request, PreviewSessionCache.inputKey(request), null)));
+
+        assertSame(session, cache.get(session.getSessionId()));
+        assertEquals("/library", session.getTargetRoot());
+        assertEquals("COPY", session.getStrategy());
+        assertEquals(request, session.getEntries().get(filePath).request());
+        assertNull(cache.get("unknown"));
+        assertNull(cache.get(null));
+    }
+
+    private SingleRenameRequest request(int season, Long tvId, String template) {
+        SingleRenameRequest request = new SingleRenameRequest();
+        request.setVideoFile(VideoFileDTO.builder()
+                .filePath("/downloads/Breaking.Bad.S01E05.mkv")
+                .scanRootPath("/downloads")
+                .mediaType("TV_SHOW")
+                .parsedSeason(season)
+                .parsedEpisode(5)
+                .build());
+        if (tvId != null) {
+            TmdbTvShowDTO tvShow = new TmdbTvShowDTO();
+            tvShow.setId(tvId);
+            request.setMatchedInfo(tvShow);
+        }
+        request.setTemplate(template);
+        return request;
+    }
+}
@@ -0,0 +1,174 @@
+package com.mediarenamer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static com.mediarenamer.service.RenameService.RenameStrategy.MOVE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RenameJournal 测试
+ *
+ * 测试：
+ * - 重启恢复: 已完成但未记 DONE 的操作补记完成
+ * - 重启恢复: 中断的跨设备移动回滚并删除目标文件, 删除失败时记为失败
+ * - 忽略写了一半的最后一行
+ * - 重启恢复: 链接已创建即视为完成
+ * - 批次结束后超出上限时清理最旧的批次并压缩日志, 进行中的批次保留
+ */
+class RenameJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RenameJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        journal = newJournal();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void testRecover_补记完成() throws IOException {
+        Path source = tempDir.resolve("movie.mkv");
+        Path target = createFile("The Matrix (1999).mkv", "movie");
+
+        String batchId = journal.beginBatch();
+        journal.plan(batchId, source.toString(), target.toString(), null, MOVE);
+        journal.close();
+
+        journal = newJournal();
+
+        List<RenameJournal.Operation> completed = journal.completedOperations(batchId);
+        assertEquals(1, completed.size());
+        assertEquals(target.toString(), completed.getFirst().getTarget());
+    }
+
+    @Test
+    void testRecover_回滚中断的复制() throws IOException {
+        Path source = createFile("movie.mkv", "complete");
+        Path target = createFile("The Matrix (1999).mkv", "part");
+
+        String batchId = journal.beginBatch();
+        journal.plan(batchId, source.toString(), target.toString(), null, MOVE);
+        journal.close();
+
+        journal = newJournal();
+
+        assertTrue(Files.exists(source));
+        assertFalse(Files.exists(target));
+        assertTrue(journal.completedOperations(batchId).isEmpty());
+        assertEquals(1, journal.listBatches().getFirst().failed());
+
+        // 压缩后的日志再次加载状态不变
+        journal.close();
+        journal = newJournal();
+        assertEquals(1, journal.listBatches().getFirst().failed());
+    }
+
+    @Test
+    void testRecover_回滚时删除目标失败() throws IOException {
+        Path source = createFile("movie.mkv", "complete");
+        // 非空目录无法删除
+        Path target = tempDir.resolve("The Matrix (1999)");
+        createFile("The Matrix (1999)/keep.txt", "keep");
+
+        String batchId = journal.beginBatch();
+        journal.plan(batchId, source.toString(), target.toString(), null, MOVE);
+        journal.close();
+
+        journal = newJournal();
+
+        assertTrue(Files.exists(source));
+        assertTrue(Files.exists(target));
+        assertEquals(1, journal.listBatches().getFirst().failed());
+        List<String> lines = Files.readAllLines(tempDir.resolve("rename-journal.log"));
+        assertTrue(lines.stream().anyMatch(l -> l.contains("\"FAILED\"")));
+        assertTrue(lines.stream().noneMatch(l -> l.contains("\"ROLLED_BACK\"")));
+    }
+
+    @Test
+    void testLoad_忽略写了一半的行() throws IOException {
+        Path source = tempDir.resolve("movie.mkv");
+        Path target = createFile("The Matrix (1999).mkv", "movie");
+
+        String batchId = journal.beginBatch();
+        journal.done(batchId, journal.plan(batchId, source.toString(), target.toString(), null, MOVE));
+        journal.close();
+        Files.writeString(tempDir.resolve("rename-journal.log"), "{\"type\":\"PL", StandardOpenOption.APPEND);
+
+        journal = newJournal();
+
+        assertEquals(1, journal.completedOperations(batchId).size());
+    }
+
+    @Test
+    void testRecover_链接已创建() throws IOException {
+        Path source = createFile("movie.mkv", "seed");
+        Path target = tempDir.resolve("The Matrix (1999).mkv");
+        Files.createLink(target, source);
+
+        String batchId = journal.beginBatch();
+        journal.plan(batchId, source.toString(), target.toString(), null, RenameService.RenameStrategy.HARDLINK);
+        journal.close();
+
+        journal = newJournal();
+
+        assertTrue(Files.exists(source));
+        assertTrue(Files.exists(target));
+        assertEquals(1, journal.completedOperations(batchId).size());
+    }
+
+    @Test
+    void testFinishBatch_清理最旧的批次() throws IOException {
+        Path source = tempDir.resolve("movie.mkv");
+        Path target = createFile("The Matrix (1999).mkv", "movie");
+        String active = journal.beginBatch();
+        for (int i = 0; i < 60; i++) {
+            String batchId = journal.beginBatch();
+            journal.done(batchId, journal.plan(batchId, source.toString(), target.toString(), null, MOVE));
+            journal.finishBatch(batchId);
+        }
+
+        assertEquals(50, journal.listBatches().size());
+        assertTrue(journal.listBatches().stream().anyMatch(b -> b.batchId().equals(active)));
+        Path journalFile = tempDir.resolve("rename-journal.log");
+        assertEquals(50, Files.readAllLines(journalFile).stream().filter(l -> l.contains("\"BEGIN\"")).count());
+
+        // 压缩后继续追加, 进行中的批次的操作不丢失
+        int opId = journal.plan(active, source.toString(), target.toString(), null, MOVE);
+        journal.done(active, opId);
+        journal.close();
+        journal = newJournal();
+        assertEquals(50, journal.listBatches().size());
+        assertEquals(1, journal.completedOperations(active).size());
+    }
+
+    private RenameJournal newJournal() {
+        RenameJournal renameJournal = new RenameJournal();
+        ReflectionTestUtils.setField(renameJournal, "journalFilePath",
+                tempDir.resolve("rename-journal.log").toString());
+        renameJournal.init();
+        return renameJournal;
+    }
+
+    private Path createFile(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,99 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.FileProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RenameScheduler 测试
+ *
+ * 测试：
+ * - 预先创建目标目录: 共享上级的目录记录同一个最上层新建目录, 已存在的目录记为 null
+ * - 同一设备同时进行的操作数不超过配置上限, 全部完成后才返回
+ * - 同一设备的操作按目标目录顺序开始, 同一目录的操作相邻
+ */
+class RenameSchedulerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPrepareDirectories_记录最上层新建目录() throws IOException {
+        RenameScheduler scheduler = newScheduler(4);
+        Path existing = Files.createDirectories(tempDir.resolve("library"));
+        Path season1 = existing.resolve("Breaking Bad (2008)/Season 1");
+        Path season2 = existing.resolve("Breaking Bad (2008)/Season 2");
+
+        Map<Path, String> prepared = scheduler.prepareDirectories(List.of(season2, season1, season1, existing));
+
+        assertTrue(Files.isDirectory(season1));
+        assertTrue(Files.isDirectory(season2));
+        assertEquals(3, prepared.size());
+        assertEquals(existing.resolve("Breaking Bad (2008)").toString(), prepared.get(season1));
+        assertEquals(existing.resolve("Breaking Bad (2008)").toString(), prepared.get(season2));
+        assertTrue(prepared.containsKey(existing));
+        assertNull(prepared.get(existing));
+    }
+
+    @Test
+    void testExecute_限制每个设备的并发数() {
+        RenameScheduler scheduler = newScheduler(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        List<RenameScheduler.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new RenameScheduler.Task(tempDir.resolve("dir" + (i % 3) + "/file" + i + ".mkv"), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                completed.incrementAndGet();
+            }));
+        }
+
+        scheduler.execute(tasks);
+
+        assertEquals(20, completed.get());
+        assertTrue(maxRunning.get() <= 2, "最大并发 " + maxRunning.get());
+    }
+
+    @Test
+    void testExecute_按目录顺序开始() {
+        RenameScheduler scheduler = newScheduler(1);
+        List<Path> started = Collections.synchronizedList(new ArrayList<>());
+
+        List<RenameScheduler.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            Path target = tempDir.resolve("dir" + (2 - i % 3) + "/file" + i + ".mkv");
+            tasks.add(new RenameScheduler.Task(target, () -> started.add(target)));
+        }
+
+        scheduler.execute(tasks);
+
+        List<Path> directories = started.stream().map(Path::getParent).toList();
+        assertEquals(9, directories.size());
+        assertEquals(directories.stream().sorted().toList(), directories);
+    }
+
+    private RenameScheduler newScheduler(int maxMovesPerDevice) {
+        FileProperties fileProperties = OperationPlannerTest.videoFileProperties();
+        fileProperties.setMaxMovesPerDevice(maxMovesPerDevice);
+        return new RenameScheduler(new OperationPlanner(fileProperties), fileProperties);
+    }
+}
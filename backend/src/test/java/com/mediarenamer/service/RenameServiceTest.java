@@ -0,0 +1,381 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.FileProperties;
+import com.mediarenamer.controller.RenameController;
+import com.mediarenamer.config.NamingProperties;
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import com.mediarenamer.model.dto.ScanDirectoryDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.mediarenamer.service.RenameService.RenameStrategy.MOVE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RenameService 端到端测试 (真实文件系统, 不访问 TMDB)
+ *
+ * 测试：
+ * - 执行重命名后按批次撤销 (还原文件并删除新建目录)
+ * - 整季目录: 一次目录重命名 (非视频文件随目录移动), 撤销时先还原目录内改名再还原目录
+ * - 撤销按依赖倒序: 原路径被后完成的操作占用时先还原后者
+ * - 硬链接 / 符号链接: 保留原文件, 撤销时只删除链接
+ * - 自动方式: 同设备落到硬链接, 日志记录具体方式
+ * - 学习别名用的确认请求只包含执行成功的文件
+ * - 执行方式校验: 保存扫描目录配置和批量预览时拒绝不支持的执行方式
+ * - 增量预览: 切换模板只返回变化的预览, 修改季号只重新计算该文件, 未变化的文件出现新冲突时也返回
+ */
+class RenameServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RenameJournal journal;
+    private ScanDirectoryService scanDirectoryService;
+    private RenameService renameService;
+
+    @BeforeEach
+    void setUp() {
+        journal = new RenameJournal();
+        ReflectionTestUtils.setField(journal, "journalFilePath", tempDir.resolve("rename-journal.log").toString());
+        journal.init();
+
+        scanDirectoryService = new ScanDirectoryService();
+        ReflectionTestUtils.setField(scanDirectoryService, "configFilePath",
+                tempDir.resolve("config/scan-directories.json").toString());
+        scanDirectoryService.init();
+
+        NamingTemplateService namingTemplateService = new NamingTemplateService(new NamingProperties());
+        namingTemplateService.init();
+
+        FileProperties fileProperties = OperationPlannerTest.videoFileProperties();
+        OperationPlanner operationPlanner = new OperationPlanner(fileProperties);
+        renameService = new RenameService(null, null, new PipelineMetrics(new SimpleMeterRegistry()), journal,
+                new CrossDeviceTransfer(), scanDirectoryService, operationPlanner,
+                new RenameScheduler(operationPlanner, fileProperties), new ConflictAnalyzer(),
+                namingTemplateService, new PreviewSessionCache());
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    void testUndoBatch_还原文件并删除新建目录() throws IOException {
+        Path source1 = createFile("downloads/Breaking.Bad.S01E01.mkv", "e1");
+        Path source2 = createFile("downloads/Breaking.Bad.S01E02.mkv", "e2");
+        Path target1 = tempDir.resolve("library/Breaking Bad (2008)/Season 1/Breaking Bad - S01E01.mkv");
+        Path target2 = tempDir.resolve("library/Breaking Bad (2008)/Season 1/Breaking Bad - S01E02.mkv");
+        Files.createDirectories(tempDir.resolve("library"));
+        // 目录中还有本批次之外的视频, 逐个文件移动
+        createFile("downloads/other.mkv", "other");
+
+        List<RenamePreviewDTO> results = renameService.executeRename(
+                List.of(preview(source1, target1), preview(source2, target2)), null);
+
+        assertTrue(results.stream().allMatch(r -> "success".equals(r.getStatus())));
+        String batchId = results.getFirst().getBatchId();
+        assertNotNull(batchId);
+        assertEquals(2, journal.completedOperations(batchId).size());
+
+        List<RenamePreviewDTO> undone = renameService.undoBatch(batchId);
+
+        assertEquals(2, undone.size());
+        assertTrue(undone.stream().allMatch(r -> "success".equals(r.getStatus())));
+        assertEquals("e1", Files.readString(source1));
+        assertEquals("e2", Files.readString(source2));
+        assertFalse(Files.exists(tempDir.resolve("library/Breaking Bad (2008)")));
+        assertTrue(Files.exists(tempDir.resolve("library")));
+        assertTrue(journal.completedOperations(batchId).isEmpty());
+        assertEquals(2, journal.listBatches().getFirst().undone());
+    }
+
+    @Test
+    void testExecuteRename_整季目录重命名与撤销() throws IOException {
+        Path source1 = createFile("downloads/Breaking.Bad.S01/Breaking.Bad.S01E01.mkv", "e1");
+        Path source2 = createFile("downloads/Breaking.Bad.S01/Breaking.Bad.S01E02.mkv", "e2");
+        Path subtitle = createFile("downloads/Breaking.Bad.S01/Subs/Breaking.Bad.S01E01.srt", "sub");
+        Path seasonDir = tempDir.resolve("library/Breaking Bad (2008)/Season 1");
+        Path target1 = seasonDir.resolve("Breaking Bad - S01E01.mkv");
+        Path target2 = seasonDir.resolve("Breaking Bad - S01E02.mkv");
+
+        List<RenamePreviewDTO> results = renameService.executeRename(
+                List.of(preview(source1, target1), preview(source2, target2)), tempDir.resolve("downloads").toString());
+
+        assertTrue(results.stream().allMatch(r -> "success".equals(r.getStatus())));
+        assertTrue(results.stream().allMatch(r -> "DIRECTORY_RENAME".equals(r.getOperation())));
+        assertEquals("e1", Files.readString(target1));
+        assertEquals("e2", Files.readString(target2));
+        // 非视频文件随目录一起移动, 源目录不再存在
+        assertEquals("sub", Files.readString(seasonDir.resolve("Subs/Breaking.Bad.S01E01.srt")));
+        assertFalse(Files.exists(subtitle.getParent().getParent()));
+        // 目录重命名 1 次 + 目录内改名 2 次
+        String batchId = results.getFirst().getBatchId();
+        assertEquals(3, journal.completedOperations(batchId).size());
+
+        List<RenamePreviewDTO> undone = renameService.undoBatch(batchId);
+
+        assertTrue(undone.stream().allMatch(r -> "success".equals(r.getStatus())));
+        assertEquals("e1", Files.readString(source1));
+        assertEquals("e2", Files.readString(source2));
+        assertEquals("sub", Files.readString(subtitle));
+        assertFalse(Files.exists(tempDir.resolve("library")));
+    }
+
+    @Test
+    void testUndoBatch_依赖倒序() throws IOException {
+        // 先 a -> b, 再 c -> a (占用了第一个操作的原路径)
+        Path a = tempDir.resolve("a.mkv");
+        Path b = createFile("b.mkv", "A");
+        createFile("a.mkv", "C");
+        Path c = tempDir.resolve("c.mkv");
+
+        String batchId = journal.beginBatch();
+        journal.done(batchId, journal.plan(batchId, a.toString(), b.toString(), null, MOVE));
+        journal.done(batchId, journal.plan(batchId, c.toString(), a.toString(), null, MOVE));
+
+        List<RenamePreviewDTO> undone = renameService.undoBatch(batchId);
+
+        assertTrue(undone.stream().allMatch(r -> "success".equals(r.getStatus())));
+        assertEquals("A", Files.readString(a));
+        assertEquals("C", Files.readString(c));
+        assertFalse(Files.exists(b));
+    }
+
+    @Test
+    void testExecuteRename_硬链接与撤销() throws IOException {
+        Path source = createFile("downloads/movie.mkv", "seed");
+        Path target = tempDir.resolve("library/The Matrix (1999)/The Matrix (1999).mkv");
+
+        List<RenamePreviewDTO> results = renameService.executeRename(
+                List.of(preview(source, target)), null, RenameService.RenameStrategy.HARDLINK);
+
+        assertEquals("success", results.getFirst().getStatus());
+        assertTrue(Files.exists(source));
+        assertTrue(Files.isSameFile(source, target));
+
+        List<RenamePreviewDTO> undone = renameService.undoBatch(results.getFirst().getBatchId());
+
+        assertEquals("success", undone.getFirst().getStatus());
+        assertEquals("seed", Files.readString(source));
+        assertFalse(Files.exists(tempDir.resolve("library")));
+    }
+
+    @Test
+    void testExecuteRename_符号链接() throws IOException {
+        Path source = createFile("downloads/movie.mkv", "seed");
+        Path target = tempDir.resolve("library/The Matrix (1999).mkv");
+
+        List<RenamePreviewDTO> results = renameService.executeRename(
+                List.of(preview(source, target)), null, RenameService.RenameStrategy.SYMLINK);
+
+        assertEquals("success", results.getFirst().getStatus());
+        assertTrue(Files.isSymbolicLink(target));
+        assertEquals(source.toAbsolutePath(), Files.readSymbolicLink(target));
+        assertEquals("seed", Files.readString(target));
+    }
+
+    @Test
+    void testExecuteRename_自动方式同设备硬链接() throws IOException {
+        Path source = createFile("downloads/movie.mkv", "seed");
+        Path target = tempDir.resolve("library/The Matrix (1999).mkv");
+
+        List<RenamePreviewDTO> results = renameService.executeRename(
+                List.of(preview(source, target)), null, RenameService.RenameStrategy.AUTO);
+
+        assertEquals("success", results.getFirst().getStatus());
+        assertTrue(Files.isSameFile(source, target));
+        assertEquals(RenameService.RenameStrategy.HARDLINK,
+                journal.completedOperations(results.getFirst().getBatchId()).getFirst().getStrategy());
+    }
+
+    @Test
+    void testConfirmedRequests_只包含执行成功的文件() throws IOException {
+        Path matrix = createFile("downloads/matrix.mkv", "matrix");
+        Path inception = createFile("downloads/inception.mkv", "inception");
+        RenameController.BatchRenameRequest request = new RenameController.BatchRenameRequest();
+        request.setRequests(List.of(movieRequest(matrix, 603L, "The Matrix", 1999),
+                movieRequest(inception, 27205L, "Inception", 2010)));
+        RenameController.BatchRenameResponse response = renameService.batchGeneratePreview(request);
+
+        // 第二个文件在执行前被删除, 执行失败
+        Files.delete(inception);
+        List<RenamePreviewDTO> results = renameService.executeRename(response.getPreviews(), null, null);
+
+        List<RenameController.SingleRenameRequest> confirmed =
+                renameService.confirmedRequests(response.getSessionId(), results);
+        assertEquals(1, confirmed.size());
+        assertEquals(matrix.toString(), confirmed.getFirst().getVideoFile().getFilePath());
+        assertTrue(renameService.confirmedRequests("unknown", results).isEmpty());
+    }
+
+    @Test
+    void testRenameStrategy_拒绝不支持的执行方式() throws IOException {
+        ScanDirectoryDTO directory = new ScanDirectoryDTO();
+        directory.setPath(tempDir.toString());
+        directory.setRenameStrategy("MOVED");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> scanDirectoryService.addDirectory(directory));
+        assertTrue(e.getMessage().contains("MOVED"));
+        assertTrue(scanDirectoryService.getAllDirectories().isEmpty());
+
+        directory.setRenameStrategy(" hardlink ");
+        assertEquals("HARDLINK", scanDirectoryService.addDirectory(directory).getRenameStrategy());
+        assertEquals(RenameService.RenameStrategy.HARDLINK,
+                renameService.resolveOutputTarget(tempDir.toString(), null, null).strategy());
+
+        RenameController.BatchRenameRequest request = new RenameController.BatchRenameRequest();
+        request.setRequests(List.of(movieRequest(createFile("downloads/matrix.mkv", "matrix"),
+                603L, "The Matrix", 1999)));
+        request.setStrategy("LINK");
+        assertThrows(IllegalArgumentException.class, () -> renameService.batchGeneratePreview(request));
+    }
+
+    @Test
+    void testBatchUpdatePreview_切换模板只返回变化的预览() throws IOException {
+        RenameController.SingleRenameRequest matrix = movieRequest(createFile("downloads/matrix.mkv", "matrix"),
+                603L, "The Matrix", 1999);
+        RenameController.SingleRenameRequest inception = movieRequest(
+                createFile("downloads/inception.mkv", "inception"), 27205L, "Inception", 2010);
+        inception.setTemplate("STANDARD");
+        String sessionId = batchPreview(List.of(matrix, inception)).getSessionId();
+
+        RenameController.BatchRenameResponse response = updatePreview(sessionId, "STANDARD", null);
+
+        assertTrue(response.getDelta());
+        assertEquals(1, response.getPreviews().size());
+        RenamePreviewDTO changed = response.getPreviews().getFirst();
+        assertEquals(matrix.getVideoFile().getFilePath(), changed.getOldPath());
+        assertTrue(changed.getNewPath().endsWith("The Matrix (1999)/The Matrix (1999).mkv"));
+        assertEquals(2, response.getSummary().getTotal());
+    }
+
+    @Test
+    void testBatchUpdatePreview_修改季号只重新计算该文件() throws IOException {
+        RenameController.SingleRenameRequest first = tvRequest(createFile("downloads/bb.s01e01.mkv", "1"), 1, 1);
+        RenameController.SingleRenameRequest second = tvRequest(createFile("downloads/bb.s01e02.mkv", "2"), 1, 2);
+        RenameController.BatchRenameResponse full = batchPreview(List.of(first, second));
+        RenamePreviewDTO firstPreview = full.getPreviews().getFirst();
+
+        RenameController.SingleRenameRequest override = tvRequest(Path.of(second.getVideoFile().getFilePath()), 2, 2);
+        RenameController.BatchRenameResponse response = updatePreview(full.getSessionId(), null, List.of(override));
+
+        assertEquals(1, response.getPreviews().size());
+        RenamePreviewDTO changed = response.getPreviews().getFirst();
+        assertEquals(second.getVideoFile().getFilePath(), changed.getOldPath());
+        assertTrue(changed.getNewFileName().contains("S02E02"), changed.getNewFileName());
+
+        assertTrue(firstPreview.getNewFileName().contains("S01E01"));
+
+        // 再次提交相同的季号不重新计算
+        assertTrue(updatePreview(full.getSessionId(), null, List.of(override)).getPreviews().isEmpty());
+    }
+
+    @Test
+    void testBatchUpdatePreview_未变化的文件出现新冲突() throws IOException {
+        RenameController.SingleRenameRequest matrix = movieRequest(createFile("downloads/matrix.mkv", "matrix"),
+                603L, "The Matrix", 1999);
+        Path inceptionFile = createFile("downloads/inception.mkv", "inception");
+        RenameController.SingleRenameRequest inception = movieRequest(inceptionFile, 27205L, "Inception", 2010);
+        RenameController.BatchRenameResponse full = batchPreview(List.of(matrix, inception));
+        assertEquals(0, full.getSummary().getConflictCount());
+
+        // 第二个文件改为匹配同一部电影, 两个文件的目标相同
+        RenameController.BatchRenameResponse response = updatePreview(full.getSessionId(), null,
+                List.of(movieRequest(inceptionFile, 603L, "The Matrix", 1999)));
+
+        assertEquals(2, response.getPreviews().size());
+        assertTrue(response.getPreviews().stream()
+                .allMatch(p -> ConflictAnalyzer.Conflict.DUPLICATE.name().equals(p.getConflict())));
+        assertEquals(2, response.getSummary().getConflictCount());
+    }
+
+    private Path createFile(String relativePath, String content) throws IOException {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private RenamePreviewDTO preview(Path source, Path target) {
+        return RenamePreviewDTO.builder()
+                .oldPath(source.toString())
+                .newPath(target.toString())
+                .oldFileName(source.getFileName().toString())
+                .newFileName(target.getFileName().toString())
+                .needCreateDirectory(true)
+                .status("pending")
+                .build();
+    }
+
+    private RenameController.SingleRenameRequest movieRequest(Path file, long tmdbId, String title, int year) {
+        TmdbMovieDTO movie = new TmdbMovieDTO();
+        movie.setId(tmdbId);
+        movie.setTitle(title);
+        movie.setYear(year);
+        movie.setReleaseDate(year + "-01-01");
+
+        RenameController.SingleRenameRequest request = new RenameController.SingleRenameRequest();
+        request.setVideoFile(VideoFileDTO.builder()
+                .filePath(file.toString())
+                .fileName(file.getFileName().toString())
+                .extension("mkv")
+                .mediaType("MOVIE")
+                .parsedTitle(title)
+                .parsedYear(year)
+                .build());
+        request.setMatchedInfo(movie);
+        request.setMediaType("MOVIE");
+        request.setTemplate("SIMPLE");
+        return request;
+    }
+
+    private RenameController.BatchRenameResponse batchPreview(List<RenameController.SingleRenameRequest> requests) {
+        RenameController.BatchRenameRequest request = new RenameController.BatchRenameRequest();
+        request.setRequests(requests);
+        return renameService.batchGeneratePreview(request);
+    }
+
+    private RenameController.BatchRenameResponse updatePreview(String sessionId, String template,
+                                                               List<RenameController.SingleRenameRequest> requests) {
+        RenameController.BatchPreviewDeltaRequest request = new RenameController.BatchPreviewDeltaRequest();
+        request.setSessionId(sessionId);
+        request.setTemplate(template);
+        request.setRequests(requests);
+        return renameService.batchUpdatePreview(request);
+    }
+
+    private RenameController.SingleRenameRequest tvRequest(Path file, int season, int episode) {
+        TmdbTvShowDTO tvShow = new TmdbTvShowDTO();
+        tvShow.setId(1396L);
+        tvShow.setName("Breaking Bad");
+        tvShow.setYear(2008);
+        tvShow.setFirstAirDate("2008-01-20");
+
+        RenameController.SingleRenameRequest request = new RenameController.SingleRenameRequest();
+        request.setVideoFile(VideoFileDTO.builder()
+                .filePath(file.toString())
+                .fileName(file.getFileName().toString())
+                .extension("mkv")
+                .mediaType("TV_SHOW")
+                .parsedTitle("Breaking Bad")
+                .parsedSeason(season)
+                .parsedEpisode(episode)
+                .build());
+        request.setMatchedInfo(tvShow);
+        request.setMediaType("TV_SHOW");
+        request.setTemplate("COMPACT");
+        return request;
+    }
+}
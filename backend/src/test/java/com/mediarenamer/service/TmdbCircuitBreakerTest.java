@@ -0,0 +1,97 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TmdbCircuitBreaker 单元测试
+ *
+ * 测试熔断状态流转：
+ * - 连续失败达到阈值后打开
+ * - 打开期间快速拒绝
+ * - 到期后只放行一个探测请求
+ * - 探测请求被取消后释放名额, 不会永久停在半开状态
+ */
+class TmdbCircuitBreakerTest {
+
+    private TmdbProperties properties;
+    private TmdbCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TmdbProperties();
+        properties.getResilience().setFailureThreshold(3);
+        properties.getResilience().setOpenDurationSeconds(60);
+        breaker = new TmdbCircuitBreaker(properties);
+    }
+
+    @Test
+    void testRecordFailure_达到阈值后打开() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(TmdbCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void testRecordSuccess_重置连续失败计数() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testHalfOpen_只放行一个探测请求() {
+        properties.getResilience().setOpenDurationSeconds(0);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+
+        // 到期后第一个请求作为探测, 其余拒绝
+        assertTrue(breaker.allowRequest());
+        assertEquals(TmdbCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // 探测失败重新打开
+        breaker.recordFailure();
+        assertEquals(TmdbCircuitBreaker.State.OPEN, breaker.getState());
+
+        // 探测成功关闭
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void testHalfOpen_探测请求取消后释放名额() {
+        properties.getResilience().setOpenDurationSeconds(0);
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        // 探测请求被取消: 既不成功也不失败, 下一个请求重新作为探测
+        breaker.releaseProbe();
+        assertEquals(TmdbCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(TmdbCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 关闭状态下释放不影响放行
+        breaker.releaseProbe();
+        assertTrue(breaker.allowRequest());
+    }
+}
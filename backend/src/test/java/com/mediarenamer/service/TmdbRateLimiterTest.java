@@ -0,0 +1,67 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TmdbRateLimiter 单元测试
+ *
+ * 测试：
+ * - 桶内令牌立即放行, 超出后按速率等待
+ * - 未配置限流时不等待
+ * - 等待被中断时归还令牌
+ */
+class TmdbRateLimiterTest {
+
+    private TmdbProperties properties;
+    private TmdbRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TmdbProperties();
+        TmdbProperties.RateLimit rateLimit = new TmdbProperties.RateLimit();
+        rateLimit.setRequests(2);
+        rateLimit.setPeriod(1);
+        properties.setRateLimit(rateLimit);
+        rateLimiter = new TmdbRateLimiter(properties);
+    }
+
+    @Test
+    void testReserve_超出容量后等待() {
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(0, rateLimiter.reserve());
+
+        // 每秒 2 个令牌: 第 3 个约等待 500ms, 第 4 个约 1000ms
+        long third = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve());
+        long fourth = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve());
+        assertTrue(third > 400 && third <= 500, "third=" + third);
+        assertTrue(fourth > 900 && fourth <= 1000, "fourth=" + fourth);
+    }
+
+    @Test
+    void testReserve_未配置限流() {
+        properties.getRateLimit().setRequests(0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimiter.reserve());
+        }
+    }
+
+    @Test
+    void testAcquire_中断后归还令牌() {
+        rateLimiter.reserve();
+        rateLimiter.reserve();
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, rateLimiter::acquire);
+
+        // 归还后下一个请求仍只需等待约 500ms
+        long next = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve());
+        assertTrue(next <= 500, "next=" + next);
+    }
+}
@@ -0,0 +1,255 @@
+package com.mediarenamer.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mediarenamer.model.dto.TmdbEpisodeDTO;
+import com.mediarenamer.model.dto.TmdbMovieDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TmdbResponseParser 单元测试
+ *
+ * 测试流式解析功能：
+ * - 搜索结果 / 详情解析
+ * - 未使用字段 (嵌套对象、数组) 的跳过
+ * - null 值处理, 数组中的 null / 非对象元素被跳过
+ * - 大季度载荷的内存分配对比 (流式 vs String + JsonNode 树)
+ */
+@Slf4j
+class TmdbResponseParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TmdbResponseParser parser = new TmdbResponseParser(objectMapper.getFactory());
+
+    @Test
+    void testReadMovieResults_搜索结果() throws IOException {
+        String json = """
+                {"page":1,"results":[
+                  {"id":603,"title":"黑客帝国","original_title":"The Matrix","release_date":"1999-03-30",
+                   "overview":"...","poster_path":"/p.jpg","backdrop_path":null,"vote_average":8.2,
+                   "vote_count":24000,"genre_ids":[28,878],"adult":false},
+                  {"id":604,"title":"黑客帝国2","release_date":"","vote_average":7}
+                ],"total_pages":1,"total_results":2}
+                """;
+
+        List<TmdbMovieDTO> movies = parser.readMovieResults(stream(json));
+
+        assertEquals(2, movies.size());
+        TmdbMovieDTO first = movies.get(0);
+        assertEquals(603L, first.getId());
+        assertEquals("黑客帝国", first.getTitle());
+        assertEquals("The Matrix", first.getOriginalTitle());
+        assertEquals(1999, first.getYear());
+        assertNull(first.getBackdropPath());
+        assertEquals(8.2, first.getVoteAverage());
+        assertEquals(24000, first.getVoteCount());
+        assertTrue(first.getGenres().isEmpty());
+
+        // 空日期不产生年份
+        assertNull(movies.get(1).getYear());
+        assertEquals(7.0, movies.get(1).getVoteAverage());
+    }
+
+    @Test
+    void testReadMovieResults_跳过非对象元素() throws IOException {
+        String json = """
+                {"results":[null,{"id":603,"title":"黑客帝国"},7,[1,{"id":1}],{"id":604,"title":"黑客帝国2"}],
+                 "total_results":2}
+                """;
+
+        List<TmdbMovieDTO> movies = parser.readMovieResults(stream(json));
+
+        assertEquals(List.of(603L, 604L), movies.stream().map(TmdbMovieDTO::getId).toList());
+
+        String season = """
+                {"episodes":[{"episode_number":1,"name":"Pilot"},null,{"episode_number":2,"name":"Cat's in the Bag"}]}
+                """;
+        assertEquals(2, parser.readSeasonEpisodes(stream(season)).size());
+    }
+
+    @Test
+    void testReadTvShowDetails_详情() throws IOException {
+        String json = """
+                {"id":1396,"name":"绝命毒师","original_name":"Breaking Bad","first_air_date":"2008-01-20",
+                 "genres":[{"id":18,"name":"剧情"},{"id":80,"name":"犯罪"}],
+                 "created_by":[{"id":66633,"name":"Vince Gilligan"}],
+                 "seasons":[{"season_number":1,"episode_count":7}],
+                 "number_of_seasons":5,"number_of_episodes":62,"networks":[{"id":174}]}
+                """;
+
+        TmdbTvShowDTO tvShow = parser.readTvShowDetails(stream(json));
+
+        assertEquals(1396L, tvShow.getId());
+        assertEquals("绝命毒师", tvShow.getName());
+        assertEquals("Breaking Bad", tvShow.getOriginalName());
+        assertEquals(2008, tvShow.getYear());
+        assertEquals(5, tvShow.getNumberOfSeasons());
+        assertEquals(62, tvShow.getNumberOfEpisodes());
+        assertEquals(2, tvShow.getGenres().size());
+        assertEquals("犯罪", tvShow.getGenres().get(1).getName());
+    }
+
+    @Test
+    void testReadTvShowWithSeasons_附加季度() throws IOException {
+        String json = "{\"id\":1396,\"name\":\"绝命毒师\",\"first_air_date\":\"2008-01-20\","
+                + "\"seasons\":[{\"season_number\":1}],"
+                + "\"season/1\":" + seasonPayload(7) + ","
+                + "\"season/2\":" + seasonPayload(13) + ","
+                + "\"season/x\":{\"episodes\":[]},"
+                + "\"number_of_seasons\":5}";
+
+        TmdbResponseParser.TvShowWithSeasons result = parser.readTvShowWithSeasons(stream(json));
+
+        assertEquals(1396L, result.tvShow().getId());
+        assertEquals(5, result.tvShow().getNumberOfSeasons());
+        assertEquals(2, result.seasons().size());
+        assertEquals(7, result.seasons().get(1).size());
+        assertEquals(13, result.seasons().get(2).size());
+        assertEquals("第 13 集", result.seasons().get(2).get(12).getName());
+    }
+
+    @Test
+    void testReadSeasonEpisodes_跳过大数组() throws IOException {
+        String json = seasonPayload(3);
+
+        List<TmdbEpisodeDTO> episodes = parser.readSeasonEpisodes(stream(json));
+
+        assertNotNull(episodes);
+        assertEquals(3, episodes.size());
+        assertEquals(1, episodes.get(0).getEpisodeNumber());
+        assertEquals("第 3 集", episodes.get(2).getName());
+        assertEquals("2020-01-03", episodes.get(2).getAirDate());
+    }
+
+    @Test
+    void testCountSeasonEpisodes_仅计数() throws IOException {
+        assertEquals(120, parser.countSeasonEpisodes(stream(seasonPayload(120))));
+        assertNull(parser.countSeasonEpisodes(stream("{\"id\":1,\"name\":\"Season 1\"}")));
+    }
+
+    @Test
+    void testReadSeasonEpisodes_无剧集节点() throws IOException {
+        assertNull(parser.readSeasonEpisodes(stream("{\"success\":false,\"status_code\":34}")));
+        assertTrue(parser.readMovieResults(stream("")).isEmpty());
+    }
+
+    @Test
+    void testAllocation_百集以上季度载荷() throws IOException {
+        // 分配基准: 150 集季度载荷, 对比旧实现 (String + readTree + 遍历) 与流式解析
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        byte[] payload = seasonPayload(150).getBytes(StandardCharsets.UTF_8);
+        int iterations = 200;
+
+        // 预热
+        for (int i = 0; i < 50; i++) {
+            readWithTree(payload);
+            parser.readSeasonEpisodes(new ByteArrayInputStream(payload));
+        }
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            readWithTree(payload);
+        }
+        long treeBytes = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            parser.readSeasonEpisodes(new ByteArrayInputStream(payload));
+        }
+        long streamingBytes = (threadBean.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        log.info("季度载荷 {} 字节: 树解析={} B/次, 流式解析={} B/次 ({}%)",
+                payload.length, treeBytes, streamingBytes, String.format("%.1f", streamingBytes * 100.0 / treeBytes));
+
+        assertTrue(streamingBytes < treeBytes,
+                "流式解析分配应少于树解析: streaming=" + streamingBytes + ", tree=" + treeBytes);
+    }
+
+    /**
+     * 旧实现: 先读成 String, 再构建 JsonNode 树, 最后遍历
+     */
+    private int readWithTree(byte[] payload) throws IOException {
+        String response = new String(payload, StandardCharsets.UTF_8);
+        JsonNode node = objectMapper.readTree(response);
+        int count = 0;
+        for (JsonNode episode : node.get("episodes")) {
+            TmdbEpisodeDTO.builder()
+                    .episodeNumber(episode.get("episode_number").asInt())
+                    .name(episode.get("name").asText())
+                    .overview(episode.get("overview").asText())
+                    .airDate(episode.get("air_date").asText())
+                    .stillPath(episode.get("still_path").asText())
+                    .build();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 构造与 TMDB /tv/{id}/season/{n} 结构一致的载荷 (含 crew / guest_stars)
+     */
+    private String seasonPayload(int episodeCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"_id\":\"5256c89f19c2956ff6046d47\",\"air_date\":\"2020-01-01\",\"name\":\"第 1 季\",")
+                .append("\"overview\":\"\",\"id\":3572,\"poster_path\":\"/season.jpg\",\"season_number\":1,")
+                .append("\"episodes\":[");
+        for (int i = 1; i <= episodeCount; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"air_date\":\"2020-01-").append(String.format("%02d", Math.min(i, 28))).append("\",")
+                    .append("\"episode_number\":").append(i).append(',')
+                    .append("\"id\":").append(62085 + i).append(',')
+                    .append("\"name\":\"第 ").append(i).append(" 集\",")
+                    .append("\"overview\":\"这是第 ").append(i).append(" 集的剧情简介, 用于模拟真实载荷的长度。\",")
+                    .append("\"production_code\":\"\",\"runtime\":45,\"season_number\":1,\"show_id\":1396,")
+                    .append("\"still_path\":\"/still").append(i).append(".jpg\",")
+                    .append("\"vote_average\":7.9,\"vote_count\":120,")
+                    .append("\"crew\":[");
+            for (int c = 0; c < 4; c++) {
+                if (c > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"job\":\"Director\",\"department\":\"Directing\",\"credit_id\":\"52542275760ee313280017f9\",")
+                        .append("\"adult\":false,\"gender\":2,\"id\":").append(c)
+                        .append(",\"known_for_department\":\"Directing\",\"name\":\"Crew Member\",")
+                        .append("\"original_name\":\"Crew Member\",\"popularity\":1.4,\"profile_path\":null}");
+            }
+            sb.append("],\"guest_stars\":[");
+            for (int g = 0; g < 6; g++) {
+                if (g > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"character\":\"Guest\",\"credit_id\":\"52542282760ee313280017f9\",\"order\":")
+                        .append(g).append(",\"adult\":false,\"gender\":1,\"id\":").append(1000 + g)
+                        .append(",\"known_for_department\":\"Acting\",\"name\":\"Guest Star\",")
+                        .append("\"original_name\":\"Guest Star\",\"popularity\":3.2,\"profile_path\":\"/g.jpg\"}");
+            }
+            sb.append("]}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    private InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
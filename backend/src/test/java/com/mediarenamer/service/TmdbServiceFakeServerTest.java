@@ -0,0 +1,292 @@
+package com.mediarenamer.service;
+
+import com.mediarenamer.config.TmdbProperties;
+import com.mediarenamer.jfr.TmdbRequestEvent;
+import com.mediarenamer.model.dto.TmdbEpisodeDTO;
+import com.mediarenamer.model.dto.TmdbTvShowDTO;
+import com.mediarenamer.support.FakeTmdbServer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TmdbService 集成测试 (基于本地 TMDB 替身服务器)
+ *
+ * 测试：
+ * - 流式解析 + 缓存 (搜索词归一化后共享)
+ * - append_to_response 批量加载季度, 熔断时抛出而不是吞掉
+ * - 瞬时错误重试
+ * - cassette 录制 / 回放, 按录制耗时回放
+ * - 缓存指标、接口耗时指标导出
+ * - JFR 请求事件
+ * - 半开状态下探测请求被取消: 不写入失败缓存, 熔断器放行下一个探测请求
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class TmdbServiceFakeServerTest {
+
+    private static final FakeTmdbServer FAKE_TMDB = FakeTmdbServer.startNew();
+
+    @Autowired
+    private TmdbService tmdbService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TmdbProperties tmdbProperties;
+
+    @Autowired
+    private PrometheusMeterRegistry meterRegistry;
+
+    @Autowired
+    private TmdbCircuitBreaker circuitBreaker;
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("tmdb.api-url", FAKE_TMDB::getApiUrl);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        FAKE_TMDB.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        FAKE_TMDB.resetStats();
+        FAKE_TMDB.setErrorRate(0);
+        FAKE_TMDB.setSeasonsPerShow(25);
+        tmdbProperties.getCassette().setMode(TmdbProperties.Cassette.Mode.OFF);
+        tmdbProperties.getCassette().setReplayAtRecordedSpeed(false);
+    }
+
+    @Test
+    void testSearchTvShow_命中缓存() {
+        FunctionCounter loads = meterRegistry.get("cache.load").tag("cache", "tvSearch").tag("result", "success")
+                .functionCounter();
+        double loadsBefore = loads.count();
+        Timer requestTimer = meterRegistry.timer("tmdb.request", "endpoint", "/search/tv", "outcome", "success");
+        long requestsBefore = requestTimer.count();
+
+        List<TmdbTvShowDTO> first = tmdbService.searchTvShow("绝命毒师", 2008);
+        List<TmdbTvShowDTO> second = tmdbService.searchTvShow("绝命毒师", 2008);
+
+        assertEquals("绝命毒师", first.getFirst().getName());
+        assertEquals(2008, first.getFirst().getYear());
+        assertEquals(first, second);
+        assertEquals(1, FAKE_TMDB.getRequestCount("search/tv"));
+
+        // 缓存指标: 只有一次加载, 命中率通过 Prometheus 导出
+        assertEquals(loadsBefore + 1, loads.count());
+        assertEquals(requestsBefore + 1, requestTimer.count());
+        String scrape = meterRegistry.scrape();
+        assertTrue(scrape.contains("cache_hit_ratio{application=\"media-renamer\",cache=\"tvSearch\""));
+        assertTrue(scrape.contains("cache_load_duration_seconds{application=\"media-renamer\",cache=\"tvSearch\""));
+    }
+
+    @Test
+    void testSearchTvShow_归一化共享缓存() {
+        tmdbService.searchTvShow("Breaking.Bad", 2008);
+        tmdbService.searchTvShow("breaking bad ", 2008);
+        tmdbService.searchTvShow("ＢＲＥＡＫＩＮＧ_ＢＡＤ", 2008);
+        tmdbService.searchTvShow("絕命毒師", null);
+        tmdbService.searchTvShow("绝命毒师", null);
+
+        assertEquals(2, FAKE_TMDB.getRequestCount("search/tv"));
+    }
+
+    @Test
+    void testLoadSeasons_批量加载() {
+        List<Integer> seasons = IntStream.rangeClosed(1, 26).boxed().toList();
+        FunctionCounter detailLoads = meterRegistry.get("cache.load").tag("cache", "seasonEpisodesDetail")
+                .tag("result", "success").functionCounter();
+        double loadsBefore = detailLoads.count();
+
+        int requests = tmdbService.loadSeasons(100L, seasons);
+
+        // 26 个季度 -> 2 次请求 (20 + 6), 第 26 季不存在
+        assertEquals(2, requests);
+        assertEquals(2, FAKE_TMDB.getRequestCount("tv"));
+
+        List<TmdbEpisodeDTO> episodes = tmdbService.getSeasonEpisodes(100L, 25);
+        assertEquals(24, episodes.size());
+        assertEquals(24, tmdbService.getSeasonEpisodeCount(100L, 1));
+        assertTrue(tmdbService.getSeasonEpisodes(100L, 26).isEmpty());
+        assertNotNull(tmdbService.getTvShowDetails(100L));
+
+        // 全部命中缓存, 没有额外请求
+        assertEquals(0, FAKE_TMDB.getRequestCount("tv/season"));
+        assertEquals(2, FAKE_TMDB.getRequestCount("tv"));
+        assertEquals(0, tmdbService.loadSeasons(100L, seasons));
+        // 批量加载直接写入缓存, 不计为缓存加载
+        assertEquals(loadsBefore, detailLoads.count());
+    }
+
+    @Test
+    void testLoadSeasons_熔断时抛出() {
+        try {
+            for (int i = 0; i < tmdbProperties.getResilience().getFailureThreshold(); i++) {
+                circuitBreaker.recordFailure();
+            }
+
+            // 熔断不能被当作普通失败吞掉, 由调用方决定如何降级
+            List<Integer> seasons = IntStream.rangeClosed(1, 26).boxed().toList();
+            assertThrows(TmdbUnavailableException.class, () -> tmdbService.loadSeasons(100L, seasons));
+            assertEquals(0, FAKE_TMDB.getRequestCount("tv"));
+        } finally {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    @Test
+    void testSearchMovie_瞬时错误重试() {
+        FAKE_TMDB.setErrorRate(1.0);
+        // 重试耗尽同样报告为暂不可用 (批量匹配据此记录被跳过的搜索词)
+        TmdbUnavailableException first = assertThrows(TmdbUnavailableException.class,
+                () -> tmdbService.searchMovie("Flaky", null));
+        assertNotNull(first.getCause());
+        assertEquals(3, FAKE_TMDB.getRequestCount("search/movie"));
+
+        // 失败被负缓存, 短时间内不再请求
+        FAKE_TMDB.setErrorRate(0);
+        assertThrows(TmdbUnavailableException.class, () -> tmdbService.searchMovie("Flaky", null));
+        assertEquals(3, FAKE_TMDB.getRequestCount("search/movie"));
+    }
+
+    @Test
+    void testCassette_录制后离线回放() {
+        tmdbProperties.getCassette().setMode(TmdbProperties.Cassette.Mode.RECORD);
+        List<TmdbTvShowDTO> recorded = tmdbService.searchTvShow("Cassette Show", 2015);
+        tmdbService.getSeasonEpisodes(100L, 1);
+        tmdbService.getSeasonEpisodes(100L, 30);
+
+        // 回放: 服务器全部返回 500 也不影响, 因为根本不访问网络
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        FAKE_TMDB.resetStats();
+        FAKE_TMDB.setErrorRate(1.0);
+        tmdbProperties.getCassette().setMode(TmdbProperties.Cassette.Mode.REPLAY);
+
+        assertEquals(recorded, tmdbService.searchTvShow("Cassette Show", 2015));
+        assertEquals(24, tmdbService.getSeasonEpisodes(100L, 1).size());
+        assertTrue(tmdbService.getSeasonEpisodes(100L, 30).isEmpty());
+        assertThrows(TmdbUnavailableException.class, () -> tmdbService.searchTvShow("Never Recorded", null));
+        assertEquals(0, FAKE_TMDB.getTotalRequestCount());
+    }
+
+    @Test
+    void testCassette_按录制耗时回放() {
+        FAKE_TMDB.setLatencyMs(150);
+        try {
+            tmdbProperties.getCassette().setMode(TmdbProperties.Cassette.Mode.RECORD);
+            tmdbService.searchMovie("Timed Movie", 2001);
+        } finally {
+            FAKE_TMDB.setLatencyMs(0);
+        }
+        tmdbProperties.getCassette().setMode(TmdbProperties.Cassette.Mode.REPLAY);
+
+        // 默认立即返回
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        long start = System.nanoTime();
+        tmdbService.searchMovie("Timed Movie", 2001);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 150);
+
+        // 按录制耗时延迟
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        tmdbProperties.getCassette().setReplayAtRecordedSpeed(true);
+        start = System.nanoTime();
+        tmdbService.searchMovie("Timed Movie", 2001);
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= 150);
+        assertEquals(1, FAKE_TMDB.getRequestCount("search/movie"));
+    }
+
+    @Test
+    void testSearchMovie_JFR事件() throws IOException {
+        Path file = Files.createTempFile("tmdb-request", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(TmdbRequestEvent.class);
+                recording.start();
+                tmdbService.searchMovie("Recorded Movie", 2020);
+                recording.stop();
+                recording.dump(file);
+            }
+
+            RecordedEvent event = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> "com.mediarenamer.TmdbRequest".equals(e.getEventType().getName()))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals("/search/movie", event.getString("endpoint"));
+            assertEquals("success", event.getString("outcome"));
+            // 事件中不能带 api_key
+            assertFalse(event.getString("path").contains("api_key"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testSearchMovie_取消半开探测请求() throws InterruptedException {
+        TmdbProperties.Resilience resilience = tmdbProperties.getResilience();
+        int openDuration = resilience.getOpenDurationSeconds();
+        resilience.setOpenDurationSeconds(0);
+        FAKE_TMDB.setLatencyMs(2000);
+        try {
+            for (int i = 0; i < resilience.getFailureThreshold(); i++) {
+                circuitBreaker.recordFailure();
+            }
+
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            Thread probe = Thread.ofVirtual().start(() -> {
+                try {
+                    tmdbService.searchMovie("Cancelled Probe", 2020);
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            // 等探测请求发出后取消
+            while (FAKE_TMDB.getRequestCount("search/movie") == 0) {
+                Thread.sleep(10);
+            }
+            probe.interrupt();
+            probe.join(5000);
+
+            assertInstanceOf(CancellationException.class, error.get());
+            assertEquals(TmdbCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+            // 名额已释放, 下一个请求作为探测放行; 被取消的搜索词没有写入失败缓存
+            FAKE_TMDB.setLatencyMs(0);
+            assertEquals("Cancelled Probe", tmdbService.searchMovie("Cancelled Probe", 2020).getFirst().getTitle());
+            assertEquals(TmdbCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        } finally {
+            FAKE_TMDB.setLatencyMs(0);
+            resilience.setOpenDurationSeconds(openDuration);
+            circuitBreaker.recordSuccess();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.mediarenamer.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地 TMDB 替身服务器 (仅测试使用)
+ *
+ * 基于 JDK 内置 HttpServer, 按请求内容生成确定性的假数据:
+ * - /3/search/movie, /3/search/tv: 返回以查询词命名的结果 (外加一个干扰项)
+ * - /3/movie/{id}, /3/tv/{id}: 详情, 支持 append_to_response=season/N
+ * - /3/tv/{id}/season/{n}: 季度详情, 超出 seasonsPerShow 时返回 404
+ *
+ * 可配置:
+ * - latencyMs / latencyJitterMs: 每个请求的固定延迟 + 随机抖动
+ * - rateLimitRequests / rateLimitWindowMs: 固定窗口限流, 超出返回 429
+ * - errorRate: 随机返回 500 的概率
+ * - unknownQueries: 搜索结果为空的查询词 (不区分大小写)
+ */
+@Slf4j
+@Getter
+@Setter
+public class FakeTmdbServer implements AutoCloseable {
+
+    private volatile long latencyMs = 0;
+    private volatile long latencyJitterMs = 0;
+    private volatile int rateLimitRequests = 0;
+    private volatile long rateLimitWindowMs = 10_000;
+    private volatile double errorRate = 0.0;
+    private volatile int seasonsPerShow = 3;
+    private volatile int episodesPerSeason = 24;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<String> unknownQueries = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciesNanos = new ConcurrentLinkedQueue<>();
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * 创建并在随机端口启动, 供测试类的静态字段初始化 (配合 @DynamicPropertySource 设置 tmdb.api-url)
+     */
+    public static FakeTmdbServer startNew() {
+        try {
+            return new FakeTmdbServer().start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 在随机端口启动
+     */
+    public FakeTmdbServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/3/", this::handle);
+        server.start();
+        log.info("Fake TMDB 启动: {}", getApiUrl());
+        return this;
+    }
+
+    /**
+     * 供 tmdb.api-url 使用的地址
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/3";
+    }
+
+    /**
+     * 某类端点的请求次数 (search/movie, search/tv, movie, tv, tv/season)
+     */
+    public int getRequestCount(String endpoint) {
+        AtomicInteger count = requestCounts.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public int getTotalRequestCount() {
+        return requestCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * 服务端处理耗时的分位数 (毫秒, 含注入的延迟)
+     */
+    public double latencyPercentileMs(double percentile) {
+        long[] sorted = latenciesNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * 设置搜索结果为空的查询词
+     */
+    public void setUnknownQueries(String... queries) {
+        unknownQueries.clear();
+        for (String query : queries) {
+            unknownQueries.add(query.toLowerCase());
+        }
+    }
+
+    /**
+     * 清空请求统计
+     */
+    public void resetStats() {
+        requestCounts.clear();
+        latenciesNanos.clear();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            URI uri = exchange.getRequestURI();
+            String[] segments = uri.getPath().substring("/3/".length()).split("/");
+            Map<String, String> params = parseQuery(uri.getRawQuery());
+            String endpoint = endpointName(segments);
+            requestCounts.computeIfAbsent(endpoint, k -> new AtomicInteger()).incrementAndGet();
+
+            simulateLatency();
+
+            if (isRateLimited()) {
+                respond(exchange, 429, Map.of("status_code", 25, "status_message", "Rate limit exceeded"));
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 500, Map.of("status_code", 11, "status_message", "Internal error"));
+                return;
+            }
+
+            Object body = route(segments, params);
+            if (body == null) {
+                respond(exchange, 404, Map.of("status_code", 34, "status_message", "Not found"));
+            } else {
+                respond(exchange, 200, body);
+            }
+        } finally {
+            latenciesNanos.add(System.nanoTime() - start);
+            exchange.close();
+        }
+    }
+
+    private Object route(String[] segments, Map<String, String> params) {
+        if (segments.length == 2 && "search".equals(segments[0])) {
+            String query = params.getOrDefault("query", "");
+            String year = params.containsKey("year") ? params.get("year") : params.get("first_air_date_year");
+            return "movie".equals(segments[1]) ? searchMovie(query, year) : searchTv(query, year);
+        }
+        if (segments.length == 2 && "movie".equals(segments[0])) {
+            return movie(Long.parseLong(segments[1]), null, null);
+        }
+        if (segments.length == 2 && "tv".equals(segments[0])) {
+            Map<String, Object> tv = tvShow(Long.parseLong(segments[1]), null, null);
+            String append = params.get("append_to_response");
+            if (append != null) {
+                for (String item : append.split(",")) {
+                    if (item.startsWith("season/")) {
+                        int seasonNumber = Integer.parseInt(item.substring("season/".length()));
+                        Map<String, Object> season = season(seasonNumber);
+                        if (season != null) {
+                            tv.put(item, season);
+                        }
+                    }
+                }
+            }
+            return tv;
+        }
+        if (segments.length == 4 && "tv".equals(segments[0]) && "season".equals(segments[2])) {
+            return season(Integer.parseInt(segments[3]));
+        }
+        return null;
+    }
+
+    private Map<String, Object> searchMovie(String query, String year) {
+        List<Object> results = new ArrayList<>();
+        if (unknownQueries.contains(query.toLowerCase())) {
+            return page(results);
+        }
+        results.add(movie(idOf(query), query, year));
+        results.add(movie(idOf(query + " 2"), query + " 2", null));
+        return page(results);
+    }
+
+    private Map<String, Object> searchTv(String query, String year) {
+        List<Object> results = new ArrayList<>();
+        if (unknownQueries.contains(query.toLowerCase())) {
+            return page(results);
+        }
+        results.add(tvShow(idOf(query), query, year));
+        results.add(tvShow(idOf(query + " Reloaded"), query + " Reloaded", null));
+        return page(results);
+    }
+
+    private Map<String, Object> movie(long id, String title, String year) {
+        Map<String, Object> movie = new LinkedHashMap<>();
+        movie.put("id", id);
+        movie.put("title", title != null ? title : "Movie " + id);
+        movie.put("original_title", title != null ? title : "Movie " + id);
+        movie.put("release_date", (year != null ? year : "2010") + "-06-01");
+        movie.put("overview", "Synthetic movie overview");
+        movie.put("poster_path", "/poster" + id + ".jpg");
+        movie.put("backdrop_path", null);
+        movie.put("vote_average", 7.1);
+        movie.put("vote_count", 1200);
+        movie.put("popularity", 12.5);
+        movie.put("genre_ids", List.of(18));
+        return movie;
+    }
+
+    private Map<String, Object> tvShow(long id, String name, String year) {
+        Map<String, Object> tv = new LinkedHashMap<>();
+        tv.put("id", id);
+        tv.put("name", name != null ? name : "Show " + id);
+        tv.put("original_name", name != null ? name : "Show " + id);
+        tv.put("first_air_date", (year != null ? year : "2010") + "-01-01");
+        tv.put("overview", "Synthetic show overview");
+        tv.put("poster_path", "/poster" + id + ".jpg");
+        tv.put("backdrop_path", null);
+        tv.put("vote_average", 8.0);
+        tv.put("vote_count", 3400);
+        tv.put("popularity", 45.2);
+        tv.put("number_of_seasons", seasonsPerShow);
+        tv.put("number_of_episodes", seasonsPerShow * episodesPerSeason);
+        return tv;
+    }
+
+    private Map<String, Object> season(int seasonNumber) {
+        if (seasonNumber < 0 || seasonNumber > seasonsPerShow) {
+            return null;
+        }
+        List<Object> episodes = new ArrayList<>();
+        for (int i = 1; i <= episodesPerSeason; i++) {
+            Map<String, Object> episode = new LinkedHashMap<>();
+            episode.put("episode_number", i);
+            episode.put("name", "Episode " + i);
+            episode.put("overview", "Synthetic episode overview");
+            episode.put("air_date", "2010-01-01");
+            episode.put("still_path", "/still" + i + ".jpg");
+            episode.put("crew", List.of(Map.of("job", "Director", "name", "Crew")));
+            episode.put("guest_stars", List.of());
+            episodes.add(episode);
+        }
+        Map<String, Object> season = new LinkedHashMap<>();
+        season.put("season_number", seasonNumber);
+        season.put("name", "Season " + seasonNumber);
+        season.put("episodes", episodes);
+        return season;
+    }
+
+    private Map<String, Object> page(List<Object> results) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("page", 1);
+        page.put("results", results);
+        page.put("total_pages", 1);
+        page.put("total_results", results.size());
+        return page;
+    }
+
+    private long idOf(String text) {
+        return (text.hashCode() & 0x7fffffffL) % 1_000_000 + 1;
+    }
+
+    private String endpointName(String[] segments) {
+        if (segments.length >= 2 && "search".equals(segments[0])) {
+            return "search/" + segments[1];
+        }
+        if (segments.length == 4 && "season".equals(segments[2])) {
+            return "tv/season";
+        }
+        return segments[0];
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMs;
+        if (latencyJitterMs > 0) {
+            delay += ThreadLocalRandom.current().nextLong(latencyJitterMs + 1);
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 固定窗口限流
+     */
+    private boolean isRateLimited() {
+        if (rateLimitRequests <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= rateLimitWindowMs && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() > rateLimitRequests;
+    }
+
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        Arrays.stream(rawQuery.split("&")).forEach(pair -> {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        });
+        return params;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mediarenamer.support;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.cumulative.CumulativeTimer;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.pause.PauseDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保留每次计时原始值的 MeterRegistry (压测用)
+ *
+ * 指定名称的 Timer 每记录一次就保存一个耗时 (纳秒), 不区分标签,
+ * 用于按单个文件 / 单个请求精确计算 p50 / p99, 而不是按整轮耗时近似
+ */
+public class LatencyRecordingMeterRegistry extends SimpleMeterRegistry {
+
+    private final Set<String> recordedNames;
+
+    // 指标名 -> 耗时 (纳秒)
+    private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+
+    public LatencyRecordingMeterRegistry(Set<String> recordedNames) {
+        this.recordedNames = recordedNames;
+    }
+
+    @Override
+    protected Timer newTimer(Meter.Id id, DistributionStatisticConfig distributionStatisticConfig,
+                             PauseDetector pauseDetector) {
+        if (!recordedNames.contains(id.getName())) {
+            return super.newTimer(id, distributionStatisticConfig, pauseDetector);
+        }
+        Queue<Long> values = latencies.computeIfAbsent(id.getName(), k -> new ConcurrentLinkedQueue<>());
+        return new CumulativeTimer(id, clock, distributionStatisticConfig, pauseDetector, getBaseTimeUnit(), false) {
+            @Override
+            protected void recordNonNegative(long amount, TimeUnit unit) {
+                super.recordNonNegative(amount, unit);
+                values.add(unit.toNanos(amount));
+            }
+        };
+    }
+
+    /**
+     * 某个指标记录的全部耗时 (纳秒)
+     */
+    public long[] latencies(String name) {
+        Queue<Long> values = latencies.get(name);
+        return values == null ? new long[0] : values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * 清空已记录的耗时
+     */
+    public void reset() {
+        latencies.values().forEach(Queue::clear);
+    }
+}
@@ -0,0 +1,250 @@
+package com.mediarenamer.support;
+
+import com.mediarenamer.controller.RenameController;
+import com.mediarenamer.model.dto.RenamePreviewDTO;
+import com.mediarenamer.model.dto.VideoFileDTO;
+import com.mediarenamer.service.BatchProcessService;
+import com.mediarenamer.service.FileScanner;
+import com.mediarenamer.service.RenameService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端压测工具: 扫描 → 匹配 → 预览 → 执行
+ *
+ * 使用本地 TMDB 替身服务器, 在临时目录生成 N 个文件的合成媒体库,
+ * 每轮清空缓存后跑完整流程, 输出各阶段吞吐量, 以及单个文件 (预览 / 执行) 和单个 TMDB 请求的 p50 / p99 耗时。
+ * 单项耗时取自 media.preview / media.rename / tmdb.request 指标的每一次记录, 汇总全部轮次。
+ *
+ * 类名不以 Test 结尾, 默认 mvn test 不会执行, 需要显式指定:
+ *
+ * mvn test -Dtest=PipelineLoadHarness -Dharness.files=5000 -Dharness.iterations=5 \
+ *          -Dharness.latencyMs=80 -Dharness.rateLimit=50 -Dharness.errorRate=0.01
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+@Slf4j
+class PipelineLoadHarness {
+
+    private static final FakeTmdbServer FAKE_TMDB = FakeTmdbServer.startNew();
+
+    private static final int FILES = Integer.getInteger("harness.files", 2000);
+    private static final int ITERATIONS = Integer.getInteger("harness.iterations", 3);
+    private static final int EPISODES_PER_SEASON = 12;
+    private static final int SEASONS_PER_SHOW = 3;
+
+    private static final String[] STAGES = {"scan", "match", "preview", "execute", "total"};
+
+    // 单项耗时: 指标名 -> 显示名
+    private static final Map<String, String> LATENCIES = new LinkedHashMap<>();
+
+    static {
+        LATENCIES.put("media.preview", "预览/文件");
+        LATENCIES.put("media.rename", "执行/文件");
+        LATENCIES.put("tmdb.request", "TMDB/请求");
+    }
+
+    @TestConfiguration
+    static class LatencyConfig {
+
+        /**
+         * 与 Prometheus 注册表一起组成复合注册表, 业务代码的计时同时记录到这里
+         */
+        @Bean
+        LatencyRecordingMeterRegistry latencyRecordingMeterRegistry() {
+            return new LatencyRecordingMeterRegistry(Set.copyOf(LATENCIES.keySet()));
+        }
+    }
+
+    @Autowired
+    private FileScanner fileScanner;
+
+    @Autowired
+    private BatchProcessService batchProcessService;
+
+    @Autowired
+    private RenameService renameService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private LatencyRecordingMeterRegistry latencyRegistry;
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("tmdb.api-url", FAKE_TMDB::getApiUrl);
+        registry.add("file.max-scan-depth", () -> 10);
+        registry.add("logging.level.com.mediarenamer", () -> "WARN");
+        registry.add("logging.level.com.mediarenamer.support", () -> "INFO");
+    }
+
+    @AfterAll
+    static void stopServer() {
+        FAKE_TMDB.close();
+    }
+
+    @Test
+    void runPipeline() throws IOException {
+        FAKE_TMDB.setLatencyMs(Long.getLong("harness.latencyMs", 50L));
+        FAKE_TMDB.setLatencyJitterMs(Long.getLong("harness.latencyJitterMs", 20L));
+        FAKE_TMDB.setRateLimitRequests(Integer.getInteger("harness.rateLimit", 0));
+        FAKE_TMDB.setErrorRate(Double.parseDouble(System.getProperty("harness.errorRate", "0")));
+        FAKE_TMDB.setSeasonsPerShow(SEASONS_PER_SHOW);
+        FAKE_TMDB.setEpisodesPerSeason(EPISODES_PER_SEASON);
+
+        Map<String, List<Long>> durations = new LinkedHashMap<>();
+        for (String stage : STAGES) {
+            durations.put(stage, new ArrayList<>());
+        }
+
+        latencyRegistry.reset();
+        for (int iteration = 1; iteration <= ITERATIONS; iteration++) {
+            cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+            FAKE_TMDB.resetStats();
+
+            Path root = Files.createTempDirectory("media-renamer-harness");
+            try {
+                generateMediaTree(root, FILES);
+                Map<String, Long> run = runOnce(root);
+                run.forEach((stage, ms) -> durations.get(stage).add(ms));
+
+                log.info("第 {} 轮: {}, TMDB 请求={} (服务端 p99={}ms)",
+                        iteration, run, FAKE_TMDB.getTotalRequestCount(),
+                        String.format("%.1f", FAKE_TMDB.latencyPercentileMs(99)));
+            } finally {
+                deleteRecursively(root);
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n===== 端到端压测: 文件数=%d, 轮数=%d =====%n", FILES, ITERATIONS));
+        report.append(String.format("%-8s %12s %14s%n", "阶段", "吞吐(文件/s)", "中位耗时(ms)"));
+        for (String stage : STAGES) {
+            long[] values = durations.get(stage).stream().mapToLong(Long::longValue).toArray();
+            double median = percentile(values, 50);
+            report.append(String.format("%-8s %12.1f %14.0f%n", stage, FILES * 1000.0 / Math.max(1, median), median));
+        }
+        report.append(String.format("%n%-10s %10s %10s %10s %10s%n", "单项", "次数", "p50(ms)", "p99(ms)", "max(ms)"));
+        for (Map.Entry<String, String> latency : LATENCIES.entrySet()) {
+            long[] nanos = latencyRegistry.latencies(latency.getKey());
+            report.append(String.format("%-10s %10d %10.2f %10.2f %10.2f%n", latency.getValue(), nanos.length,
+                    percentile(nanos, 50) / 1e6, percentile(nanos, 99) / 1e6, percentile(nanos, 100) / 1e6));
+        }
+        log.info("{}", report);
+    }
+
+    /**
+     * 跑一次完整流程, 返回各阶段耗时 (毫秒)
+     */
+    private Map<String, Long> runOnce(Path root) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        long pipelineStart = System.nanoTime();
+
+        long start = System.nanoTime();
+        List<VideoFileDTO> files = fileScanner.scanDirectory(root.toString(), null);
+        result.put("scan", elapsedMs(start));
+
+        start = System.nanoTime();
+        batchProcessService.batchMatchMedia(files);
+        result.put("match", elapsedMs(start));
+
+        start = System.nanoTime();
+        RenameController.BatchRenameRequest request = new RenameController.BatchRenameRequest();
+        request.setRequests(files.stream()
+                .filter(f -> f.getMatchedInfo() != null)
+                .map(this::toRenameRequest)
+                .toList());
+        List<RenamePreviewDTO> previews = renameService.batchGeneratePreview(request).getPreviews();
+        result.put("preview", elapsedMs(start));
+
+        start = System.nanoTime();
+        List<RenamePreviewDTO> executed = renameService.executeRename(new ArrayList<>(previews), root.toString());
+        result.put("execute", elapsedMs(start));
+
+        result.put("total", elapsedMs(pipelineStart));
+
+        long success = executed.stream().filter(p -> "success".equals(p.getStatus())).count();
+        assertTrue(success > 0, "至少应有文件重命名成功");
+        return result;
+    }
+
+    private RenameController.SingleRenameRequest toRenameRequest(VideoFileDTO file) {
+        RenameController.SingleRenameRequest req = new RenameController.SingleRenameRequest();
+        req.setVideoFile(file);
+        req.setMatchedInfo(file.getMatchedInfo());
+        req.setMediaType(file.getMediaType());
+        // MovieTemplate 与 TvTemplate 都有 STANDARD
+        req.setTemplate("STANDARD");
+        return req;
+    }
+
+    /**
+     * 生成合成媒体库: 约 80% 电视剧 (剧集/季/集), 20% 电影
+     */
+    private void generateMediaTree(Path root, int fileCount) throws IOException {
+        int movieCount = fileCount / 5;
+        int episodeCount = fileCount - movieCount;
+        int episodesPerShow = SEASONS_PER_SHOW * EPISODES_PER_SEASON;
+
+        for (int i = 0; i < episodeCount; i++) {
+            int show = i / episodesPerShow + 1;
+            int season = (i % episodesPerShow) / EPISODES_PER_SEASON + 1;
+            int episode = i % EPISODES_PER_SEASON + 1;
+            Path dir = root.resolve("Synthetic Show " + show).resolve("Season " + season);
+            Files.createDirectories(dir);
+            Files.createFile(dir.resolve(String.format("Synthetic.Show.%d.S%02dE%02d.1080p.WEB-DL.mkv",
+                    show, season, episode)));
+        }
+
+        for (int i = 1; i <= movieCount; i++) {
+            int year = 1990 + i % 30;
+            Path dir = root.resolve("Synthetic Movie " + i + " (" + year + ")");
+            Files.createDirectories(dir);
+            Files.createFile(dir.resolve(String.format("Synthetic.Movie.%d.%d.1080p.BluRay.mkv", i, year)));
+        }
+    }
+
+    private double percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount())
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mediarenamer.support;
+
+import com.mediarenamer.model.dto.VideoFileDTO;
+
+/**
+ * 测试用的已解析视频文件
+ */
+public final class TestVideoFiles {
+
+    private TestVideoFiles() {
+    }
+
+    public static VideoFileDTO movieFile(String title, Integer year) {
+        return VideoFileDTO.builder()
+                .mediaType("MOVIE")
+                .parsedTitle(title)
+                .parsedYear(year)
+                .build();
+    }
+
+    public static VideoFileDTO tvFile(String title, String parent, String grandParent) {
+        return VideoFileDTO.builder()
+                .mediaType("TV_SHOW")
+                .parsedTitle(title)
+                .parentDirectory(parent)
+                .grandParentDirectory(grandParent)
+                .build();
+    }
+}
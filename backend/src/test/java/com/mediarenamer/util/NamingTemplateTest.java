@@ -0,0 +1,79 @@
+package com.mediarenamer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NamingTemplate 单元测试
+ *
+ * 测试：
+ * - 占位符替换与补零
+ * - 默认值
+ * - 条件段: 占位符为空时整段省略
+ * - 值中的非法字符被去掉, 模板中的 / 保留为目录分隔符
+ * - 转义与格式错误
+ */
+class NamingTemplateTest {
+
+    private static final String TV_STANDARD =
+            "{show} ({year})/Season {season:02d}/{show} - S{season:02d}E{episode:02d}[ - {title}].{ext}";
+
+    @Test
+    void testRender_占位符与补零() {
+        NamingTemplate template = NamingTemplate.compile(TV_STANDARD);
+
+        String result = template.render(Map.of("show", "Breaking Bad", "year", 2008, "season", 1,
+                "episode", 5, "title", "Gray Matter", "ext", "mkv"));
+
+        assertEquals("Breaking Bad (2008)/Season 01/Breaking Bad - S01E05 - Gray Matter.mkv", result);
+        assertTrue(template.uses("title"));
+        assertFalse(template.uses("resolution"));
+    }
+
+    @Test
+    void testRender_默认值() {
+        NamingTemplate template = NamingTemplate.compile("{title} - {resolution|1080p}.{ext}");
+
+        assertEquals("Heat - 1080p.mkv", template.render(Map.of("title", "Heat", "ext", "mkv")));
+        assertEquals("Heat - 2160p.mkv", template.render(Map.of("title", "Heat", "resolution", "2160p", "ext", "mkv")));
+    }
+
+    @Test
+    void testRender_条件段() {
+        NamingTemplate template = NamingTemplate.compile(TV_STANDARD);
+        Map<String, Object> values = new HashMap<>(Map.of("show", "Breaking Bad", "year", 2008, "season", 1,
+                "episode", 5, "ext", "mkv"));
+
+        assertEquals("Breaking Bad (2008)/Season 01/Breaking Bad - S01E05.mkv", template.render(values));
+
+        values.put("title", "");
+        assertEquals("Breaking Bad (2008)/Season 01/Breaking Bad - S01E05.mkv", template.render(values));
+    }
+
+    @Test
+    void testRender_去掉非法字符() {
+        NamingTemplate template = NamingTemplate.compile("{title}/{title}.{ext}");
+
+        assertEquals("ACDC/ACDC.mkv", template.render(Map.of("title", "AC/DC", "ext", "mkv")));
+        assertEquals("FaceOff 2 What.mkv",
+                NamingTemplate.compile("{title}.{ext}").render(Map.of("title", "Face/Off: 2 What?", "ext", "mkv")));
+        assertEquals("", NamingTemplate.sanitize(null));
+    }
+
+    @Test
+    void testCompile_转义与格式错误() {
+        NamingTemplate template = NamingTemplate.compile("{title} \\{tmdb-{tmdbId}\\} \\[x\\].{ext}");
+        assertEquals("Heat {tmdb-949} [x].mkv", template.render(Map.of("title", "Heat", "tmdbId", 949L, "ext", "mkv")));
+
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile("{title"));
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile("[ - {title}"));
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile("{title}}"));
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile("{}"));
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile("{season:xx}"));
+        assertThrows(IllegalArgumentException.class, () -> NamingTemplate.compile(" "));
+    }
+}
@@ -0,0 +1,45 @@
+package com.mediarenamer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryNormalizer 单元测试
+ *
+ * 测试搜索词归一化：
+ * - 大小写折叠与分隔符合并
+ * - 全角字符 (NFKC)
+ * - 繁体转简体
+ * - 空值与纯分隔符
+ */
+class QueryNormalizerTest {
+
+    @Test
+    void testNormalize_大小写和分隔符() {
+        assertEquals("breaking bad", QueryNormalizer.normalize("Breaking.Bad"));
+        assertEquals("breaking bad", QueryNormalizer.normalize("breaking bad "));
+        assertEquals("breaking bad", QueryNormalizer.normalize("  Breaking__Bad"));
+        assertEquals("breaking bad", QueryNormalizer.normalize("BREAKING - BAD"));
+    }
+
+    @Test
+    void testNormalize_全角字符() {
+        assertEquals("breaking bad", QueryNormalizer.normalize("Ｂｒｅａｋｉｎｇ　Ｂａｄ"));
+        assertEquals("24", QueryNormalizer.normalize("２４"));
+    }
+
+    @Test
+    void testNormalize_繁体转简体() {
+        assertEquals("绝命毒师", QueryNormalizer.normalize("絕命毒師"));
+        assertEquals("权力的游戏", QueryNormalizer.normalize("權力的遊戲"));
+        assertEquals("请回答1988", QueryNormalizer.normalize("請回答1988"));
+        assertEquals(QueryNormalizer.normalize("龍珠"), QueryNormalizer.normalize("龙珠"));
+    }
+
+    @Test
+    void testNormalize_空值与纯分隔符() {
+        assertNull(QueryNormalizer.normalize(null));
+        assertEquals("...", QueryNormalizer.normalize("..."));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mediarenamer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.mediarenamer.util.TitleSimilarity.codePoints;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TitleSimilarity 单元测试
+ *
+ * 测试：
+ * - Jaro-Winkler 经典样例
+ * - Levenshtein 编辑距离
+ * - 中文按码点计算
+ * - 空标题
+ */
+class TitleSimilarityTest {
+
+    @Test
+    void testJaroWinkler_经典样例() {
+        assertEquals(0.961, TitleSimilarity.jaroWinkler(codePoints("MARTHA"), codePoints("MARHTA")), 0.001);
+        assertEquals(0.840, TitleSimilarity.jaroWinkler(codePoints("DWAYNE"), codePoints("DUANE")), 0.001);
+        assertEquals(0.813, TitleSimilarity.jaroWinkler(codePoints("DIXON"), codePoints("DICKSONX")), 0.001);
+        assertEquals(1.0, TitleSimilarity.jaroWinkler(codePoints("heat"), codePoints("heat")));
+    }
+
+    @Test
+    void testLevenshtein_编辑距离() {
+        assertEquals(3, TitleSimilarity.levenshtein(codePoints("kitten"), codePoints("sitting")));
+        assertEquals(3, TitleSimilarity.levenshtein(codePoints("sitting"), codePoints("kitten")));
+        assertEquals(0, TitleSimilarity.levenshtein(codePoints("heat"), codePoints("heat")));
+        assertEquals(0.5, TitleSimilarity.levenshteinSimilarity(codePoints("abcd"), codePoints("abxy")), 0.0001);
+    }
+
+    @Test
+    void testSimilarity_中文按码点计算() {
+        // 绝命毒师 vs 绝命毒师2: 编辑距离 1
+        assertEquals(1, TitleSimilarity.levenshtein(codePoints("绝命毒师"), codePoints("绝命毒师2")));
+        assertTrue(TitleSimilarity.similarity(codePoints("绝命毒师"), codePoints("绝命毒师2"))
+                > TitleSimilarity.similarity(codePoints("绝命毒师"), codePoints("风骚律师")));
+    }
+
+    @Test
+    void testSimilarity_空标题() {
+        assertEquals(1.0, TitleSimilarity.similarity(codePoints(""), codePoints(null)));
+        assertEquals(0.0, TitleSimilarity.similarity(codePoints("heat"), codePoints("")));
+    }
+}
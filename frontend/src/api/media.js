@@ -108,6 +108,36 @@ export function organizeUnprocessed(data) {
   })
 }
 
+/**
+ * 获取可用的命名模板
+ */
+export function getNamingTemplates() {
+  return request({
+    url: '/rename/templates',
+    method: 'get'
+  })
+}
+
+/**
+ * 获取重命名批次记录
+ */
+export function getRenameBatches() {
+  return request({
+    url: '/rename/batches',
+    method: 'get'
+  })
+}
+
+/**
+ * 撤销一个重命名批次
+ */
+export function undoRename(batchId) {
+  return request({
+    url: `/rename/undo/${batchId}`,
+    method: 'post'
+  })
+}
+
 /**
  * 批量匹配媒体信息 (使用虚拟线程高性能处理)
  */
@@ -130,6 +160,17 @@ export function batchPreviewRename(data) {
   })
 }
 
+/**
+ * 增量重新预览 (切换模板 / 修改季号时只返回有变化的预览)
+ */
+export function batchPreviewRenameDelta(data) {
+  return request({
+    url: '/rename/preview/batch/delta',
+    method: 'post',
+    data
+  })
+}
+
 // ==================== 扫描目录配置 ====================
 
 /**